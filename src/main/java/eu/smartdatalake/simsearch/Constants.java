@@ -43,6 +43,46 @@ public class Constants {
 	
 	public final static int INFLATION_FACTOR = 1000;     // Multiply the top-k with this value to specify the number of candidate results to made available from each attribute
 	
+	public final static int BATCH_GROWTH_FACTOR = 2;     // Multiply the size of the batch with this value each time further candidates are pulled from an attribute
+	
+	public final static int RANDOM_ACCESS_BATCH_SIZE = 100;   // Default max number of identifiers per request when retrieving attribute values for random access from in-situ data sources; system property "random_access_batch_size"
+	
+	public final static int TASK_POOL_SIZE = 4 * Runtime.getRuntime().availableProcessors();   // Default max number of worker threads executing search tasks for all requests
+	
+	public final static int TASK_QUEUE_CAPACITY = 1000;   // Default max number of search tasks waiting for a worker thread; further requests are rejected
+	
+	public final static int MAX_CONCURRENT_SEARCHES = 8;   // Default max number of search requests concurrently evaluated per API key
+	
+	public final static int RESULT_CACHE_SIZE = 1000;   // Default max number of search requests whose results are cached per instance; zero disables caching
+	
+	public final static long RESULT_CACHE_TTL = 600000;   // Default time (in milliseconds) that cached search results remain valid; zero means no expiration
+	
+	public final static int CANDIDATE_CACHE_SIZE = 100;   // Default max number of ranked candidate lists retained per instance from searches against ingested attributes; zero disables caching
+	
+	public final static long CANDIDATE_CACHE_MAX_CANDIDATES = 1000000;   // Default max total number of candidates retained in all cached candidate lists; least recently used lists are evicted beyond this
+	
+	public final static int INGEST_POOL_SIZE = Runtime.getRuntime().availableProcessors();   // Default number of threads used in ingesting categorical or textual attributes (parsing, token dictionary, inverted index)
+	
+	public final static double SPILLOVER_MERGE_RATIO = 0.1;   // Default size of the spill-over segment of an inverted index (sets upserted into a categorical or textual attribute) relative to its base collection that triggers a merge in the background
+	
+	public final static int SPILLOVER_MERGE_MIN = 1000;   // Default minimum number of sets in the spill-over segment of an inverted index that triggers a merge in the background
+	
+	public final static double SPATIAL_DELTA_MERGE_RATIO = 0.02;   // Default number of entities with locations upserted into a spatial attribute (kept in a delta R-tree) relative to its static index that triggers a merge in the background
+	
+	public final static int SPATIAL_DELTA_MERGE_MIN = 1000;   // Default minimum number of entities in the delta R-tree of a spatial attribute that triggers a merge in the background
+	
+	public final static double NUMERICAL_DELTA_MERGE_RATIO = 0.02;   // Default number of values upserted into a numerical or date/time attribute indexed by a B+-tree (kept in a sorted delta) relative to its static index that triggers a rebuild
+	
+	public final static int NUMERICAL_DELTA_MERGE_MIN = 1000;   // Default minimum number of values in the sorted delta of a numerical or date/time attribute that triggers a rebuild of its B+-tree
+	
+	public final static double BTREE_FILL_FACTOR = 0.9;   // Default fraction of node capacity filled when bulk loading B+-trees over numerical or date/time values; must be in [0.5, 1.0]
+	
+	public final static int PACKED_RTREE_NODE_SIZE = 16;   // Number of entries per node in the packed R-tree built over the columnar store of point locations
+	
+	public final static int DELTA_RTREE_NODE_SIZE = 4;   // Number of entries per node in the delta R-tree of a spatial attribute; small nodes limit the entries examined when a query only needs the root path of the delta
+	
+	public final static int MAX_BITMAP_ENTITIES = 1 << 26;  // Max number of entities (i.e., 8MB per request) for tracking checked candidates in a bitmap; otherwise, a hash set is used
+	
 	public final static List<String> RANKING_METHODS = Arrays.asList("threshold", "partial_random_access", "no_random_access", "pivot_based");
 	public final static String DEFAULT_METHOD = "threshold";	// By default, apply the threshold-based algorithm in rank aggregation
 
@@ -11,9 +11,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -21,26 +24,42 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Map.Entry;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
+import org.locationtech.jts.geom.Geometry;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import eu.smartdatalake.simsearch.engine.CandidateCache;
 import eu.smartdatalake.simsearch.engine.QueryValueParser;
 import eu.smartdatalake.simsearch.engine.Response;
+import eu.smartdatalake.simsearch.engine.ResultCache;
 import eu.smartdatalake.simsearch.engine.SearchHandler;
+import eu.smartdatalake.simsearch.engine.SearchRejectedException;
 import eu.smartdatalake.simsearch.engine.SearchResponse;
+import eu.smartdatalake.simsearch.engine.TaskScheduler;
 import eu.smartdatalake.simsearch.manager.AttributeInfo;
 import eu.smartdatalake.simsearch.manager.DataSource;
 import eu.smartdatalake.simsearch.manager.DataType;
 import eu.smartdatalake.simsearch.manager.DataType.Type;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.AttributeVersion;
 import eu.smartdatalake.simsearch.manager.ingested.DataIngestor;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
 import eu.smartdatalake.simsearch.manager.ingested.Index;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.ChunkedExecution;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.InvertedIndex;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollection;
 import eu.smartdatalake.simsearch.manager.ingested.lookup.Word2VectorTransformer;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.DeltaSpatialIndex;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.Location;
 import eu.smartdatalake.simsearch.manager.insitu.HttpRestConnector;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnectionPool;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
@@ -55,6 +74,7 @@ import eu.smartdatalake.simsearch.request.MountSource;
 import eu.smartdatalake.simsearch.request.MountSpecs;
 import eu.smartdatalake.simsearch.request.RemoveRequest;
 import eu.smartdatalake.simsearch.request.SearchRequest;
+import eu.smartdatalake.simsearch.request.SearchSpecs;
 
 /**
  * Orchestrates multi-attribute similarity search and issues ranked top-k results.
@@ -76,6 +96,10 @@ public class Coordinator {
 	Map<String, DataSource> dataSources;
 	Map<String, Index> indices;
 	Map<String, DatasetIdentifier> datasetIdentifiers;
+	Map<String, IDenseLookup<?>> denseLookups;    // Values of ingested attributes by dense identifier, used in random access
+	
+	// Dense integer identifiers of all entities, shared by all attributes
+	EntityDictionary entities;
 	
 	DataIngestor dataIngestor;
 	
@@ -83,6 +107,18 @@ public class Coordinator {
 	
 	PivotManager pivotManager;
 	
+	// Responses to previous search requests, invalidated once any of their attributes is mounted or removed
+	ResultCache resultCache;
+	
+	// Ranked candidates from searches against ingested attributes, reusable by requests that specify any of these facets identically
+	CandidateCache candidateCache;
+	
+	// Upserts and merges of ingested attributes are applied one at a time
+	ReentrantLock upsertLock;
+	
+	// Searches obtain the structures of ingested attributes under the read lock, while new versions of upserted attributes get published under the write lock
+	ReentrantReadWriteLock swapLock;
+	
 	private boolean collectQueryStats;
 	
 	/**
@@ -90,15 +126,21 @@ public class Coordinator {
 	 */
 	public Coordinator() {
 		
-		normalizations = new HashMap<String, INormal>();
-		datasets = new HashMap<String, Map<?,?>>();
+		normalizations = Collections.synchronizedMap(new HashMap<String, INormal>());
+		datasets = Collections.synchronizedMap(new HashMap<String, Map<?,?>>());
 		dataSources = new HashMap<String, DataSource>();
-		indices = new HashMap<String, Index>();
+		indices = Collections.synchronizedMap(new HashMap<String, Index>());
 		datasetIdentifiers = new HashMap<String, DatasetIdentifier>();
+		denseLookups = Collections.synchronizedMap(new HashMap<String, IDenseLookup<?>>());
+		entities = new EntityDictionary();
 		dataIngestor = null;
 		log = null;
 		myAssistant = new Assistant();
 		pivotManager = null;
+		resultCache = new ResultCache(Integer.getInteger("result_cache_size", Constants.RESULT_CACHE_SIZE), Long.getLong("result_cache_ttl", Constants.RESULT_CACHE_TTL));
+		candidateCache = new CandidateCache(Integer.getInteger("candidate_cache_size", Constants.CANDIDATE_CACHE_SIZE), Long.getLong("candidate_cache_candidates", Constants.CANDIDATE_CACHE_MAX_CANDIDATES));
+		upsertLock = new ReentrantLock();
+		swapLock = new ReentrantReadWriteLock();
 		
 		// By default, not collecting detailed statistics per query in normal execution
 		this.collectQueryStats = false;
@@ -238,6 +280,10 @@ public class Coordinator {
 		
 		Response mountResponse = new Response();
 		
+		// Remember the attributes available before mounting, so that cached results on any affected ones can be invalidated
+		Map<String, DatasetIdentifier> prevIdentifiers = new HashMap<String, DatasetIdentifier>(datasetIdentifiers);
+		PivotManager prevPivotManager = pivotManager;
+		
 		// Instantiate log file and settings
 		try {
 			Date creation_date = new Date();
@@ -260,6 +306,8 @@ public class Coordinator {
 				instanceSettings.settings.index.setMaxResultWindow(String.valueOf(Constants.K_MAX * Constants.INFLATION_FACTOR));
 				// Initialize the query timeout (in milliseconds)
 				instanceSettings.settings.index.setQueryTimeout(Constants.RANKING_MAX_TIME);
+				// Max number of concurrent search requests
+				instanceSettings.settings.index.setMaxConcurrentSearches(Integer.getInteger("max_concurrent_searches", Constants.MAX_CONCURRENT_SEARCHES));
 			}
 		} catch(Exception e) {
 			e.printStackTrace();
@@ -368,6 +416,11 @@ public class Coordinator {
 		// Keep the metrics specified per attribute for pivot-based search 
 		Map<String, String> pivotMetrics = new HashMap<String, String>();
 		
+		// Values to be upserted into attributes already mounted; all of them are applied together once the specified datasets have been read
+		Map<DatasetIdentifier, Map<String, Double>> deltas = new LinkedHashMap<DatasetIdentifier, Map<String, Double>>();
+		Map<DatasetIdentifier, Map<String, TokenSet>> tokenDeltas = new LinkedHashMap<DatasetIdentifier, Map<String, TokenSet>>();
+		Map<DatasetIdentifier, Map<String, Geometry>> locationDeltas = new LinkedHashMap<DatasetIdentifier, Map<String, Geometry>>();
+		
 		// Create the dictionary of data sources (i.e., queryable attributes) available for search
 		if (searchSpecs != null) {
 
@@ -523,6 +576,38 @@ public class Coordinator {
 					colKeyName = searchConfig.key_column;
 				id.setKeyAttribute(colKeyName);  				
 				
+				// Values in this dataset update an attribute already mounted instead of specifying a new one
+				if ((searchConfig.upsert != null) && searchConfig.upsert) {
+					DatasetIdentifier target = findIdentifier(id.getValueAttribute(), operation);
+					if ((target == null) || !datasets.containsKey(target.getHashKey()) || ((target.getOperation() != Constants.NUMERICAL_TOPK) && (target.getOperation() != Constants.TEMPORAL_TOPK) && (target.getOperation() != Constants.CATEGORICAL_TOPK) && (target.getOperation() != Constants.TEXTUAL_TOPK) && (target.getOperation() != Constants.SPATIAL_KNN))) {
+						String msg = "No ingested attribute " + id.getValueAttribute() + " is available for " + operation + ". Values from dataset " + dataset + " cannot be upserted.";
+						mountResponse.appendNotification(msg);
+						log.writeln(msg);
+					}
+					else if ((target.getOperation() == Constants.CATEGORICAL_TOPK) || (target.getOperation() == Constants.TEXTUAL_TOPK)) {
+						Map<String, TokenSet> delta = dataIngestor.readTokenDelta(searchConfig, id, jdbcConn);
+						if ((delta != null) && tokenDeltas.containsKey(target))	// Later datasets prevail for the same attribute
+							tokenDeltas.get(target).putAll(delta);
+						else if (delta != null)
+							tokenDeltas.put(target, delta);
+					}
+					else if (target.getOperation() == Constants.SPATIAL_KNN) {
+						Map<String, Geometry> delta = dataIngestor.readLocationDelta(searchConfig, id, jdbcConn);
+						if ((delta != null) && locationDeltas.containsKey(target))	// Later datasets prevail for the same attribute
+							locationDeltas.get(target).putAll(delta);
+						else if (delta != null)
+							locationDeltas.put(target, delta);
+					}
+					else {
+						Map<String, Double> delta = dataIngestor.readDelta(searchConfig, id, jdbcConn);
+						if ((delta != null) && deltas.containsKey(target))	// Later datasets prevail for the same attribute
+							deltas.get(target).putAll(delta);
+						else if (delta != null)
+							deltas.put(target, delta);
+					}
+					continue;
+				}
+				
 				// Skip index construction if an index is already built on this attribute
 				if (existsIdentifier(id)) {
 					String msg = "Attribute " + id.getValueAttribute() + " in dataset " + dataset +  " for " + operation + " has already been defined. Superfluous specification will be ignored.";
@@ -791,11 +876,16 @@ public class Coordinator {
 		for (JdbcConnector jdbcConn: openJdbcConnections)
 			jdbcConn.closeConnection();
 		
+		if (!deltas.isEmpty() || !tokenDeltas.isEmpty() || !locationDeltas.isEmpty())
+			upsert(deltas, tokenDeltas, locationDeltas);
+		
 		// In case of no errors, notify accordingly
 		if (mountResponse.getNotification() == null) {
 			mountResponse.appendNotification("Specified data source(s) have been mounted successfully and are available for similarity search queries.");
 		}
 		
+		invalidateResults(prevIdentifiers, prevPivotManager);
+		
 		return mountResponse;
 	}
 
@@ -811,7 +901,7 @@ public class Coordinator {
 				
 		// Re-use existing data ingestor if additional indices need be constructed on-the-fly during query execution
 		if (dataIngestor == null)
-			dataIngestor = new DataIngestor(log);
+			dataIngestor = new DataIngestor(entities, log);
 		
 		// If data comes from a REST API, no indexing is required
 		if (id.getDataSource().getHttpConn() != null)
@@ -825,6 +915,213 @@ public class Coordinator {
 		datasets = dataIngestor.getDatasets();
 		indices = dataIngestor.getIndices();
 		normalizations = dataIngestor.getNormalizations();			
+		denseLookups = dataIngestor.getDenseLookups();
+	}
+	
+	
+	/**
+	 * Upserts values into numerical, date/time, categorical, textual or spatial attributes already mounted, without ingesting these attributes again.
+	 * New versions of the structures of these attributes are built against copies of the current ones, so searches keep running meanwhile. 
+	 * All versions are then published together, so each search involves either none or all of the updates specified in a mount request.
+	 * @param deltas  The (entity, value) pairs to upsert per numerical or date/time attribute identifier.
+	 * @param tokenDeltas  The (entity, set of tokens) pairs to upsert per categorical or textual attribute identifier.
+	 * @param locationDeltas  The (entity, geometry) pairs to upsert per spatial attribute identifier.
+	 */
+	private void upsert(Map<DatasetIdentifier, Map<String, Double>> deltas, Map<DatasetIdentifier, Map<String, TokenSet>> tokenDeltas, Map<DatasetIdentifier, Map<String, Geometry>> locationDeltas) {
+		
+		upsertLock.lock();
+		try {
+			Map<DatasetIdentifier, AttributeVersion> versions = new HashMap<DatasetIdentifier, AttributeVersion>();
+			Set<String> hashKeys = new HashSet<String>();
+			Set<String> columns = new HashSet<String>();
+			for (Map.Entry<DatasetIdentifier, Map<String, Double>> entry: deltas.entrySet()) {
+				versions.put(entry.getKey(), dataIngestor.upsert(entry.getKey(), entry.getValue()));
+				hashKeys.add(entry.getKey().getHashKey());
+				columns.add(entry.getKey().getValueAttribute());
+			}
+			for (Map.Entry<DatasetIdentifier, Map<String, TokenSet>> entry: tokenDeltas.entrySet()) {
+				versions.put(entry.getKey(), dataIngestor.upsertTokenSets(entry.getKey(), entry.getValue()));
+				hashKeys.add(entry.getKey().getHashKey());
+				columns.add(entry.getKey().getValueAttribute());
+			}
+			for (Map.Entry<DatasetIdentifier, Map<String, Geometry>> entry: locationDeltas.entrySet()) {
+				versions.put(entry.getKey(), dataIngestor.upsertLocations(entry.getKey(), entry.getValue()));
+				hashKeys.add(entry.getKey().getHashKey());
+				columns.add(entry.getKey().getValueAttribute());
+			}
+			
+			// Cached results must be discarded along with publishing the new versions, before any search obtains them
+			swapLock.writeLock().lock();
+			try {
+				for (Map.Entry<DatasetIdentifier, AttributeVersion> entry: versions.entrySet())
+					dataIngestor.publish(entry.getKey(), entry.getValue());
+				invalidateResults(hashKeys, columns);
+			} finally {
+				swapLock.writeLock().unlock();
+			}
+			
+			// Inverted indices with a large spill-over segment get merged in the background
+			double ratio = Double.parseDouble(System.getProperty("spillover_merge_ratio", String.valueOf(Constants.SPILLOVER_MERGE_RATIO)));
+			int minSize = Integer.getInteger("spillover_merge_min", Constants.SPILLOVER_MERGE_MIN);
+			for (DatasetIdentifier target: tokenDeltas.keySet()) {
+				Index<?,?> index = indices.get(target.getHashKey());
+				if ((index instanceof InvertedIndex) && !((InvertedIndex) index).isMerging() && ((InvertedIndex) index).needsMerge(ratio, minSize))
+					mergeInBackground(target, (InvertedIndex) index);
+			}
+			
+			// Spatial indices with a large delta R-tree get merged in the background
+			ratio = Double.parseDouble(System.getProperty("spatial_delta_merge_ratio", String.valueOf(Constants.SPATIAL_DELTA_MERGE_RATIO)));
+			minSize = Integer.getInteger("spatial_delta_merge_min", Constants.SPATIAL_DELTA_MERGE_MIN);
+			for (DatasetIdentifier target: locationDeltas.keySet()) {
+				Index<?,?> index = indices.get(target.getHashKey());
+				if ((index instanceof DeltaSpatialIndex) && !((DeltaSpatialIndex<?,?>) index).isMerging() && ((DeltaSpatialIndex<?,?>) index).needsMerge(ratio, minSize))
+					mergeSpatialInBackground(target, (DeltaSpatialIndex<String, Location>) index);
+			}
+		} finally {
+			upsertLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * Replaces the index on an attribute with a merged one, so that it is used by any search starting afterwards.
+	 * CAUTION! This must be called while holding the upsert lock.
+	 * @param target  Identifier of the attribute.
+	 * @param merged  The merged index.
+	 */
+	private void publishMerged(DatasetIdentifier target, Index<?,?> merged) {
+		
+		swapLock.writeLock().lock();
+		try {
+			indices.put(target.getHashKey(), merged);
+			invalidateResults(new HashSet<String>(Arrays.asList(target.getHashKey())), new HashSet<String>(Arrays.asList(target.getValueAttribute())));
+		} finally {
+			swapLock.writeLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * Rebuilds the inverted index on a categorical or textual attribute in the background, so that the sets in its spill-over segment get merged into its base collection.
+	 * The rebuild runs in the pool of threads shared by ingestion. The sets of the attribute are copied while holding the upsert lock, so searches are not blocked and only upserts wait for the copy.
+	 * Searches and upserts against copies of the current index may continue meanwhile; once the new index is built, any sets upserted since the copy are replayed into it and it replaces the latest copy.
+	 * CAUTION! This must be called while holding the upsert lock, so that no other merge is scheduled for this index.
+	 * @param target  Identifier of the attribute.
+	 * @param index  The current inverted index on this attribute.
+	 */
+	private void mergeInBackground(final DatasetIdentifier target, final InvertedIndex index) {
+		
+		final String hashKey = target.getHashKey();
+		index.setMerging(true);
+		log.writeln("Merging " + index.getNumSpilled() + " upserted sets into the inverted index on attribute " + target.getValueAttribute() + " in the background.");
+		
+		ChunkedExecution.submit(new Runnable() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void run() {
+				// Copy all sets, consistently with the spill-over segment of the latest copy of the index
+				TokenSetCollection snapshot = new TokenSetCollection();
+				int mark;
+				upsertLock.lock();
+				try {
+					// Skip if the attribute has been removed or remounted meanwhile
+					Index<?,?> current = indices.get(hashKey);
+					if (!(current instanceof InvertedIndex) || !index.sharesBase((InvertedIndex) current))
+						return;
+					snapshot.sets.putAll((Map<String, TokenSet>) datasets.get(hashKey));
+					mark = ((InvertedIndex) current).getNumSpilled();
+				} finally {
+					upsertLock.unlock();
+				}
+				
+				InvertedIndex merged = null;
+				try {
+					long duration = System.nanoTime();
+					merged = dataIngestor.rebuildInvertedIndex(snapshot, index.isCompressed());
+					duration = System.nanoTime() - duration;
+					log.writeln("Inverted index on attribute " + target.getValueAttribute() + " rebuilt in " + duration / 1000000000.0 + " sec.");
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				
+				upsertLock.lock();
+				try {
+					// Skip if the attribute has been removed or remounted meanwhile
+					Index<?,?> current = indices.get(hashKey);
+					if ((merged != null) && (current instanceof InvertedIndex) && index.sharesBase((InvertedIndex) current)) {
+						merged.replay((InvertedIndex) current, mark);
+						publishMerged(target, merged);
+						log.writeln("Inverted index on attribute " + target.getValueAttribute() + " replaced; " + (((InvertedIndex) current).getNumSpilled() - mark) + " sets upserted meanwhile have been replayed.");
+					}
+					else if (current instanceof InvertedIndex)
+						((InvertedIndex) current).setMerging(false);
+				} finally {
+					upsertLock.unlock();
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * Rebuilds the static index on a spatial attribute in the background, so that the locations in its delta R-tree get merged into it.
+	 * The rebuild runs in the pool of threads shared by ingestion. The locations of the attribute are copied while holding the upsert lock, so searches are not blocked and only upserts wait for the copy.
+	 * Searches and upserts against copies of the current index may continue meanwhile; once the new index is built, any locations upserted since the copy are replayed into it and it replaces the latest copy.
+	 * CAUTION! This must be called while holding the upsert lock, so that no other merge is scheduled for this index.
+	 * @param target  Identifier of the attribute.
+	 * @param index  The current spatial index on this attribute.
+	 */
+	private void mergeSpatialInBackground(final DatasetIdentifier target, final DeltaSpatialIndex<String, Location> index) {
+		
+		final String hashKey = target.getHashKey();
+		index.setMerging(true);
+		log.writeln("Merging " + index.getNumChanged() + " upserted locations into the spatial index on attribute " + target.getValueAttribute() + " in the background.");
+		
+		ChunkedExecution.submit(new Runnable() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void run() {
+				// Copy all locations, consistently with the delta of the latest copy of the index
+				Map<String, Geometry> snapshot;
+				int mark;
+				upsertLock.lock();
+				try {
+					// Skip if the attribute has been removed or remounted meanwhile
+					Index<?,?> current = indices.get(hashKey);
+					if (!(current instanceof DeltaSpatialIndex) || !index.sharesBase((DeltaSpatialIndex<String, Location>) current))
+						return;
+					snapshot = dataIngestor.snapshotLocations(target);
+					mark = ((DeltaSpatialIndex<String, Location>) current).getNumUpserted();
+				} finally {
+					upsertLock.unlock();
+				}
+				
+				DeltaSpatialIndex<String, Location> merged = null;
+				try {
+					long duration = System.nanoTime();
+					merged = dataIngestor.rebuildSpatialIndex(snapshot);
+					duration = System.nanoTime() - duration;
+					log.writeln("Spatial index on attribute " + target.getValueAttribute() + " rebuilt in " + duration / 1000000000.0 + " sec.");
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				
+				upsertLock.lock();
+				try {
+					// Skip if the attribute has been removed or remounted meanwhile
+					Index<?,?> current = indices.get(hashKey);
+					if ((merged != null) && (current instanceof DeltaSpatialIndex) && index.sharesBase((DeltaSpatialIndex<String, Location>) current)) {
+						merged.replay((DeltaSpatialIndex<String, Location>) current, mark);
+						publishMerged(target, merged);
+						log.writeln("Spatial index on attribute " + target.getValueAttribute() + " replaced; " + (((DeltaSpatialIndex<String, Location>) current).getNumUpserted() - mark) + " locations upserted meanwhile have been replayed.");
+					}
+					else if (current instanceof DeltaSpatialIndex)
+						((DeltaSpatialIndex<String, Location>) current).setMerging(false);
+				} finally {
+					upsertLock.unlock();
+				}
+			}
+		});
 	}
 	
 	
@@ -871,6 +1168,10 @@ public class Coordinator {
 		Response delResponse = new Response();
 		boolean delPivot = false;
 		
+		// Remember the attributes available before removal, so that cached results on any affected ones can be invalidated
+		Map<String, DatasetIdentifier> prevIdentifiers = new HashMap<String, DatasetIdentifier>(datasetIdentifiers);
+		PivotManager prevPivotManager = pivotManager;
+		
 		// Array of specified data attributes and their supported operations to remove
 		AttributeInfo[] arrAttrs2Remove = params.remove;
 		try {
@@ -929,10 +1230,62 @@ public class Coordinator {
 				delResponse.appendNotification(msg);
 				log.writeln(msg);
 			}
+			invalidateResults(prevIdentifiers, prevPivotManager);
 		}
 		
 		return delResponse;
 	}
+	
+	
+	/**
+	 * Discards cached search results and candidate lists that involve any attribute added, replaced, or removed since the given snapshot of dataset identifiers.
+	 * If the pivot manager has changed, results involving any attribute in pivot-based search are also discarded.
+	 * @param prevIdentifiers  The dataset identifiers available before mounting or removal.
+	 * @param prevPivotManager  The pivot manager available before mounting or removal.
+	 */
+	private void invalidateResults(Map<String, DatasetIdentifier> prevIdentifiers, PivotManager prevPivotManager) {
+		
+		Set<String> hashKeys = new HashSet<String>();
+		Set<String> columns = new HashSet<String>();
+		
+		// Removed or replaced attributes
+		for (Entry<String, DatasetIdentifier> entry: prevIdentifiers.entrySet()) {
+			DatasetIdentifier id = datasetIdentifiers.get(entry.getKey());
+			if ((id != entry.getValue()) || ((prevPivotManager != pivotManager) && (entry.getValue().getOperation() == Constants.PIVOT_BASED))) {
+				hashKeys.add(entry.getKey());
+				columns.add(entry.getValue().getValueAttribute());
+			}
+		}
+		
+		// New attributes
+		for (Entry<String, DatasetIdentifier> entry: datasetIdentifiers.entrySet()) {
+			if ((prevIdentifiers.get(entry.getKey()) != entry.getValue()) || ((prevPivotManager != pivotManager) && (entry.getValue().getOperation() == Constants.PIVOT_BASED))) {
+				hashKeys.add(entry.getKey());
+				columns.add(entry.getValue().getValueAttribute());
+			}
+		}
+		
+		invalidateResults(hashKeys, columns);
+	}
+	
+	/**
+	 * Discards cached search results and candidate lists that involve any of the given attributes.
+	 * @param hashKeys  The hash keys of the attributes.
+	 * @param columns  The names of the attributes.
+	 */
+	private void invalidateResults(Set<String> hashKeys, Set<String> columns) {
+		
+		if (hashKeys.isEmpty())
+			return;
+		
+		int n = resultCache.invalidate(hashKeys, columns);
+		if ((n > 0) && (log != null))
+			log.writeln("Invalidated " + n + " cached search result(s) involving attribute(s) " + columns + ".");
+		
+		n = candidateCache.invalidate(hashKeys);
+		if ((n > 0) && (log != null))
+			log.writeln("Invalidated " + n + " cached candidate list(s) involving attribute(s) " + columns + ".");
+	}
 
 	/**
 	 * Remove all references to constructs on this attribute data identified by its hash key.
@@ -942,6 +1295,9 @@ public class Coordinator {
 		datasets.remove(hashKey);
 		indices.remove(hashKey);
 		normalizations.remove(hashKey);
+		denseLookups.remove(hashKey);
+		if (dataIngestor != null)
+			dataIngestor.getStatistics().remove(hashKey);
 	}
 	
 	
@@ -1076,26 +1432,89 @@ public class Coordinator {
 	}
 	
 	
+	/**
+	 * Copies the references to the structures of ingested attributes, so that a search keeps using the same ones even if newer versions get published meanwhile.
+	 * @param map  The structures of all attributes by their hash keys.
+	 * @return  A copy of the map.
+	 */
+	private <V> Map<String, V> capture(Map<String, V> map) {
+		
+		synchronized (map) {
+			return new HashMap<String, V>(map);
+		}
+	}
+	
+	
 	/**
 	 * Searching stage: Given a user-specified configuration, execute the various similarity search queries and provide the ranked aggregated results.
 	 * This method accepts an instance of SearchRequest class.
 	 * @param params   An instance of SearchRequest class with the multi-facet search query specifications.
 	 * @return   A JSON-formatted response with the ranked results.
+	 * @throws SearchRejectedException  If the request cannot be accepted at the moment due to excessive load.
 	 */
-	public SearchResponse[] search(SearchRequest params) {
+	public SearchResponse[] search(SearchRequest params) throws SearchRejectedException {
 
 		try {
 			log.writeln("********************** New search request ... **********************");
+			
 			// The same instance of pivot manager handles all incoming pivot-based similarity search requests
-			if ((params.algorithm != null) && (params.algorithm.equals("pivot_based") && (pivotManager != null))) {
+			boolean pivotBased = (params.algorithm != null) && (params.algorithm.equals("pivot_based") && (pivotManager != null));
+			
+			// Structures of ingested attributes are obtained once, so this request involves either none or all of the updates of any upsert published meanwhile
+			long generation;	// Responses evaluated while attributes get mounted, upserted or removed must not be cached
+			SearchHandler reqHandler = null;
+			swapLock.readLock().lock();
+			try {
+				generation = resultCache.getGeneration();
+				if (!pivotBased) {		// A new handler is created for each request involving rank aggregation
+					reqHandler = new SearchHandler(dataSources, datasetIdentifiers, capture(datasets), capture(indices), capture(normalizations), capture(denseLookups), entities, log);
+					reqHandler.setCandidateCache(candidateCache);	// Ranked candidates may be reused from previous requests
+				}
+			} finally {
+				swapLock.readLock().unlock();
+			}
+			
+			// Identical requests may be answered with the results previously issued for them, unless any of their attributes has changed since
+			String cacheKey = null;
+			Set<String> hashKeys = new HashSet<String>();
+			Set<String> columns = new HashSet<String>();
+			if (resultCache.isCacheable(params)) {
+				cacheKey = resultCache.key(params);
+				SearchResponse[] cached = resultCache.get(cacheKey);
+				if (cached != null) {
+					log.writeln("Search results retrieved from cache (hits: " + resultCache.getNumHits() + ", misses: " + resultCache.getNumMisses() + ").");
+					return cached;
+				}
+				
+				// Attributes involved in this request, either in similarity criteria or as extra columns in the output
+				for (SearchSpecs q: params.queries) {
+					if (q.column != null)
+						columns.add(q.column.toString());
+				}
+				if ((params.output != null) && (params.output.extra_columns != null))
+					columns.addAll(Arrays.asList(params.output.extra_columns));
+				for (DatasetIdentifier id: datasetIdentifiers.values()) {
+					if (columns.contains(id.getValueAttribute()))
+						hashKeys.add(id.getHashKey());
+				}
+			}
+			
+			SearchResponse[] responses;
+			if (pivotBased) {
 				pivotManager.setCollectQueryStats(this.isCollectQueryStats());	// Specify whether to collect detailed query statistics
-				return pivotManager.search(params);
+				responses = pivotManager.search(params);
 			}
-			else {		// A new handler is created for each request involving rank aggregation
-				SearchHandler reqHandler = new SearchHandler(dataSources, datasetIdentifiers, datasets, indices, normalizations, log);
+			else {
 				reqHandler.setCollectQueryStats(this.isCollectQueryStats());	// Specify whether to collect detailed query statistics
-				return reqHandler.search(params, this.instanceSettings.settings.index.getQueryTimeout());
+				responses = reqHandler.search(params, this.instanceSettings.settings.index.getQueryTimeout());
 			}
+			
+			if (cacheKey != null)
+				resultCache.put(cacheKey, responses, hashKeys, columns, generation);
+			
+			return responses;
+		} catch (SearchRejectedException e) {
+			throw e;   // Not an illegal specification; the caller decides how to report it
 		} catch (Exception e) {
 			e.printStackTrace();
 			SearchResponse[] responses = new SearchResponse[1];
@@ -1124,6 +1543,15 @@ public class Coordinator {
 	 * @return  An object that contains generic informations about this instance.
 	 */
 	public InstanceSettings getSettings() {
+		// Report the current load of the scheduler shared by all instances
+		TaskScheduler scheduler = TaskScheduler.getInstance();
+		instanceSettings.settings.index.setTaskPoolSize(scheduler.getPoolSize());
+		instanceSettings.settings.index.setTaskQueueDepth(scheduler.getQueueDepth());
+		instanceSettings.settings.index.setRejectedTasks(scheduler.getNumRejected());
+		// Report usage of the cache with results of previous search requests
+		instanceSettings.settings.index.setResultCacheEntries(resultCache.size());
+		instanceSettings.settings.index.setResultCacheHits(resultCache.getNumHits());
+		instanceSettings.settings.index.setResultCacheMisses(resultCache.getNumMisses());
 		return instanceSettings;
 	}
 	
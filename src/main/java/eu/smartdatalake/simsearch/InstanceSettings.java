@@ -40,6 +40,14 @@ public class InstanceSettings extends Response {
 			private String max_result_window;
 			private String creation_date;
 			private long query_timeout;    				// Max execution time for ranking (in milliseconds)
+			private int max_concurrent_searches;		// Max number of search requests concurrently evaluated for this instance
+			private long rejected_searches;				// Number of search requests rejected for exceeding the max concurrent ones
+			private int task_pool_size;					// Max number of worker threads executing search tasks (shared by all instances)
+			private int task_queue_depth;				// Number of search tasks currently waiting for a worker (shared by all instances)
+			private long rejected_tasks;				// Number of search requests whose tasks could not be accepted (shared by all instances)
+			private int result_cache_entries;			// Number of search requests whose results are currently cached for this instance
+			private long result_cache_hits;				// Number of search requests answered from cached results
+			private long result_cache_misses;			// Number of cacheable search requests that had to be evaluated
 			public boolean isSimSearchInstance = true;  // By default set to true for a running SimSearch instance.
 			
 			/**
@@ -110,6 +118,133 @@ public class InstanceSettings extends Response {
 			public void setQueryTimeout(long query_timeout) {
 				this.query_timeout = query_timeout;
 			}
+
+			/**
+			 * Indicates the max number of search requests that may be concurrently evaluated for this instance.
+			 * @return  An integer representing the max number of concurrent search requests.
+			 */
+			public int getMaxConcurrentSearches() {
+				return max_concurrent_searches;
+			}
+
+			/**
+			 * Sets the max number of search requests that may be concurrently evaluated for this instance.
+			 * @param max_concurrent_searches  An integer representing the max number of concurrent search requests.
+			 */
+			public void setMaxConcurrentSearches(int max_concurrent_searches) {
+				this.max_concurrent_searches = max_concurrent_searches;
+			}
+
+			/**
+			 * Indicates how many search requests have been rejected because the max number of concurrent ones was reached.
+			 * @return  The number of rejected search requests.
+			 */
+			public long getRejectedSearches() {
+				return rejected_searches;
+			}
+
+			/**
+			 * Counts one more search request rejected because the max number of concurrent ones was reached.
+			 */
+			public synchronized void addRejectedSearch() {
+				this.rejected_searches++;
+			}
+
+			/**
+			 * Indicates the max number of worker threads executing search tasks in the running process.
+			 * @return  An integer representing the size of the pool of workers.
+			 */
+			public int getTaskPoolSize() {
+				return task_pool_size;
+			}
+
+			/**
+			 * Sets the max number of worker threads executing search tasks in the running process.
+			 * @param task_pool_size  An integer representing the size of the pool of workers.
+			 */
+			public void setTaskPoolSize(int task_pool_size) {
+				this.task_pool_size = task_pool_size;
+			}
+
+			/**
+			 * Indicates how many search tasks are currently waiting for a worker in the running process.
+			 * @return  The number of queued search tasks.
+			 */
+			public int getTaskQueueDepth() {
+				return task_queue_depth;
+			}
+
+			/**
+			 * Sets the number of search tasks currently waiting for a worker in the running process.
+			 * @param task_queue_depth  The number of queued search tasks.
+			 */
+			public void setTaskQueueDepth(int task_queue_depth) {
+				this.task_queue_depth = task_queue_depth;
+			}
+
+			/**
+			 * Indicates how many search requests have been rejected in the running process because their tasks could not be accepted.
+			 * @return  The number of rejected search requests.
+			 */
+			public long getRejectedTasks() {
+				return rejected_tasks;
+			}
+
+			/**
+			 * Sets the number of search requests rejected in the running process because their tasks could not be accepted.
+			 * @param rejected_tasks  The number of rejected search requests.
+			 */
+			public void setRejectedTasks(long rejected_tasks) {
+				this.rejected_tasks = rejected_tasks;
+			}
+
+			/**
+			 * Indicates how many search requests currently have their results cached for this instance.
+			 * @return  The number of cached entries.
+			 */
+			public int getResultCacheEntries() {
+				return result_cache_entries;
+			}
+
+			/**
+			 * Sets the number of search requests currently having their results cached for this instance.
+			 * @param result_cache_entries  The number of cached entries.
+			 */
+			public void setResultCacheEntries(int result_cache_entries) {
+				this.result_cache_entries = result_cache_entries;
+			}
+
+			/**
+			 * Indicates how many search requests have been answered from cached results.
+			 * @return  The number of cache hits.
+			 */
+			public long getResultCacheHits() {
+				return result_cache_hits;
+			}
+
+			/**
+			 * Sets the number of search requests answered from cached results.
+			 * @param result_cache_hits  The number of cache hits.
+			 */
+			public void setResultCacheHits(long result_cache_hits) {
+				this.result_cache_hits = result_cache_hits;
+			}
+
+			/**
+			 * Indicates how many cacheable search requests had to be evaluated, since no valid cached results were available.
+			 * @return  The number of cache misses.
+			 */
+			public long getResultCacheMisses() {
+				return result_cache_misses;
+			}
+
+			/**
+			 * Sets the number of cacheable search requests that had to be evaluated.
+			 * @param result_cache_misses  The number of cache misses.
+			 */
+			public void setResultCacheMisses(long result_cache_misses) {
+				this.result_cache_misses = result_cache_misses;
+			}
 		}	
 	}
 	
@@ -34,9 +34,10 @@ public class Logger {
 	
 	/**
 	 * Writes the specified message to the log with a timestamp.
+	 * Synchronized, since concurrent queries may log through the same instance and the date format is not thread-safe.
 	 * @param message  String to be written in the log.
 	 */
-	public void writeln(String message) {
+	public synchronized void writeln(String message) {
 		
 		if (this.logStream != null)
 			this.logStream.println(gmtDateFormat.format(new java.util.Date()) + " GMT " + message);
@@ -9,6 +9,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
+import eu.smartdatalake.simsearch.engine.SearchRejectedException;
 import eu.smartdatalake.simsearch.engine.SqlParser;
 import eu.smartdatalake.simsearch.manager.AttributeInfo;
 import eu.smartdatalake.simsearch.service.SimSearchServiceLauncher;
@@ -131,7 +132,11 @@ public class Runner {
 					break;
 				case 4:  // SEARCH 
 					 // Invoke similarity search with the parameters specified in the given JSON configuration
-					printResponse(myCoordinator.search(getConfigFile()), "Query evaluation terminated abnormally. Make sure that the JSON file provides suitable search specifications.");
+					try {
+						printResponse(myCoordinator.search(getConfigFile()), "Query evaluation terminated abnormally. Make sure that the JSON file provides suitable search specifications.");
+					} catch (SearchRejectedException e) {   // Too many pending search tasks
+						printResponse(e.getResponses(), "Query evaluation terminated abnormally.");
+					}
 					break;
 				case 5:	 // SQL TERMINAL
 					System.out.println("Entering SQL terminal for SELECT queries. \nType " + RED_BRIGHT + "\\d" + ANSI_RESET + " to list queryable attributes. \nType " + RED_BRIGHT + "\\q" + ANSI_RESET + " to exit.");	
@@ -155,7 +160,11 @@ public class Runner {
 						else {	// Parse the submitted SQL query
 							if (q.toLowerCase().startsWith("select")) {
 								SqlParser sqlparser = new SqlParser(myCoordinator.listDataSources());
-								myCoordinator.search(sqlparser.parseSelect(q));
+								try {
+									myCoordinator.search(sqlparser.parseSelect(q));
+								} catch (SearchRejectedException e) {   // Too many pending search tasks
+									printResponse(e.getResponses(), "Query evaluation terminated abnormally.");
+								}
 							}
 							else if (q.toLowerCase().startsWith("set")) {   // Set global setting for this instance
 								q = q.toLowerCase().trim();					// e.g.: SET query_timeout 20000;
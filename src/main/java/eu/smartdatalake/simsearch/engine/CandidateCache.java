@@ -0,0 +1,188 @@
+package eu.smartdatalake.simsearch.engine;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import eu.smartdatalake.simsearch.engine.processor.ingested.CandidateStream;
+
+/**
+ * Cache of the ranked candidates issued by similarity search queries against ingested attributes, so that a facet specified identically in subsequent requests is not searched again.
+ * Each stream is keyed by the hash key of the attribute along with the query value, the parameters of the similarity measure and the max number of candidates.
+ * Streams are extended lazily, i.e., a request needing more candidates than those already computed resumes the query of the stream; each stream reports its extensions to the cache.
+ * Streams are evicted in LRU fashion once either their number or the total number of candidates they retain exceeds its limit. Requests still reading from an evicted stream are not affected.
+ * As with cached results, each invalidation starts a new generation, so that no stream created by a request that started earlier gets cached.
+ */
+public class CandidateCache {
+
+	private LinkedHashMap<String, CandidateStream> streams;
+	private Map<CandidateStream, Integer> retained;	// Number of candidates accounted for each cached stream
+	private int capacity;
+	private long maxCandidates;
+	private long numCandidates;	// Total number of candidates retained in all cached streams
+	private long numHits;
+	private long numMisses;
+	private long generation;	// Incremented on each invalidation
+
+	/**
+	 * Constructor
+	 * @param capacity  The maximum number of cached streams; a non-positive value disables caching.
+	 * @param maxCandidates  The maximum total number of candidates retained in all cached streams.
+	 */
+	public CandidateCache(int capacity, long maxCandidates) {
+
+		this.capacity = capacity;
+		this.maxCandidates = maxCandidates;
+		numCandidates = 0;
+		numHits = 0;
+		numMisses = 0;
+		generation = 0;
+
+		// Access order, so that the least recently used stream comes first
+		streams = new LinkedHashMap<String, CandidateStream>(16, 0.75f, true);
+		retained = new IdentityHashMap<CandidateStream, Integer>();
+	}
+
+
+	/**
+	 * Indicates whether streams can be cached.
+	 * @return  True, if caching is enabled; otherwise, False.
+	 */
+	public boolean isEnabled() {
+		return (capacity > 0);
+	}
+
+
+	/**
+	 * Provides the stream cached for the given query.
+	 * @param key  The canonical representation of the query against an attribute.
+	 * @return  The cached stream, or null if no such stream exists.
+	 */
+	public synchronized CandidateStream get(String key) {
+
+		CandidateStream stream = streams.get(key);
+		if (stream == null) {
+			numMisses++;
+			return null;
+		}
+		numHits++;
+		return stream;
+	}
+
+
+	/**
+	 * Provides the current generation of the cache; it must be obtained before a request starts searching.
+	 * @return  The number of invalidations so far.
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+
+	/**
+	 * Caches a stream for the given query, replacing any previous one, unless an invalidation took place since the request started.
+	 * @param key  The canonical representation of the query against an attribute.
+	 * @param stream  The stream of ranked candidates for this query.
+	 * @param generation  The generation of the cache when the request started.
+	 * @return  True, if the stream has been cached; otherwise, False.
+	 */
+	public synchronized boolean put(String key, CandidateStream stream, long generation) {
+
+		if ((capacity <= 0) || (generation != this.generation))
+			return false;
+		CandidateStream prev = streams.put(key, stream);
+		if (prev != null)
+			release(prev);
+		int n = stream.setCache(this);
+		retained.put(stream, n);
+		numCandidates += n;
+		evict();
+		return true;
+	}
+
+
+	/**
+	 * Accounts for candidates added to a stream since it was cached, evicting streams if the total number of retained candidates exceeds its limit.
+	 * @param stream  The extended stream.
+	 * @param added  The number of candidates added to this stream.
+	 */
+	public synchronized void extended(CandidateStream stream, int added) {
+
+		Integer n = retained.get(stream);
+		if (n == null)
+			return;		// Already evicted or invalidated
+		retained.put(stream, n + added);
+		numCandidates += added;
+		evict();
+	}
+
+
+	/**
+	 * Evicts the least recently used streams until both the number of streams and the total number of retained candidates are within their limits.
+	 */
+	private void evict() {
+
+		for (Iterator<CandidateStream> it = streams.values().iterator(); it.hasNext() && ((streams.size() > capacity) || (numCandidates > maxCandidates)); ) {
+			release(it.next());
+			it.remove();
+		}
+	}
+
+
+	/**
+	 * Stops accounting for the candidates of a stream that is no longer cached.
+	 * @param stream  The stream removed from the cache.
+	 */
+	private void release(CandidateStream stream) {
+
+		Integer n = retained.remove(stream);
+		if (n != null)
+			numCandidates -= n;
+	}
+
+
+	/**
+	 * Discards all streams concerning any of the given attributes.
+	 * @param hashKeys  Hash keys of the attribute datasets that have been mounted or removed.
+	 * @return  The number of discarded streams.
+	 */
+	public synchronized int invalidate(Collection<String> hashKeys) {
+
+		generation++;
+		int n = 0;
+		for (Iterator<CandidateStream> it = streams.values().iterator(); it.hasNext(); ) {
+			CandidateStream stream = it.next();
+			if (hashKeys.contains(stream.getHashKey())) {
+				release(stream);
+				it.remove();
+				n++;
+			}
+		}
+
+		return n;
+	}
+
+
+	public synchronized int size() {
+		return streams.size();
+	}
+
+	/**
+	 * Provides the total number of candidates retained in all cached streams.
+	 * @return  The number of retained candidates.
+	 */
+	public synchronized long getNumCandidates() {
+		return numCandidates;
+	}
+
+	public synchronized long getNumHits() {
+		return numHits;
+	}
+
+	public synchronized long getNumMisses() {
+		return numMisses;
+	}
+
+}
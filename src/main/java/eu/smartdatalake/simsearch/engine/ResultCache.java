@@ -0,0 +1,228 @@
+package eu.smartdatalake.simsearch.engine;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import eu.smartdatalake.simsearch.Constants;
+import eu.smartdatalake.simsearch.request.SearchRequest;
+import eu.smartdatalake.simsearch.request.SearchSpecs;
+
+/**
+ * Cache of the responses to search requests, so that identical requests submitted again to the same instance are answered without query evaluation.
+ * Entries are keyed by a canonical representation of the request and they are evicted in LRU fashion once the cache gets full, or once they expire.
+ * Each entry remembers the attributes (hash keys and names) involved in its evaluation, so that it can be invalidated once any of them is mounted or removed.
+ * Since requests may still be evaluated while attributes are being mounted, upserted or removed, each invalidation starts a new generation; responses evaluated during an earlier generation are not cached.
+ * CAUTION! Changes in the contents of in-situ data sources cannot be detected; such entries are only refreshed after they expire.
+ */
+public class ResultCache {
+
+	/**
+	 * Auxiliary class holding the response to a cached request.
+	 */
+	private class Entry {
+		SearchResponse[] responses;
+		Set<String> hashKeys;		// Hash keys of the attribute datasets involved in the request
+		Set<String> columns;		// Names of the attributes involved in the request
+		long created;
+
+		Entry(SearchResponse[] responses, Set<String> hashKeys, Set<String> columns) {
+			this.responses = responses;
+			this.hashKeys = hashKeys;
+			this.columns = columns;
+			this.created = System.currentTimeMillis();
+		}
+	}
+
+	private LinkedHashMap<String, Entry> entries;
+	private int capacity;
+	private long ttl;			// Time-to-live of each entry (in milliseconds); non-positive values indicate that entries never expire
+	private long numHits;
+	private long numMisses;
+	private long numEvictions;
+	private long numInvalidations;
+	private long generation;	// Incremented on each invalidation
+
+	/**
+	 * Constructor
+	 * @param capacity  The maximum number of cached responses; a non-positive value disables caching.
+	 * @param ttl  The time (in milliseconds) that a cached response remains valid; a non-positive value indicates no expiration.
+	 */
+	public ResultCache(int capacity, long ttl) {
+
+		this.capacity = capacity;
+		this.ttl = ttl;
+		numHits = 0;
+		numMisses = 0;
+		numEvictions = 0;
+		numInvalidations = 0;
+		generation = 0;
+
+		// Access order, so that the least recently used entry comes first
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() > ResultCache.this.capacity) {
+					numEvictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+
+	/**
+	 * Indicates whether responses to the given request may be cached. Requests writing their results to a file are always evaluated.
+	 * @param params  The search request.
+	 * @return  True, if the request can be served from the cache; otherwise, False.
+	 */
+	public boolean isCacheable(SearchRequest params) {
+
+		return (capacity > 0) && (params != null) && (params.queries != null) && ((params.output == null) || (params.output.file == null));
+	}
+
+
+	/**
+	 * Provides a canonical representation of a search request, so that equivalent requests are identified by the same key.
+	 * Query specifications are listed in the given order, since they determine the order of attributes and weights in the results.
+	 * @param params  The search request.
+	 * @return  A string that uniquely identifies the request.
+	 */
+	public String key(SearchRequest params) {
+
+		StringBuilder key = new StringBuilder();
+		String algorithm = (params.algorithm != null) ? params.algorithm.toLowerCase() : Constants.DEFAULT_METHOD;
+		key.append(algorithm).append('|').append(params.k).append('|').append(params.max_candidates);
+		for (SearchSpecs q: params.queries) {
+			key.append("|{").append(q.column).append(';').append(q.value).append(';').append(Arrays.toString(q.weights));
+			key.append(';').append(q.decay).append(';').append(q.scale).append(';').append(q.filter).append('}');
+		}
+		if ((params.output != null) && (params.output.extra_columns != null))
+			key.append('|').append(Arrays.toString(params.output.extra_columns));
+
+		return key.toString();
+	}
+
+
+	/**
+	 * Provides the cached responses to a request, if available and not expired.
+	 * @param key  The canonical representation of the request.
+	 * @return  A copy of the cached responses marked as retrieved from the cache, or null if no valid entry exists.
+	 */
+	public synchronized SearchResponse[] get(String key) {
+
+		Entry entry = entries.get(key);
+		if ((entry != null) && (ttl > 0) && (System.currentTimeMillis() - entry.created > ttl)) {
+			entries.remove(key);
+			numEvictions++;
+			entry = null;
+		}
+
+		if (entry == null) {
+			numMisses++;
+			return null;
+		}
+		numHits++;
+
+		// Each request gets its own copy, so that any changes in its notifications or statistics do not affect the cached entry
+		SearchResponse[] responses = new SearchResponse[entry.responses.length];
+		for (int i = 0; i < responses.length; i++) {
+			SearchResponse cached = entry.responses[i];
+			responses[i] = new SearchResponse();
+			responses[i].setWeights(cached.getWeights());
+			responses[i].setRankedResults(cached.getRankedResults());
+			responses[i].setSimilarityMatrix(cached.getSimilarityMatrix());
+			responses[i].setTimeInSeconds(cached.getTimeInSeconds());
+			responses[i].setNotification(cached.getNotification());
+			responses[i].appendNotification("Results retrieved from cache.");
+		}
+		return responses;
+	}
+
+
+	/**
+	 * Provides the current generation of the cache; it must be obtained before evaluating a request whose responses will be cached.
+	 * @return  The number of invalidations so far.
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+
+	/**
+	 * Caches the responses to a request. Responses are cached only if they all provide exact rankings, i.e., no query timed out and no error occurred.
+	 * Responses are also discarded if any invalidation took place during their evaluation, as they may involve attributes mounted or removed in the meantime.
+	 * @param key  The canonical representation of the request.
+	 * @param responses  The responses to the request.
+	 * @param hashKeys  Hash keys of the attribute datasets involved in the request.
+	 * @param columns  Names of the attributes involved in the request.
+	 * @param generation  The generation of the cache when evaluation of the request started.
+	 */
+	public synchronized void put(String key, SearchResponse[] responses, Set<String> hashKeys, Set<String> columns, long generation) {
+
+		if ((capacity <= 0) || (responses == null) || (generation != this.generation))
+			return;
+
+		for (SearchResponse response: responses) {
+			if ((response == null) || (response.getRankedResults() == null))
+				return;
+			for (IResult res: response.getRankedResults()) {
+				if (!res.isExact())
+					return;
+			}
+		}
+
+		entries.put(key, new Entry(responses, hashKeys, columns));
+	}
+
+
+	/**
+	 * Discards all cached responses involving any of the given attributes.
+	 * @param hashKeys  Hash keys of the attribute datasets that have been mounted or removed.
+	 * @param columns  Names of the attributes that have been mounted or removed.
+	 * @return  The number of discarded entries.
+	 */
+	public synchronized int invalidate(Collection<String> hashKeys, Collection<String> columns) {
+
+		generation++;
+		int n = 0;
+		for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+			Entry entry = it.next();
+			if (!Collections.disjoint(entry.hashKeys, hashKeys) || !Collections.disjoint(entry.columns, columns)) {
+				it.remove();
+				n++;
+			}
+		}
+		numInvalidations += n;
+
+		return n;
+	}
+
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getNumHits() {
+		return numHits;
+	}
+
+	public synchronized long getNumMisses() {
+		return numMisses;
+	}
+
+	public synchronized long getNumEvictions() {
+		return numEvictions;
+	}
+
+	public synchronized long getNumInvalidations() {
+		return numInvalidations;
+	}
+
+}
@@ -1,12 +1,16 @@
 package eu.smartdatalake.simsearch.engine;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.locationtech.jts.geom.Geometry;
@@ -20,7 +24,9 @@ import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
 import eu.smartdatalake.simsearch.engine.measure.NumericalDistance;
 import eu.smartdatalake.simsearch.engine.measure.SpatialDistance;
 import eu.smartdatalake.simsearch.engine.processor.IValueFinder;
+import eu.smartdatalake.simsearch.engine.processor.ingested.CandidateStream;
 import eu.smartdatalake.simsearch.engine.processor.ingested.IndexSimSearch;
+import eu.smartdatalake.simsearch.engine.processor.ingested.StreamSimSearch;
 import eu.smartdatalake.simsearch.engine.processor.insitu.ElasticSearchRestQuery;
 import eu.smartdatalake.simsearch.engine.processor.insitu.SimSearchJdbcQuery;
 import eu.smartdatalake.simsearch.engine.processor.insitu.SimSearchRestQuery;
@@ -36,14 +42,16 @@ import eu.smartdatalake.simsearch.engine.processor.ranking.randomaccess.SpatialV
 import eu.smartdatalake.simsearch.engine.weights.Validator;
 import eu.smartdatalake.simsearch.manager.DataSource;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
 import eu.smartdatalake.simsearch.manager.ingested.Index;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollection;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollectionReader;
-import eu.smartdatalake.simsearch.manager.ingested.numerical.BPlusTree;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INumericalIndex;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.ISpatialIndex;
 import eu.smartdatalake.simsearch.manager.ingested.spatial.Location;
-import eu.smartdatalake.simsearch.manager.ingested.spatial.RTree;
 import eu.smartdatalake.simsearch.manager.insitu.HttpRestConnector;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
 import eu.smartdatalake.simsearch.request.SearchRequest;
@@ -59,22 +67,30 @@ public class SearchHandler {
 	Logger log = null;
 	Assistant myAssistant;
 	
-	Map<String, Thread> tasks;
+	Map<String, Runnable> searches;
+	Map<String, Future<?>> tasks;
 	Map<String, ISimilarity> similarities;
 	Map<String, Double[]> weights;
 	Map<String, INormal> normalizations;
 	Map<String, Map<?, ?>> datasets;
 	Map<String, Map<?,?>> lookups;
+	Map<String, IDenseLookup<?>> denseDatasets;    // Values of all ingested attributes by dense identifier
+	Map<String, IDenseLookup<?>> denseLookups;     // ... and those used in random access for this request
 	Map<String, DataSource> dataSources;
 	Map<String, Index> indices;
 	Map<String, DatasetIdentifier> datasetIdentifiers;
 	Map<String, IValueFinder> valueFinders;
+	EntityDictionary entities;
 	
 	// List of queues that collect results from each running task
 	Map<String, RankedList> queues;
 	
 	// List of atomic booleans to control execution of the various threads
 	Map<String, AtomicBoolean> runControl;
+	
+	// Ranked candidates retained from previous requests against ingested attributes
+	CandidateCache candidateCache;
+	long candidateGeneration;		// Generation of the cache when this request started
 
 	private boolean collectQueryStats;
 	
@@ -85,11 +101,15 @@ public class SearchHandler {
 	 * @param datasets  Dictionary of the attribute datasets available for querying.
 	 * @param indices  Dictionary of in-memory indices on attribute data built for similarity search operations.
 	 * @param normalizations  Dictionary of normalizations applicable to numerical attribute data. 
+	 * @param denseDatasets  Dictionary of the values of ingested attributes by dense identifier; these are used in random access during rank aggregation.
+	 * @param entities  Dictionary of dense identifiers assigned to entities; these are used during rank aggregation.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public SearchHandler(Map<String, DataSource> dataSources, Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<?, ?>> datasets, Map<String, Index> indices, Map<String, INormal> normalizations, Logger log) {
+	public SearchHandler(Map<String, DataSource> dataSources, Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<?, ?>> datasets, Map<String, Index> indices, Map<String, INormal> normalizations, Map<String, IDenseLookup<?>> denseDatasets, EntityDictionary entities, Logger log) {
 			
 		this.normalizations = normalizations;
+		this.denseDatasets = denseDatasets;
+		this.entities = entities;
 		this.datasets = datasets;
 		this.dataSources = dataSources;
 		this.datasetIdentifiers = datasetIdentifiers;
@@ -99,10 +119,12 @@ public class SearchHandler {
 		
 	    // New instances of various constructs specifically for this request
 		queues = new HashMap<String, RankedList>();
-		tasks = new HashMap<String, Thread>();
+		searches = new HashMap<String, Runnable>();
+		tasks = new HashMap<String, Future<?>>();
 		similarities = new HashMap<String, ISimilarity>();
 		weights = new HashMap<String, Double[]>();
 		lookups = new HashMap<String, Map<?,?>>();
+		denseLookups = new HashMap<String, IDenseLookup<?>>();
 		runControl = new HashMap<String, AtomicBoolean>();
 		valueFinders = new HashMap<String, IValueFinder>();   // Specifically used for random access to attribute values
 	}
@@ -147,7 +169,7 @@ public class SearchHandler {
 //			return Double.MAX_VALUE;
 		}
 		else {				// Querying against in-memory indices over a CSV file
-			BPlusTree<Double, String> index = (BPlusTree<Double, String>) indices.get(id.getHashKey());
+			INumericalIndex<Double, String> index = (INumericalIndex<Double, String>) indices.get(id.getHashKey());
 			return index.calcMaxKey();
 		}
 	}
@@ -189,8 +211,9 @@ public class SearchHandler {
 	 * @param params   JSON configuration that provides the multi-attribute query specifications.
 	 * @param query_timeout  Max execution time (in milliseconds) for ranking in a submitted query.
 	 * @return   A JSON-formatted response with the ranked results.
+	 * @throws SearchRejectedException  If the task scheduler cannot accept all tasks of this request at the moment.
 	 */
-	public SearchResponse[] search(SearchRequest params, long query_timeout) {
+	public SearchResponse[] search(SearchRequest params, long query_timeout) throws SearchRejectedException {
 		
 		long duration;
 		SearchResponse[] responses;
@@ -261,6 +284,19 @@ public class SearchHandler {
 				responses[0] = response;
 				return responses;
 			}
+			
+			// Check for a cap on the candidates to examine per attribute; it cannot be less than k
+			if ((params.max_candidates != null) && (params.max_candidates < topk)) {
+				responses = new SearchResponse[1];
+				SearchResponse response = new SearchResponse();
+				String msg = "Request aborted because the maximum number of candidates per attribute cannot be less than k.";
+				log.writeln(msg);
+				if (consoleOutput)
+					System.out.println("NOTICE: "+ msg);
+				response.setNotification("Please specify an integer value for max_candidates not less than k and submit your request again.");
+				responses[0] = response;
+				return responses;
+			}
 
 			// Instantiate a parser for the various types of query values
 			QueryValueParser valParser = new QueryValueParser();
@@ -315,9 +351,12 @@ public class SearchHandler {
 				// Assign a name to this operation/thread
 				String name = operation + "." + id.getValueAttribute();
 				
-				// Inflate top-k value in order to fetch enough candidates from attribute search
+				// Inflate top-k value in order to specify the maximum number of candidates that may be fetched from attribute search
+				// Candidates are pulled in growing batches, so usually far fewer are actually fetched
 				// In case just one attribute is involved, there is no need for inflation
-				int collectionSize = (queries.length > 1) ? Constants.INFLATION_FACTOR * topk : topk;
+				int collectionSize = topk;
+				if (queries.length > 1)
+					collectionSize = (params.max_candidates != null) ? params.max_candidates : Constants.INFLATION_FACTOR * topk;
 
 				// Exponential decay factor lambda to be used in similarity calculations
 				double decay = Constants.DECAY_FACTOR;
@@ -360,13 +399,16 @@ public class SearchHandler {
 				}
 				else {  // Otherwise, the lookup is the original collection of attribute values
 					lookups.put(id.getHashKey(), datasets.get(id.getHashKey()));
+					// ... which is accessed by dense identifier during rank aggregation
+					if (denseDatasets.get(id.getHashKey()) != null)
+						denseLookups.put(id.getHashKey(), denseDatasets.get(id.getHashKey()));
 				}
 					
 				// Settings for top-k similarity search on categorical values
 				// Optional filters on datasets from JDBC or REST API sources can be specified; NOT allowed on ingested data from CSV files
 				if (operation.equalsIgnoreCase("categorical_topk")) {
 					
-					Thread threadCatSearch = null;
+					Runnable taskCatSearch = null;
 					
 					// QUERY SPECIFICATION
 					// Search keywords can be specified either as a JSON array of string values or a concatenated string using the default delimiter
@@ -387,7 +429,7 @@ public class SearchHandler {
 					
 					// Jaccard distance is applied on categorical (textual) values
 					// Similarity also indicates the corresponding task serial number
-					simMeasure = new DecayedSimilarity(new CategoricalDistance(queryCollection.sets.get("querySet")), decay, scale, tasks.size());
+					simMeasure = new DecayedSimilarity(new CategoricalDistance(queryCollection.sets.get("querySet"), id.getTokenDictionary()), decay, scale, searches.size());
 					similarities.put(id.getHashKey(), simMeasure);
 					
 					// Create an instance of the categorical search query (CATEGORICAL_TOPK = 0)
@@ -395,40 +437,38 @@ public class SearchHandler {
 						id.setOperation(Constants.CATEGORICAL_TOPK);
 						// FIXME: Separator for search keywords must be ";" in this case
 						SimSearchJdbcQuery catSearch = new SimSearchJdbcQuery(jdbcConn, Constants.CATEGORICAL_TOPK, id.getDatasetName(), queryConfig.filter, colKeyName, colValueName, String.join(";", searchKeywords), topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-						valueFinders.put(id.getHashKey(), new CategoricalValueFinder(jdbcConn, catSearch.sqlSingleValueRetrievalTemplate));
-						threadCatSearch = new Thread(catSearch);
+						valueFinders.put(id.getHashKey(), new CategoricalValueFinder(jdbcConn, catSearch.sqlSingleValueRetrievalTemplate, catSearch));
+						taskCatSearch = catSearch;
 						runControl.put(id.getHashKey(), catSearch.running);
 					}
 					else if (httpConn != null) {	// Querying against a REST API
 						if (dataSource.isSimSearchService()) {   // This is an instance of another SimSearch REST API
 							SimSearchRestQuery catSearch = new SimSearchRestQuery(httpConn, Constants.CATEGORICAL_TOPK, colKeyName, colValueName, String.join(",", searchKeywords), collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
 							valueFinders.put(id.getHashKey(), new CategoricalValueFinder(httpConn, null));  // By default, random access is prohibited
-							threadCatSearch = new Thread(catSearch);
+							taskCatSearch = catSearch;
 							runControl.put(id.getHashKey(), catSearch.running);
 						}
 						else {  // This is an ElasticSearch REST API
 							ElasticSearchRestQuery catSearch = new ElasticSearchRestQuery(httpConn, Constants.CATEGORICAL_TOPK, queryConfig.filter, colKeyName, colValueName, String.join(",", searchKeywords), topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-							valueFinders.put(id.getHashKey(), new CategoricalValueFinder(httpConn, catSearch.queryValueRetrievalTemplate));
-							threadCatSearch = new Thread(catSearch);
+							valueFinders.put(id.getHashKey(), new CategoricalValueFinder(httpConn, catSearch.queryValueRetrievalTemplate, catSearch));
+							taskCatSearch = catSearch;
 							runControl.put(id.getHashKey(), catSearch.running);
 						}
 					}
 					else {			// Querying against in-memory indices over a CSV file
 						IndexSimSearch catSearch = new IndexSimSearch(Constants.CATEGORICAL_TOPK, name, indices.get(id.getHashKey()), datasets.get(id.getHashKey()), queryCollection, topk, collectionSize, simMeasure, resultsQueue, id.getHashKey(), log);
-						threadCatSearch = new Thread(catSearch);
-						runControl.put(id.getHashKey(), catSearch.running);
+						taskCatSearch = createIndexSearch(catSearch, id.getHashKey(), Arrays.stream(searchKeywords).sorted().collect(Collectors.joining(",")), decay, scale, topk);
 						// Extra boolean filters not supported over CSV data sources
 			        	unusedFilter = unusedFilter || (queryConfig.filter != null); 
 					}
 					
-					threadCatSearch.setName(name);
-					tasks.put(id.getHashKey(), threadCatSearch);
+					searches.put(id.getHashKey(), taskCatSearch);
 					queues.put(id.getHashKey(), resultsQueue);
 				}
 				// settings for top-k similarity search on numerical values
 				else if (operation.equalsIgnoreCase("numerical_topk")) {
 					
-					Thread threadNumSearch = null;
+					Runnable taskNumSearch = null;
 					
 					// QUERY SPECIFICATION
 					String val = String.valueOf(queryConfig.value);
@@ -454,7 +494,9 @@ public class SearchHandler {
 					// Check whether data has been normalized during indexing
 					INormal normal = normalizations.get(id.getHashKey());
 
-					// The search key must be also normalized as was the input dataset
+					// The search key must be also normalized as are the input values in similarity calculations
+					// CAUTION! The index holds original values, so it is searched with the original key
+					Double origKey = searchingKey;
 					if (normal != null) {
 						searchingKey = normal.normalize(searchingKey);
 						log.writeln("Normalized search key:" + searchingKey);
@@ -462,50 +504,48 @@ public class SearchHandler {
 
 					// Absolute difference is used for estimating distance (and thus, similarity) of numerical values
 					// Similarity also indicates the corresponding task serial number
-					simMeasure = new DecayedSimilarity(new NumericalDistance(searchingKey), decay, scale, tasks.size());
+					simMeasure = new DecayedSimilarity(new NumericalDistance(searchingKey), decay, scale, searches.size());
 					similarities.put(id.getHashKey(), simMeasure);
 					
 					// Create an instance of the numerical search query (NUMERICAL_TOPK = 2)
 					if (jdbcConn != null)  {		// Querying against a DBMS
 						id.setOperation(Constants.NUMERICAL_TOPK);
 						SimSearchJdbcQuery numSearch = new SimSearchJdbcQuery(jdbcConn, Constants.NUMERICAL_TOPK, id.getDatasetName(), queryConfig.filter, colKeyName, colValueName, String.valueOf(searchingKey), topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-						valueFinders.put(id.getHashKey(), new NumericalValueFinder(jdbcConn, numSearch.sqlSingleValueRetrievalTemplate));
-						threadNumSearch = new Thread(numSearch);
+						valueFinders.put(id.getHashKey(), new NumericalValueFinder(jdbcConn, numSearch.sqlSingleValueRetrievalTemplate, numSearch));
+						taskNumSearch = numSearch;
 						runControl.put(id.getHashKey(), numSearch.running);	
 					}
 					else if (httpConn != null) {	// Querying against a REST API
 						if (dataSource.isSimSearchService()) {   // This is an instance of another SimSearch REST API
 							SimSearchRestQuery numSearch = new SimSearchRestQuery(httpConn, Constants.NUMERICAL_TOPK, colKeyName, colValueName, String.valueOf(searchingKey), collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
 							valueFinders.put(id.getHashKey(), new NumericalValueFinder(httpConn, null));  // By default, random access is prohibited
-							threadNumSearch = new Thread(numSearch);
+							taskNumSearch = numSearch;
 							runControl.put(id.getHashKey(), numSearch.running);
 						}
 						else {  // This is an ElasticSearch REST API
 							ElasticSearchRestQuery numSearch = new ElasticSearchRestQuery(httpConn, Constants.NUMERICAL_TOPK, queryConfig.filter, colKeyName, colValueName, String.valueOf(searchingKey), topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-							valueFinders.put(id.getHashKey(), new NumericalValueFinder(httpConn, numSearch.queryValueRetrievalTemplate));
-							threadNumSearch = new Thread(numSearch);
+							valueFinders.put(id.getHashKey(), new NumericalValueFinder(httpConn, numSearch.queryValueRetrievalTemplate, numSearch));
+							taskNumSearch = numSearch;
 							runControl.put(id.getHashKey(), numSearch.running);
 						}	
 					}
 					else {		// Querying against in-memory indices over a CSV file						
-						// Identify the B+-tree already built for this attribute
-						BPlusTree<Double, String> index = (BPlusTree<Double, String>) indices.get(id.getHashKey());
+						// Identify the index (B+-tree or sorted array) already built for this attribute
+						INumericalIndex<Double, String> index = (INumericalIndex<Double, String>) indices.get(id.getHashKey());
 						// collectionSize = -1 -> no prefixed bound on the number of results to fetch from numerical similarity search
-						IndexSimSearch numSearch = new IndexSimSearch(Constants.NUMERICAL_TOPK, name, index, searchingKey, topk, collectionSize, simMeasure, resultsQueue, id.getHashKey(), log);
-						threadNumSearch = new Thread(numSearch);
-						runControl.put(id.getHashKey(), numSearch.running);		
+						IndexSimSearch numSearch = new IndexSimSearch(Constants.NUMERICAL_TOPK, name, index, origKey, normal, topk, collectionSize, simMeasure, resultsQueue, id.getHashKey(), log);
+						taskNumSearch = createIndexSearch(numSearch, id.getHashKey(), String.valueOf(searchingKey), decay, scale, topk);
 						// Extra boolean filters not supported over CSV data sources
 			        	unusedFilter = unusedFilter || (queryConfig.filter != null); 
 					}
 					
-					threadNumSearch.setName(name);
-					tasks.put(id.getHashKey(), threadNumSearch);
+					searches.put(id.getHashKey(), taskNumSearch);
 					queues.put(id.getHashKey(), resultsQueue);
 				}
 				// settings for k-NN similarity search on spatial locations
 				else if (operation.equalsIgnoreCase("spatial_knn")) {
 					
-					Thread threadGeoSearch = null;
+					Runnable taskGeoSearch = null;
 					
 					// QUERY SPECIFICATION
 					// Expecting a WKT representation of a query location
@@ -519,50 +559,48 @@ public class SearchHandler {
 					
 					// By default, Haversine distance is used in similarity calculations between spatial locations
 					// Similarity also indicates the corresponding task serial number
-					simMeasure = new DecayedSimilarity(new SpatialDistance(queryPoint), decay, scale, tasks.size());
+					simMeasure = new DecayedSimilarity(new SpatialDistance(queryPoint), decay, scale, searches.size());
 					similarities.put(id.getHashKey(), simMeasure);
 					
 					// Create an instance of the spatial similarity search query (SPATIAL_KNN = 1)
 					if (jdbcConn != null)  {		// Querying against a DBMS
 						id.setOperation(Constants.SPATIAL_KNN);
 						SimSearchJdbcQuery geoSearch = new SimSearchJdbcQuery(jdbcConn, Constants.SPATIAL_KNN, id.getDatasetName(), queryConfig.filter, colKeyName, colValueName, queryPoint.toText(), topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-						valueFinders.put(id.getHashKey(), new SpatialValueFinder(jdbcConn, geoSearch.sqlSingleValueRetrievalTemplate));
-						threadGeoSearch = new Thread(geoSearch);
+						valueFinders.put(id.getHashKey(), new SpatialValueFinder(jdbcConn, geoSearch.sqlSingleValueRetrievalTemplate, geoSearch));
+						taskGeoSearch = geoSearch;
 						runControl.put(id.getHashKey(), geoSearch.running);
 					}
 					else if (httpConn != null) {	// Querying against a REST API
 						if (dataSource.isSimSearchService()) {   // This is an instance of another SimSearch REST API
 							SimSearchRestQuery geoSearch = new SimSearchRestQuery(httpConn, Constants.SPATIAL_KNN, colKeyName, colValueName, queryPoint.toText(), collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
 							valueFinders.put(id.getHashKey(), new SpatialValueFinder(httpConn, null));  // By default, random access is prohibited
-							threadGeoSearch = new Thread(geoSearch);
+							taskGeoSearch = geoSearch;
 							runControl.put(id.getHashKey(), geoSearch.running);
 						}
 						else {  // This is an ElasticSearch REST API
 							// FIXME: Geo-points in ElasticSearch are expressed as a string with the format: "lat, lon"
 							ElasticSearchRestQuery geoSearch = new ElasticSearchRestQuery(httpConn, Constants.SPATIAL_KNN, queryConfig.filter, colKeyName, colValueName, "" + queryPoint.getCoordinates()[0].y + "," + queryPoint.getCoordinates()[0].x, topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-							valueFinders.put(id.getHashKey(), new SpatialValueFinder(httpConn, geoSearch.queryValueRetrievalTemplate));
-							threadGeoSearch = new Thread(geoSearch);
+							valueFinders.put(id.getHashKey(), new SpatialValueFinder(httpConn, geoSearch.queryValueRetrievalTemplate, geoSearch));
+							taskGeoSearch = geoSearch;
 							runControl.put(id.getHashKey(), geoSearch.running);
 						}
 					}
 					else {		// Querying against in-memory indices over a CSV file	
-						// Identify the R-tree already built for this attribute
-						RTree<String, Location> index = (RTree<String, Location>) indices.get(id.getHashKey());
+						// Identify the spatial index (R-tree or packed index over points) already built for this attribute
+						ISpatialIndex<String, Location> index = (ISpatialIndex<String, Location>) indices.get(id.getHashKey());
 						IndexSimSearch geoSearch = new IndexSimSearch(Constants.SPATIAL_KNN, name, index, queryLocation, topk, collectionSize, simMeasure, resultsQueue, id.getHashKey(), log);
-						threadGeoSearch = new Thread(geoSearch);
-						runControl.put(id.getHashKey(), geoSearch.running);
+						taskGeoSearch = createIndexSearch(geoSearch, id.getHashKey(), queryPoint.toText(), decay, scale, topk);
 						// Extra boolean filters not supported over CSV data sources
 			        	unusedFilter = unusedFilter || (queryConfig.filter != null); 
 					}
 					
-					threadGeoSearch.setName(name);
-					tasks.put(id.getHashKey(), threadGeoSearch);
+					searches.put(id.getHashKey(), taskGeoSearch);
 					queues.put(id.getHashKey(), resultsQueue);		
 				}
 				// settings for top-k similarity search on date/time values
 				else if (operation.equalsIgnoreCase("temporal_topk")) {
 					
-					Thread threadNumSearch = null;
+					Runnable taskNumSearch = null;
 					
 					// QUERY SPECIFICATION
 					// Parse the user-specified date/time value to a double number (epoch) for searching in the index
@@ -589,52 +627,50 @@ public class SearchHandler {
 
 					// Absolute difference is used for estimating distance (and thus, similarity) of epoch numerical values
 					// Similarity also indicates the corresponding task serial number
-					simMeasure = new DecayedSimilarity(new NumericalDistance(searchingKey), decay, scale, tasks.size());
+					simMeasure = new DecayedSimilarity(new NumericalDistance(searchingKey), decay, scale, searches.size());
 					similarities.put(id.getHashKey(), simMeasure);
 					
 					// Employ a temporal search query (TEMPORAL_TOPK = 7)
 					if (jdbcConn != null)  {		// Querying against a DBMS using the original date/time value
 						id.setOperation(Constants.TEMPORAL_TOPK);
 						SimSearchJdbcQuery numSearch = new SimSearchJdbcQuery(jdbcConn, Constants.TEMPORAL_TOPK, id.getDatasetName(), queryConfig.filter, colKeyName, colValueName, String.valueOf(queryConfig.value), topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-						valueFinders.put(id.getHashKey(), new NumericalValueFinder(jdbcConn, numSearch.sqlSingleValueRetrievalTemplate));
-						threadNumSearch = new Thread(numSearch);
+						valueFinders.put(id.getHashKey(), new NumericalValueFinder(jdbcConn, numSearch.sqlSingleValueRetrievalTemplate, numSearch));
+						taskNumSearch = numSearch;
 						runControl.put(id.getHashKey(), numSearch.running);	
 					}
 					else if (httpConn != null) {	// Querying against a REST API
 						if (dataSource.isSimSearchService()) {   // This is an instance of another SimSearch REST API with the original date/time value
 							SimSearchRestQuery numSearch = new SimSearchRestQuery(httpConn, Constants.TEMPORAL_TOPK, colKeyName, colValueName, String.valueOf(queryConfig.value), collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
 							valueFinders.put(id.getHashKey(), new NumericalValueFinder(httpConn, null));  // By default, random access is prohibited
-							threadNumSearch = new Thread(numSearch);
+							taskNumSearch = numSearch;
 							runControl.put(id.getHashKey(), numSearch.running);
 						}
 						else {  // Querying against an ElasticSearch REST API using the original date/time value
 							// TODO: Check that Elasticsearch supports search over date/time values
 							ElasticSearchRestQuery numSearch = new ElasticSearchRestQuery(httpConn, Constants.TEMPORAL_TOPK, queryConfig.filter, colKeyName, colValueName, String.valueOf(queryConfig.value), topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-							valueFinders.put(id.getHashKey(), new NumericalValueFinder(httpConn, numSearch.queryValueRetrievalTemplate));
-							threadNumSearch = new Thread(numSearch);
+							valueFinders.put(id.getHashKey(), new NumericalValueFinder(httpConn, numSearch.queryValueRetrievalTemplate, numSearch));
+							taskNumSearch = numSearch;
 							runControl.put(id.getHashKey(), numSearch.running);
 						}	
 					}
 					else {		// Querying with the epoch value against in-memory indices over a CSV file	
 						// A numerical search query is used internally for ingested temporal data
-						// Identify the B+-tree already built for this attribute
-						BPlusTree<Double, String> index = (BPlusTree<Double, String>) indices.get(id.getHashKey());
+						// Identify the index (B+-tree or sorted array) already built for this attribute
+						INumericalIndex<Double, String> index = (INumericalIndex<Double, String>) indices.get(id.getHashKey());
 						// collectionSize = -1 -> no prefixed bound on the number of results to fetch from numerical similarity search
-						IndexSimSearch numSearch = new IndexSimSearch(Constants.TEMPORAL_TOPK, name, index, searchingKey, topk, collectionSize, simMeasure, resultsQueue, id.getHashKey(), log);
-						threadNumSearch = new Thread(numSearch);
-						runControl.put(id.getHashKey(), numSearch.running);		
+						IndexSimSearch numSearch = new IndexSimSearch(Constants.TEMPORAL_TOPK, name, index, searchingKey, null, topk, collectionSize, simMeasure, resultsQueue, id.getHashKey(), log);
+						taskNumSearch = createIndexSearch(numSearch, id.getHashKey(), String.valueOf(searchingKey), decay, scale, topk);
 						// Extra boolean filters not supported over CSV data sources
 			        	unusedFilter = unusedFilter || (queryConfig.filter != null); 
 					}
 					
-					threadNumSearch.setName(name);
-					tasks.put(id.getHashKey(), threadNumSearch);
+					searches.put(id.getHashKey(), taskNumSearch);
 					queues.put(id.getHashKey(), resultsQueue);
 				}
 				// settings for top-k textual (string) similarity search
 				else if (operation.equalsIgnoreCase("textual_topk")) {
 					
-					Thread threadStringSearch = null;
+					Runnable taskStringSearch = null;
 					
 					// QUERY SPECIFICATION
 					// Search string
@@ -661,7 +697,7 @@ public class SearchHandler {
 					
 					// Jaccard distance is applied on categorical (textual) values
 					// Similarity also indicates the corresponding task serial number
-					simMeasure = new DecayedSimilarity(new CategoricalDistance(queryCollection.sets.get("querySet")), decay, scale, tasks.size());
+					simMeasure = new DecayedSimilarity(new CategoricalDistance(queryCollection.sets.get("querySet"), id.getTokenDictionary()), decay, scale, searches.size());
 					similarities.put(id.getHashKey(), simMeasure);
 					
 					// Create an instance of the textual (string) search query (TEXTUAL_TOPK = 8)
@@ -669,34 +705,32 @@ public class SearchHandler {
 						id.setOperation(Constants.TEXTUAL_TOPK);
 						// FIXME: Separator for search keywords must be ";" in this case
 						SimSearchJdbcQuery stringSearch = new SimSearchJdbcQuery(jdbcConn, Constants.TEXTUAL_TOPK, id.getDatasetName(), queryConfig.filter, colKeyName, colValueName, searchString, topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-						valueFinders.put(id.getHashKey(), new CategoricalValueFinder(jdbcConn, stringSearch.sqlSingleValueRetrievalTemplate));
-						threadStringSearch = new Thread(stringSearch);
+						valueFinders.put(id.getHashKey(), new CategoricalValueFinder(jdbcConn, stringSearch.sqlSingleValueRetrievalTemplate, stringSearch));
+						taskStringSearch = stringSearch;
 						runControl.put(id.getHashKey(), stringSearch.running);
 					}
 					else if (httpConn != null) {	// Querying against a REST API
 						if (dataSource.isSimSearchService()) {   // This is an instance of another SimSearch REST API
 							SimSearchRestQuery stringSearch = new SimSearchRestQuery(httpConn, Constants.TEXTUAL_TOPK, colKeyName, colValueName, searchString, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
 							valueFinders.put(id.getHashKey(), new CategoricalValueFinder(httpConn, null));  // By default, random access is prohibited
-							threadStringSearch = new Thread(stringSearch);
+							taskStringSearch = stringSearch;
 							runControl.put(id.getHashKey(), stringSearch.running);
 						}
 						else {  // This is an ElasticSearch REST API
 							ElasticSearchRestQuery stringSearch = new ElasticSearchRestQuery(httpConn, Constants.TEXTUAL_TOPK, queryConfig.filter, colKeyName, colValueName, searchString, topk, collectionSize, simMeasure, resultsQueue, lookups, id.getHashKey(), log);
-							valueFinders.put(id.getHashKey(), new CategoricalValueFinder(httpConn, stringSearch.queryValueRetrievalTemplate));
-							threadStringSearch = new Thread(stringSearch);
+							valueFinders.put(id.getHashKey(), new CategoricalValueFinder(httpConn, stringSearch.queryValueRetrievalTemplate, stringSearch));
+							taskStringSearch = stringSearch;
 							runControl.put(id.getHashKey(), stringSearch.running);
 						}
 					}
 					else {			// Querying against in-memory indices over a CSV file
 						IndexSimSearch stringSearch = new IndexSimSearch(Constants.TEXTUAL_TOPK, name, indices.get(id.getHashKey()), datasets.get(id.getHashKey()), queryCollection, topk, collectionSize, simMeasure, resultsQueue, id.getHashKey(), log);
-						threadStringSearch = new Thread(stringSearch);
-						runControl.put(id.getHashKey(), stringSearch.running);
+						taskStringSearch = createIndexSearch(stringSearch, id.getHashKey(), searchString, decay, scale, topk);
 						// Extra boolean filters not supported over CSV data sources
 			        	unusedFilter = unusedFilter || (queryConfig.filter != null);  
 					}
 					
-					threadStringSearch.setName(name);
-					tasks.put(id.getHashKey(), threadStringSearch);
+					searches.put(id.getHashKey(), taskStringSearch);
 					queues.put(id.getHashKey(), resultsQueue);
 				}
 				// TODO: Include other types of operations...
@@ -714,9 +748,19 @@ public class SearchHandler {
 		}
 
 
-		// Start all tasks; each query will now start fetching results
-		for (Entry<String, Thread> task: tasks.entrySet()) {
-			task.getValue().start();
+		// Submit all tasks to the shared scheduler; each query will start fetching results once a worker is available
+		try {
+			tasks = TaskScheduler.getInstance().submitAll(searches);
+		} catch (RejectedExecutionException e) {
+			responses = new SearchResponse[1];
+			SearchResponse response = new SearchResponse();
+			String msg = "Search request rejected due to excessive load. " + e.getMessage();
+			log.writeln(msg);
+			if (consoleOutput)
+				System.out.println("NOTICE: "+ msg);
+			response.setNotification(msg + " Please try again later.");
+			responses[0] = response;
+			throw new SearchRejectedException(responses, e);   // Reported with the same status as any other rejection due to load
 		}
 	
 		// Perform the ranked aggregation process
@@ -727,13 +771,13 @@ public class SearchHandler {
 			// Execute rank aggregation separately for all combination of weights
 			switch(rankingMethod){
 			case "no_random_access":
-				aggregator = new NoRandomAccessRanking(datasetIdentifiers, lookups, similarities, weights, normalizations, tasks, queues, runControl, topk, log);
+				aggregator = new NoRandomAccessRanking(datasetIdentifiers, lookups, denseLookups, similarities, weights, normalizations, tasks, queues, runControl, topk, entities, log);
 				break;
 			case "partial_random_access":
-				aggregator = new PartialRandomAccessRanking(datasetIdentifiers, lookups, similarities, weights, normalizations, tasks, queues, runControl, topk, log);
+				aggregator = new PartialRandomAccessRanking(datasetIdentifiers, lookups, denseLookups, similarities, weights, normalizations, tasks, queues, runControl, topk, entities, log);
 				break;
 			case "threshold":   // This is the default method, if not explicitly specified by the user
-				aggregator = new ThresholdRanking(datasetIdentifiers, lookups, similarities, weights, normalizations, tasks, queues, valueFinders, runControl, topk, log);
+				aggregator = new ThresholdRanking(datasetIdentifiers, lookups, denseLookups, similarities, weights, normalizations, tasks, queues, valueFinders, Math.max(1, Integer.getInteger("random_access_batch_size", Constants.RANDOM_ACCESS_BATCH_SIZE)), runControl, topk, entities, log);
 				break;
 			default:
 				responses = new SearchResponse[1];
@@ -754,7 +798,27 @@ public class SearchHandler {
 		responses = null;
 			
 		// Collect results that may be issued as JSON
-		IResult[][] results = aggregator.proc(query_timeout);
+		IResult[][] results;
+		try {
+			results = aggregator.proc(query_timeout);
+		} finally {
+			// No further candidates will be pulled, so release any resources held by the queries (e.g., open cursors in a DBMS), even if ranking failed
+			for (RankedList queue: queues.values()) {
+				queue.close();
+			}
+		}
+		
+		// Report the depth actually consumed from each attribute 
+		String depths = "Candidates consumed per attribute: ";
+		for (String task : queues.keySet())
+			depths += datasetIdentifiers.get(task).getValueAttribute() + " -> " + queues.get(task).getConsumed() + " (" + queues.get(task).getDepth() + " fetched); ";
+		log.writeln(depths);
+		
+		// Formatter of the response
+		SearchResponseFormat responseFormat = new SearchResponseFormat();
+		
+		// Restore original identifiers of the results, as ranking has been using dense identifiers
+		responseFormat.resolveIdentifiers(results, entities);
 		
 	    // USED FOR EXPERIMENTS ONLY: Change the estimated aggregate scores with the exact ones
 	    if (isCollectQueryStats() && (!rankingMethod.equals("threshold"))) {
@@ -834,7 +898,6 @@ public class SearchHandler {
 		}
 	
 		// Format response
-		SearchResponseFormat responseFormat = new SearchResponseFormat();
 		responses = responseFormat.proc(results, extraColumns, weights, datasetIdentifiers, datasets, lookups, similarities, normalizations, null, topk, this.isCollectQueryStats(), notification, execTime, outWriter);
 		log.writeln("SimSearch [" + rankingMethod + "] issued " + responses[0].getRankedResults().length + " results. Processing time: " + execTime + " sec.");
 
@@ -880,6 +943,60 @@ public class SearchHandler {
 	public void setCollectQueryStats(boolean collectQueryStats) {
 		this.collectQueryStats = collectQueryStats;
 	}
+
+
+	/**
+	 * Specifies the cache of ranked candidates to be consulted before searching against ingested attributes.
+	 * @param candidateCache  The cache shared by all requests against this instance.
+	 */
+	public void setCandidateCache(CandidateCache candidateCache) {
+		this.candidateCache = candidateCache;
+		this.candidateGeneration = candidateCache.getGeneration();
+	}
+	
+	
+	/**
+	 * Specifies the task for a similarity search query against an ingested attribute.
+	 * If the same query has been issued by a previous request, its retained candidates are replayed and the query itself will not be executed;
+	 * otherwise, the candidates of this query are retained for subsequent requests.
+	 * @param search  The similarity search query against the index of the attribute.
+	 * @param hashKey  The hash key of the queried attribute.
+	 * @param queryValue  A canonical representation of the query value.
+	 * @param decay  The decay constant specified for the similarity measure.
+	 * @param scale  The user-specified scale factor; 0 if it will be determined from the top-k results.
+	 * @param topk  The number of the final top-k results.
+	 * @return  The task that will issue the candidates.
+	 */
+	private Runnable createIndexSearch(IndexSimSearch search, String hashKey, String queryValue, double decay, double scale, int topk) {
+		
+		if ((candidateCache == null) || !candidateCache.isEnabled()) {
+			runControl.put(hashKey, search.running);
+			return search;
+		}
+		
+		// Unless user-specified, the scale factor depends on the top-k results
+		// CAUTION! The max number of candidates also affects pruning in some searches (e.g., categorical), so it must be the same
+		String key = hashKey + "|" + search.name + "|" + queryValue + "|" + decay + "|" + ((scale > 0.0) ? "scale:" + scale : "k:" + topk) + "|" + search.collectionSize;
+		CandidateStream stream;
+		boolean cached;
+		synchronized (candidateCache) {
+			// Attributes obtained by this request may have been upserted since, so candidates cached afterwards refer to other values
+			if (candidateCache.getGeneration() != candidateGeneration) {
+				runControl.put(hashKey, search.running);
+				return search;
+			}
+			stream = candidateCache.get(key);
+			cached = (stream != null);
+			if (!cached) {   // This query will issue its candidates to a new stream
+				stream = new CandidateStream(search);
+				candidateCache.put(key, stream, candidateGeneration);
+			}
+		}
+		
+		StreamSimSearch streamSearch = new StreamSimSearch(search, stream, cached);
+		runControl.put(hashKey, streamSearch.running);
+		return streamSearch;
+	}
 	
 	
 	/**
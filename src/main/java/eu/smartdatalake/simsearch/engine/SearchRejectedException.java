@@ -0,0 +1,34 @@
+package eu.smartdatalake.simsearch.engine;
+
+/**
+ * Signals that a search request has been rejected by the task scheduler, as not all its tasks can be accepted at the moment.
+ * It carries the response with the notification to the user, so that the service can issue it with status 429 (Too Many Requests).
+ */
+public class SearchRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private SearchResponse[] responses;
+
+	/**
+	 * Constructor
+	 * @param responses  The response to be issued for the rejected request.
+	 * @param cause  The rejection raised by the task scheduler.
+	 */
+	public SearchRejectedException(SearchResponse[] responses, Throwable cause) {
+
+		super(cause.getMessage(), cause);
+		this.responses = responses;
+	}
+
+
+	/**
+	 * Provides the response to be issued for the rejected request.
+	 * @return  An array with the response, including a notification about the rejection.
+	 */
+	public SearchResponse[] getResponses() {
+
+		return responses;
+	}
+
+}
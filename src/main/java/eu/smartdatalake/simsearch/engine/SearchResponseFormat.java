@@ -17,6 +17,7 @@ import eu.smartdatalake.simsearch.engine.processor.ResultPair;
 import eu.smartdatalake.simsearch.engine.weights.WeightInfo;
 import eu.smartdatalake.simsearch.manager.DataType;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
 import eu.smartdatalake.simsearch.pivoting.MetricSimilarity;
 
@@ -37,6 +38,23 @@ public class SearchResponseFormat {
 	}
 	
 	
+	/**
+	 * Restores the original identifiers of the final results, since rank aggregation refers to entities by their dense identifiers.
+	 * Results already carrying their original identifier (e.g., from a single attribute) are left intact.
+	 * @param results  An array of final top-k ranked results (i.e., qualifying entities) per weight combination.
+	 * @param entities  Dictionary of dense identifiers assigned to entities.
+	 */
+	public void resolveIdentifiers(IResult[][] results, EntityDictionary entities) {
+		
+		for (IResult[] resultList: results) {
+			for (IResult res: resultList) {
+				if ((res instanceof RankedResult) && (res.getId() == null) && (((RankedResult) res).getEntity() >= 0))
+					res.setId(entities.decode(((RankedResult) res).getEntity()));
+			}
+		}
+	}
+	
+	
 	/**
 	 * Formats the response to the multi-attribute similarity search query.
 	 * @param results  An array of final top-k ranked results (i.e., qualifying entities) per weight combination.
@@ -0,0 +1,139 @@
+package eu.smartdatalake.simsearch.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.smartdatalake.simsearch.Constants;
+
+/**
+ * Process-wide scheduler that executes the tasks (facet searches, in-situ queries) of all search requests with a bounded pool of worker threads.
+ * Tasks wait in a bounded queue until a worker is available. A request is admitted only if all its tasks can be accepted; otherwise, it is rejected as a whole.
+ * Pool size and queue capacity can be specified with system properties "task_pool_size" and "task_queue_capacity"; otherwise, default values are used.
+ */
+public class TaskScheduler {
+
+	private static TaskScheduler instance = null;
+
+	private ThreadPoolExecutor executor;
+	private int poolSize;
+	private int queueCapacity;
+	private AtomicLong numAdmitted;		// Number of requests whose tasks have been accepted
+	private AtomicLong numRejected;		// Number of requests rejected because of insufficient capacity
+
+	/**
+	 * Constructor
+	 * @param poolSize  The maximum number of worker threads.
+	 * @param queueCapacity  The maximum number of tasks waiting for a worker.
+	 */
+	private TaskScheduler(int poolSize, int queueCapacity) {
+
+		this.poolSize = poolSize;
+		this.queueCapacity = queueCapacity;
+		numAdmitted = new AtomicLong(0);
+		numRejected = new AtomicLong(0);
+
+		// Workers are daemon threads, so they never prevent the JVM from exiting
+		ThreadFactory factory = new ThreadFactory() {
+			private AtomicInteger n = new AtomicInteger(0);
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "simsearch-task-" + n.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+
+		// Idle workers are released after a while
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+
+	/**
+	 * Provides the single instance of the scheduler shared by all search requests in this process.
+	 * @return  The task scheduler.
+	 */
+	public static synchronized TaskScheduler getInstance() {
+
+		if (instance == null)
+			instance = new TaskScheduler(Integer.getInteger("task_pool_size", Constants.TASK_POOL_SIZE), Integer.getInteger("task_queue_capacity", Constants.TASK_QUEUE_CAPACITY));
+		return instance;
+	}
+
+
+	/**
+	 * Submits all tasks of a search request for execution. Either all tasks are accepted or none of them.
+	 * @param tasks  Dictionary of the tasks to execute, keyed by the hash key of the queried attribute.
+	 * @return  Dictionary of the pending results of these tasks, keyed by the same hash keys.
+	 * @throws RejectedExecutionException  If the scheduler cannot accept all tasks at the moment.
+	 */
+	public synchronized Map<String, Future<?>> submitAll(Map<String, Runnable> tasks) throws RejectedExecutionException {
+
+		// Tasks can be accepted by idle workers or wait in the queue
+		int capacity = executor.getQueue().remainingCapacity() + poolSize - executor.getActiveCount();
+		if (tasks.size() > capacity) {
+			numRejected.incrementAndGet();
+			throw new RejectedExecutionException("Too many pending search tasks (" + getQueueDepth() + " queued).");
+		}
+
+		Map<String, Future<?>> futures = new HashMap<String, Future<?>>();
+		try {
+			for (Entry<String, Runnable> task: tasks.entrySet()) {
+				futures.put(task.getKey(), executor.submit(task.getValue()));
+			}
+		} catch (RejectedExecutionException e) {
+			// Withdraw any tasks already submitted for this request
+			for (Future<?> future: futures.values())
+				future.cancel(false);
+			executor.purge();   // Cancelled tasks must not occupy the queue, so that its remaining capacity is accurate
+			numRejected.incrementAndGet();
+			throw e;
+		}
+		numAdmitted.incrementAndGet();
+
+		return futures;
+	}
+
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Provides the number of tasks currently waiting for a worker.
+	 * @return  The number of queued tasks.
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * Provides the (approximate) number of workers currently executing tasks.
+	 * @return  The number of active workers.
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public long getNumAdmitted() {
+		return numAdmitted.get();
+	}
+
+	public long getNumRejected() {
+		return numRejected.get();
+	}
+
+}
@@ -1,9 +1,10 @@
 package eu.smartdatalake.simsearch.engine.measure;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 
 import eu.smartdatalake.simsearch.engine.IDistance;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenInterner;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
 
 /**
@@ -12,59 +13,64 @@ import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
  */
 public class CategoricalDistance<V> implements IDistance<V> {
 
-	Set<String> baseTokens;
+	TokenInterner dictionary;		// Interned tokens of the attribute data; empty for in-situ data
+	Map<String, Integer> unknowns;	// Integers local to this query for tokens not in the dictionary
+	int[] baseTokens;				// Integers of the query tokens in ascending order
 
 	/**
 	 * Constructor
 	 * @param querySet  The set of tokens (e.g., keywords) specified in the search query.
+	 * @param dictionary  The dictionary of interned tokens of the queried attribute; null, if its data is not ingested.
 	 */
-	public CategoricalDistance(TokenSet querySet) {
+	public CategoricalDistance(TokenSet querySet, TokenInterner dictionary) {
 		
-		this.baseTokens = new HashSet<String>(querySet.tokens);
+		this.dictionary = (dictionary != null) ? dictionary : new TokenInterner();
+		this.unknowns = new HashMap<String, Integer>();
+		this.baseTokens = getTokenIds(querySet);
+	}
+
+
+	/**
+	 * Provides the tokens of the given set as sorted integers; sets not interned into the dictionary (e.g., values from in-situ sources) are looked up without being added to it.
+	 * @param set  A set of tokens.
+	 * @return  A sorted array of distinct integers.
+	 */
+	private int[] getTokenIds(TokenSet set) {
+		
+		int[] ids = set.getTokenIds();
+		return (ids != null) ? ids : dictionary.lookup(set.tokens, unknowns);
 	}
 
 	
 	/**
 	 * Returns the distance of the given set of tokens from the fixed query set.
-	 * Calculates Jaccard distance by default. FIXME: Include other similarity measures?
+	 * Calculates Jaccard distance by default over the interned tokens. FIXME: Include other similarity measures?
 	 */
 	@Override
 	public double calc(V v) {
 		
 		TokenSet curSet = (TokenSet) v;
-		
-		Set<String> union = new HashSet<String>(baseTokens);
-		union.addAll(curSet.tokens);
-
-		Set<String> intersection = new HashSet<String>(baseTokens);
-		intersection.retainAll(curSet.tokens);
 
-//		System.out.println("Categorical value:" + v.toString() + " Unscaled distance:" +  (1.0 - (((double) intersection.size()) / ((double) union.size()))));
+//		System.out.println("Categorical value:" + v.toString() + " Unscaled distance:" +  TokenInterner.jaccardDistance(baseTokens, getTokenIds(curSet)));
 
 		// Jaccard distance value
-		return (1.0 - (((double) intersection.size()) / ((double) union.size())));
+		return TokenInterner.jaccardDistance(baseTokens, getTokenIds(curSet));
 	}
 
 	/**
 	 * Returns the distance between two sets of tokens.
-	 * Calculates Jaccard distance by default. FIXME: Include other similarity measures?
+	 * Calculates Jaccard distance by default over the interned tokens. FIXME: Include other similarity measures?
 	 */
 	@Override
 	public double calc(V v1, V v2) {
 	
 		TokenSet set1 = (TokenSet) v1;
 		TokenSet set2 = (TokenSet) v2;
-		
-		Set<String> union = new HashSet<String>(set1.tokens);
-		union.addAll(set2.tokens);
-
-		Set<String> intersection = new HashSet<String>(set1.tokens);
-		intersection.retainAll(set2.tokens);
 
-//		System.out.println("Categorical value 1:" + v1.toString() + "Categorical value 2:" + v2.toString() + " Unscaled distance:" +  (1.0 - (((double) intersection.size()) / ((double) union.size()))));
+//		System.out.println("Categorical value 1:" + v1.toString() + "Categorical value 2:" + v2.toString() + " Unscaled distance:" +  TokenInterner.jaccardDistance(getTokenIds(set1), getTokenIds(set2)));
 	
 		// Jaccard distance value
-		return (1.0 - (((double) intersection.size()) / ((double) union.size())));
+		return TokenInterner.jaccardDistance(getTokenIds(set1), getTokenIds(set2));
 	}
 
 
@@ -97,6 +97,11 @@ public class DecayedSimilarity<V> implements ISimilarity<V> {
 			this.scale.setScale(factor);	
 		return isScaleSet();
 	}
+	
+	@Override
+	public double getScaleFactor() {
+		return this.scale.getScale();
+	}
 
 	@Override
 	public int getTaskId() {
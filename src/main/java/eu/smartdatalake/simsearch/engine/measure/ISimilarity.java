@@ -57,4 +57,10 @@ public interface ISimilarity<V> {
 	 */
 	public boolean setScaleFactor(double scale);
 	
+	/**
+	 * Provides the scale factor applied on distances.
+	 * @return  A double value representing the scale factor; 0 if it has not been set yet.
+	 */
+	public double getScaleFactor();
+	
 }
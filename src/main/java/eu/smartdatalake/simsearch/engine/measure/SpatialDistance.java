@@ -1,8 +1,11 @@
 package eu.smartdatalake.simsearch.engine.measure;
 
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
 
 import eu.smartdatalake.simsearch.engine.IDistance;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.PointStore;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.PreparedLocation;
 
 /**
  * Implements a spatial distance measure based on the Haversine distance.
@@ -39,7 +42,14 @@ public class SpatialDistance<V> implements IDistance<V> {
 //		System.out.println("Spatial value:" + v.toString() + " Unscaled distance:" +  111.0 * baseLocation.distance((Geometry) v));
 
 //		if (v != null)
-			return baseLocation.distance((Geometry) v);
+		// Distance between points is computed directly on their coordinates, avoiding the generic JTS distance operator
+		if ((baseLocation instanceof Point) && (v instanceof Point) && !baseLocation.isEmpty() && !((Point) v).isEmpty())
+			return PointStore.distance(((Point) baseLocation).getX(), ((Point) baseLocation).getY(), ((Point) v).getX(), ((Point) v).getY());
+		// Complex geometries prepared at ingestion have their facets indexed once and reused in every calculation
+		PreparedLocation pl = PreparedLocation.get((Geometry) v);
+		if (pl != null)
+			return pl.distance(baseLocation);
+		return baseLocation.distance((Geometry) v);
 	}
 	
 
@@ -50,7 +60,10 @@ public class SpatialDistance<V> implements IDistance<V> {
 	public double calc(V v1, V v2) {
 		// No need to check again for NULL values; already handled by DecayedSimilarity class
 //		if ((v1 != null) && (v2 != null))
-			return ((Geometry) v1).distance((Geometry) v2);
+		PreparedLocation pl = PreparedLocation.get((Geometry) v1);
+		if (pl != null)
+			return pl.distance((Geometry) v2);
+		return ((Geometry) v1).distance((Geometry) v2);
 	}
 
 	@Override
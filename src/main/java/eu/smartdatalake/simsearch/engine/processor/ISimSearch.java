@@ -1,6 +1,7 @@
 package eu.smartdatalake.simsearch.engine.processor;
 
 import java.util.List;
+import java.util.Set;
 //import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
@@ -16,6 +17,28 @@ public interface ISimSearch<K, V> {
 	 */
 	public List<V> getNextResult();
 	
+	/**
+	 * Pulls the next batch of results from the similarity search query and appends them to the ranked list associated with this query.
+	 * Results are appended with descending scores; all results sharing the score of the last one may be included, so the batch may exceed the requested size.
+	 * @param batchSize  The number of results to append.
+	 * @return  The number of results appended, or -1 if no further results can be obtained from this query.
+	 */
+	public int next(int batchSize);
+	
+	/**
+	 * Releases any resources held by this query once no further results will be pulled from it.
+	 */
+	public default void close() { }
+	
+	/**
+	 * Collects attribute values regarding specific object identifiers with a single request to the data source. These values are appended to the in-memory lookup maintained for this attribute.
+	 * @param identifiers  The set of object identifiers.
+	 * @return  The number of collected values, or -1 if such retrieval is not supported by this query.
+	 */
+	public default int appendValues(Set<String> identifiers) {
+		return -1;
+	}
+	
 	/**
 	 * Progressively collects the results of a similarity search query.
 	 * @param results  A collection with the query results.
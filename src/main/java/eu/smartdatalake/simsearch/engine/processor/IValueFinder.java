@@ -1,5 +1,6 @@
 package eu.smartdatalake.simsearch.engine.processor;
 
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -16,5 +17,13 @@ public interface IValueFinder<K,V> {
 	 * @return  The value of this object at a particular attribute.
 	 */
 	public Object find(Map<K, V> map, K k);
+	
+	/**
+	 * Retrieve the attribute values available in the dataset for multiple object identifiers at once, i.e., with a single query (if supported by the data source).
+	 * @param map  The in-memory dataset to be updated with the retrieved values.
+	 * @param keys  The keys (identifiers) of the objects.
+	 * @return  The number of values retrieved.
+	 */
+	public int findAll(Map<K, V> map, Collection<K> keys);
 		
 }
@@ -5,6 +5,8 @@ import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import eu.smartdatalake.simsearch.engine.IResult;
 import io.swagger.annotations.ApiModelProperty;
 
@@ -16,6 +18,8 @@ public class RankedResult implements IResult {
 	@ApiModelProperty(required = true, value = "Identifier of the resulting entity in the dataset")
 	private String id;
 	
+	private int entity;  // Dense identifier of the entity used internally during rank aggregation; not reported
+	
 	@ApiModelProperty(required = true, value = "Estimated similarity score of this result to the query")
 	private double score;
 	
@@ -37,6 +41,7 @@ public class RankedResult implements IResult {
 	 */
 	public RankedResult(int cardinality) {
 		setExact(true);   	// By default, consider that the ranking for this result is exact
+		entity = -1;		// By default, no dense identifier is associated with this result
 		attributes = new ResultFacet[cardinality];
 	}
 
@@ -46,6 +51,11 @@ public class RankedResult implements IResult {
 		return id;
 	}
 	
+	@JsonIgnore
+	public int getEntity() {
+		return entity;
+	}
+	
 	@Override
 	public double getScore() {
 		return score;
@@ -66,6 +76,10 @@ public class RankedResult implements IResult {
 		this.id = id;
 	}
 
+	public void setEntity(int entity) {
+		this.entity = entity;
+	}
+
 	@Override
 	public void setScore(double score) {
 		this.score = score;
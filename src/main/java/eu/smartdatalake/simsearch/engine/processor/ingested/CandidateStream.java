@@ -0,0 +1,131 @@
+package eu.smartdatalake.simsearch.engine.processor.ingested;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.smartdatalake.simsearch.engine.CandidateCache;
+import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
+import eu.smartdatalake.simsearch.engine.processor.ranking.PartialResult;
+import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
+
+/**
+ * Ranked candidates issued by a similarity search query against an ingested attribute, retained so that they can be replayed to subsequent requests with the same query value.
+ * Candidates are computed only up to the depth requested so far; the stream is extended lazily once a request needs more of them.
+ * Multiple requests may read from the same stream concurrently; extending the stream is serialized.
+ * Once cached, the stream reports each extension to the cache, which bounds the total number of retained candidates.
+ */
+public class CandidateStream {
+
+	IndexSimSearch search;			// The query computing the candidates; it is executed upon first access to the stream
+	RankedList source;				// Queue where the query issues its candidates; further candidates are pulled from it on demand
+	ISimilarity<?> simMeasure;		// Similarity measure of the query, which also holds the scale factor applied in scoring
+	List<PartialResult> candidates;
+	String hashKey;					// The hash key of the queried attribute
+	boolean started;
+	boolean exhausted;
+	volatile CandidateCache cache;	// The cache retaining this stream, if any
+
+	/**
+	 * Constructor
+	 * @param search  The similarity search query that will compute the candidates; once started, these are issued to the stream instead of the queue originally specified for this query.
+	 */
+	public CandidateStream(IndexSimSearch search) {
+
+		this.search = search;
+		this.simMeasure = search.simMeasure;
+		this.hashKey = search.hashKey;
+		this.source = new RankedList();
+		candidates = new ArrayList<PartialResult>();
+		started = false;
+		exhausted = false;
+	}
+
+
+	/**
+	 * Extends the stream until it holds at least the given number of candidates, unless the query gets exhausted earlier.
+	 * Any candidates added are reported to the cache retaining this stream.
+	 * @param depth  The number of candidates requested.
+	 * @return  The number of candidates available in the stream.
+	 */
+	public int extend(int depth) {
+
+		int before, after;
+		synchronized (this) {
+			before = candidates.size();
+			after = fill(depth);
+		}
+		// Reported after releasing this stream, as the cache locks a stream when caching it
+		CandidateCache cache = this.cache;
+		if ((cache != null) && (after > before))
+			cache.extended(this, after - before);
+
+		return after;
+	}
+
+
+	/**
+	 * Pulls candidates from the query until the stream holds at least the given number of candidates, unless the query gets exhausted earlier.
+	 * @param depth  The number of candidates requested.
+	 * @return  The number of candidates available in the stream.
+	 */
+	private int fill(int depth) {
+
+		// The query starts running once candidates are first requested, issuing them to the stream
+		if (!started) {
+			search.resultsQueue = source;
+			search.run();
+			started = true;
+		}
+
+		PartialResult res;
+		while (!exhausted && (candidates.size() < depth)) {
+			if ((res = source.poll()) != null)
+				candidates.add(res);
+			else {	// No further candidates can be obtained; release resources held by the query
+				exhausted = true;
+				source.close();
+			}
+		}
+
+		return candidates.size();
+	}
+
+
+	/**
+	 * Provides a candidate already available in the stream.
+	 * @param i  The position of the candidate in the stream.
+	 * @return  The candidate at this position.
+	 */
+	public synchronized PartialResult get(int i) {
+		return candidates.get(i);
+	}
+
+
+	/**
+	 * Copies the scale factor determined by the query (if set) to the similarity measure of another request, so that its scores are consistent with those in the stream.
+	 * @param other  The similarity measure of a request reading from this stream.
+	 */
+	public void copyScaleFactor(ISimilarity<?> other) {
+		if (simMeasure.isScaleSet() && !other.isScaleSet())
+			other.setScaleFactor(simMeasure.getScaleFactor());
+	}
+
+	public synchronized int size() {
+		return candidates.size();
+	}
+
+	/**
+	 * Specifies the cache retaining this stream, which will be notified of subsequent extensions.
+	 * @param cache  The cache of candidate streams.
+	 * @return  The number of candidates already in the stream.
+	 */
+	public synchronized int setCache(CandidateCache cache) {
+		this.cache = cache;
+		return candidates.size();
+	}
+
+	public String getHashKey() {
+		return hashKey;
+	}
+
+}
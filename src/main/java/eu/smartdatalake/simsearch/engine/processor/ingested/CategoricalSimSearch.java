@@ -12,6 +12,7 @@ import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
 import eu.smartdatalake.simsearch.engine.processor.ranking.PartialResult;
 import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.IntSetCollection;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.InvertedIndex;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -28,13 +29,27 @@ import java.util.Map;
 public class CategoricalSimSearch<K extends Comparable<? super K>, V> implements ISimSearch<K, V> {
 
 	Logger log = null;
-	TIntList[] idx;
+	InvertedIndex idx;
+	int[] postings;    // Inverted list of the query token currently examined; possibly decoded from its compressed form
 	TIntList matches;
 	TDoubleList matchScores;
 	List<String> matchKeys;
 	ISimilarity simMeasure;
 	int num;   // Serial number of the most recently issued result of this query
 
+	// State of the search, retained between successive batches of results
+	int[] r;    // The probing set, i.e., the query tokens
+	IntSetCollection targetCollection;
+	Map<?, ?> origTokenSetCollection;
+	RankedList partialResults;
+	RankedList topkResults;
+	int topk, M;
+	int numMatches;
+	int i, prefixBound, eqoverlap, minLength, maxLength;
+	int[] minOverlap;
+	double simThreshold;
+	TIntSet candidates;
+
 
 	/**
 	 * Constructor
@@ -42,7 +57,7 @@ public class CategoricalSimSearch<K extends Comparable<? super K>, V> implements
 	 * @param simMeasure  The similarity measure to be used in the search.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public CategoricalSimSearch(TIntList[] idx, ISimilarity simMeasure, Logger log) {
+	public CategoricalSimSearch(InvertedIndex idx, ISimilarity simMeasure, Logger log) {
 		
 		this.idx = idx;
 		this.simMeasure = simMeasure;
@@ -78,39 +93,35 @@ public class CategoricalSimSearch<K extends Comparable<? super K>, V> implements
 */	
 	
 	/**
-	 * Progressively collects the top-k most similar results.
-	 * Once the score of a result is above the estimated score of any unseen items, this result is issued.
+	 * Prepares the search for the top-k most similar results; these can be then collected in batches.
 	 * @param queryCollection  The (transformed) collection of tokens specified by the query.
 	 * @param targetCollection  The (transformed) collection of the sets of tokens in the dataset.
 	 * @param origTokenSetCollection  The original collection of the sets of tokens in the dataset.
 	 * @param topk  The number of the final top-k results.
 	 * @param M  The number of top-scoring results to fetch and populate the ranked list.
 	 * @param partialResults  Queue to collect query results.
-	 * @return  The number of collected results.
 	 */
-	public int compute(IntSetCollection queryCollection, IntSetCollection targetCollection, Map<?, ?> origTokenSetCollection, int topk, int M, RankedList partialResults) {  //OutputHandler oh
-
-		RankedList topkResults =  new RankedList();
-		PartialResult pRes;
+	public void open(IntSetCollection queryCollection, IntSetCollection targetCollection, Map<?, ?> origTokenSetCollection, int topk, int M, RankedList partialResults) {
+		
+		this.targetCollection = targetCollection;
+		this.origTokenSetCollection = origTokenSetCollection;
+		this.topk = topk;
+		this.M = M;
+		this.partialResults = partialResults;
+		topkResults =  new RankedList();
 		
 		num = -1;    //no matches found yet
 		matchKeys = new ArrayList<String>();
 		
 		// Initializations
-		int numMatches = 0;
-
-		int minLength = 0, maxLength = 0, candidate, eqoverlap, rPrefixLength, sPrefixLength, prefixBound, i, place;
-		int[] minOverlap = null, prefixLength;
-		TIntSet candidates;
-		boolean found;
-		double sim, simThreshold, ratio;
-		String key = null;
-
+		numMatches = 0;
+		minLength = 0;
+		maxLength = 0;
+		minOverlap = null;
 		matches = new TIntArrayList();
 		matchScores = new TDoubleArrayList();	
 		
-//		int count = 0;
-		int[] r = queryCollection.sets[0];     //Just one probing set, that the query
+		r = queryCollection.sets[0];     //Just one probing set, that the query
 	
 		// Initialize
 		simThreshold = 0.0;
@@ -118,208 +129,359 @@ public class CategoricalSimSearch<K extends Comparable<? super K>, V> implements
 		prefixBound = r.length;
 		candidates = new TIntHashSet();
 		i = 0;
+	}
+	
+	
+	/**
+	 * Progressively collects the top-k most similar results.
+	 * Once the score of a result is above the estimated score of any unseen items, this result is issued.
+	 * @param queryCollection  The (transformed) collection of tokens specified by the query.
+	 * @param targetCollection  The (transformed) collection of the sets of tokens in the dataset.
+	 * @param origTokenSetCollection  The original collection of the sets of tokens in the dataset.
+	 * @param topk  The number of the final top-k results.
+	 * @param M  The number of top-scoring results to fetch and populate the ranked list.
+	 * @param partialResults  Queue to collect query results.
+	 * @return  The number of collected results.
+	 */
+	public int compute(IntSetCollection queryCollection, IntSetCollection targetCollection, Map<?, ?> origTokenSetCollection, int topk, int M, RankedList partialResults) {  //OutputHandler oh
 
-		int j;
-		int pos, step, end, diff_front, diff_rear;
-		int start = 0;
+		open(queryCollection, targetCollection, origTokenSetCollection, topk, M, partialResults);
+		
+		// Continue until all query tokens in the prefix have been examined
+		while (next(M) >= 0);
 
-		while (i < prefixBound) {
+		return numMatches;
+	}
+	
+	
+	/**
+	 * Resumes the search by examining further query tokens, until the requested number of results can be issued to the queue.
+	 * Each result is issued as soon as its score cannot be exceeded by any set not examined yet; once all query tokens in the prefix have been examined, all remaining matches are issued.
+	 * @param batchSize  The number of results to append to the queue.
+	 * @return  The number of results appended, or -1 if all query tokens in the prefix have been examined.
+	 */
+	@Override
+	public int next(int batchSize) {
+		
+		int n = 0;
+		while ((i < prefixBound) && (n < batchSize)) {
 
 			// skip this token if not in the index
-			if (r[i] < 0 || r[i] >= idx.length || idx[r[i]].size() == 0) {
+			if ((idx.size(r[i]) == 0) && (idx.getSpilledPostings(r[i]) == null)) {
 				i++;
 				continue;
 			}
 
-			// Calculate differences in length against the indexed items to determine the search order
-			diff_front = r.length - targetCollection.sets[idx[r[i]].get(0)].length;
-			diff_rear = r.length - targetCollection.sets[idx[r[i]].get(idx[r[i]].size() - 1)].length;
-
-			if ((diff_front > 0) || (diff_rear < 0)) {
-				// Binary search
-				end = idx[r[i]].size() - 1;
-				while (start < end) {
-					pos = (int) Math.floor((start + end) / 2.0);
-					if (targetCollection.sets[start].length < r.length) {
-						start = pos + 1; // search on the right part
-					} else {
-						end = pos - 1; // search on the left part
-					}
+			// Examine all candidates containing this token
+			probe();
+			i++;
+			
+			// Check if any results can be issued directly to the queue
+			n += issueResults();
+		}
+		
+		// No other sets can qualify, so scores of all remaining matches are final
+		if (i >= prefixBound)
+			n += issueResults();
+		
+		return ((n > 0) || (i < prefixBound)) ? n : -1;
+	}
+	
+	
+	/**
+	 * Examines the candidates in the inverted list of the current query token, including those in the spill-over segment of the index.
+	 */
+	private void probe() {
+
+		int candidate;
+		int j, start;
+		int pos, step, end, diff_front, diff_rear;
+
+		// Sets containing this token; a compressed list is decoded at once, as its candidates are mostly examined sequentially
+		int size = idx.size(r[i]);
+		if (size == 0) {
+			probeSpilled();
+			return;
+		}
+		postings = idx.getPostings(r[i], postings);
+
+		// Calculate differences in length against the indexed items to determine the search order
+		diff_front = r.length - targetCollection.sets[postings[0]].length;
+		diff_rear = r.length - targetCollection.sets[postings[size - 1]].length;
+
+		if ((diff_front > 0) || (diff_rear < 0)) {
+			// Binary search for the first set in this list not shorter than the query
+			// CAUTION! Identifiers of the sets follow their order of length
+			start = 0;
+			end = size;
+			while (start < end) {
+				pos = (start + end) >>> 1;
+				if (targetCollection.sets[postings[pos]].length < r.length) {
+					start = pos + 1; // search on the right part
+				} else {
+					end = pos; // search on the left part
 				}
+			}
+			if (start < size) {
 				// To start searching for candidates in ascending order of length
-				end = idx[r[i]].size();
+				end = size;
 				step = 1;
 				j = start;
+			} else {
+				// All sets are shorter than the query, so only search in descending order of length
+				end = -1;
+				step = -1;
+				j = size - 1;
+			}
+
+		} else {
+			start = 0;
+			diff_front = (diff_front > 0) ? 0 : Math.abs(diff_front);
+			diff_rear = (diff_rear < 0) ? Math.abs(diff_rear) : 0;
 
+			if (diff_front < diff_rear) {
+				// Examine indexed items in ascending order of length
+				j = 0;
+				end = size;
+				step = 1;
 			} else {
-				diff_front = (diff_front > 0) ? 0 : Math.abs(diff_front);
-				diff_rear = (diff_rear < 0) ? Math.abs(diff_rear) : 0;
-
-				if (diff_front < diff_rear) {
-					// Examine indexed items in ascending order of length
-					j = 0;
-					end = idx[r[i]].size();
-					step = 1;
-				} else {
-					// Examine indexed items in descending order of length
-					j = idx[r[i]].size() - 1;
-					end = -1;
-					step = -1;
-				}
+				// Examine indexed items in descending order of length
+				j = size - 1;
+				end = -1;
+				step = -1;
 			}
+		}
 
-			// Search for candidates using the index
-			while (step * (end - j) > 0) {
-				candidate = idx[r[i]].get(j);
+		// Search for candidates using the index
+		while (step * (end - j) > 0) {
+			candidate = postings[j];
 
-				j += step;
-				// Reverse order of search (descending) for candidates in the next iteration
-				if ((j > 0) && (j == end)) {
-					j = start - 1;
-					end = -1;
-					step = -1;
-				}
+			j += step;
+			// Reverse order of search (descending) for candidates in the next iteration
+			if ((j > 0) && (j == end)) {
+				j = start - 1;
+				end = -1;
+				step = -1;
+			}
 
-				// Apply length filter and set eqoverlap, depending on the
-				// (ascending/descending) order of search
-				if (simThreshold > 0) {
-					if (targetCollection.sets[candidate].length < minLength) {
-						if (step == 1)
-							continue;
-						else
-							break;
-					}
-					if (targetCollection.sets[candidate].length > maxLength - i) {
-						if (step == 1)
-							break;
-						else
-							continue;
+			// Apply length filter and set eqoverlap, depending on the
+			// (ascending/descending) order of search
+			if (simThreshold > 0) {
+				if (targetCollection.sets[candidate].length < minLength) {
+					if (step == 1)
+						continue;
+					else
+						break;
+				}
+				if (targetCollection.sets[candidate].length > maxLength - i) {
+					if (step == 1) {
+						// Longer sets cannot qualify, so continue with the shorter ones in descending order of length
+						j = start - 1;
+						end = -1;
+						step = -1;
 					}
-					eqoverlap = minOverlap[targetCollection.sets[candidate].length - minLength];
+					continue;
 				}
+				eqoverlap = minOverlap[targetCollection.sets[candidate].length - minLength];
+			}
 
-				// Apply prefix filter
-				rPrefixLength = r.length - eqoverlap + 1;
-				if (rPrefixLength < i) {
+			examine(candidate, targetCollection.sets[candidate]);
+		}
+		
+		probeSpilled();
+	}
+	
+	
+	/**
+	 * Examines the candidates in the spill-over segment of the index that contain the current query token.
+	 * Upserted sets are not ordered by length, so the length filter cannot terminate this scan early.
+	 */
+	private void probeSpilled() {
+		
+		TIntList spilled = idx.getSpilledPostings(r[i]);
+		if (spilled == null)
+			return;
+		
+		for (int j = 0; j < spilled.size(); j++) {
+			int candidate = spilled.get(j);
+			int[] s = idx.getSet(candidate);
+			
+			// Apply length filter and set eqoverlap
+			if (simThreshold > 0) {
+				if ((s.length < minLength) || (s.length > maxLength - i))
 					continue;
-				}
+				eqoverlap = minOverlap[s.length - minLength];
+			}
+			
+			examine(candidate, s);
+		}
+	}
+	
+	
+	/**
+	 * Applies the prefix filter on a candidate that passed the length filter, and verifies its similarity to the query tokens.
+	 * @param candidate  The identifier of the candidate set.
+	 * @param s  The tokens (as integers) of the candidate set.
+	 */
+	private void examine(int candidate, int[] s) {
+		
+		int rPrefixLength, sPrefixLength, place;
+		int[] prefixLength;
+		boolean found;
+		double sim, ratio;
 
-				sPrefixLength = targetCollection.sets[candidate].length - eqoverlap + 1;
-				found = false;
-				for (int m = 0; m < sPrefixLength; m++) {
-					if (targetCollection.sets[candidate][m] == r[i]) {
-//						System.out.println("Found candidate " + targetCollection.keys[candidate]);
-						found = true;
-						break;
-					}
-				}
+		// Ignore sets superseded by an upsert
+		if (idx.isRemoved(candidate))
+			return;
 
-				if (found) {
+		// Apply prefix filter
+		rPrefixLength = r.length - eqoverlap + 1;
+		if (rPrefixLength < i) {
+			return;
+		}
 
-					// Skip examination of already seen candidates
-					// Exclude identity from kNN results for self-join
-					if (candidates.contains(candidate))  {   //|| (selfJoin && count == candidate)
-						continue;
-					}
+		sPrefixLength = s.length - eqoverlap + 1;
+		found = false;
+		for (int m = 0; m < sPrefixLength; m++) {
+			if (s[m] == r[i]) {
+//					System.out.println("Found candidate " + targetCollection.keys[candidate]);
+				found = true;
+				break;
+			}
+		}
 
-					candidates.add(candidate);
+		if (found) {
 
-					// Verify candidate
-					// CAUTION! Final similarity score must NOT be calculated according to the exponential decay function!
-					sim = verifyWithScore(r, targetCollection.sets[candidate]);
-//					System.out.println( candidate + " " + sim);
+			// Skip examination of already seen candidates
+			// Exclude identity from kNN results for self-join
+			if (candidates.contains(candidate))  {   //|| (selfJoin && count == candidate)
+				return;
+			}
 
-					// Update items and scores in the list of results
-					if (matches.size() < M || sim > simThreshold) {
+			candidates.add(candidate);
 
-						// Find the place in the lists where to add
-						// the new score (and the corresponding item)
-						place = matchScores.size() - 1;
-						while ((place >= 0) && (matchScores.get(place) < sim)) {
-							--place;
-						}
-						place++;
-
-						// Add new score and item to the lists
-						if (place < M) {
-							matchScores.insert(place, sim);
-							matches.insert(place, candidate);
-
-							// Expel superfluous item and score from the list
-							if (matchScores.size() > M) {
-								matchScores.removeAt(M);
-								matches.removeAt(M);
-							}
-						}
+			// Verify candidate
+			// CAUTION! Final similarity score must NOT be calculated according to the exponential decay function!
+			sim = verifyWithScore(r, s);
+//				System.out.println( candidate + " " + sim);
 
-						// Adjust threshold
-						if (matchScores.size() >= M) {
+			// Update items and scores in the list of results
+			if (matches.size() < M || sim > simThreshold) {
 
-							simThreshold = matchScores.get(matchScores.size() - 1);
+				// Find the place in the lists where to add
+				// the new score (and the corresponding item)
+				place = matchScores.size() - 1;
+				while ((place >= 0) && (matchScores.get(place) < sim)) {
+					--place;
+				}
+				place++;
+
+				// Add new score and item to the lists
+				if (place < M) {
+					matchScores.insert(place, sim);
+					matches.insert(place, candidate);
+
+					// Expel superfluous item and score from the list
+					if (matchScores.size() > M) {
+						matchScores.removeAt(M);
+						matches.removeAt(M);
+					}
+				}
 
-							ratio = simThreshold / (1 + simThreshold);
+				// Adjust threshold
+				if (matchScores.size() >= M) {
 
-							// Recompute bounds for prefix filtering based on the updated threshold
-							minLength = (int) Math.ceil(r.length * simThreshold);
-							maxLength = (int) Math.ceil(r.length / simThreshold);
+					simThreshold = matchScores.get(matchScores.size() - 1);
 
-							if (maxLength - minLength + 1 > 0) {
-								minOverlap = new int[maxLength - minLength + 1];
-								prefixLength = new int[maxLength - minLength + 1];
+					ratio = simThreshold / (1 + simThreshold);
 
-								for (int p = 0; p < minOverlap.length; p++) {
-									minOverlap[p] = (int) Math.ceil(
-											Math.round(ratio * (r.length + minLength + p) * 100000) / 100000.0);
-									prefixLength[p] = r.length - minOverlap[p] + 1;
-								}
+					// Recompute bounds for prefix filtering based on the updated threshold
+					minLength = (int) Math.ceil(r.length * simThreshold);
+					maxLength = (int) Math.ceil(r.length / simThreshold);
 
-								prefixBound = prefixLength[0];
-							}
+					if (maxLength - minLength + 1 > 0) {
+						minOverlap = new int[maxLength - minLength + 1];
+						prefixLength = new int[maxLength - minLength + 1];
+
+						for (int p = 0; p < minOverlap.length; p++) {
+							minOverlap[p] = (int) Math.ceil(
+									Math.round(ratio * (r.length + minLength + p) * 100000) / 100000.0);
+							prefixLength[p] = r.length - minOverlap[p] + 1;
 						}
+
+						prefixBound = prefixLength[0];
 					}
 				}
 			}
-			i++;
+		}
+	}
+	
+	
+	/**
+	 * Issues to the queue any results having a score above the similarity upper bound of any future matches.
+	 * Results are only issued once the scale factor has been set according to the k-th result, or according to the last one if less than k matches exist.
+	 * @return  The number of results appended to the queue.
+	 */
+	private int issueResults() {
+		
+		int n = 0;
+		PartialResult pRes;
+		String key = null;
+		
+		// Update the similarity upper bound of any future matches; none may exist once all query tokens in the prefix have been examined
+		boolean exhausted = (i >= prefixBound);
+		double scoreUpperBound = exhausted ? 0.0 : 1 - (i / (1.0 * r.length));
+//		System.out.println("distance: " +  i / (1.0 * r.length) + " scoreUpperBound: " + scoreUpperBound);
+
+		// Check if any results can be issued directly to the queue
+		while (matchScores.size() > numMatches && matchScores.get(numMatches) >= scoreUpperBound) {
+			key = idx.getKey(matches.get(numMatches));   // Result identifier
+			matchKeys.add(key);
+			pRes = new PartialResult(key, origTokenSetCollection.get(key), 1-matchScores.get(numMatches));
 			
-			// Update the similarity upper bound of any future matches
-			double scoreUpperBound = 1 - (i / (1.0 * r.length));
-//			System.out.println("distance: " +  i / (1.0 * r.length) + " scoreUpperBound: " + scoreUpperBound);
-
-			// Check if any results can be issued directly to the queue
-			while (matchScores.size() > numMatches && matchScores.get(numMatches) >= scoreUpperBound) {
-				key = targetCollection.keys[matches.get(numMatches)];   // Result identifier
-				matchKeys.add(key);
-				pRes = new PartialResult(key, origTokenSetCollection.get(key), 1-matchScores.get(numMatches));
-				
-				numMatches++;
-				
-				// While less than topk results are fetched, put them in a temporary list
-				if (numMatches < topk) {
-					topkResults.add(pRes);
-				}
-				else if (numMatches == topk) {
-					topkResults.add(pRes);
-					// Set the scale factor to be used in scoring as the k-th distance
-					simMeasure.setScaleFactor(pRes.getScore());
-					// Put previously collected results into the priority queue ...
-					// ... with a score according to exponential decay function
-					Iterator<PartialResult> qIter = topkResults.iterator();
-					while (qIter.hasNext()) { 
-						pRes = qIter.next();
-						pRes.setScore(simMeasure.scoring(pRes.getScore()));
-						partialResults.add(pRes);
-					}
-				}
-				else {  
-					// After the k-th result, the scale factor has been set, so issue them directly ...
-					// ... with a score according to exponential decay function
+			numMatches++;
+			
+			// While less than topk results are fetched, put them in a temporary list
+			if (numMatches < topk) {
+				topkResults.add(pRes);
+			}
+			else if (numMatches == topk) {
+				topkResults.add(pRes);
+				// Set the scale factor to be used in scoring as the k-th distance
+				simMeasure.setScaleFactor(pRes.getScore());
+				// Put previously collected results into the priority queue ...
+				// ... with a score according to exponential decay function
+				Iterator<PartialResult> qIter = topkResults.iterator();
+				while (qIter.hasNext()) { 
+					pRes = qIter.next();
 					pRes.setScore(simMeasure.scoring(pRes.getScore()));
 					partialResults.add(pRes);
-				}     
-			}		
+					n++;
+				}
+			}
+			else {  
+				// After the k-th result, the scale factor has been set, so issue them directly ...
+				// ... with a score according to exponential decay function
+				pRes.setScore(simMeasure.scoring(pRes.getScore()));
+				partialResults.add(pRes);
+				n++;
+			}     
 		}
-
-		return numMatches;
+		
+		// Less than topk matches exist, so the scale factor is set according to the last one
+		if (exhausted && (numMatches < topk) && (topkResults.size() > 0)) {
+			simMeasure.setScaleFactor(1-matchScores.get(numMatches - 1));
+			Iterator<PartialResult> qIter = topkResults.iterator();
+			while (qIter.hasNext()) { 
+				pRes = qIter.next();
+				pRes.setScore(simMeasure.scoring(pRes.getScore()));
+				partialResults.add(pRes);
+				n++;
+			}
+			topkResults = new RankedList();
+		}
+		
+		return n;
 	}
 
 	
@@ -1,7 +1,6 @@
 package eu.smartdatalake.simsearch.engine.processor.ingested;
 
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
@@ -9,9 +8,10 @@ import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
 import eu.smartdatalake.simsearch.manager.ingested.Index;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.InvertedIndex;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollection;
-import eu.smartdatalake.simsearch.manager.ingested.numerical.BPlusTree;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INumericalIndex;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.ISpatialIndex;
 import eu.smartdatalake.simsearch.manager.ingested.spatial.Location;
-import eu.smartdatalake.simsearch.manager.ingested.spatial.RTree;
 import eu.smartdatalake.simsearch.Assistant;
 import eu.smartdatalake.simsearch.Constants;
 import eu.smartdatalake.simsearch.Logger;
@@ -19,6 +19,7 @@ import eu.smartdatalake.simsearch.Logger;
 /**
  * Instantiates a similarity search query of varying type (categorical, string, numerical, spatial, temporal).
  * Applies only against an ingested data source supported by a suitable in-memory index.
+ * Only the first batch of (at least top-k) results is collected by the running thread; further results are pulled on demand by the rank aggregator.
  */
 public class IndexSimSearch implements Runnable {
 	
@@ -37,6 +38,7 @@ public class IndexSimSearch implements Runnable {
 
 	// Used in numerical similarity search only
 	double searchingKey;
+	INormal<Double> normal;
 	
 	// Used in categorical similarity search only
 	TokenSetCollection queryCollection;
@@ -90,6 +92,7 @@ public class IndexSimSearch implements Runnable {
 	 * @param name  A user-specified name given to the running instance of similarity search.
 	 * @param idx   The underlying index.
 	 * @param searchingKey    The key (numerical/epoch) value to search against the index.
+	 * @param normal  Normalization applied against the values in similarity calculations; null, if no normalization is applied.
 	 * @param collectionSize  The count of results to fetch.
 	 * @param topk  The number of the final top-k results.
 	 * @param simMeasure  The similarity measure to be used in the search.
@@ -97,7 +100,7 @@ public class IndexSimSearch implements Runnable {
 	 * @param hashKey  The unique hash key assigned to this search query.
 	 * @param log  Handle to the log file for keeping messages and statistics.
 	 */
-	public IndexSimSearch(int operation, String name, Index<Object, Object> idx, double searchingKey, int topk, int collectionSize, ISimilarity simMeasure, RankedList resultsQueue, String hashKey, Logger log) {
+	public IndexSimSearch(int operation, String name, Index<Object, Object> idx, double searchingKey, INormal<Double> normal, int topk, int collectionSize, ISimilarity simMeasure, RankedList resultsQueue, String hashKey, Logger log) {
 
 		super();
 		this.log = log;
@@ -107,6 +110,7 @@ public class IndexSimSearch implements Runnable {
 		this.collectionSize = collectionSize;
 		this.topk = topk;
 		this.searchingKey = searchingKey;
+		this.normal = normal;
 		this.index = idx;
 		this.resultsQueue = resultsQueue;
 		this.numResults = 0;
@@ -148,18 +152,22 @@ public class IndexSimSearch implements Runnable {
 	/**
 	 * Instantiates a numerical similarity search query.
 	 * CAUTION! Also used in temporal similarity search since date/time values have been stored as numerical epoch values in the index.
-	 * @param idx  The B+-tree index used in the search. It contains (numerical) keys and (string) values for the object identifiers.
+	 * @param idx  The B+-tree or sorted array index used in the search. It contains (numerical) keys and (string) values for the object identifiers.
 	 * @param searchingKey  The search key against the index (i.e., the numerical value specified by the query).
 	 * @return  A boolean value: True, if the query is still running; otherwise, False.
 	 */
 	public boolean applyNumericalSimSearch(Index<Object, Object> idx, Double searchingKey) {
 		
-		NumericalSimSearch<Double, String> numSearch =  new NumericalSimSearch<Double, String>((BPlusTree<Double, String>)idx, searchingKey, (ISimilarity<Double>) this.simMeasure, this.resultsQueue, this.log);
+		NumericalSimSearch<Double, String> numSearch =  new NumericalSimSearch<Double, String>((INumericalIndex<Double, String>)idx, searchingKey, this.normal, (ISimilarity<Double>) this.simMeasure, this.resultsQueue, this.log);
 		
-		// Compute results for this numerical similarity search query
-		// This kind of search can also provide results progressively
-		// CAUTION! The number of items to fetch is actually is >> k specified in the top-k query.
-		this.numResults = numSearch.compute(topk, collectionSize);
+		// Get a first batch of at least top-k results in order to specify the scale factor for scoring
+		int n = numSearch.fetchFirstBatch(topk);
+		if (n > 0) {
+			this.numResults = n;
+			// This kind of search provides results progressively, so further results will be pulled on demand
+			// CAUTION! The number of items to fetch is actually is >> k specified in the top-k query.
+			this.resultsQueue.setCursor(numSearch, topk, collectionSize);
+		}
 		
 		running.set(false);
 		
@@ -169,41 +177,27 @@ public class IndexSimSearch implements Runnable {
 	
 	/**
 	 * Instantiates a spatial similarity search query.
-	 * @param idx  The R-tree index used in the search. It contains (MBR) keys and (id, location) values for the objects.
+	 * @param idx  The spatial index (R-tree or packed index over points) used in the search. It contains (MBR) keys and (id, location) values for the objects.
 	 * @param searchLoc  The query location to search for k-NN similarities against the index.
 	 * @return  A boolean value: True, if the query is still running; otherwise, False.
 	 */
 	public boolean applySpatialSimSearch(Index<Object, Object> idx, Location searchLoc) {
 		
-		SpatialSimSearch<String, Location> spatialSearch =  new SpatialSimSearch<String, Location>((RTree<String, Location>)idx, searchLoc, (ISimilarity<Location>) this.simMeasure, this.resultsQueue, this.log);
+		SpatialSimSearch<String, Location> spatialSearch =  new SpatialSimSearch<String, Location>((ISpatialIndex<String, Location>)idx, searchLoc, (ISimilarity<Location>) this.simMeasure, this.resultsQueue, this.log);
 		
 		// Compute results for this spatial similarity search query
 		// CAUTION! The number of nearest neighbors to fetch is actually is M >> k specified in the top-k query.
 		spatialSearch.compute(topk, collectionSize);
 		
-		//Progressive fetching of results
-		try {
-			int n = 0;
-			running.set(true);
-
-			// Continue fetching results until process gets suspended
-			while (running.get()) {  
-
-				if (running.get() == false)
-					break;
-
-				TimeUnit.NANOSECONDS.sleep(100);
-				if ((n = spatialSearch.fetchNextBatch()) > 0 )
-					this.numResults += n;
-				else  // No more results available from this query
-					break;
-			}
-			running.set(false);
-			
-		} catch (Exception e) { // InterruptedException
-			e.printStackTrace();
+		// Issue the first batch of top-k results; further results will be pulled on demand
+		int n = spatialSearch.next(topk);
+		if (n > 0) {
+			this.numResults = n;
+			this.resultsQueue.setCursor(spatialSearch, topk, collectionSize);
 		}
 		
+		running.set(false);
+		
 		return running.get();
 	}
 
@@ -219,12 +213,19 @@ public class IndexSimSearch implements Runnable {
 		// Handle to the inverted index built on target dataset
 		InvertedIndex index = (InvertedIndex) idx;
 				
-		CategoricalSimSearch catSearch = new CategoricalSimSearch(index.idx, (ISimilarity<?>) this.simMeasure, this.log);
+		CategoricalSimSearch catSearch = new CategoricalSimSearch(index, (ISimilarity<?>) this.simMeasure, this.log);
 		
-		// Compute results for this categorical similarity search query
+		// Prepare this categorical similarity search query
 		// This kind of search can also provide results progressively (depending on the similarity upper bound of any future matches)
 		// CAUTION! The number of items to fetch is actually is >> k specified in the top-k query.
-		this.numResults = catSearch.compute(index.getTransformedCollection(queryCollection), index.transformedTargetCollection, origTokenSetCollection, topk, collectionSize, this.resultsQueue);
+		catSearch.open(index.getTransformedCollection(queryCollection), index.transformedTargetCollection, origTokenSetCollection, topk, collectionSize, this.resultsQueue);
+		
+		// Issue the first batch of top-k results, which also specifies the scale factor; further results will be pulled on demand
+		int n = catSearch.next(topk);
+		if (n > 0) {
+			this.numResults = n;
+			this.resultsQueue.setCursor(catSearch, topk, collectionSize);
+		}
 		
 		running.set(false);
 
@@ -236,11 +237,18 @@ public class IndexSimSearch implements Runnable {
 		// Handle to the inverted index built on target dataset
 		InvertedIndex index = (InvertedIndex) idx;
 				
-		CategoricalSimSearch catSearch = new CategoricalSimSearch(index.idx, (ISimilarity<?>) this.simMeasure, this.log);
+		CategoricalSimSearch catSearch = new CategoricalSimSearch(index, (ISimilarity<?>) this.simMeasure, this.log);
 		
-		// Compute results for this textual (string) similarity search query
+		// Prepare this textual (string) similarity search query
 		// CAUTION! The number of items to fetch is actually is >> k specified in the top-k query.
-		this.numResults = catSearch.compute(index.getTransformedCollection(queryCollection), index.transformedTargetCollection, origTokenSetCollection, topk, collectionSize, this.resultsQueue);
+		catSearch.open(index.getTransformedCollection(queryCollection), index.transformedTargetCollection, origTokenSetCollection, topk, collectionSize, this.resultsQueue);
+		
+		// Issue the first batch of top-k results, which also specifies the scale factor; further results will be pulled on demand
+		int n = catSearch.next(topk);
+		if (n > 0) {
+			this.numResults = n;
+			this.resultsQueue.setCursor(catSearch, topk, collectionSize);
+		}
 		
 		running.set(false);
 
@@ -276,7 +284,7 @@ public class IndexSimSearch implements Runnable {
 		
 		duration = System.nanoTime() - duration;
 		if (!running)
-			this.log.writeln("Query [" + myAssistant.decodeOperation(this.operation) + "] " + this.name.substring(this.name.indexOf(".") + 1) + " (ingested) returned " + this.numResults + " results in " + duration / 1000000000.0 + " sec.");
+			this.log.writeln("Query [" + myAssistant.decodeOperation(this.operation) + "] " + this.name.substring(this.name.indexOf(".") + 1) + " (ingested) returned a first batch of " + this.numResults + " results in " + duration / 1000000000.0 + " sec.");
 	}
 	
 }
@@ -10,10 +10,13 @@ import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
 import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
 import eu.smartdatalake.simsearch.engine.processor.ranking.PartialResult;
 import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
-import eu.smartdatalake.simsearch.manager.ingested.numerical.BPlusTree;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INumericalCursor;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INumericalIndex;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.SortedArrayIndex;
 
 /**
- * Implements similarity search against numerical values indexed in a B+-tree.
+ * Implements similarity search against numerical values indexed in a B+-tree or a sorted array.
  * @param <K>  Type variable representing the keys of the indexed objects.
  * @param <V>  Type variable representing the values of the indexed objects.
  */
@@ -21,7 +24,8 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 
 	Logger log = null;
 	
-	BPlusTree<K, V> index;   //The underlying B+-tree index
+	INumericalIndex<K, V> index;   //The underlying index (B+-tree or sorted array)
+	INumericalCursor<K, V> cursor;   // Walks the keys of the index leftwards and rightwards from the search key
 	
 	private K searchKey; // Key to calculate similarities with
 	private K leftKey; // Key currently visited leftwards at the leaf level
@@ -33,6 +37,7 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 								// similarity calculations
 
 	ISimilarity<K> numSimilarity;
+	INormal<K> normal;   // Normalization applied against the keys in similarity calculations; null, if no normalization is applied
 //	public K minKey;
 //	public K maxKey;
 	
@@ -43,24 +48,42 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 
 	/**
 	 * Constructor
-	 * @param index  The underlying B+-tree index to be used in the search.
-	 * @param key  The search key.
+	 * @param index  The underlying index (B+-tree or sorted array) to be used in the search.
+	 * @param key  The search key, i.e., an original value as those used as keys in the index.
+	 * @param normal  Normalization to be applied against the search key and the keys of the index in similarity calculations; null, if no normalization is applied.
 	 * @param simMeasure  The similarity measure to be used.
 	 * @param partialResults  Queue that collects the results of this search.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public NumericalSimSearch(BPlusTree<K, V> index, K key, ISimilarity<K> simMeasure, RankedList partialResults, Logger log) {
+	public NumericalSimSearch(INumericalIndex<K, V> index, K key, INormal<K> normal, ISimilarity<K> simMeasure, RankedList partialResults, Logger log) {
 		
 		this.log = log;
 		this.partialResults = partialResults;
 		this.index = index;
 
 		searchKey = leftKey = rightKey = key;
+		cursor = index.seek(key);
 //		topk = k;    // FIXME: May be not used, in order to provide progressive results
 		numMatches = 0;
 	
 		// Instantiate the numerical similarity function
 		this.numSimilarity = simMeasure;
+		this.normal = normal;
+	}
+
+	
+	/**
+	 * Normalizes a key of the index, since the index holds original values but similarities are calculated on normalized ones.
+	 * Normalization is affine and increasing, so the order of keys in the index is retained.
+	 * @param key  An original key (or the search key).
+	 * @return  The normalized key; the key itself, if no normalization is applied.
+	 */
+	@SuppressWarnings("unchecked")
+	private K normalize(K key) {
+		
+		if ((normal == null) || (key == null))
+			return key;
+		return (K) Double.valueOf(normal.normalize(key));
 	}
 
 
@@ -94,7 +117,7 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 		if ((numMatches == 0) && (leftKey.equals(rightKey))) {
 		
 			// If search key exists in the index, return its contents
-			results = index.search(searchKey); 
+			results = cursor.getExactValues(); 
 
 			// Estimate similarities with next keys to be visited leftwards and rightwards
 			simLeft = calcSimLeft(searchKey);
@@ -120,11 +143,11 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 //		if (numMatches < topk) {
 			if (simLeft > simRight) { 	// Continue LEFT-wards
 				simScore = simLeft;
-				results = index.search(leftKey);
+				results = cursor.getLeftValues();
 				simLeft = calcSimLeft(searchKey);
 			} else { 					// Continue RIGHT-wards
 				simScore = simRight;
-				results = index.search(rightKey);
+				results = cursor.getRightValues();
 				simRight = calcSimRight(searchKey);
 			}
 			numMatches++;
@@ -134,6 +157,23 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 	}
 
 	
+	/**
+	 * Creates a partial result for an entity found in the index, attaching its dense identifier if the index keeps one.
+	 * @param results  The entities associated with a key in the index.
+	 * @param j  The position of the entity in this list.
+	 * @param key  The key (i.e., the attribute value) of the entity.
+	 * @param score  The similarity score (or distance) of the entity.
+	 * @return  A partial result to be inserted to the result queue.
+	 */
+	private PartialResult createResult(List<V> results, int j, K key, double score) {
+		
+		PartialResult pRes = new PartialResult(results.get(j), key, score);
+		if (results instanceof SortedArrayIndex.EntityList)
+			pRes.setEntity(((SortedArrayIndex.EntityList) results).getEntity(j));
+		return pRes;
+	}
+	
+	
 	/**
 	 * Inserts to the result queue a batch of qualifying results corresponding to a single key.
 	 * @return  The number of qualifying results in the next batch.
@@ -148,7 +188,7 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 		if ((numMatches == 0) && (leftKey.equals(rightKey))) {
 		
 			// If search key exists in the index, return its contents
-			results = index.search(searchKey); 
+			results = cursor.getExactValues(); 
 
 			// Estimate similarities with next keys to be visited leftwards and rightwards
 			simLeft = calcSimLeft(searchKey);
@@ -156,10 +196,10 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 
 			// If exact key is found, assign a similarity score of 1.0
 			if (results != null) {
-				for (V v: results) {
+				for (int j = 0; j < results.size(); j++) {
 					simScore = 1.0;
-					partialResults.add(new PartialResult(v, searchKey, simScore));
-//					System.out.println("key:"+ searchKey + " val:" + v);
+					partialResults.add(createResult(results, j, searchKey, simScore));
+//					System.out.println("key:"+ searchKey + " val:" + results.get(j));
 					numMatches++;
 				}
 			}
@@ -177,22 +217,22 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 //		if (i < topk) {
 			if ((simLeft > simRight) || (rightKey == null)) { 	// Continue LEFT-wards
 				simScore = simLeft;
-				results = index.search(leftKey);
+				results = cursor.getLeftValues();
 				if (results != null) {
-					for (V v: results) {
-						partialResults.add(new PartialResult(v, leftKey, simScore));
-//						System.out.println("LEFT key:"+ leftKey + " val:" + v);
+					for (int j = 0; j < results.size(); j++) {
+						partialResults.add(createResult(results, j, leftKey, simScore));
+//						System.out.println("LEFT key:"+ leftKey + " val:" + results.get(j));
 						numMatches++;
 					}
 					simLeft = calcSimLeft(searchKey);
 				}		
 			} else if ((simLeft <= simRight) || (leftKey == null)) { // Continue RIGHT-wards
 				simScore = simRight;
-				results = index.search(rightKey);
+				results = cursor.getRightValues();
 				if (results != null) {
-					for (V v: results) {
-						partialResults.add(new PartialResult(v, rightKey, simScore));
-//						System.out.println("RIGHT key:"+ rightKey + " val:" + v);
+					for (int j = 0; j < results.size(); j++) {
+						partialResults.add(createResult(results, j, rightKey, simScore));
+//						System.out.println("RIGHT key:"+ rightKey + " val:" + results.get(j));
 						numMatches++;
 					}
 					simRight = calcSimRight(searchKey);
@@ -205,6 +245,27 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 	}
 
 
+	/**
+	 * Pulls the next batch of results, walking leftwards or rightwards from the search key by descending similarity scores.
+	 * All results sharing the same key are included in the batch, so it may exceed the requested size.
+	 * @param batchSize  The number of results to append to the queue.
+	 * @return  The number of results appended, or -1 if tree traversal is exhausted.
+	 */
+	@Override
+	public int next(int batchSize) {
+		
+		int n = 0;
+		int m;
+		while (n < batchSize) {
+			if ((m = fetchNextBatch()) < 0)   // Tree is exhausted
+				return (n > 0) ? n : -1;
+			n += m;
+		}
+		
+		return n;
+	}
+	
+	
 	/**
 	 * Provides the first batch of (at least topk) results and also specifies the scaling factor for scoring.
 	 * CAUTION! Results are obtained with increasing distance; scores will be assigned once the scale factor is fixed.
@@ -224,7 +285,7 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 		if ((numMatches == 0) && (leftKey.equals(rightKey))) {
 		
 			// If search key exists in the index, return its contents
-			results = index.search(searchKey); 
+			results = cursor.getExactValues(); 
 
 			// Estimate distances (NOT scores) with next keys to be visited leftwards and rightwards
 			distLeft = calcDistanceLeft(searchKey);
@@ -232,10 +293,10 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 
 			// If exact key is found, assign a similarity score of 1.0
 			if (results != null) {
-				for (V v: results) {
+				for (int j = 0; j < results.size(); j++) {
 					dist = 0.0;   // Distance, NOT score!
-					topkResults.add(new PartialResult(v, searchKey, dist));
-//					System.out.println("key:"+ searchKey + " val:" + v);
+					topkResults.add(createResult(results, j, searchKey, dist));
+//					System.out.println("key:"+ searchKey + " val:" + results.get(j));
 					numMatches++;
 				}
 			}
@@ -258,22 +319,22 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 //		if (i < topk) {
 			if ((distLeft < distRight) || (rightKey == null)) { 	// Continue LEFT-wards
 				dist = distLeft;
-				results = index.search(leftKey);
+				results = cursor.getLeftValues();
 				if (results != null) {
-					for (V v: results) {
-						topkResults.add(new PartialResult(v, leftKey, dist));
-//						System.out.println("LEFT key:"+ leftKey + " val:" + v);
+					for (int j = 0; j < results.size(); j++) {
+						topkResults.add(createResult(results, j, leftKey, dist));
+//						System.out.println("LEFT key:"+ leftKey + " val:" + results.get(j));
 						numMatches++;
 					}
 					distLeft = calcDistanceLeft(searchKey);
 				}			
 			} else if ((distLeft >= distRight) || (leftKey == null)) { 	// Continue RIGHT-wards
 				dist = distRight;
-				results = index.search(rightKey);
+				results = cursor.getRightValues();
 				if (results != null) {
-					for (V v: results) {
-						topkResults.add(new PartialResult(v, rightKey, dist));
-//						System.out.println("RIGHT key:"+ rightKey + " val:" + v);
+					for (int j = 0; j < results.size(); j++) {
+						topkResults.add(createResult(results, j, rightKey, dist));
+//						System.out.println("RIGHT key:"+ rightKey + " val:" + results.get(j));
 						numMatches++;
 					}
 					distRight = calcDistanceRight(searchKey);
@@ -298,8 +359,8 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 		}
 		
 		// CAUTION! Must update similarity scores on left and right pointers
-		simLeft = numSimilarity.calc(searchKey, leftKey);
-		simRight = numSimilarity.calc(searchKey, rightKey);
+		simLeft = numSimilarity.calc(normalize(searchKey), normalize(leftKey));
+		simRight = numSimilarity.calc(normalize(searchKey), normalize(rightKey));
 		
 		return numMatches;   // The number of items added in the first batch
 	}
@@ -307,14 +368,15 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 	
 	/**
 	 * Gets the next available key LEFT-wards and calculates a similarity score.
+	 * The cursor is moved to this key, so its values can be obtained without searching the index again.
 	 * @param key  The search key.
 	 * @return  Similarity score of the found key with the search key.
 	 */
 	private Double calcSimLeft(K key) {
 
-		leftKey = index.getRoot().nextKeyLeftwards(leftKey);
+		leftKey = cursor.nextLeft();
 		if (leftKey != null)
-			return numSimilarity.calc(key, leftKey);
+			return numSimilarity.calc(normalize(key), normalize(leftKey));
 		else
 			return 0.0;
 	}
@@ -326,23 +388,24 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 	 */
 	private Double calcDistanceLeft(K key) {
 
-		leftKey = index.getRoot().nextKeyLeftwards(leftKey);
+		leftKey = cursor.nextLeft();
 		if (leftKey != null)
-			return numSimilarity.getDistanceMeasure().calc(key, leftKey);
+			return numSimilarity.getDistanceMeasure().calc(normalize(key), normalize(leftKey));
 		else
 			return Double.POSITIVE_INFINITY;
 	}
 	
 	/**
 	 * Gets the next available key RIGHT-wards and calculates a similarity score.
+	 * The cursor is moved to this key, so its values can be obtained without searching the index again.
 	 * @param key  The search key.
 	 * @return  Similarity score of the found key with the search key.
 	 */
 	private Double calcSimRight(K key) {
 
-		rightKey = index.getRoot().nextKeyRightwards(rightKey);
+		rightKey = cursor.nextRight();
 		if (rightKey != null)
-			return numSimilarity.calc(key, rightKey);
+			return numSimilarity.calc(normalize(key), normalize(rightKey));
 		else
 			return 0.0;
 	}
@@ -354,9 +417,9 @@ public class NumericalSimSearch<K extends Comparable<? super K>, V> implements I
 	 */
 	private Double calcDistanceRight(K key) {
 
-		rightKey = index.getRoot().nextKeyRightwards(rightKey);
+		rightKey = cursor.nextRight();
 		if (rightKey != null)
-			return numSimilarity.getDistanceMeasure().calc(key, rightKey);
+			return numSimilarity.getDistanceMeasure().calc(normalize(key), normalize(rightKey));
 		else
 			return Double.NEGATIVE_INFINITY;
 	}
@@ -1,24 +1,23 @@
 package eu.smartdatalake.simsearch.engine.processor.ingested;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.TreeMap;
 
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimaps;
+import gnu.trove.list.array.TDoubleArrayList;
 
 import eu.smartdatalake.simsearch.Logger;
 import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
 import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
 import eu.smartdatalake.simsearch.engine.processor.ranking.PartialResult;
 import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.ISpatialCursor;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.ISpatialIndex;
 import eu.smartdatalake.simsearch.manager.ingested.spatial.Location;
-import eu.smartdatalake.simsearch.manager.ingested.spatial.RTree;
 
 
 /**
- * Implements similarity search against geometry locations indexed in a R-tree.
+ * Implements similarity search against geometry locations indexed in a R-tree or in a packed index over point locations.
+ * Locations are retrieved incrementally by ascending distance from the query location, so only those actually consumed by the ranking get examined.
  * @param <K>  Type variable representing the datasetIdentifiers of the indexed objects.
  * @param <V>  Type variable representing the locations of the indexed objects.
  */
@@ -26,12 +25,16 @@ public class SpatialSimSearch<K extends Comparable<? super K>, V> implements ISi
 
 	Logger log = null;
 	
-	RTree<K, V> index;   //The underlying R-tree index
+	ISpatialIndex<K, V> index;   //The underlying spatial index
 	
 	ISimilarity<V> locSimilarity;
 	
-	ListMultimap<Double, Location> matches;
-	Iterator<Double> iterMatches;
+	ISpatialCursor browser;		// Cursor over the index by ascending distance from the query location
+	List<Location> pending;		// Locations already retrieved from the index, but not yet issued
+	TDoubleArrayList pendingDistances;
+	int pos;					// Position of the next pending location to be issued
+	int numIssued;				// Number of results issued so far
+	int M;						// Maximum number of results to issue
 	private Double score;
 	RankedList partialResults;
 	
@@ -39,13 +42,13 @@ public class SpatialSimSearch<K extends Comparable<? super K>, V> implements ISi
 	
 	/**
 	 * Constructor
-	 * @param index  The underlying R-tree index to be used in the search.
+	 * @param index  The underlying spatial index to be used in the search.
 	 * @param loc  Query location specified for this spatial similarity search.
 	 * @param simMeasure  The similarity measure to be used.
 	 * @param partialResults   The queue to collect query results.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public SpatialSimSearch(RTree<K, V> index, V loc, ISimilarity<V> simMeasure, RankedList partialResults, Logger log) {
+	public SpatialSimSearch(ISpatialIndex<K, V> index, V loc, ISimilarity<V> simMeasure, RankedList partialResults, Logger log) {
 		
 		this.log = log;
 		this.index = index;
@@ -53,6 +56,8 @@ public class SpatialSimSearch<K extends Comparable<? super K>, V> implements ISi
 		this.locSimilarity = simMeasure;
 		this.partialResults = partialResults;
 		this.score = null;
+		this.pending = new ArrayList<Location>();
+		this.pendingDistances = new TDoubleArrayList();
 	}
 
 
@@ -65,81 +70,126 @@ public class SpatialSimSearch<K extends Comparable<? super K>, V> implements ISi
 		return score;
 	}
 
+	/**
+	 * Retrieves the next nearest location, unless the maximum number of results has been reached.
+	 * @return  True, if another location is pending; otherwise, False.
+	 */
+	private boolean fetch() {
+		
+		if (pos < pending.size())
+			return true;
+		
+		pending.clear();
+		pendingDistances.resetQuick();
+		pos = 0;
+		if (numIssued >= M)
+			return false;
+		
+		Location p = browser.next();
+		if (p == null)
+			return false;
+		pending.add(p);
+		pendingDistances.add(browser.getDistance());
+		return true;
+	}
+
+	/**
+	 * Issues the next pending location to the result queue.
+	 */
+	private void issue() {
+		
+		Location p = pending.get(pos);
+		score = this.locSimilarity.scoring(pendingDistances.get(pos));
+		PartialResult res = new PartialResult(p.key, p.loc, score);
+		res.setEntity(p.entity);   // Dense identifier already known to the index, if any
+		partialResults.add(res);
+		pos++;
+		numIssued++;
+	}
+
 	@Override
 	//TODO : Remove this unused method!
 	public List<V> getNextResult() {
 		
-		// Consume results by ascending distance value
-		while (iterMatches.hasNext()) {
-			double distance = iterMatches.next(); 
-			score = this.locSimilarity.scoring(distance);
-			
-//			System.out.println("SCORE: " + score + " #results: " + matches.get(distance).size());
-			return (List<V>) matches.get(distance);
-		}
+		// Consume all results at the next distance value
+		if (!fetch())
+			return null;
+		
+		List<V> results = new ArrayList<V>();
+		double distance = pendingDistances.get(pos);
+		do {
+			results.add((V) pending.get(pos));
+			pos++;
+			numIssued++;
+		} while (fetch() && (pendingDistances.get(pos) == distance));
+		score = this.locSimilarity.scoring(distance);
 		
-		return null;
+		return results;
 	}
 
 	/**
-	 * Inserts to the result queue a batch of qualifying results corresponding to a single key.
-	 * @return  The number of qualifying results having the same key.
+	 * Inserts to the result queue all remaining results, up to the maximum number of results.
+	 * @return  The number of qualifying results inserted.
 	 */
 	public int fetchNextBatch() {
 		
 		int n = 0;
-		// Consume results by ascending distance value
-		while (iterMatches.hasNext()) {
-			double distance = iterMatches.next(); 
-			score = this.locSimilarity.scoring(distance);
-			// Multiple objects may be at the same distance
-			for (Location p : matches.get(distance)) {
-				partialResults.add(new PartialResult(p.key, p.loc, score));
-				n++;
-			}
+		while (fetch()) {
+			issue();
+			n++;
 		}
 		return n;
 	}
 	
 	/**
-	 * Computes the k-NN results.
-	 * FIXME: Process does not actually work progressively; it currently collects all k-NN results before issuing them.
+	 * Pulls the next batch of results by ascending distance from the query location.
+	 * All results at the same distance are included in the batch, so it may exceed the requested size.
+	 * @param batchSize  The number of results to append to the queue.
+	 * @return  The number of results appended, or -1 if no more results can be issued.
+	 */
+	@Override
+	public int next(int batchSize) {
+		
+		int n = 0;
+		double distance = Double.NaN;
+		// Consume results by ascending distance value; multiple objects may be at the same distance
+		while (fetch() && ((n < batchSize) || (pendingDistances.get(pos) == distance))) {
+			distance = pendingDistances.get(pos);
+			issue();
+			n++;
+		}
+		
+		return (n > 0) ? n : -1;
+	}
+	
+	/**
+	 * Starts the k-NN search, retrieving the top-k locations in order to specify the scale factor used in scoring.
+	 * Further results are retrieved progressively from the index once requested by next().
 	 * @param topk  The number of the final top-k results.
-	 * @param M  The number of results to fetch, i.e., those with the top-k (closest) distances to the query point.
-	 * @return  The number of collected results.
+	 * @param M  The maximum number of results to issue, i.e., those with the top-M (closest) distances to the query point.
+	 * @return  The number of results retrieved so far.
 	 */
 	public long compute(int topk, int M) { 
 
-		Object[] res = index.getKNearestNeighbors(searchLoc, M);
+		this.M = M;
+		this.numIssued = 0;
+		this.pos = 0;
+		pending.clear();
+		pendingDistances.resetQuick();
+		browser = index.browse(searchLoc);
 		
-		// Results are sorted by ascending distance from the query location
-		matches = Multimaps.newListMultimap(new TreeMap<>(), ArrayList::new);
-
-		double distance;
+		// Results are retrieved by ascending distance from the query location
 		Location p;
-		
-		// Calculate distances for the retrieved locations
-		// CAUTION! JTS implementation of k-NN over R-tree does NOT return results sorted by distance
-		for (int i = 0; i < res.length; i++) {
-			p = (Location) res[i];
-			distance = this.locSimilarity.getDistanceMeasure().calc((V) p.loc);
-			matches.put(distance, p);  // Sorted by ascending distance
+		while ((pending.size() < Math.min(topk, M)) && ((p = browser.next()) != null)) {
+			pending.add(p);
+			pendingDistances.add(browser.getDistance());
 		}
 
 		// Set the k-th distance as the scale factor to be used in scoring 
-		int i = 0;
-		for (Double d : matches.keys()) {
-		    i++;
-			if (i == topk) {
-				this.locSimilarity.setScaleFactor(d);
-				break;
-			}
-		}
-		
-		// Set the iterator on the keys (i.e., distances) of the collected results
-		iterMatches = matches.keySet().iterator(); 
+		if (pending.size() == topk)
+			this.locSimilarity.setScaleFactor(pendingDistances.get(topk - 1));
 
-		return res.length;
+		return pending.size();
 	}
 	
 }
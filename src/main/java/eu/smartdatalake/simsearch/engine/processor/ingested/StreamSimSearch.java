@@ -0,0 +1,117 @@
+package eu.smartdatalake.simsearch.engine.processor.ingested;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import eu.smartdatalake.simsearch.Logger;
+import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
+import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
+import eu.smartdatalake.simsearch.engine.processor.ranking.PartialResult;
+import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
+
+/**
+ * Provides the candidates of a similarity search query against an ingested attribute by reading them from a (possibly shared) stream of ranked candidates.
+ * Only the first batch of (at least top-k) candidates is issued by the running thread; further candidates are pulled on demand by the rank aggregator, extending the stream if necessary.
+ */
+public class StreamSimSearch implements ISimSearch<String, Object>, Runnable {
+
+	Logger log = null;
+
+	CandidateStream stream;
+	ISimilarity<?> simMeasure;		// Similarity measure of this request
+	RankedList resultsQueue;
+	int topk;
+	int collectionSize;
+	int pos;						// Position of the next candidate to read from the stream
+	boolean cached;					// Indicates whether the stream has been retained from a previous request
+
+	public AtomicBoolean running = new AtomicBoolean(false);
+
+	public String name;    //An informative name (operation + dataset + attribute) given to the running thread of similarity search
+
+	/**
+	 * Constructor
+	 * @param search  The similarity search query specified in this request; its candidates will be read from the stream instead.
+	 * @param stream  The stream of ranked candidates to read from.
+	 * @param cached  True, if the stream has been retained from a previous request; otherwise, False.
+	 */
+	public StreamSimSearch(IndexSimSearch search, CandidateStream stream, boolean cached) {
+
+		this.log = search.log;
+		this.name = search.name;
+		this.topk = search.topk;
+		this.collectionSize = search.collectionSize;
+		this.simMeasure = search.simMeasure;
+		this.resultsQueue = search.resultsQueue;
+		this.stream = stream;
+		this.cached = cached;
+		this.pos = 0;
+	}
+
+
+	@Override
+	public List<Object> getNextResult() {
+
+		List<Object> results = new ArrayList<Object>();
+		if (stream.extend(pos + 1) > pos)
+			results.add(stream.get(pos++).getValue());
+		return results;
+	}
+
+
+	/**
+	 * Pulls the next batch of candidates from the stream, extending it if necessary.
+	 * Candidates sharing the score of the last one are also included, so the batch may exceed the requested size.
+	 * @param batchSize  The number of results to append to the queue.
+	 * @return  The number of results appended, or -1 if the stream is exhausted.
+	 */
+	@Override
+	public int next(int batchSize) {
+
+		int available = stream.extend(pos + batchSize);
+
+		// Scores must be consistent with the scale factor determined by the query
+		stream.copyScaleFactor(simMeasure);
+
+		int n = 0;
+		PartialResult res = null;
+		while (pos < available) {
+			PartialResult cur = stream.get(pos);
+			// Stop once the batch is full, unless the next candidate is tied with the last one
+			if ((n >= batchSize) && (cur.getScore() != res.getScore()))
+				break;
+			res = cur;
+			resultsQueue.add(res);
+			pos++;
+			n++;
+			// Include any further tied candidates
+			if ((pos == available) && (n >= batchSize))
+				available = stream.extend(pos + 1);
+		}
+
+		return (n > 0) ? n : -1;
+	}
+
+
+	/**
+	 * Issues the first batch of top-k candidates; further candidates will be pulled on demand.
+	 */
+	@Override
+	public void run() {
+
+		long duration = System.nanoTime();
+
+		int n = next(topk);
+		if (n > 0)
+			this.resultsQueue.setCursor(this, topk, collectionSize);
+
+		running.set(false);
+
+		// Report only if replayed from a previous request; otherwise, the query itself has already reported its first batch
+		duration = System.nanoTime() - duration;
+		if (cached)
+			this.log.writeln("Query [" + this.name.substring(0, this.name.indexOf(".")) + "] " + this.name.substring(this.name.indexOf(".") + 1) + " (cached) returned a first batch of " + Math.max(n, 0) + " results in " + duration / 1000000000.0 + " sec.");
+	}
+
+}
@@ -305,6 +305,7 @@ public class ElasticSearchRestQuery<K extends Comparable<? super K>, V> implemen
 	 * @param identifiers  The set of object identifiers (acting as the primary key in the respective database table).
 	 * @return  The number of collected results.
 	 */
+    @Override
     public int appendValues(Set<String> identifiers) {
     	
     	JSONParser jsonParser = new JSONParser();
@@ -314,7 +315,8 @@ public class ElasticSearchRestQuery<K extends Comparable<? super K>, V> implemen
 			String ids = String.join(",", identifiers.stream().map(id -> ("\"" + id + "\"")).collect(Collectors.toList()));
 			
 			// Modify the template to return all values for the given set of identifiers
-			String query = queryValueRetrievalTemplate.replace("\"$id\"", ids);
+			// CAUTION! ElasticSearch returns 10 hits by default, so the number of hits must be specified
+			String query = queryValueRetrievalTemplate.replace("\"$id\"", ids).replaceFirst("\\{", "{\"size\": " + identifiers.size() + ", ");
 
     		// Execute the query against the REST API and receive its response
     		CloseableHttpResponse response = httpConn.executeQuery(query);
@@ -386,6 +388,16 @@ public class ElasticSearchRestQuery<K extends Comparable<? super K>, V> implemen
 		return null;
 	}
 	
+	
+	/**
+	 * Pulls the next batch of results from the query.
+	 * NOT applicable with this type of search, as all results are obtained in a single response and issued directly to the queue.
+	 */
+	@Override
+	public int next(int batchSize) {
+		return -1;
+	}
+	
 
 	/**
 	 * 
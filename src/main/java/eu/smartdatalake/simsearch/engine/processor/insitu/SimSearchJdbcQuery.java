@@ -2,6 +2,7 @@ package eu.smartdatalake.simsearch.engine.processor.insitu;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -45,6 +46,12 @@ public class SimSearchJdbcQuery<K extends Comparable<? super K>, V> implements I
 	public int collectionSize;
 	int topk;
 	RankedList resultsQueue;
+	
+	// State of the query, retained between successive batches of results
+	ResultSet rs = null;
+	RankedList partialResults;
+	RankedList topkResults;
+	int numMatches;
 
 	String sql = null;			// SQL SELECT command to be composed for top-k search
 	String viewClause ="";
@@ -184,40 +191,64 @@ public class SimSearchJdbcQuery<K extends Comparable<? super K>, V> implements I
 
 
 	/**
-	 * Connects to a database and retrieves records qualifying to the SQL SELECT query executed in-situ.
+	 * Connects to a database and submits the SQL SELECT query to be executed in-situ; qualifying records can be then retrieved in batches.
 	 * @param M  The count of candidate entities to fetch.
 	 * @param partialResults  The queue that collects results obtained from the specified query.
-	 * @return  The number of collected results.
+	 * @return  True, if the query has been executed successfully; otherwise, False.
 	 */
-	public int compute(int M, RankedList partialResults) {
-
-		int numMatches = 0;
-		Object val = null;
-		ResultSet rs = null;
-		long duration = System.nanoTime();
+	public boolean open(int M, RankedList partialResults) {
 
+		this.partialResults = partialResults;
+		numMatches = 0;
+		
 		// Temporary ranked list to keep results until the scale factor is determined
-		RankedList topkResults = new RankedList();
-		PartialResult pRes;
-
+		topkResults = new RankedList();
+		
 		//    	 System.out.println(sql);
+		//Execute SQL query in the DBMS; its results will be fetched progressively 
+		rs = databaseConnector.executeQuery(sql.replace("$M$",""+M));
+		/*			 
+		  // NOT USED: Identify the names of all columns
+		  List<String> columns = new ArrayList<String>(rs.getMetaData().getColumnCount());
+		  for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++)
+			  columns.add(rs.getMetaData().getColumnName(i));
+		 */
+		
+		return (rs != null);
+	}
+
+	
+	/**
+	 * Retrieves the next batch of records qualifying to the SQL SELECT query and pushes them to the queue.
+	 * @param batchSize  The number of results to append to the queue.
+	 * @return  The number of results appended, or -1 if all retrieved records have been consumed.
+	 */
+	@Override
+	public int next(int batchSize) {
+
+		int n = 0;
+		Object val = null;
+		PartialResult pRes;
+		boolean exhausted = false;
+		
+		if (rs == null)
+			return -1;
+		
 		try {
-			//Execute SQL query in the DBMS and fetch all results 
-			rs = databaseConnector.executeQuery(sql.replace("$M$",""+M));
-			/*			 
-			  // NOT USED: Identify the names of all columns
-			  List<String> columns = new ArrayList<String>(rs.getMetaData().getColumnCount());
-			  for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++)
-				  columns.add(rs.getMetaData().getColumnName(i));
-			 */
-			// Iterate through all retrieved results and push them to the queue
+			// Iterate through retrieved results and push them to the queue
 			// ASSUMPTION: acquiring three properties per result: (1) the identifier; (2) attribute value; (3) distance
-			while (rs.next()) {
+			while (n < batchSize) {
+				// Only the result set itself can tell that all records have been consumed
+				if (!rs.next()) {
+					exhausted = true;
+					break;
+				}
+				
 				// LOOK-UP STEP: Look-up the attribute value to be used during random access
 				val = formatValue(rs.getString(1), rs.getObject(2));
 
 				// Casting the attribute value to the respective data type used by the look-up (hash) table
-				this.datasets.get(this.hashKey).put((K)rs.getObject(1), (V)val);
+				this.datasets.get(this.hashKey).put((K)rs.getString(1), (V)val);   // Identifiers are looked up as strings, as in appendValues()
 
 				// Result is derived with a similarity distance
 				if (this.dbType.equals("AVATICA")) {
@@ -238,35 +269,97 @@ public class SimSearchJdbcQuery<K extends Comparable<? super K>, V> implements I
 				else if (numMatches == topk) {
 					topkResults.add(pRes);
 					// Set the scale factor to be used in scoring as the k-th distance
-					simMeasure.setScaleFactor(pRes.getScore());
-					// Put previously collected results into the priority queue ...
-					// ... with a score according to exponential decay function
-					Iterator<PartialResult> qIter = topkResults.iterator();
-					while (qIter.hasNext()) { 
-						pRes = qIter.next();
-						pRes.setScore(simMeasure.scoring(pRes.getScore()));
-						partialResults.add(pRes);
-					}
+					n += flushTopkResults(pRes.getScore());
 				}
 				else {  
 					// After the k-th result, the scale factor has been set, so issue them directly ...
 					// ... with a score according to exponential decay function
 					pRes.setScore(simMeasure.scoring(pRes.getScore()));
 					partialResults.add(pRes);
+					n++;
 				}
 			}
 		}
 		catch(Exception e) { 
 //			this.log.writeln("An error occurred while retrieving data from the database.");
 			e.printStackTrace();
+			exhausted = true;
 		}
-		finally {
+		
+		// All retrieved records have been consumed
+		if (exhausted) {
+			// Fewer than topk records qualify, so the scale factor is set by the last (furthest) of those held in the temporary list
+			if ((numMatches > 0) && (numMatches < topk)) {
+				double lastDistance = 0.0;
+				for (Iterator<PartialResult> qIter = topkResults.iterator(); qIter.hasNext(); )
+					lastDistance = qIter.next().getScore();
+				n += flushTopkResults(lastDistance);
+			}
+			close();
+		}
+		
+		return (n > 0) ? n : -1;
+	}
+	
+	
+	/**
+	 * Issues the results held in the temporary list to the queue, once the scale factor to be used in scoring can be set.
+	 * @param scaleDistance  The distance that determines the scale factor (i.e., the k-th distance).
+	 * @return  The number of results issued to the queue.
+	 */
+	private int flushTopkResults(double scaleDistance) {
+		
+		int n = 0;
+		simMeasure.setScaleFactor(scaleDistance);
+		// Put previously collected results into the priority queue ...
+		// ... with a score according to exponential decay function
+		Iterator<PartialResult> qIter = topkResults.iterator();
+		while (qIter.hasNext()) { 
+			PartialResult pRes = qIter.next();
+			pRes.setScore(simMeasure.scoring(pRes.getScore()));
+			partialResults.add(pRes);
+			n++;
+		}
+		topkResults = new RankedList();
+		return n;
+	}
+	
+	
+	/**
+	 * Closes the result set of the SQL SELECT query along with its statement, once no further records will be consumed.
+	 * This is also invoked once rank aggregation concludes, even if not all records have been consumed.
+	 */
+	@Override
+	public void close() {
+		
+		if (rs != null) {
 			try {
+				Statement stmt = rs.getStatement();
 				rs.close();
+				if (stmt != null)
+					stmt.close();
 			} catch (SQLException e) {
 				e.printStackTrace();
 			}
+			rs = null;
 		}
+	}
+	
+	
+	/**
+	 * Connects to a database and retrieves records qualifying to the SQL SELECT query executed in-situ.
+	 * @param M  The count of candidate entities to fetch.
+	 * @param partialResults  The queue that collects results obtained from the specified query.
+	 * @return  The number of collected results.
+	 */
+	public int compute(int M, RankedList partialResults) {
+
+		long duration = System.nanoTime();
+
+		if (open(M, partialResults)) {
+			while (next(M) >= 0);
+		}
+		
 		duration = System.nanoTime() - duration;
 		this.log.writeln("Query [" + myAssistant.decodeOperation(this.operation) + "] on " + this.valColumnName + " (in-situ) returned " + numMatches + " results in " + duration / 1000000000.0 + " sec.");
 
@@ -311,6 +404,7 @@ public class SimSearchJdbcQuery<K extends Comparable<? super K>, V> implements I
 	 * @param identifiers  The set of object identifiers (acting as the primary key in the respective database table).
 	 * @return  The number of collected results.
 	 */
+	@Override
 	public int appendValues(Set<String> identifiers) {
 
 		int numMatches = 0;
@@ -334,7 +428,7 @@ public class SimSearchJdbcQuery<K extends Comparable<? super K>, V> implements I
 				numMatches++;
 
 				// Casting the attribute value to the respective data type used by the look-up (hash) table
-				this.datasets.get(this.hashKey).put((K)rs.getObject(1), (V)val);
+				this.datasets.get(this.hashKey).put((K)rs.getString(1), (V)val);   // Identifiers are looked up as strings
 			}
 		}
 		catch(Exception e) {
@@ -382,10 +476,22 @@ public class SimSearchJdbcQuery<K extends Comparable<? super K>, V> implements I
 		}
 
 		running.set(true);
+		long duration = System.nanoTime();
 
-		// Run the SQL query and populate the queue with its results
-		compute(this.collectionSize, this.resultsQueue);
-
+		// Run the SQL query and populate the queue with the first batch of its results
+		// Further results will be pulled on demand by the rank aggregator
+		try {
+			if (open(this.collectionSize, this.resultsQueue) && (next(topk) > 0) && (rs != null))
+				this.resultsQueue.setCursor(this, topk, this.collectionSize);
+		} finally {
+			// Without a cursor attached to the queue, no further records will be pulled
+			if (!this.resultsQueue.hasCursor(this))
+				close();
+		}
+		
+		duration = System.nanoTime() - duration;
+		this.log.writeln("Query [" + myAssistant.decodeOperation(this.operation) + "] on " + this.valColumnName + " (in-situ) returned a first batch of " + numMatches + " results in " + duration / 1000000000.0 + " sec.");
+		
 		running.set(false);
 	}
 
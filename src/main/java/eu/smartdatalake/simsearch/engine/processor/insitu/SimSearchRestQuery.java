@@ -233,4 +233,14 @@ public class SimSearchRestQuery<K extends Comparable<? super K>, V> implements I
 		return null;
 	}
 	
+	
+	/**
+	 * Pulls the next batch of results from the query.
+	 * NOT applicable with this type of search, as all results are obtained in a single response and issued directly to the queue.
+	 */
+	@Override
+	public int next(int batchSize) {
+		return -1;
+	}
+	
 }
@@ -1,52 +1,99 @@
 package eu.smartdatalake.simsearch.engine.processor.ranking;
 
+import java.util.Arrays;
 import java.util.BitSet;
 
 /**
- * Auxiliary class that collects results along with upper and lower bounds on their aggregated scores.
+ * Auxiliary class that collects the partial scores of a result obtained from each attribute.
+ * Partial scores are kept once per result, so that its aggregated score (or bounds) for any combination of weights can be derived from them.
  */
-public class AggregateResult extends PartialResult {
+public class AggregateResult {
 	
+	private int id;  // Dense identifier of the entity
 	private BitSet appearances; // Bitmap indicating the queues where this value
 								// has been seen so far
-	private double lb; // Lower bound
-	private double ub; // Upper bound
+	private double[] scores; // Partial (unweighted) score per attribute; indexed by the identifier of the respective task
+	private int[] order; // Attributes in the order their partial scores were obtained
+	private int count; // Number of partial scores obtained so far
+	private double[] ub; // Upper bound per combination of weights, if required by the rank aggregation algorithm
+	private BitSet issued; // Combinations of weights for which this result has been already issued
 	private int size; // Bitmap size
 	
 	/**
 	 * Constructor
-	 * @param id  PartialResult identifier (the key of the object).
+	 * @param id  Dense identifier of the entity (as assigned in the entity dictionary).
 	 * @param size   Bitmap size: the number of results to be aggregated.
-	 * @param lb  Lower bound of similarity scores.
-	 * @param ub  Upper bound of similarity scores.
 	 */
-	public AggregateResult(String id, int size, double lb, double ub) {
-		super(id, -1.0);
+	public AggregateResult(int id, int size) {
+		this.id = id;
 		this.size = size;
 		appearances = new BitSet(size);
 		appearances.clear();
-		this.lb = lb;
-		this.ub = ub;
+		scores = new double[size];
+		order = new int[size];
+		count = 0;
+	}
+	
+	/**
+	 * Constructor
+	 * @param id  Dense identifier of the entity (as assigned in the entity dictionary).
+	 * @param size   Bitmap size: the number of results to be aggregated.
+	 * @param weightCombinations  The number of weight combinations for which upper bounds must be maintained.
+	 */
+	public AggregateResult(int id, int size, int weightCombinations) {
+		this(id, size);
+		ub = new double[weightCombinations];
+		issued = new BitSet(weightCombinations);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Records the partial score of this result in an attribute and marks that it has been seen there.
+	 * @param pos  The identifier of the task (attribute).
+	 * @param score  The partial (unweighted) score in this attribute.
+	 */
+	public void setScore(int pos, double score) {
+		if (!appearances.get(pos)) {
+			order[count++] = pos;
+			appearances.set(pos);
+		}
+		scores[pos] = score;
+	}
+
+	public double getScore(int pos) {
+		return scores[pos];
 	}
 
-	public double getLowerBound() {
+	/**
+	 * Calculates the aggregated score of this result over the attributes where it has been seen so far, i.e., its lower bound.
+	 * Partial scores are summed up in the order they were obtained.
+	 * @param weights  The weights per attribute in a particular combination; indexed by the identifier of the respective task.
+	 * @return  The weighted aggregated score.
+	 */
+	public double getAggregateScore(double[] weights) {
+		double lb = 0.0;
+		for (int i = 0; i < count; i++)
+			lb += weights[order[i]] * scores[order[i]];
 		return lb;
 	}
 
-	public double getUpperBound() {
-		return ub;
+	public double getUpperBound(int w) {
+		return ub[w];
 	}
 
-	public void setLowerBound(double lb) {
-		this.lb = lb;
+	public void setUpperBound(int w, double ub) {
+		this.ub[w] = ub;
 	}
 
-	public void setUpperBound(double ub) {
-		this.ub = ub;
+	public void setIssued(int w) {
+		this.issued.set(w);
 	}
-	
-	public void setAppearance(int pos) {
-		this.appearances.set(pos);
+
+	public boolean isIssued(int w) {
+		return this.issued.get(w);
 	}
 
 	/**
@@ -54,7 +101,7 @@ public class AggregateResult extends PartialResult {
 	 * @return  True, if all constituent results are received.
 	 */
 	public boolean checkAppearance() {
-		return (this.appearances.cardinality() == this.size);
+		return (this.count == this.size);
 	}
 
 	public BitSet getAppearance() {
@@ -62,7 +109,7 @@ public class AggregateResult extends PartialResult {
 	}
 
 	public String print() {
-		return this.getId() + "@(" + this.lb + "," + this.ub + ") " + appearances.toString();
+		return this.getId() + "@" + Arrays.toString(this.scores) + " " + appearances.toString();
 	}
 	
 }
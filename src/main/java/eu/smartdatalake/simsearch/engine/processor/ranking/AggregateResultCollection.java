@@ -1,49 +1,55 @@
 package eu.smartdatalake.simsearch.engine.processor.ranking;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Set;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
 
 /**
  * Auxiliary class to hold aggregate results at the current iteration of the rank aggregation process.
+ * Results are keyed by the dense identifiers of their entities.
  */
 public class AggregateResultCollection {
 	
-	private HashMap<String, AggregateResult> mapResults;
+	private TIntObjectHashMap<AggregateResult> mapResults;
 
 	public AggregateResultCollection() {
-		mapResults = new HashMap<String, AggregateResult>();
+		mapResults = new TIntObjectHashMap<AggregateResult>();
 	}
 	
-	public HashMap<String, AggregateResult> getMapResults() {
+	public TIntObjectHashMap<AggregateResult> getMapResults() {
 		return mapResults;
 	}
 
-	public void setMapResults(HashMap<String, AggregateResult> mapResults) {
+	public void setMapResults(TIntObjectHashMap<AggregateResult> mapResults) {
 		this.mapResults = mapResults;
 	}
 	
-	public AggregateResult get(String key) {
+	public AggregateResult get(int key) {
 		return mapResults.get(key);
 	}
 	
-	public void put(String key, AggregateResult value) {
+	public void put(int key, AggregateResult value) {
 		mapResults.put(key, value);
 	}
 
-	public Set<String> keySet() {
+	public TIntSet keySet() {
 		return mapResults.keySet();
 	}
 	
 	public Collection<AggregateResult> values() {
-		return mapResults.values();
+		return mapResults.valueCollection();
 	}
 	
 	public int size() {
 		return mapResults.size();
 	}
 	
-	public void remove(String key) {
+	public void remove(int key) {
 		mapResults.remove(key);
 	}
+	
+	public void clear() {
+		mapResults.clear();
+	}
 }
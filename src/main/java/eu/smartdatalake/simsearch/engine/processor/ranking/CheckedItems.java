@@ -1,33 +1,76 @@
 package eu.smartdatalake.simsearch.engine.processor.ranking;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
+
+import eu.smartdatalake.simsearch.Constants;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
 
 /**
- * Auxiliary class that is retains the already checked objects (i.e., their datasetIdentifiers) in order to avoid duplicate checks and thus suppress duplicates in the final results. 
+ * Auxiliary class that is retains the already checked objects (i.e., their dense identifiers) in order to avoid duplicate checks and thus suppress duplicates in the final results. 
+ * Checks take constant time: a bitmap over the dense identifiers is used, unless the number of entities exceeds a memory bound; in that case, a hash set of the checked identifiers is kept instead.
+ * A new instance is created per search request; it may also be cleared once rank aggregation is concluded.
  */
 public class CheckedItems {
 		
-	private List<String> checkedKeys;
+	private BitSet checkedBitmap;	// Used if the dense identifiers are within the memory bound
+	private TIntSet checkedKeys;	// Used otherwise; its size depends on the number of checked items only
+	private int count;
 
-	public CheckedItems() {
-		this.checkedKeys = new ArrayList<String>();
+	/**
+	 * Constructor
+	 * @param numEntities  The number of entities currently known in the dictionary of dense identifiers.
+	 */
+	public CheckedItems(int numEntities) {
+		
+		if (numEntities <= Constants.MAX_BITMAP_ENTITIES)
+			this.checkedBitmap = new BitSet(numEntities);
+		else
+			this.checkedKeys = new TIntHashSet();
+		count = 0;
 	}
 	
-	public List<String> getCheckedKeys() {
-		return checkedKeys;
+	public void add(int key) {
+		
+		// Entities that may have been added to the dictionary later on are also handled in the bitmap, as long as within the memory bound
+		if ((checkedBitmap != null) && (key >= Constants.MAX_BITMAP_ENTITIES)) {
+			checkedKeys = new TIntHashSet();
+			for (int i = checkedBitmap.nextSetBit(0); i >= 0; i = checkedBitmap.nextSetBit(i+1))
+				checkedKeys.add(i);
+			checkedBitmap = null;
+		}
+		
+		if (checkedBitmap != null) {
+			if (!checkedBitmap.get(key)) {
+				checkedBitmap.set(key);
+				count++;
+			}
+		}
+		else if (checkedKeys.add(key))
+			count++;
 	}
 
-	public void setCheckedKeys(List<String> checkedKeys) {
-		this.checkedKeys = checkedKeys;
+	public boolean contains(int key) {
+		
+		if (checkedBitmap != null)
+			return checkedBitmap.get(key);
+		return checkedKeys.contains(key);
 	}
 	
-	public void add(String key) {
-		this.checkedKeys.add(key);
+	public int size() {
+		return count;
 	}
-
-	public boolean contains(String val) {
-		return checkedKeys.contains(val);
+	
+	/**
+	 * Discards all checked items, releasing any memory held.
+	 */
+	public void clear() {
+		
+		if (checkedBitmap != null)
+			checkedBitmap = new BitSet();
+		else
+			checkedKeys = new TIntHashSet();
+		count = 0;
 	}
 	
 }
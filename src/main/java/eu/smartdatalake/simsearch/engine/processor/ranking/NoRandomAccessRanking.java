@@ -2,8 +2,8 @@ package eu.smartdatalake.simsearch.engine.processor.ranking;
 
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import eu.smartdatalake.simsearch.Constants;
@@ -11,6 +11,8 @@ import eu.smartdatalake.simsearch.Logger;
 import eu.smartdatalake.simsearch.engine.IResult;
 import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
 
 /**
@@ -18,46 +20,62 @@ import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
  */
 public class NoRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 
-	String item;
+	int item;
 
-	// Priority queues of results based on DESCENDING scores
-	AggregateScoreQueue[] mapLowerBounds; 
-	AggregateScoreQueue[] mapUpperBounds;
+	// Bounded heaps retaining the results with the highest scores
+	TopKHeap[] mapLowerBounds; 
+	TopKHeap[] mapUpperBounds;
+	
+	// Buffers to report extra results by descending score
+	double[] rankedScores;
+	int[] rankedItems;
+	
+	// Number of candidates not yet issued per combination of weights
+	int[] pending;
+	
+	// Latest score available at the head of each queue; indexed by task identifier
+	double[] headScores;
 	
 	/**
 	 * Constructor
 	 * @param datasetIdentifiers List of the attributes involved in similarity search queries.
 	 * @param lookups   Dictionary of the various data collections involved in the similarity search queries.
+	 * @param denseLookups   Dictionary of the values of ingested attributes by dense identifier, used in random access instead of their lookups.
 	 * @param similarities   Dictionary of the similarity measures applied in each search query.
 	 * @param weights  Dictionary of the (possibly multiple alternative) weights per attribute to be applied in scoring the final results. 
 	 * @param normalizations  Dictionary of normalization functions to be applied in data values during random access.
-	 * @param tasks   The collection of running threads; each one executes a query and it is associated with its respective queue that collects its results.
+	 * @param tasks   The collection of submitted tasks; each one executes a query and it is associated with its respective queue that collects its results.
 	 * @param queues  The collection of ranked lists (priority queues) collecting results from each search query.
 	 * @param runControl  The collection of boolean values indicating the status of each thread.
 	 * @param topk  The count of ranked aggregated results to collect, i.e., those with the top-k (highest) aggregated similarity scores.
+	 * @param entities  Dictionary of dense identifiers assigned to entities.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public NoRandomAccessRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Thread> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, Logger log) {
+	public NoRandomAccessRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, IDenseLookup<?>> denseLookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Future<?>> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, EntityDictionary entities, Logger log) {
 		
-		super(datasetIdentifiers, lookups, similarities, weights, normalizations, tasks, queues, runControl, topk, log);
+		super(datasetIdentifiers, lookups, denseLookups, similarities, weights, normalizations, tasks, queues, runControl, topk, entities, log);
 
-		// Instantiate priority queues, a pair of queues per combination of weights
-		// The first queue is on DESCENDING lower bounds...
-		mapLowerBounds = new AggregateScoreQueue[weightCombinations]; 
-		//...and the second on DESCENDING upper bounds of aggregated results
-		mapUpperBounds = new AggregateScoreQueue[weightCombinations];
+		// Instantiate bounded heaps, a pair of heaps per combination of weights
+		// The first heap is on lower bounds...
+		mapLowerBounds = new TopKHeap[weightCombinations]; 
+		//...and the second on upper bounds of aggregated results
+		mapUpperBounds = new TopKHeap[weightCombinations];
+		rankedScores = new double[topk+1];
+		rankedItems = new int[topk+1];
 	
 		// Initialize all array structures
 		for (int w = 0; w < weightCombinations; w++) {
-			mapLowerBounds[w] = new AggregateScoreQueue(topk+1);
-			mapUpperBounds[w] = new AggregateScoreQueue(topk+1);
-			curResults[w] = new AggregateResultCollection();
+			mapLowerBounds[w] = new TopKHeap(topk+1);
+			mapUpperBounds[w] = new TopKHeap(topk+1);
 		}
+		pending = new int[weightCombinations];
+		headScores = new double[tasks.size()];
 	}
 	
 
 	/**
 	 * Inserts or updates the ranked aggregated results based on a result from a queue.
+	 * Its partial score is kept once, and the bounds for each combination of weights are derived from it.
 	 * @param taskKey   The hashKey of the task to be checked for its next result.
 	 * @return  A Boolean value: True, if the ranked aggregated list has been updated; otherwise, False.
 	 */
@@ -67,37 +85,37 @@ public class NoRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 			PartialResult res = queues.get(taskKey).poll(); 	// Result removed from queue!
 			if (res != null) {
 				// A common identifier must be used per result
-				item = res.getId().toString();
+				item = encode(res);
+				aggResult = curResults.get(item);
+				boolean inserted = (aggResult == null);
+				if (inserted) {	// INSERT new aggregate result to the ranked list...
+					aggResult = new AggregateResult(item, numTasks, weightCombinations);
+					curResults.put(item, aggResult);
+				}
+				// Mark that this result has also been retrieved from this queue along with its score
+				aggResult.setScore(this.similarities.get(taskKey).getTaskId(), res.getScore());
+				
 				//CAUTION! Weighted score used in aggregation
 				for (int w = 0; w < weightCombinations; w++) {
-					score = this.weights.get(taskKey)[w] * res.getScore();
-					aggResult = curResults[w].get(item);
-					if (aggResult != null) { 	// UPDATE: Aggregate result already
-												// exists in the ranked list
-						mapLowerBounds[w].remove(aggResult.getLowerBound(), item);
-						// Update its lower bound
-						aggResult.setLowerBound(aggResult.getLowerBound() + score); 
-						// Mark that this result has also been retrieved from this queue
-						aggResult.setAppearance(this.similarities.get(taskKey).getTaskId()); 
+					// No further updates for results already issued for this combination of weights
+					if (aggResult.isIssued(w))
+						continue;
+					score = aggResult.getAggregateScore(weightVectors[w]);
+					if (inserted) {
+						aggResult.setUpperBound(w, score);
+						// ...and put it to the heaps holding lower and upper bounds
+						mapLowerBounds[w].offer(score, item); 
+						mapUpperBounds[w].offer(score, item);
+						pending[w]++;
+					} else { 	// UPDATE: Aggregate result already exists in the ranked list
 						// If all results have been received, the upper bound
 						// coincides with the lower bound
-						if (aggResult.checkAppearance()) {						
-							mapUpperBounds[w].remove(aggResult.getUpperBound(), item);
-							aggResult.setUpperBound(aggResult.getLowerBound());					
+						if (aggResult.checkAppearance()) {
+							aggResult.setUpperBound(w, score);
 						}
-	
-						curResults[w].put(item, aggResult);
-						// Maintain updated bounds in the priority queues
-						mapLowerBounds[w].put(aggResult.getLowerBound(), item);	
-						mapUpperBounds[w].put(aggResult.getUpperBound(), item);
-					} else { // INSERT new aggregate result to the ranked list...
-						aggResult = new AggregateResult(item, numTasks, score, score);
-						// Mark that this result has also been retrieved from this queue
-						aggResult.setAppearance(this.similarities.get(taskKey).getTaskId()); 
-						curResults[w].put(item, aggResult);
-						// ...and put it to the priority queues holding lower and upper bounds
-						mapLowerBounds[w].put(score, item); 
-						mapUpperBounds[w].put(score, item);
+						// Maintain updated bounds in the heaps; each entity is retained at most once per heap
+						mapLowerBounds[w].update(score, item);	
+						mapUpperBounds[w].update(aggResult.getUpperBound(w), item);
 					}
 				}
 				return true;
@@ -108,34 +126,41 @@ public class NoRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 	}
 
 	/**
-	 * Updates upper bounds of ranked aggregated results at current iteration
-	 * @param w   The identifier of the weight combination to be applied on the scores.
+	 * Updates upper bounds of ranked aggregated results at current iteration for all combinations of weights in a single pass.
 	 */
-	private void updateUpperBounds(int w) {
+	private void updateUpperBounds() {
 		
 		double ub;
+		
+		// Latest scores in the queues; NaN for an exhausted queue
+		for (String task : tasks.keySet()) {
+			headScores[this.similarities.get(task).getTaskId()] = queues.get(task).isEmpty() ? Double.NaN : queues.get(task).peek().getScore();
+		}
+		
 		// Once a new result has been obtained from all queries, adjust the
 		// UPPER bounds in each aggregated result
-		for (String item : curResults[w].keySet()) {
-			aggResult = curResults[w].get(item);
+		for (AggregateResult aggResult : curResults.values()) {
+			int item = aggResult.getId();
 			if (aggResult.checkAppearance()) { //Upper bound is already fixed for this aggregated result
 				continue;      // No need to make any updates
 			}
 			
-			// Remove previous upper bound from the priority queue
-			mapUpperBounds[w].remove(aggResult.getUpperBound(), item); 
-			// Initialize new upper bound to the current lower bound (already updated)
-			ub = aggResult.getLowerBound(); 
-			// Update upper bound with the latest scores from each queue where this result has not yet appeared
-			for (String task : tasks.keySet()) {
-				if ((!queues.get(task).isEmpty()) && (aggResult.getAppearance().get(this.similarities.get(task).getTaskId()) == false)) {
-					ub += this.weights.get(task)[w] * queues.get(task).peek().getScore();
+			for (int w = 0; w < weightCombinations; w++) {
+				if (aggResult.isIssued(w))
+					continue;
+				// Initialize new upper bound to the current lower bound (already updated)
+				ub = aggResult.getAggregateScore(weightVectors[w]); 
+				// Update upper bound with the latest scores from each queue where this result has not yet appeared
+				for (int taskId : taskOrder) {
+					if ((!Double.isNaN(headScores[taskId])) && (aggResult.getAppearance().get(taskId) == false)) {
+						ub += weightVectors[w][taskId] * headScores[taskId];
+					}
 				}
+				
+				// Replace the previous upper bound in the heap
+				mapUpperBounds[w].update(ub, item); 	
+				aggResult.setUpperBound(w, ub);
 			}
-			
-			// Insert new upper bound into the priority queue
-			mapUpperBounds[w].put(ub, item); 	
-			curResults[w].get(item).setUpperBound(ub);
 		}
 	}
 
@@ -148,7 +173,7 @@ public class NoRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 		
 		long startTime = System.currentTimeMillis();
 		
-		Double lb, ub = null;
+		double lb, ub;
 		int n = 0;
 	
 		numTasks = tasks.size();
@@ -183,38 +208,35 @@ public class NoRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 //				if (n % 100 == 0)
 //					System.out.print("Iteration #" + n + "..." + "\r");
 
+			// Adjust the UPPER bounds in aggregated results for all combinations of weights
+			updateUpperBounds();
+			
 			stop = true;
 			// Examine current results for each combination of weights
 			for (int w = 0; w < weightCombinations; w++) {		
-				// Adjust the UPPER bounds in aggregated results
-				updateUpperBounds(w);
-				
 				// Check whether the next result can be returned
-				if (curResults[w].size() >= 1) {
-					// Iterators are used to point to the head of priority queues
+				if ((pending[w] >= 1) && !mapLowerBounds[w].isEmpty() && !mapUpperBounds[w].isEmpty()) {
 					// Identify the greatest lower bound and ...
-					Iterator<Double> iterLowerBound = mapLowerBounds[w].keys().iterator(); 
-					lb = iterLowerBound.next();
+					lb = mapLowerBounds[w].maxScore();
 					// .. the greatest upper bound among the remaining items
-					Iterator<Double> iterUpperBound = mapUpperBounds[w].keys().iterator();
-					ub = iterUpperBound.next(); 
+					ub = mapUpperBounds[w].maxScore(); 
 	
 					// FIXME: Implements the progressive issuing of results; check if this condition is always safe
 					// Issue next result once the greatest lower bound exceeds the upper bounds of all other candidates
 					if (lb >= ub) {
-						// Get the object identifier listed at the head of this priority queue
-						String item = mapLowerBounds[w].values().iterator().next();
-						ub = curResults[w].get(item).getUpperBound();
+						// Get the object identifier having the greatest lower bound
+						int item = mapLowerBounds[w].maxId();
 						
 						// One more result can be issued for this combination of weights
 						issueRankedResult(k[w], w, item, lb, true);   // Exact ranking
 						k[w] = results[w].size();
 //						log.writeln("RESULT: " + item + " " + lb + " " + ub);
 						
-						// Remove this result from the rank aggregation list and the priority queues
-						mapLowerBounds[w].remove(lb, item);
-						mapUpperBounds[w].remove(ub, item);
-						curResults[w].remove(item);
+						// Remove this result from the heaps; it is no longer examined for this combination of weights
+						mapLowerBounds[w].remove(item);
+						mapUpperBounds[w].remove(item);
+						curResults.get(item).setIssued(w);
+						pending[w]--;
 					}
 				}
 				
@@ -251,19 +273,13 @@ public class NoRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 	 */
 	private void reportExtraResultsLB() {
 		
-		Double lb;
 		// Examine current candidates for each combination of weights
 		for (int w = 0; w < weightCombinations; w++) {
 			boolean keepReporting = true;
-			Iterator<Double> iterLowerBound = mapLowerBounds[w].keySet().iterator();
+			int m = mapLowerBounds[w].drainDescending(rankedScores, rankedItems);
 			// Probe by descending lower bounds
-			while (iterLowerBound.hasNext() && keepReporting) {
-				lb = iterLowerBound.next(); 
-				for (String item: mapLowerBounds[w].get(lb)) {
-					keepReporting = issueRankedResult(results[w].size(), w, item, lb, false);   // Such rankings should NOT be considered as exact
-					if (!keepReporting)
-						break;
-				}
+			for (int i = 0; (i < m) && keepReporting; i++) {
+				keepReporting = issueRankedResult(results[w].size(), w, rankedItems[i], rankedScores[i], false);   // Such rankings should NOT be considered as exact
 			}
 		}	
 	}
@@ -5,13 +5,18 @@ import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import gnu.trove.map.hash.TIntObjectHashMap;
+
 import eu.smartdatalake.simsearch.Constants;
 import eu.smartdatalake.simsearch.Logger;
 import eu.smartdatalake.simsearch.engine.IResult;
 import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
 
 /**
@@ -19,72 +24,87 @@ import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
  */
 public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 
-	String item;
+	int item;
 	double[] threshold;
+	double[] latestScores;   // Latest score obtained from each queue in the current iteration; indexed by task identifier
 	long randomAccesses;
 
-	// Priority queues of results based on DESCENDING scores
-	AggregateScoreQueue[] mapLowerBounds; 
-	AggregateScoreQueue[] mapUpperBounds;
-	AggregateScoreQueue[] mapAverageBounds;
+	// Bounded heaps retaining the results with the highest scores
+	TopKHeap[] mapLowerBounds; 
+	TopKHeap[] mapUpperBounds;
+	TopKHeap[] mapAverageBounds;
+	
+	// Buffers to report extra results by descending score
+	double[] rankedScores;
+	int[] rankedItems;
 	
 	// Retains the lowest scores obtained per priority queue
 	Map<String, Double> lowestScores;
 	
-	// List with the identifiers of the checked objects (the same one for all combinations of weights)
+	// Number of candidates not yet issued per combination of weights
+	int[] pending;
+	
+	// Set with the identifiers of the checked objects (the same one for all combinations of weights)
 	CheckedItems checkedItems;
 
 	/**
 	 * Constructor
 	 * @param datasetIdentifiers  Dictionary of the attributes involved in similarity search queries.
 	 * @param lookups  Look-up tables for attributes involved in the similarity search. This is NOT the entire collection of original attribute values, but built LOCALLY from the items in each priority queue.  
+	 * @param denseLookups  Dictionary to hold the look-ups by dense identifier; these are also built LOCALLY from the items in each priority queue and used in random access.
 	 * @param similarities   Dictionary of the similarity measures applied in each search query.
 	 * @param weights  Dictionary of the (possibly multiple alternative) weights per attribute to be applied in scoring the final results. 
 	 * @param normalizations  Dictionary of normalization functions to be applied in data values during random access.
-	 * @param tasks   The collection of running threads; each one executes a query and it is associated with its respective queue that collects its results.
+	 * @param tasks   The collection of submitted tasks; each one executes a query and it is associated with its respective queue that collects its results.
 	 * @param queues  The collection of ranked lists (priority queues) collecting results from each search query.
 	 * @param runControl  The collection of boolean values indicating the status of each thread.
 	 * @param topk  The count of ranked aggregated results to collect, i.e., those with the top-k (highest) aggregated similarity scores.
+	 * @param entities  Dictionary of dense identifiers assigned to entities.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public PartialRandomAccessRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Thread> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, Logger log) {
+	public PartialRandomAccessRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, IDenseLookup<?>> denseLookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Future<?>> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, EntityDictionary entities, Logger log) {
 	
-		super(datasetIdentifiers, lookups, similarities, weights, normalizations, tasks, queues, runControl, topk, log);
+		super(datasetIdentifiers, lookups, denseLookups, similarities, weights, normalizations, tasks, queues, runControl, topk, entities, log);
 	
 		// Counter of random access requests to the lookups
 		randomAccesses = 0;
 		
 		// Array of thresholds to consider at each iteration
 		threshold = new double[weightCombinations];
+		// ... as derived from the latest scores per queue
+		latestScores = new double[tasks.size()];
 				
-		// Instantiate priority queues, a pair of queues per combination of weights
-		// The first queue is on DESCENDING lower bounds...
-		mapLowerBounds = new AggregateScoreQueue[weightCombinations]; 
-		//...and the second on DESCENDING upper bounds of aggregated results
-		mapUpperBounds = new AggregateScoreQueue[weightCombinations];
+		// Instantiate bounded heaps, a pair of heaps per combination of weights
+		// The first heap is on lower bounds...
+		mapLowerBounds = new TopKHeap[weightCombinations]; 
+		//...and the second on upper bounds of aggregated results
+		mapUpperBounds = new TopKHeap[weightCombinations];
 		//... and an extra one on the average of these bounds
-		mapAverageBounds = new AggregateScoreQueue[weightCombinations];
+		mapAverageBounds = new TopKHeap[weightCombinations];
+		rankedScores = new double[topk+1];
+		rankedItems = new int[topk+1];
 	
-		// Instantiate a list with the checked objects in order to avoid duplicate checks 
+		// Instantiate a set with the checked objects in order to avoid duplicate checks 
 		// Duplicates could have been emitted if the same item had been returned again by another priority queue
-		checkedItems = new CheckedItems();
+		checkedItems = new CheckedItems(entities.size());
 		
 		// Keeps the lowest scores observed per priority queue
 		lowestScores = new HashMap<String, Double>();
 		
 		// Initialize all array structures
 		for (int w = 0; w < weightCombinations; w++) {
-			mapLowerBounds[w] = new AggregateScoreQueue(topk+1);
-			mapUpperBounds[w] = new AggregateScoreQueue(topk+1);
-			mapAverageBounds[w] = new AggregateScoreQueue(topk+1);
-			curResults[w] = new AggregateResultCollection();
+			mapLowerBounds[w] = new TopKHeap(topk+1);
+			mapUpperBounds[w] = new TopKHeap(topk+1);
+			mapAverageBounds[w] = new TopKHeap(topk+1);
 		}
+		pending = new int[weightCombinations];
 		
 	}
 	
 
 	/**
 	 * Provides the next partial result from a queue. Results already examined due to random access are skipped.
+	 * The dense identifier of the returned result is kept for subsequent use in aggregation.
 	 * @param taskKey  The hashKey of the task to be checked for its next result.
 	 * @return  A partial result from this queue to be used in rank aggregation.
 	 */
@@ -93,7 +113,8 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 		if (!queues.get(taskKey).isEmpty()) {
 			PartialResult res = queues.get(taskKey).poll(); 	// Result removed from queue!
 			while (res != null) {
-				if (checkedItems.contains(res.getId().toString())) { // Result has already been examined before, ...  
+				item = encode(res);
+				if (checkedItems.contains(item)) { 					 // Result has already been examined before, ...  
 					res = queues.get(taskKey).poll(); 				 // ... so get next result from that queue
 				}
 				else
@@ -106,6 +127,7 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 	
 	/**
 	 * Inserts or updates the ranked aggregated results based on a result from a queue.
+	 * Its partial scores are kept once, and the bounds for each combination of weights are derived from them.
 	 * @param taskKey   The hashKey of the task (associated with a priority queue) to be checked for its next result.
 	 * @return A Boolean value: True, if the ranked aggregated list has been updated; otherwise, False.
 	 */
@@ -113,33 +135,35 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 
 		PartialResult res = fetchPartialResult(taskKey); 	// Result removed from queue!
 		if (res != null) {
-			// A common identifier must be used per result
-			item = res.getId().toString();
-			//CAUTION! Weighted score used in aggregation
-			for (int w = 0; w < weightCombinations; w++) {
-				score = this.weights.get(taskKey)[w] * res.getScore();
-				threshold[w] += score;
-				aggResult = curResults[w].get(item);
-				if (aggResult == null) {    // This is the first appearance of this item in any queue
+			// A common identifier must be used per result; its dense identifier has been obtained when fetched
+			int taskId = this.similarities.get(taskKey).getTaskId();
+			latestScores[taskId] = res.getScore();
+			aggResult = curResults.get(item);
+			if (aggResult == null) {    // This is the first appearance of this item in any queue
 
-					// INSERT new aggregate result to the ranked list...
-					aggResult = new AggregateResult(item, numTasks, score, score);
-					// Mark that this result has also been retrieved from this queue
-					aggResult.setAppearance(this.similarities.get(taskKey).getTaskId()); 
-					
-					// Use random access to the other constructed look-ups in order to update the bounds
-					updateBounds(aggResult, w);
-//					log.writeln(taskKey + " " + aggResult.getId() + " --> " + aggResult.getLowerBound() + " --> " + aggResult.getUpperBound());
-					
-					// Put this candidate into the ranked list (its scores will not be updated afterwards) 
-					curResults[w].put(item, aggResult);
-					// ...and put it to the priority queues holding lower and upper bounds
-					mapLowerBounds[w].put(aggResult.getLowerBound(), item); 
-					mapUpperBounds[w].put(aggResult.getUpperBound(), item);
-					mapAverageBounds[w].put(0.5*(aggResult.getLowerBound() + aggResult.getUpperBound()), item);
-					// Remember that a result with this key has been examined
-					checkedItems.add(item);
+				// INSERT new aggregate result to the ranked list...
+				aggResult = new AggregateResult(item, numTasks, weightCombinations);
+				// Mark that this result has also been retrieved from this queue along with its score
+				aggResult.setScore(taskId, res.getScore()); 
+				
+				// Use random access to the other constructed look-ups in order to update the bounds
+				updateBounds(aggResult);
+				
+				// Put this candidate into the ranked list (its scores will not be updated afterwards) 
+				curResults.put(item, aggResult);
+				//CAUTION! Weighted score used in aggregation
+				for (int w = 0; w < weightCombinations; w++) {
+					double lb = aggResult.getAggregateScore(weightVectors[w]);
+					double ub = aggResult.getUpperBound(w);
+//					log.writeln(taskKey + " " + aggResult.getId() + " --> " + lb + " --> " + ub);
+					// ...and put it to the heaps holding lower and upper bounds
+					mapLowerBounds[w].offer(lb, item); 
+					mapUpperBounds[w].offer(ub, item);
+					mapAverageBounds[w].offer(0.5*(lb + ub), item);
+					pending[w]++;
 				}
+				// Remember that a result with this key has been examined
+				checkedItems.add(item);
 			}
 			return true;
 		}
@@ -150,35 +174,41 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 	
 	/**
 	 * Updates bounds regarding the score of a query result by randomly accessing any attribute values available in the partial lookups.
+	 * Each available score is calculated once; the upper bounds for all combinations of weights are then derived from the lowest scores in the facets where no value is found.
 	 * @param res  The ranked candidate result.
-	 * @param w   The identifier of the weight combination to be applied on the scores.
 	 */
-	private void updateBounds(AggregateResult res, int w) {
+	private void updateBounds(AggregateResult res) {
 		
-		double lb = res.getLowerBound();
-		double ub = 0.0;
+		BitSet missing = new BitSet(numTasks);
 
 		for (String task : tasks.keySet()) {	
-			//CAUTION! Weighted scores used in aggregation
-			if (res.getAppearance().get(this.similarities.get(task).getTaskId()) == false) {
-				Object val = this.lookups.get(task).get(res.getId());   // Access attribute value
+			int taskId = this.similarities.get(task).getTaskId();
+			if (res.getAppearance().get(taskId) == false) {
+				Object val = getValue(task, res.getId());   // Access attribute value
 				randomAccesses++;
 				if (val != null) {   // If not null, then update score accordingly
 					if (this.normalizations.get(task) != null)   // Apply normalization, if specified
-						lb += this.weights.get(task)[w] * this.similarities.get(task).calc(this.normalizations.get(task).normalize(val));
+						res.setScore(taskId, this.similarities.get(task).calc(this.normalizations.get(task).normalize(val)));
 					else
-						lb += this.weights.get(task)[w] * this.similarities.get(task).calc(val);
-					res.setAppearance(this.similarities.get(task).getTaskId());
+						res.setScore(taskId, this.similarities.get(task).calc(val));
 				}
 				else {   // No value found in the partial look-up, so use the lowest available score from this facet
-					ub += this.weights.get(task)[w] * this.lowestScores.get(task);
+					missing.set(taskId);
 				}
 			}
 		}
 		
-		// Update bounds
-		res.setLowerBound(lb);
-		res.setUpperBound(lb + ub);
+		//CAUTION! Weighted scores used in aggregation
+		for (int w = 0; w < weightCombinations; w++) {
+			double ub = 0.0;
+			for (String task : tasks.keySet()) {
+				int taskId = this.similarities.get(task).getTaskId();
+				if (missing.get(taskId))
+					ub += weightVectors[w][taskId] * this.lowestScores.get(task);
+			}
+			// Update bounds
+			res.setUpperBound(w, res.getAggregateScore(weightVectors[w]) + ub);
+		}
 	}
 	
 	
@@ -190,7 +220,7 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 		
 		long startTime = System.currentTimeMillis();
 		
-		Double mb, lb, ub = null;
+		double mb, lb, ub = 0.0;
 		int n = 0;
 		PartialResult<K, V> pRes = null;
 	
@@ -203,11 +233,16 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 		// Populate look-ups with the contents of the priority queues
 		// TODO: Integrate look-up in the fetch process
 		for (String task : tasks.keySet()) {
+			// Partial look-ups are built from all candidates, so these must be pulled from the queries
+			queues.get(task).materialize();
+			TIntObjectHashMap<Object> denseLookup = new TIntObjectHashMap<Object>();
 	        Iterator<PartialResult> qIter = queues.get(task).iterator(); 
 	        while (qIter.hasNext()) { 
 	        	pRes = qIter.next();
-	        	this.lookups.get(task).put(pRes.getId(), pRes.getValue());
+	        	denseLookup.put(encode(pRes), pRes.getValue());   // Used in random access
+	        	this.lookups.get(task).put(pRes.getId(), pRes.getValue());   // Only used when reporting extra columns
 	        }
+	        this.denseLookups.put(task, denseLookup::get);
 	        lowestScores.put(task, pRes.getScore());    // Remember the score in the last element available in this queue
 //		    log.writeln("Lookup for task " + task + " was populated with " + this.lookups.get(task).size() + " values.");	        
 		}
@@ -222,10 +257,6 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 		boolean stop = false;
 		while (!stop && (System.currentTimeMillis() - startTime < query_timeout)) {
 					
-			// To be updated with results from this iteration
-			for (int w = 0; w < weightCombinations; w++) {
-				threshold[w] = 0.0;     // Reset thresholds for all combinations
-			}
 			probed.clear(); // New results to be fetched from each queue
 			
 			// Update ranked list with the next result from each queue
@@ -238,44 +269,44 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 				break;
 			}
 			
+			// Thresholds for all combinations of weights are derived from the latest scores in the queues
+			updateThresholds(latestScores, probed, threshold);
+			
 			n++;				
 //			if (n % 100 == 0)
 //				System.out.print("Iteration #" + n + "..." + "\r");
 				
+			// Termination is examined for all combinations of weights together
 			stop = true;
-			// Examine current results for each combination of weights
 			for (int w = 0; w < weightCombinations; w++) {
 				// Check whether the next result can be returned				
-				if (curResults[w].size() > 1) {
-					// Iterators are used to point to the head of priority queues
+				if ((pending[w] > 1) && !mapLowerBounds[w].isEmpty() && !mapUpperBounds[w].isEmpty() && !mapAverageBounds[w].isEmpty()) {
 					// Identify the greatest lower bound and ...
-					Iterator<Double> iterLowerBound = mapLowerBounds[w].keys().iterator(); 
-					lb = iterLowerBound.next();
+					lb = mapLowerBounds[w].maxScore();
 					//... the greatest upper bound among the remaining items
-					Iterator<Double> iterUpperBound = mapUpperBounds[w].keys().iterator();
-					ub = iterUpperBound.next(); 
+					ub = mapUpperBounds[w].maxScore(); 
 					//... and also the greatest among the averages of bounds 
-					Iterator<Double> iterAverageBound = mapAverageBounds[w].keys().iterator();
-					mb = iterAverageBound.next(); 
+					mb = mapAverageBounds[w].maxScore(); 
 					
 					// FIXME: Implements the progressive issuing of results; check if this condition is always safe
 					// Issue next result once the greatest lower bound exceeds the upper bounds of all other candidates
 					// Also compare current threshold with the highest lower bound
 					if ((lb >= mb) && (lb >= threshold[w])) {
-						// Get the object identifier listed at the head of this priority queue
-						String item = mapLowerBounds[w].values().iterator().next();
-						ub = curResults[w].get(item).getUpperBound();
+						// Get the object identifier having the greatest lower bound
+						int item = mapLowerBounds[w].maxId();
+						ub = curResults.get(item).getUpperBound(w);
 						
 						// One more result can be issued for this combination of weights
 						issueRankedResult(k[w], w, item, lb, true);   // Exact ranking
 						k[w] = results[w].size();
 //						log.writeln("RESULT: " + item + " " + lb + " " + ub + " " + threshold[w]);
 
-						// Remove this result from the rank aggregation list and the priority queues
-						mapLowerBounds[w].remove(lb, item);
-						mapUpperBounds[w].remove(ub, item);
-						mapAverageBounds[w].remove(0.5*(lb+ub), item);
-						curResults[w].remove(item);
+						// Remove this result from the rank aggregation list and the heaps
+						mapLowerBounds[w].remove(item);
+						mapUpperBounds[w].remove(item);
+						mapAverageBounds[w].remove(item);
+						curResults.get(item).setIssued(w);
+						pending[w]--;
 					}
 				}
 				// Stop if results have been acquired for each combination of weights
@@ -300,7 +331,9 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 		reportExtraResultsLB();
 */
 		this.log.writeln("In total " + n + " results have been examined from each queue.");
-		this.log.writeln("Random accesses to lookup values: " + randomAccesses + " (for all weight combinations).");
+		this.log.writeln("Distinct candidates checked: " + checkedItems.size() + ".");
+		checkedItems.clear();   // No longer needed for this request
+		this.log.writeln("Random accesses to lookup values: " + randomAccesses + ".");
 		this.log.writeln("Last upper bound examined: " + ub);
 		
 		// Array of final results		
@@ -321,23 +354,7 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 	 */
 	private void reportExtraResultsUB() {
 		
-		Double ub;
-		boolean keepReporting = true;
-
-		// Examine current candidates for each combination of weights
-		for (int w = 0; w < weightCombinations; w++) {
-			int i = results[w].size();
-			Iterator<Double> iterUpperBound = mapUpperBounds[w].keySet().iterator();
-			// Probe by descending upper bounds
-			while (iterUpperBound.hasNext() && keepReporting) {
-				ub = iterUpperBound.next(); 
-				for (String item: mapUpperBounds[w].get(ub)) {
-					keepReporting =issueRankedResult(i, w, item, ub, false);  // These rankings should NOT be considered as exact
-					if (!keepReporting)
-						break;
-				}
-			}
-		}	
+		reportExtraResults(mapUpperBounds);
 	}
 	
 
@@ -346,23 +363,7 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 	 */
 	private void reportExtraResultsLB() {
 		
-		Double lb;
-		boolean keepReporting = true;
-		
-		// Examine current candidates for each combination of weights
-		for (int w = 0; w < weightCombinations; w++) {
-			int i = results[w].size();
-			Iterator<Double> iterLowerBound = mapLowerBounds[w].keySet().iterator();
-			// Probe by descending lower bounds
-			while (iterLowerBound.hasNext() && keepReporting) {
-				lb = iterLowerBound.next(); 
-				for (String item: mapLowerBounds[w].get(lb)) {
-					keepReporting = issueRankedResult(i, w, item, lb, false);  // These rankings should NOT be considered as exact	
-					if (!keepReporting)
-						break;
-				}
-			}
-		}	
+		reportExtraResults(mapLowerBounds);
 	}
 
 
@@ -371,20 +372,23 @@ public class PartialRandomAccessRanking<K,V> extends RankAggregator<K,V> {
 	 */
 	private void reportExtraResultsMB() {
 		
-		Double mb;	
+		reportExtraResults(mapAverageBounds);
+	}
+	
+	
+	/** 
+	 * Complement top-k final results approximately by picking extra items with descending scores from the given heaps.
+	 * @param heaps  The heaps (one per combination of weights) holding the bounds to be used as scores.
+	 */
+	private void reportExtraResults(TopKHeap[] heaps) {
 		
 		// Examine current candidates for each combination of weights
 		for (int w = 0; w < weightCombinations; w++) {
 			boolean keepReporting = true;
-			Iterator<Double> iterAvgBound = mapAverageBounds[w].keySet().iterator();
-			// Probe by descending upper bounds
-			while (iterAvgBound.hasNext() && keepReporting) {
-				mb = iterAvgBound.next(); 
-				for (String item: mapAverageBounds[w].get(mb)) {
-					keepReporting = issueRankedResult(results[w].size(), w, item, mb, false);  // Such rankings should NOT be considered as exact
-					if (!keepReporting)
-						break;
-				}
+			int m = heaps[w].drainDescending(rankedScores, rankedItems);
+			// Probe by descending scores
+			for (int i = 0; (i < m) && keepReporting; i++) {
+				keepReporting = issueRankedResult(results[w].size(), w, rankedItems[i], rankedScores[i], false);  // Such rankings should NOT be considered as exact
 			}
 		}	
 	}
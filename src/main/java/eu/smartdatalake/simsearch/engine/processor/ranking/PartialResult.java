@@ -7,6 +7,7 @@ public class PartialResult<K,V> {
 	private K id; 			// Result id
 	private V value;		// Original attribute value
 	private double score; 	// Assigned score
+	private int entity = -1;	// Dense identifier of the result; -1 until known
 
 	/**
 	 * Constructor #1
@@ -59,6 +60,10 @@ public class PartialResult<K,V> {
 	public V getValue() {
 		return value;
 	}
+
+	public int getEntity() {
+		return entity;
+	}
 	
 	// SETTER methods
 	
@@ -74,4 +79,8 @@ public class PartialResult<K,V> {
 		this.value = value;
 	}
 
+	public void setEntity(int entity) {
+		this.entity = entity;
+	}
+
 }
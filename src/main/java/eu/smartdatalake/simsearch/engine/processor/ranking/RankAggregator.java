@@ -2,10 +2,12 @@ package eu.smartdatalake.simsearch.engine.processor.ranking;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -18,6 +20,8 @@ import eu.smartdatalake.simsearch.engine.processor.ResultFacet;
 import eu.smartdatalake.simsearch.engine.weights.Estimator;
 import eu.smartdatalake.simsearch.manager.DataType;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
 
 
@@ -36,16 +40,19 @@ public class RankAggregator<K, V> implements IRankAggregator {
 	int numTasks;
 	int topk;       // Number of ranked aggregated results to collect
  
-	// Array of collections with ranked aggregated results at current iteration; one collection per weight combination
-	AggregateResultCollection[] curResults;
+	// Collection with ranked aggregated results at current iteration; partial scores are kept once for all weight combinations
+	AggregateResultCollection curResults;
 
 	// Collection of queues that collect results from each running task
 	Map<String, RankedList> queues;
-	Map<String, Thread> tasks;
+	Map<String, Future<?>> tasks;
 	
 	// Collection of all data/index datasetIdentifiers involved in the search
 	Map<String, DatasetIdentifier> datasetIdentifiers;
 	
+	// Dictionary of dense identifiers; ranking structures refer to entities by these integers
+	EntityDictionary entities;
+	
 	// Weights
 	Map<String, Double[]> weights;
 	int weightCombinations;
@@ -57,6 +64,9 @@ public class RankAggregator<K, V> implements IRankAggregator {
 	// Using the dataset hash key as a reference to the collected values for each attribute
 	Map<String, Map<K, V>> lookups;
 	
+	// Look-ups of attribute values by dense identifier; available for ingested attributes, so random access to these involves no original keys
+	Map<String, IDenseLookup<?>> denseLookups;
+	
 	// Collection of atomic booleans to control execution of the various threads
 	Map<String, AtomicBoolean> runControl = new HashMap<String, AtomicBoolean>();
 
@@ -69,6 +79,12 @@ public class RankAggregator<K, V> implements IRankAggregator {
 	// Sum of weights per combination
 	double[] sumWeights; 
 	
+	// Weights per combination as vectors indexed by the identifier of each task; used to derive aggregated scores from partial ones
+	double[][] weightVectors;
+	
+	// Identifiers of the tasks in the order these are examined in each iteration
+	int[] taskOrder;
+	
 	// Estimator to auto-configure weights for attribute(s) in case of no user-specified values 
 	Estimator estimator;
 	boolean missingWeights = false;   // By default, assume that all weights are specified 
@@ -78,21 +94,25 @@ public class RankAggregator<K, V> implements IRankAggregator {
 	 * Constructor
 	 * @param datasetIdentifiers List of the attributes involved in similarity search queries.
 	 * @param lookups   Dictionary of the various data collections involved in the similarity search queries.
+	 * @param denseLookups   Dictionary of the values of ingested attributes by dense identifier, used in random access instead of their lookups.
 	 * @param similarities   Dictionary of the similarity measures applied in each search query.
 	 * @param weights  Dictionary of the (possibly multiple alternative) weights per attribute to be applied in scoring the final results. 
 	 * @param normalizations  Dictionary of normalization functions to be applied in data values during random access.
-	 * @param tasks  Collection of running threads; each one executes a query and it is associated with its respective queue that collects its results.
+	 * @param tasks  Collection of submitted tasks; each one executes a query and it is associated with its respective queue that collects its results.
 	 * @param queues  Collection of the ranked lists collecting results from each search query.
 	 * @param runControl  Collection of boolean values indicating the status of each thread.
 	 * @param topk  The count of ranked aggregated results to collect, i.e., those with the top-k (highest) aggregated similarity scores.
+	 * @param entities  Dictionary of dense identifiers assigned to entities.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public RankAggregator(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Thread> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, Logger log) {
+	public RankAggregator(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, IDenseLookup<?>> denseLookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Future<?>> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, EntityDictionary entities, Logger log) {
 		
 		myAssistant = new Assistant();
 		this.log = log;
+		this.entities = entities;
 		this.datasetIdentifiers = datasetIdentifiers;
 		this.lookups = lookups; 
+		this.denseLookups = denseLookups;
 		this.similarities = similarities;
 		this.tasks = tasks;
 		this.queues = queues;
@@ -117,8 +137,8 @@ public class RankAggregator<K, V> implements IRankAggregator {
 					weightCombinations = weights.get(task).length;
 		}
 		
-		// Array of aggregated results collected at the current iteration for each combination of weights
-		curResults = new AggregateResultCollection[weightCombinations];
+		// Aggregated results collected at the current iteration for all combinations of weights
+		curResults = new AggregateResultCollection();
 
 		// Array of collection of results; one collection (list) per combination of weights
 		results = new ResultCollection[weightCombinations];
@@ -158,13 +178,16 @@ public class RankAggregator<K, V> implements IRankAggregator {
 				}
 				// Wait until all candidates are fetched
 				for (String task : tasks.keySet()) {
-					if (tasks.get(task).isAlive())
+					if (!tasks.get(task).isDone())
 						fetching = true;
 				}
 			}
 			
 			// Populate look-ups with the contents of the priority queues
 			for (String task : tasks.keySet()) {
+				// Weight estimation needs the scores of all candidates, so these must be pulled from the queries
+				if (missingWeights)
+					queues.get(task).materialize();
 //				System.out.println("QUEUE size for " + datasetIdentifiers.get(task).getValueAttribute() + ": " + queues.get(task).size());
 		        Iterator<PartialResult> qIter = queues.get(task).iterator(); 
 		        List<Double> scores = new ArrayList<Double>();
@@ -199,22 +222,85 @@ public class RankAggregator<K, V> implements IRankAggregator {
 					sumWeights[w] += this.weights.get(taskKey)[w];
 				}
 			}
+			
+			// Arrange weights into vectors, so that each weighted score can be derived from the partial scores of a result
+			taskOrder = new int[tasks.size()];
+			weightVectors = new double[weightCombinations][tasks.size()];
+			int t = 0;
+			for (String taskKey : tasks.keySet()) {
+				int taskId = this.similarities.get(taskKey).getTaskId();
+				taskOrder[t++] = taskId;
+				for (int w = 0; w < weightCombinations; w++) {
+					weightVectors[w][taskId] = this.weights.get(taskKey)[w];
+				}
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
 	
+	/**
+	 * Provides the dense identifier of a partial result. Indices that keep dense identifiers already attach them to their results;
+	 * any other result (e.g., from an in-situ source) is encoded only once and keeps its identifier for subsequent polls.
+	 * @param res  A partial result polled from a queue.
+	 * @return  The dense identifier of this result in the entity dictionary.
+	 */
+	protected int encode(PartialResult res) {
+		
+		int id = res.getEntity();
+		if (id < 0) {
+			id = entities.encode(res.getId().toString());
+			res.setEntity(id);
+		}
+		return id;
+	}
+	
+	
+	/**
+	 * Provides the value of an entity in an attribute by random access to its look-up.
+	 * Ingested attributes are accessed by dense identifier; only values retrieved from in-situ sources are looked up by the original identifier.
+	 * @param task  The hashKey of the task (i.e., attribute) involved.
+	 * @param id  The dense identifier of the entity.
+	 * @return  The attribute value of this entity; null, if not available.
+	 */
+	protected Object getValue(String task, int id) {
+		
+		IDenseLookup<?> denseLookup = this.denseLookups.get(task);
+		if (denseLookup != null)
+			return denseLookup.getValue(id);
+		return this.lookups.get(task).get(entities.decode(id));
+	}
+	
+	
+	/**
+	 * Calculates the threshold for each combination of weights from the latest scores obtained in this iteration from each queue.
+	 * @param latestScores  The latest score per queue; indexed by the identifier of the respective task.
+	 * @param probed  Bitmap indicating the queues that have provided a score in this iteration.
+	 * @param threshold  Array to hold the threshold per combination of weights.
+	 */
+	protected void updateThresholds(double[] latestScores, BitSet probed, double[] threshold) {
+		
+		for (int w = 0; w < weightCombinations; w++) {
+			threshold[w] = 0.0;
+			for (int taskId : taskOrder) {
+				if (probed.get(taskId))
+					threshold[w] += weightVectors[w][taskId] * latestScores[taskId];
+			}
+		}
+	}
+	
+	
 	/**
 	 * Inserts the i-th ranked result to the output list. Rank is based on the overall score; ties in scores are resolved arbitrarily.
 	 * @param i  The rank to the assigned to the output result.
 	 * @param w  The identifier of the weight combination to be applied on the scores.
-	 * @param item   The original identifier of this item in the dataset
+	 * @param item   The dense identifier of this item in the entity dictionary.
 	 * @param score  The overall (weighted) score of this result.
 	 * @param exact  Boolean indicating whether the ranking of this result is exact or not.
 	 * @return  A Boolean value: True, if extra result(s) have been issued; otherwise, False.
 	 */
-	protected boolean issueRankedResult(int i, int w, String item, double score, boolean exact) {
+	protected boolean issueRankedResult(int i, int w, int item, double score, boolean exact) {
 
 		// Skip any already issued entity when reporting extra (approximately scored) results for this weight combination
 		if (results[w].contains(item))
@@ -227,8 +313,9 @@ public class RankAggregator<K, V> implements IRankAggregator {
 		
 		// Create a new resulting item and report its rank and its original identifier
 		// Includes values and scores per individual attribute; this is also needed for the similarity matrix
+		// CAUTION! Its original identifier will be restored once the response is formatted
 		RankedResult res = new RankedResult(tasks.size());
-		res.setId(item);
+		res.setEntity(item);
 		res.setRank(i);
 		
 		// ... also its original values at the searched attributes and the calculated similarity scores
@@ -236,21 +323,22 @@ public class RankAggregator<K, V> implements IRankAggregator {
 		for (String task : tasks.keySet()) {
 			ResultFacet attr = new ResultFacet();
 			attr.setName(this.datasetIdentifiers.get(task).getValueAttribute());
-			if (this.lookups.get(task).get(item) == null) {   	 // By default, assign zero similarity for NULL values in this attribute							
+			Object val = getValue(task, item);
+			if (val == null) {   	 // By default, assign zero similarity for NULL values in this attribute							
 				attr.setValue("");   // Use blank string instead of NULL
 				attr.setScore(0.0);
 			}
 			else {	  // Not NULL attribute value
 				// Temporal data has been ingested as numerical, so conversion to date/time must be applied
 				if (this.datasetIdentifiers.get(task).getDatatype() == DataType.Type.DATE_TIME) //&& (!this.datasetIdentifiers.get(task).getDataSource().isInSitu()))
-					attr.setValue(myAssistant.formatDateValue(this.lookups.get(task).get(item)));  
+					attr.setValue(myAssistant.formatDateValue(val));  
 				else  // Any other values
-					attr.setValue(myAssistant.formatAttrValue(this.lookups.get(task).get(item)));
+					attr.setValue(myAssistant.formatAttrValue(val));
 				// Estimate its individual similarity score
 				if (this.normalizations.get(task) != null)   // Apply normalization, if specified
-					attr.setScore(this.similarities.get(task).calc(this.normalizations.get(task).normalize(this.lookups.get(task).get(item))));
+					attr.setScore(this.similarities.get(task).calc(this.normalizations.get(task).normalize(val)));
 				else
-					attr.setScore(this.similarities.get(task).calc(this.lookups.get(task).get(item)));
+					attr.setScore(this.similarities.get(task).calc(val));
 			}
 			res.getAttributes()[j] = attr;
 			j++;
@@ -4,43 +4,153 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import eu.smartdatalake.simsearch.Constants;
+import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
+
 /**
  * Wrapper of a priority queue to hold candidate entities per attribute in rank aggregation.
+ * Once a cursor is attached, further candidates are pulled from the respective similarity search on demand, i.e., only when the queue has been consumed.
  */
 public class RankedList {
 
 	ConcurrentLinkedQueue<PartialResult> list;
-	
-	public RankedList() {	
+
+	// Similarity search query that provides further candidates on demand
+	ISimSearch<?, ?> cursor;
+	int batchSize;		// Number of candidates to pull from the cursor at once; this grows geometrically with each pull
+	int limit;			// Maximum number of candidates to be inserted in this list
+	int depth;			// Number of candidates inserted in this list so far
+	boolean closed;		// Once closed, no cursor can be attached
+
+	public RankedList() {
 		this.list = new ConcurrentLinkedQueue<PartialResult>();
+		this.cursor = null;
+		this.depth = 0;
+		this.closed = false;
+	}
+
+	/**
+	 * Attaches a similarity search query to this list, so that further candidates can be pulled from it once the list gets empty.
+	 * Pulling starts with a small batch, which grows each time the list gets empty again, i.e., as long as the rank aggregator cannot conclude.
+	 * CAUTION! The cursor must only be attached once the query has stopped pushing candidates from its own thread.
+	 * If the list has already been closed (e.g., rank aggregation concluded before the query issued its first batch), the cursor is closed instead.
+	 * @param cursor  The similarity search query to pull candidates from.
+	 * @param batchSize  The number of candidates to pull initially.
+	 * @param limit  The maximum number of candidates to be inserted in this list.
+	 */
+	public synchronized void setCursor(ISimSearch<?, ?> cursor, int batchSize, int limit) {
+		if (closed) {
+			cursor.close();
+			return;
+		}
+		this.cursor = cursor;
+		this.batchSize = batchSize;
+		this.limit = limit;
+	}
+
+	/**
+	 * Indicates whether the given query is attached as the cursor of this list.
+	 * @param query  A similarity search query.
+	 * @return  True, if candidates will be pulled from this query; otherwise, False.
+	 */
+	public synchronized boolean hasCursor(ISimSearch<?, ?> query) {
+		return (cursor == query);
+	}
+
+	/**
+	 * Pulls the next batch of candidates from the attached cursor, if any.
+	 * @return  True, if candidates have been inserted in the list; otherwise, False.
+	 */
+	private synchronized boolean pull() {
+
+		if (cursor == null)
+			return false;
+
+		int n = -1;
+		if (depth < limit) {
+			n = cursor.next(Math.min(batchSize, limit - depth));
+			// Next time, pull a larger batch
+			batchSize = (int) Math.min((long) batchSize * Constants.BATCH_GROWTH_FACTOR, limit);
+		}
+
+		// Detach the cursor once exhausted
+		if (n <= 0)
+			close();
+
+		return (n > 0);
+	}
+
+	/**
+	 * Pulls all remaining candidates from the attached cursor (up to the limit), e.g., when the entire list must be examined.
+	 */
+	public void materialize() {
+		while (pull());
+	}
+
+	/**
+	 * Detaches the cursor from this list and releases its resources; no further candidates will be pulled.
+	 */
+	public synchronized void close() {
+		closed = true;
+		if (cursor != null) {
+			cursor.close();
+			cursor = null;
+		}
 	}
 
 	public boolean add(PartialResult res) {
+		depth++;
 		return list.add(res);
 	}
-	
+
 	public boolean addAll(RankedList topkResults) {
-		return list.addAll((Collection<? extends PartialResult>) topkResults);	
+		depth += topkResults.size();
+		return list.addAll((Collection<? extends PartialResult>) topkResults);
 	}
-	
+
+	/**
+	 * Iterates over the candidates currently held in the list; no candidates are pulled from the cursor.
+	 * @return  An iterator over the candidates in the list.
+	 */
 	public Iterator<PartialResult> iterator() {
 		return list.iterator();
 	}
-	
+
 	public boolean isEmpty() {
+		while (list.isEmpty() && pull());
 		return list.isEmpty();
 	}
-	
+
 	public int size( ) {
 		return list.size();
 	}
-	
+
+	/**
+	 * Provides the number of candidates inserted in this list so far, including those already consumed.
+	 * @return  The depth reached in the ranked candidates of this attribute.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Provides the number of candidates consumed from this list so far, i.e., those inserted but no longer held in the list.
+	 * @return  The depth actually consumed by the rank aggregator.
+	 */
+	public int getConsumed() {
+		return depth - list.size();
+	}
+
 	public PartialResult poll() {
+		if (isEmpty())
+			return null;
 		return list.poll();
 	}
-	
+
 	public PartialResult peek() {
+		if (isEmpty())
+			return null;
 		return list.peek();
 	}
-	
+
 }
@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import eu.smartdatalake.simsearch.engine.IResult;
+import eu.smartdatalake.simsearch.engine.processor.RankedResult;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
 
 /**
  * Auxiliary class to compile ranked results.
@@ -11,9 +14,11 @@ import eu.smartdatalake.simsearch.engine.IResult;
 public class ResultCollection {
 	
 	private List<IResult> resultList;
+	private TIntSet entities;   // Dense identifiers of the entities already in the list
 
 	public ResultCollection() {
 		this.resultList = new ArrayList<IResult>();
+		this.entities = new TIntHashSet();
 	}
 	
 	public List<IResult> getResultList() {
@@ -30,6 +35,8 @@ public class ResultCollection {
 
 	public void add(IResult res) {
 		resultList.add(res);
+		if ((res instanceof RankedResult) && (((RankedResult) res).getEntity() >= 0))
+			entities.add(((RankedResult) res).getEntity());
 	}
 
 	public IResult[] toArray() {
@@ -50,4 +57,14 @@ public class ResultCollection {
 		
 		return false;
 	}
+
+	/**
+	 * Checks whether the entity with the given dense identifier is included in the list.
+	 * @param entity  The dense identifier of an entity.
+	 * @return  True, if the entity is in the list of compiled results; otherwise, False.
+	 */
+	public boolean contains(int entity) {
+		
+		return entities.contains(entity);
+	}
 }
@@ -3,6 +3,7 @@ package eu.smartdatalake.simsearch.engine.processor.ranking;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -29,7 +30,7 @@ public class SingletonRanking  implements IRankAggregator {
 	
 	// Collection of queues that collect results from each running task
 	Map<String, RankedList> queues;
-	Map<String, Thread> tasks;
+	Map<String, Future<?>> tasks;
 	
 	// This is the key of the single task fetching candidates
 	String taskKey;
@@ -58,13 +59,13 @@ public class SingletonRanking  implements IRankAggregator {
 	 * @param datasetIdentifiers List of the attributes involved in similarity search queries.
 	 * @param similarities   Dictionary of the similarity measures applied in each search query.
 	 * @param weights  Dictionary of the (possibly multiple alternative) weights per attribute to be applied in scoring the final results. 
-	 * @param tasks  Collection of running threads; each one executes a query and it is associated with its respective queue that collects its results.
+	 * @param tasks  Collection of submitted tasks; each one executes a query and it is associated with its respective queue that collects its results.
 	 * @param queues  Collection of ranked lists (priority queues) collecting results from each search query.
 	 * @param runControl  Collection of boolean values indicating the status of each thread.
 	 * @param topk  The count of ranked aggregated results to collect, i.e., those with the top-k (highest) aggregated similarity scores.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public SingletonRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, Thread> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, Logger log) {
+	public SingletonRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, Future<?>> tasks, Map<String, RankedList> queues, Map<String, AtomicBoolean> runControl, int topk, Logger log) {
 
 		myAssistant = new Assistant();
 		this.log = log;
@@ -196,7 +197,7 @@ public class SingletonRanking  implements IRankAggregator {
 				else {  // Otherwise, the task is still running, so continue fetching results				
 					queues.get(taskKey).poll();    // Remove already processed result from this queue
 					// Once a queue is exhausted, it is no longer considered and search continues with the remaining queues
-					if (tasks.get(taskKey).isAlive() || !queues.get(taskKey).isEmpty()) {						
+					if (!tasks.get(taskKey).isDone() || !queues.get(taskKey).isEmpty()) {						
 						running = true;	
 					}
 				}
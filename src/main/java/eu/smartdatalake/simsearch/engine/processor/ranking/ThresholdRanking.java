@@ -1,9 +1,15 @@
 package eu.smartdatalake.simsearch.engine.processor.ranking;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import eu.smartdatalake.simsearch.Constants;
@@ -12,6 +18,8 @@ import eu.smartdatalake.simsearch.engine.IResult;
 import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
 import eu.smartdatalake.simsearch.engine.processor.IValueFinder;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
 
 /**
@@ -19,58 +27,84 @@ import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
  */
 public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 
-	String val;
+	int val;
 	double[] threshold;
+	double[] lastThreshold;
+	double[] latestScores;   // Latest score obtained from each queue in the current iteration; indexed by task identifier
 	long valueProbes;
+	long valueRequests;
 	long randomAccesses;  
 	
-	// Array of priority queues of ranked results based on DESCENDING scores; one queue per weight combination
-	AggregateScoreQueue[] scoreQueues; 
+	// Array of bounded heaps retaining the top-k ranked results based on their scores; one heap per weight combination
+	TopKHeap[] scoreQueues; 
+	
+	// Buffers to report results by descending score once ranking is concluded
+	double[] rankedScores;
+	int[] rankedItems;
 	
 	// Collection of value finder instantiations for random access to the full data sources (DBMSs / REST APIs)
 	Map<String, IValueFinder> valueFinders;
+	
+	// Max number of identifiers per request when retrieving values from in-situ data sources
+	int randomAccessBatchSize;
+	
+	// Identifiers per attribute whose values have already been requested from in-situ data sources
+	Map<String, Set<String>> requestedKeys;
 
-	// List with the identifiers of the checked objects (the same one for all combinations of weights)
+	// Set with the identifiers of the checked objects (the same one for all combinations of weights)
 	CheckedItems checkedItems;
 
 	/**
 	 * Constructor
 	 * @param datasetIdentifiers List of the attributes involved in similarity search queries.
 	 * @param lookups   Dictionary of the various data collections involved in the similarity search queries.
+	 * @param denseLookups   Dictionary of the values of ingested attributes by dense identifier, used in random access instead of their lookups.
 	 * @param similarities   Dictionary of the similarity measures applied in each search query.
 	 * @param weights  Dictionary of the (possibly multiple alternative) weights per attribute to be applied in scoring the final results. 
 	 * @param normalizations  Dictionary of normalization functions to be applied in data values during random access.
-	 * @param tasks  Collection of running threads; each one executes a query and it is associated with its respective queue that collects its results.
+	 * @param tasks  Collection of submitted tasks; each one executes a query and it is associated with its respective queue that collects its results.
 	 * @param queues  Collection of ranked lists (priority queues) collecting results from each search query.
 	 * @param valueFinders  Dictionary of the random access operations available for the attributes involved in the similarity search.
+	 * @param randomAccessBatchSize  The maximum number of identifiers per request when retrieving values for random access from in-situ data sources.
 	 * @param runControl  Collection of boolean values indicating the status of each thread.
 	 * @param topk  The count of ranked aggregated results to collect, i.e., those with the top-k (highest) aggregated similarity scores.
+	 * @param entities  Dictionary of dense identifiers assigned to entities.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public ThresholdRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Thread> tasks, Map<String, RankedList> queues, Map<String, IValueFinder> valueFinders, Map<String, AtomicBoolean> runControl, int topk, Logger log) {
+	public ThresholdRanking(Map<String, DatasetIdentifier> datasetIdentifiers, Map<String, Map<K, V>> lookups, Map<String, IDenseLookup<?>> denseLookups, Map<String, ISimilarity> similarities, Map<String, Double[]> weights, Map<String, INormal> normalizations, Map<String, Future<?>> tasks, Map<String, RankedList> queues, Map<String, IValueFinder> valueFinders, int randomAccessBatchSize, Map<String, AtomicBoolean> runControl, int topk, EntityDictionary entities, Logger log) {
 		
-		super(datasetIdentifiers, lookups, similarities, weights, normalizations, tasks, queues, runControl, topk, log);
+		super(datasetIdentifiers, lookups, denseLookups, similarities, weights, normalizations, tasks, queues, runControl, topk, entities, log);
 
 		this.valueFinders = valueFinders;
+		this.randomAccessBatchSize = randomAccessBatchSize;
+		this.requestedKeys = new HashMap<String, Set<String>>();
 		
-		// Instantiate array of priority queues to hold ranked results on DESCENDING scores; one queue per combination of weights
-		scoreQueues = new AggregateScoreQueue[weightCombinations];
+		// Instantiate array of heaps to hold the top-k ranked results; one heap per combination of weights
+		scoreQueues = new TopKHeap[weightCombinations];
+		rankedScores = new double[topk];
+		rankedItems = new int[topk];
 		
-		// Counter of queries (to a DBMS or REST API) to retrieve values required for random access operations
+		// Counter of values retrieved (from a DBMS or REST API) as required for random access operations
 		valueProbes = 0;
+		// Counter of queries (to a DBMS or REST API) issued for retrieving these values
+		valueRequests = 0;
 		// Counter of random access requests to the lookups
 		randomAccesses = 0;
 		
 		// Array of thresholds to consider at each iteration
 		threshold = new double[weightCombinations];
+		// ... as derived from the latest scores per queue
+		latestScores = new double[tasks.size()];
+		// ... and those of the last completed iteration
+		lastThreshold = new double[weightCombinations];
 	
-		// Instantiate a list with the checked objects in order to avoid duplicate checks 
+		// Instantiate a set with the checked objects in order to avoid duplicate checks 
 		// Duplicates could have been emitted if the same item had been returned again by another priority queue
-		checkedItems = new CheckedItems();
+		checkedItems = new CheckedItems(entities.size());
 
 		// Initialize array structures
 		for (int w = 0; w < weightCombinations; w++) {
-			scoreQueues[w] = new AggregateScoreQueue(topk+1);
+			scoreQueues[w] = new TopKHeap(topk);
 		}
 		
 	}
@@ -78,6 +112,7 @@ public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 	
 	/**
 	 * Provides the next partial result from a queue. Results already examined due to random access are skipped.
+	 * The dense identifier of the returned result is kept for subsequent use in aggregation.
 	 * @param taskKey  The hashKey of the task to be checked for its next result.
 	 * @return  A partial result from this queue to be used in rank aggregation.
 	 */
@@ -86,7 +121,8 @@ public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 		if (!(queues.get(taskKey)).isEmpty()) {
 			PartialResult res = queues.get(taskKey).poll(); // Result NOT removed from queue!
 			while (res != null) {
-				if (checkedItems.contains(res.getId().toString())) { 	// Result has already been examined before, so...  
+				val = encode(res);
+				if (checkedItems.contains(val)) { 						// Result has already been examined before, so...  
 					res = queues.get(taskKey).poll(); 					// ... get next result from that queue
 				}
 				else
@@ -99,6 +135,7 @@ public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 	
 	/**
 	 * Inserts or updates the ranked aggregated results based on a result from a queue.
+	 * Its partial score is kept once for all combinations of weights.
 	 * @param taskKey   The hashKey of the task to be checked for its next result.
 	 * @return  A Boolean value: True, if the ranked aggregated list has been updated; otherwise, False.
 	 */
@@ -106,33 +143,17 @@ public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 
 		PartialResult res = fetchPartialResult(taskKey); // Result NOT removed from queue!
 		if (res != null) {
-			// A common identifier must be used per result
-			val = res.getId().toString();
-			//CAUTION! Weighted score used in aggregation
-			for (int w = 0; w < weightCombinations; w++) {
-				score = this.weights.get(taskKey)[w] * res.getScore();   
-				threshold[w] += score;
-				aggResult = curResults[w].get(val);
-				// Handle new aggregate result to the ranked list
-				if (aggResult != null) { 	// UPDATE: Aggregate result already
-											// exists in the ranked list
-					// Update its lower bound
-					aggResult.setLowerBound(aggResult.getLowerBound() + score); 
-					// Mark that this result has also been retrieved from this queue
-					aggResult.setAppearance(this.similarities.get(taskKey).getTaskId()); 
-					// If all results have been received, the upper bound
-					// coincides with the lower bound
-					if (aggResult.checkAppearance()) {
-						aggResult.setUpperBound(aggResult.getLowerBound());
-					}			
-					curResults[w].put(val, aggResult);
-				} else { 	// INSERT new aggregate result to the ranked list...
-					aggResult = new AggregateResult(val, numTasks, score, score);
-					// Mark that this result has also been retrieved from this queue
-					aggResult.setAppearance(this.similarities.get(taskKey).getTaskId()); 
-					curResults[w].put(val, aggResult);
-				}
+			// A common identifier must be used per result; its dense identifier has been obtained when fetched
+			int taskId = this.similarities.get(taskKey).getTaskId();
+			latestScores[taskId] = res.getScore();
+			aggResult = curResults.get(val);
+			// Handle new aggregate result to the ranked list
+			if (aggResult == null) { 	// INSERT new aggregate result to the ranked list...
+				aggResult = new AggregateResult(val, numTasks);
+				curResults.put(val, aggResult);
 			}
+			// Mark that this result has also been retrieved from this queue along with its score
+			aggResult.setScore(taskId, res.getScore()); 
 			return true;
 		}
 
@@ -141,49 +162,110 @@ public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 
 
 	/**
-	 * Calculates the total aggregated score of a query result by randomly accessing its attribute values.
+	 * Completes the partial scores of a query result by randomly accessing its attribute values.
+	 * Each missing score is calculated once for all combinations of weights.
 	 * @param res  The query result.
-	 * @param w   The identifier of the weight combination to be applied on the scores.
-	 * @return  The aggregated score after estimating the missing scores in unseen attributes.
 	 */
-	private double updateScoreRandomAccess(AggregateResult res, int w) {
+	private void updateScoreRandomAccess(AggregateResult res) {
 		
-		double score = res.getLowerBound();
 		BitSet appearances = res.getAppearance();
 		for (String task : tasks.keySet()) {	
+			int taskId = this.similarities.get(task).getTaskId();
 			// Need to perform random access for unprobed attributes
-			if (appearances.get(this.similarities.get(task).getTaskId()) == false) {
-				Object val = this.lookups.get(task).get(res.getId());   // Access attribute value
+			if (appearances.get(taskId) == false) {
+				Object val = getValue(task, res.getId());   // Access attribute value
 				randomAccesses++;
-				if (val == null) {
+				if ((val == null) && this.datasetIdentifiers.get(task).getDataSource().isInSitu()) {
+					String key = entities.decode(res.getId());   // Original identifier is only needed to retrieve values from in-situ sources
 					
 					//if (this.datasetIdentifiers.get(task).getDataSource().getJdbcConnPool() != null) 
-					if (this.datasetIdentifiers.get(task).getDataSource().isInSitu()) {
+					// Values are normally retrieved in batches; a value is requested again only if not included in any batch
+					if (requestedKeys.get(task).add(key)) {
 						// Retrieval from the DBMS or REST API also updates the in-memory data look-up
-						val = valueFinders.get(this.datasetIdentifiers.get(task).getHashKey()).find(this.lookups.get(task), res.getId());
-						valueProbes++;
+						val = valueFinders.get(this.datasetIdentifiers.get(task).getHashKey()).find(this.lookups.get(task), key);
+						valueRequests++;
+						if (val != null)
+							valueProbes++;
 					}
 //					else if (this.datasetIdentifiers.get(task).getDataSource().getHttpConn() != null) {
 //						System.out.println("Currently no support for random access to REST API");   // TODO
 //					}
 				}
-				//CAUTION! Weighted scores used in aggregation
-				if (val != null) {   // If value is not null, then update score accordingly
+				// If value is not null, then mark this candidate as probed in this attribute along with its score
+				if (val != null) {
 					if (this.normalizations.get(task) != null)   // Apply normalization, if specified
-						score += this.weights.get(task)[w] * this.similarities.get(task).calc(this.normalizations.get(task).normalize(val));
+						res.setScore(taskId, this.similarities.get(task).calc(this.normalizations.get(task).normalize(val)));
 					else
-						score += this.weights.get(task)[w] * this.similarities.get(task).calc(val);
-					// Mark this candidate as probed in this attribute
-					res.setAppearance(this.similarities.get(task).getTaskId());
+						res.setScore(taskId, this.similarities.get(task).calc(val));
 				}
 			}
 		}
-		return score;
 	}
 
 	
+	/**
+	 * Retrieves in batches any values missing from the lookups of in-situ attributes, as required for random access to the candidates of the current iteration.
+	 * Each batch is filled up with candidates pending in the other queues, since their values will be probably required in subsequent iterations.
+	 */
+	private void retrieveValues() {
+		
+		for (String task : tasks.keySet()) {
+			if (!this.datasetIdentifiers.get(task).getDataSource().isInSitu())
+				continue;
+			
+			int taskId = this.similarities.get(task).getTaskId();
+			Map<K, V> lookup = this.lookups.get(task);
+			Set<String> requested = requestedKeys.get(task);
+			List<String> batch = new ArrayList<String>();
+			
+			// Candidates of this iteration not seen in this attribute
+			for (AggregateResult res: curResults.values()) {
+				if (!res.getAppearance().get(taskId))
+					addMissingKey(entities.decode(res.getId()), lookup, requested, batch);
+			}
+			if (batch.isEmpty())
+				continue;
+			
+			// Candidates pending in the other queues; no further candidates are pulled for this purpose
+			for (String other : tasks.keySet()) {
+				if (other.equals(task))
+					continue;
+				Iterator<PartialResult> iter = queues.get(other).iterator();
+				for (int m = 0; (m < randomAccessBatchSize) && (batch.size() < randomAccessBatchSize) && iter.hasNext(); m++) {
+					String key = iter.next().getId().toString();
+					int id = entities.getId(key);
+					if ((id < 0) || !checkedItems.contains(id))
+						addMissingKey(key, lookup, requested, batch);
+				}
+			}
+			
+			// Retrieval from the DBMS or REST API also updates the in-memory data look-up
+			IValueFinder finder = valueFinders.get(this.datasetIdentifiers.get(task).getHashKey());
+			for (int i = 0; i < batch.size(); i += randomAccessBatchSize) {
+				valueProbes += finder.findAll(lookup, batch.subList(i, Math.min(i + randomAccessBatchSize, batch.size())));
+				valueRequests++;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Includes a candidate in the batch of identifiers to be retrieved, unless its value is already available or has been requested before.
+	 * @param key  The original identifier of the candidate.
+	 * @param lookup  The lookup of values for this attribute.
+	 * @param requested  The identifiers already requested for this attribute.
+	 * @param batch  The batch of identifiers to be retrieved.
+	 */
+	private void addMissingKey(String key, Map<K, V> lookup, Set<String> requested, List<String> batch) {
+		
+		if ((lookup.get(key) == null) && requested.add(key))
+			batch.add(key);
+	}
+	
+	
 	/**
 	 * Implements the processing logic of the threshold-based algorithm.
+	 * The top-k candidates seen so far are retained per weight combination; iterations stop once the k-th score is not lower than the threshold.
 	 */
 	@Override
 	public IResult[][] proc(long query_timeout) {
@@ -193,25 +275,23 @@ public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 		
 		numTasks = tasks.size();	
 		BitSet probed = new BitSet(numTasks);
+		for (String task : tasks.keySet())
+			requestedKeys.put(task, new HashSet<String>());
 
 		// FETCH PHASE
 		fetch(); 
 		
 		// RANKING PHASE
-		// Counter of ranked aggregate results issued so far
-		int[] k = new int[weightCombinations];    // Each k is monitoring progress for each combination of weights
-		Arrays.fill(k, 0);
+		// No candidates have been examined yet, so nothing can be considered exact
+		Arrays.fill(lastThreshold, Double.MAX_VALUE);
 		
 		// Iterate over candidates in the the priority queues
-		// Stop any further examination if top-k results are issued or if the process times out	
+		// Stop any further examination if top-k results are determined or if the process times out	
 		boolean stop = false;
 		while (!stop && (System.currentTimeMillis() - startTime < query_timeout)) {
 
 			// To be updated with results from this iteration
-			for (int w = 0; w < weightCombinations; w++) {
-				threshold[w] = 0.0;     // Reset thresholds for all combinations
-				curResults[w] = new AggregateResultCollection();
-			}
+			curResults.clear();
 			probed.clear(); // New results to be fetched from each queue
 
 			// Update ranked list with the next result from each queue
@@ -224,90 +304,74 @@ public class ThresholdRanking<K, V> extends RankAggregator<K, V> {
 				break;
 			}
 			
-			// Apply RANDOM ACCESS and compute the scores of the seen n-th candidates
-			for (int w = 0; w < weightCombinations; w++) {
-				for (AggregateResult res: curResults[w].values()) {
-					res.setLowerBound(updateScoreRandomAccess(res, w));
-					// Remember that a result with this key has been examined
-					checkedItems.add(res.getId().toString());
-					//Refresh scores of ranked aggregate results from current iteration
-					scoreQueues[w].put(res.getLowerBound(), res.getId().toString());
+			// Retrieve any missing values from in-situ sources in batches...
+			retrieveValues();
+			
+			// ... and then apply RANDOM ACCESS and compute the scores of the seen n-th candidates
+			for (AggregateResult res: curResults.values()) {
+				updateScoreRandomAccess(res);
+				// Remember that a result with this key has been examined
+				checkedItems.add(res.getId());
+				// Retain this candidate if its score is among the top-k ones seen so far for each combination of weights
+				for (int w = 0; w < weightCombinations; w++) {
+					scoreQueues[w].offer(res.getAggregateScore(weightVectors[w]), res.getId());
 				}
 			}
+			
+			// Thresholds for all combinations of weights are derived from the latest scores in the queues
+			updateThresholds(latestScores, probed, threshold);
+			System.arraycopy(threshold, 0, lastThreshold, 0, weightCombinations);
 				
 			n++;
 //			if (n % 100 == 0)
-//				System.out.print("Iteration #" + n + "... " + scoreQueues[0].size() + "\r"); //+ " #KEYS: " + rankedList.keySet().size() + " #ITEMS:" + rankedList.size() 
+//				System.out.print("Iteration #" + n + "... " + scoreQueues[0].size() + "\r"); 
 			
+			// Termination is examined for all combinations of weights together
 			stop = true;
-			// Examine current results for each combination of weights
 			for (int w = 0; w < weightCombinations; w++) {
-				
-				// If candidate aggregated results have been collected,
-				// check whether the next result can be issued
-				if (scoreQueues[w].size() > 0) {
-					Iterator<Double> iter = scoreQueues[w].keys().iterator(); 
-
-					//Compare current threshold with the highest score at the head of the priority queue
-					score = iter.next();  
-					if (score >= threshold[w]) {
-						// Report the items listed with this score
-						for (String item: scoreQueues[w].get(score)) {
-							// One more result can be issued for this combination of weights
-							issueRankedResult(k[w], w, item, score, true);    // Exact ranking
-							k[w] = results[w].size();
-						}
-						// Remove this result from the respective priority queue of aggregate scores
-						scoreQueues[w].removeAll(score);
-					}
-				}
-		
-				// Stop if results have been acquired for each combination of weights
-				// OR if no further EXACT-scored results may be determined from the ranked list
-				stop = stop && (( n > topk * Constants.INFLATION_FACTOR) || (k[w] >= topk));  
+				// Stop if the k-th score is not lower than the current threshold for each combination of weights
+				// OR if too many candidates have been examined
+				stop = stop && (( n > topk * Constants.INFLATION_FACTOR) || (scoreQueues[w].isFull() && (scoreQueues[w].peekScore() >= threshold[w])));  
 			}
 		}
 		
-		// Once top-k ranked results are returned, stop all running tasks gracefully
+		// Once top-k ranked results are determined, stop all running tasks gracefully
 		for (String task : tasks.keySet()) 
 			runControl.get(task).set(false);   //Stop each task
 		
-		// Report any extra results by descending scores
-		reportExtraResults();
+		// Report results by descending scores
+		reportRankedResults();
 		
 		this.log.writeln("In total " + n + " results have been examined from each queue.");		
-		this.log.writeln("Random accesses to lookup values: " + randomAccesses + " (for all weight combinations). Extra values retrieved from original data sources: " + valueProbes);
+		this.log.writeln("Distinct candidates checked: " + checkedItems.size() + ".");
+		checkedItems.clear();   // No longer needed for this request
+		this.log.writeln("Random accesses to lookup values: " + randomAccesses + ". Extra values retrieved from original data sources: " + valueProbes + " with " + valueRequests + " requests (batch size: " + randomAccessBatchSize + ").");
+		requestedKeys.clear();   // No longer needed for this request
 		
 		// Prepare array of final results
 		IResult[][] allResults = new IResult[weightCombinations][topk];
 		for (int w = 0; w < weightCombinations; w++) {
 			allResults[w] = results[w].toArray();
-//			this.log.writeln("SCORES queue -> insertions: " + scoreQueues[w].getNumInserts() + " deletions: " + scoreQueues[w].getNumDeletes() + " current size: " + scoreQueues[w].size());
 		}	
 		
 		return allResults;
 	}
 
 	/** 
-	 * Complement top-k final results approximately by picking extra items with descending aggregate scores from the queue.
+	 * Issues the top-k final results with descending aggregate scores from the heap.
+	 * Results scoring at least the threshold of the last iteration are exact; any others (e.g., in case of time out) are approximately ranked.
 	 */
-	private void reportExtraResults() {
+	private void reportRankedResults() {
 	
 		// Examine current candidates for each combination of weights
 		for (int w = 0; w < weightCombinations; w++) {
 			boolean keepReporting = true;
-			if (results[w].size() >= topk)
-				continue;		
-			Iterator<Double> iterScore = scoreQueues[w].keys().iterator(); 
+			int m = scoreQueues[w].drainDescending(rankedScores, rankedItems);
 			// Probe by descending aggregate scores
-			while (iterScore.hasNext() && keepReporting) {
-				score = iterScore.next(); 
-				for (String item: scoreQueues[w].get(score)) {
-					keepReporting = issueRankedResult(results[w].size(), w, item, score, false);   // Such rankings should NOT be considered as exact
-				}
+			for (int i = 0; (i < m) && keepReporting; i++) {
+				keepReporting = issueRankedResult(results[w].size(), w, rankedItems[i], rankedScores[i], (rankedScores[i] >= lastThreshold[w]));
 			}
 		}	
 	}
 
-	
 }
@@ -0,0 +1,285 @@
+package eu.smartdatalake.simsearch.engine.processor.ranking;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * Auxiliary class implementing a bounded priority queue of the ranked results according to their aggregate scores.
+ * This is a min-heap over (score, entity identifier) pairs kept in primitive arrays of fixed capacity, so no objects are created after construction.
+ * The position of each entity in the heap is also tracked, so that its pair can be located, updated or removed in O(log k) time.
+ * Its head is the lowest retained score, i.e., the k-th highest score once the heap is full. When full, inserting a higher score evicts the head.
+ * Ties are resolved in a stable way: among equal scores, the pair inserted earlier is considered higher and it is not evicted by a later one.
+ * Each entity is retained at most once; offering an entity already in the heap replaces its score (see update()).
+ */
+public class TopKHeap {
+
+	private double[] scores;
+	private int[] ids;
+	private long[] seqs;	// Insertion order, used for resolving ties
+	private TIntIntHashMap positions;	// Entity identifier -> position in the heap
+	private int size;
+	private int capacity;
+	private long seq;
+	private int numInserts;
+	private int numDeletes;
+
+	/**
+	 * Constructor
+	 * @param capacity  The maximum number of (score, identifier) pairs to retain in this heap.
+	 */
+	public TopKHeap(int capacity) {
+
+		if (capacity < 1)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		this.capacity = capacity;
+		scores = new double[capacity];
+		ids = new int[capacity];
+		seqs = new long[capacity];
+		positions = new TIntIntHashMap(2 * capacity, 0.5f, -1, -1);
+		size = 0;
+		seq = 0;
+		numInserts = 0;
+		numDeletes = 0;
+	}
+
+	/**
+	 * Checks whether the pair at position i is lower than the one at position j.
+	 */
+	private boolean lower(int i, int j) {
+		return (scores[i] < scores[j]) || ((scores[i] == scores[j]) && (seqs[i] > seqs[j]));
+	}
+
+	private void swap(int i, int j) {
+
+		double s = scores[i];
+		scores[i] = scores[j];
+		scores[j] = s;
+		int id = ids[i];
+		ids[i] = ids[j];
+		ids[j] = id;
+		long q = seqs[i];
+		seqs[i] = seqs[j];
+		seqs[j] = q;
+		positions.put(ids[i], i);
+		positions.put(ids[j], j);
+	}
+
+	private void siftUp(int i) {
+
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!lower(i, parent))
+				break;
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+
+		while (true) {
+			int left = 2 * i + 1;
+			if (left >= size)
+				break;
+			int child = ((left + 1 < size) && lower(left + 1, left)) ? left + 1 : left;
+			if (!lower(child, i))
+				break;
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	/**
+	 * Removes the pair at the given position of the heap.
+	 */
+	private void removeAt(int i) {
+
+		size--;
+		numDeletes++;
+		positions.remove(ids[i]);
+		if (i < size) {
+			scores[i] = scores[size];
+			ids[i] = ids[size];
+			seqs[i] = seqs[size];
+			positions.put(ids[i], i);
+			siftDown(i);
+			siftUp(i);
+		}
+	}
+
+	/**
+	 * Inserts a new pair in O(log k) time. If the heap is full, the lowest pair is evicted, unless the new score is not higher than it.
+	 * If the entity is already retained in the heap, no pair is added; its score is replaced as in update().
+	 * @param score  The (aggregate) score.
+	 * @param id  The dense identifier of the entity.
+	 * @return  True, if the pair has been inserted (or the score of the entity replaced); otherwise, False.
+	 */
+	public boolean offer(double score, int id) {
+
+		// A second pair for the same entity would break the tracking of positions
+		if (positions.containsKey(id))
+			return update(score, id);
+
+		if (size == capacity) {
+			// A tie with the head is not enough, as the head was inserted earlier
+			if (score <= scores[0])
+				return false;
+			positions.remove(ids[0]);
+			scores[0] = score;
+			ids[0] = id;
+			positions.put(id, 0);
+			seqs[0] = seq++;
+			numDeletes++;
+			numInserts++;
+			siftDown(0);
+			return true;
+		}
+
+		scores[size] = score;
+		ids[size] = id;
+		seqs[size] = seq++;
+		positions.put(id, size);
+		siftUp(size);
+		size++;
+		numInserts++;
+		return true;
+	}
+
+	/**
+	 * Replaces the score of the given entity in O(log k) time, as if its pair were removed and then offered again.
+	 * If the entity is not retained in the heap, the new pair is just offered.
+	 * @param score  The new (aggregate) score.
+	 * @param id  The dense identifier of the entity.
+	 * @return  True, if the entity is retained in the heap with the new score; otherwise, False.
+	 */
+	public boolean update(double score, int id) {
+
+		int i = positions.get(id);
+		if (i < 0)
+			return offer(score, id);
+
+		scores[i] = score;
+		seqs[i] = seq++;
+		numDeletes++;
+		numInserts++;
+		siftDown(i);
+		siftUp(i);
+		return true;
+	}
+
+	/**
+	 * Removes the pair concerning the given entity, if retained in the heap, in O(log k) time.
+	 * @param id  The dense identifier of the entity.
+	 * @return  True, if the entity has been removed; otherwise, False.
+	 */
+	public boolean remove(int id) {
+
+		int i = positions.get(id);
+		if (i < 0)
+			return false;
+		removeAt(i);
+		return true;
+	}
+
+	/**
+	 * Removes the lowest pair from the heap.
+	 * @return  The dense identifier of the removed entity.
+	 */
+	public int poll() {
+
+		int id = ids[0];
+		removeAt(0);
+		return id;
+	}
+
+	/**
+	 * Provides the lowest score retained, i.e., the k-th highest one if the heap is full.
+	 * @return  The score at the head of the heap.
+	 */
+	public double peekScore() {
+		return scores[0];
+	}
+
+	/**
+	 * Provides the entity having the lowest score retained.
+	 * @return  The dense identifier of the entity at the head of the heap.
+	 */
+	public int peekId() {
+		return ids[0];
+	}
+
+	/**
+	 * Identifies the position of the highest pair with a scan over the retained pairs; in case of ties, the earliest inserted one is chosen.
+	 */
+	private int maxPosition() {
+
+		int pos = 0;
+		for (int i = 1; i < size; i++) {
+			if (lower(pos, i))
+				pos = i;
+		}
+		return pos;
+	}
+
+	/**
+	 * Provides the highest score retained in the heap. This requires a scan over the (at most k) retained pairs.
+	 * @return  The highest score.
+	 */
+	public double maxScore() {
+		return scores[maxPosition()];
+	}
+
+	/**
+	 * Provides the entity with the highest score retained in the heap. This requires a scan over the (at most k) retained pairs.
+	 * @return  The dense identifier of the entity having the highest score.
+	 */
+	public int maxId() {
+		return ids[maxPosition()];
+	}
+
+	/**
+	 * Empties the heap and copies its pairs into the given arrays by DESCENDING score; ties are listed in insertion order.
+	 * @param outScores  Array to hold the scores; its length must be at least equal to the number of retained pairs.
+	 * @param outIds  Array to hold the entity identifiers; its length must be at least equal to the number of retained pairs.
+	 * @return  The number of pairs copied.
+	 */
+	public int drainDescending(double[] outScores, int[] outIds) {
+
+		int n = size;
+		for (int i = n - 1; i >= 0; i--) {
+			outScores[i] = scores[0];
+			outIds[i] = poll();
+		}
+		return n;
+	}
+
+	public void clear() {
+		numDeletes += size;
+		size = 0;
+		positions.clear();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return (size == 0);
+	}
+
+	public boolean isFull() {
+		return (size == capacity);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getNumInserts() {
+		return numInserts;
+	}
+
+	public int getNumDeletes() {
+		return numDeletes;
+	}
+
+}
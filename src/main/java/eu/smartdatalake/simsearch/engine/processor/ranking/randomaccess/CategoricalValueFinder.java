@@ -8,7 +8,7 @@ import java.util.Map;
 
 import org.postgresql.util.PGobject;
 
-import eu.smartdatalake.simsearch.engine.processor.IValueFinder;
+import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
 import eu.smartdatalake.simsearch.manager.IDataConnector;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
 
@@ -18,11 +18,8 @@ import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
  * @param <K>  The key (identifier) of the object.
  * @param <V>  The textual value (keywords) of this object at a particular attribute.
  */
-public class CategoricalValueFinder<K,V> implements IValueFinder<K,V> {
+public class CategoricalValueFinder<K,V> extends ValueFinder<K,V> {
 
-	String queryTemplate = null;
-	IDataConnector dataConnector = null;
-	
 	/**
 	 * Constructor of this class
 	 * @param dataConnector  Instance of a connector to data source (JDBC connection to a DBMS or HTTP connection to a REST API).
@@ -30,8 +27,18 @@ public class CategoricalValueFinder<K,V> implements IValueFinder<K,V> {
 	 */
 	public CategoricalValueFinder(IDataConnector dataConnector, String query) {
 		
-		this.dataConnector = dataConnector;
-		this.queryTemplate = query;
+		super(dataConnector, query);
+	}
+
+	/**
+	 * Constructor of this class
+	 * @param dataConnector  Instance of a connector to data source (JDBC connection to a DBMS or HTTP connection to a REST API).
+	 * @param query  The query template to execute, either in SQL (against a DBMS) or JSON (against a REST API).
+	 * @param search  The in-situ similarity search query against this attribute; its multi-value retrieval is used for resolving multiple identifiers at once.
+	 */
+	public CategoricalValueFinder(IDataConnector dataConnector, String query, ISimSearch<K,V> search) {
+		
+		super(dataConnector, query, search);
 	}
 	
 	@Override
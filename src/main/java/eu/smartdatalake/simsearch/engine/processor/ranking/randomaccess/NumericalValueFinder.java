@@ -2,7 +2,7 @@ package eu.smartdatalake.simsearch.engine.processor.ranking.randomaccess;
 
 import java.util.Map;
 
-import eu.smartdatalake.simsearch.engine.processor.IValueFinder;
+import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
 import eu.smartdatalake.simsearch.manager.IDataConnector;
 
 /**
@@ -12,11 +12,8 @@ import eu.smartdatalake.simsearch.manager.IDataConnector;
  * @param <K>  The key (identifier) of the object.
  * @param <V>  The numerical value of this object at a particular attribute.
  */
-public class NumericalValueFinder<K,V> implements IValueFinder<K,V> {
+public class NumericalValueFinder<K,V> extends ValueFinder<K,V> {
 
-	String queryTemplate = null;
-	IDataConnector dataConnector = null;
-	
 	/**
 	 * Constructor of this class
 	 * @param dataConnector  Instance of a connector to data source (JDBC connection to a DBMS or HTTP connection to a REST API).
@@ -24,8 +21,18 @@ public class NumericalValueFinder<K,V> implements IValueFinder<K,V> {
 	 */
 	public NumericalValueFinder(IDataConnector dataConnector, String query) {
 		
-		this.dataConnector = dataConnector;
-		this.queryTemplate = query;
+		super(dataConnector, query);
+	}
+
+	/**
+	 * Constructor of this class
+	 * @param dataConnector  Instance of a connector to data source (JDBC connection to a DBMS or HTTP connection to a REST API).
+	 * @param query  The query template to execute, either in SQL (against a DBMS) or JSON (against a REST API).
+	 * @param search  The in-situ similarity search query against this attribute; its multi-value retrieval is used for resolving multiple identifiers at once.
+	 */
+	public NumericalValueFinder(IDataConnector dataConnector, String query, ISimSearch<K,V> search) {
+		
+		super(dataConnector, query, search);
 	}
 	
 	@Override
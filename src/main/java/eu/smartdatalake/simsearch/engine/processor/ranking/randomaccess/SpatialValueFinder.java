@@ -7,7 +7,7 @@ import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.postgis.PGgeometry;
 
-import eu.smartdatalake.simsearch.engine.processor.IValueFinder;
+import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
 import eu.smartdatalake.simsearch.manager.IDataConnector;
 
 /**
@@ -16,11 +16,9 @@ import eu.smartdatalake.simsearch.manager.IDataConnector;
  * @param <K>  The key (identifier) of the object.
  * @param <V>  The spatial (point) value of this object at a particular attribute.
  */
-public class SpatialValueFinder<K,V> implements IValueFinder<K,V> {
+public class SpatialValueFinder<K,V> extends ValueFinder<K,V> {
 
-	String queryTemplate = null;
-	IDataConnector dataConnector = null;
-	WKTReader wktReader = null;             // Converts a WKT geometry into its binary representation
+	WKTReader wktReader = new WKTReader();  // Converts a WKT geometry into its binary representation
 	
 	/**
 	 * Constructor of this class
@@ -29,9 +27,18 @@ public class SpatialValueFinder<K,V> implements IValueFinder<K,V> {
 	 */
 	public SpatialValueFinder(IDataConnector dataConnector, String query) {
 		
-		this.dataConnector = dataConnector;
-		this.queryTemplate = query;
-		this.wktReader = new WKTReader();
+		super(dataConnector, query);
+	}
+
+	/**
+	 * Constructor of this class
+	 * @param dataConnector  Instance of a connector to data source (JDBC connection to a DBMS or HTTP connection to a REST API).
+	 * @param query  The query template to execute, either in SQL (against a DBMS) or JSON (against a REST API).
+	 * @param search  The in-situ similarity search query against this attribute; its multi-value retrieval is used for resolving multiple identifiers at once.
+	 */
+	public SpatialValueFinder(IDataConnector dataConnector, String query, ISimSearch<K,V> search) {
+		
+		super(dataConnector, query, search);
 	}
 	
 	@Override
@@ -0,0 +1,68 @@
+package eu.smartdatalake.simsearch.engine.processor.ranking.randomaccess;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import eu.smartdatalake.simsearch.engine.processor.ISimSearch;
+import eu.smartdatalake.simsearch.engine.processor.IValueFinder;
+import eu.smartdatalake.simsearch.manager.IDataConnector;
+
+/**
+ * Common functionality for updating an in-memory lookup with values used in random access operations during rank aggregation.
+ * Values are retrieved from a data source collection (DBMS table or REST API data) by executing a query template per object identifier;
+ * concrete finders specify how each retrieved value is converted for a particular data type.
+ * @param <K>  The key (identifier) of the object.
+ * @param <V>  The value of this object at a particular attribute.
+ */
+public abstract class ValueFinder<K,V> implements IValueFinder<K,V> {
+
+	String queryTemplate = null;
+	IDataConnector dataConnector = null;
+	ISimSearch<K,V> search = null;       // In-situ query capable of retrieving values for multiple identifiers at once
+	
+	/**
+	 * Constructor of this class
+	 * @param dataConnector  Instance of a connector to data source (JDBC connection to a DBMS or HTTP connection to a REST API).
+	 * @param query  The query template to execute, either in SQL (against a DBMS) or JSON (against a REST API).
+	 */
+	public ValueFinder(IDataConnector dataConnector, String query) {
+		
+		this.dataConnector = dataConnector;
+		this.queryTemplate = query;
+	}
+
+	/**
+	 * Constructor of this class
+	 * @param dataConnector  Instance of a connector to data source (JDBC connection to a DBMS or HTTP connection to a REST API).
+	 * @param query  The query template to execute, either in SQL (against a DBMS) or JSON (against a REST API).
+	 * @param search  The in-situ similarity search query against this attribute; its multi-value retrieval is used for resolving multiple identifiers at once.
+	 */
+	public ValueFinder(IDataConnector dataConnector, String query, ISimSearch<K,V> search) {
+		
+		this(dataConnector, query);
+		this.search = search;
+	}
+
+	@Override
+	public int findAll(Map<K,V> dataset, Collection<K> keys) {
+		
+		// Values retrieved with a single query are appended directly to the lookup of this attribute
+		if (search != null) {
+			Set<String> identifiers = keys.stream().map(Object::toString).collect(Collectors.toSet());
+			int numMatches = search.appendValues(identifiers);
+			if (numMatches >= 0)
+				return numMatches;
+		}
+		
+		// Otherwise, retrieve values one at a time
+		int numMatches = 0;
+		for (K k: keys) {
+			if (find(dataset, k) != null)
+				numMatches++;
+		}
+		return numMatches;
+	}
+
+}
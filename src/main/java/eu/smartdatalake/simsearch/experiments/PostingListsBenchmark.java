@@ -0,0 +1,215 @@
+package eu.smartdatalake.simsearch.experiments;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import eu.smartdatalake.simsearch.Constants;
+import eu.smartdatalake.simsearch.Logger;
+import eu.smartdatalake.simsearch.engine.measure.CategoricalDistance;
+import eu.smartdatalake.simsearch.engine.measure.DecayedSimilarity;
+import eu.smartdatalake.simsearch.engine.processor.ingested.CategoricalSimSearch;
+import eu.smartdatalake.simsearch.engine.processor.ranking.PartialResult;
+import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.InvertedIndex;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollection;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollectionReader;
+
+/**
+ * USED FOR EXPERIMENTS ONLY: Compares the memory footprint and the query latency of plain against compressed inverted lists over sets of keywords.
+ * The keywords of a column in the GDELT sample are read, and a larger collection is generated with the same distribution of set sizes; its tokens follow a Zipf distribution, where the most frequent ones are those of the sample.
+ * Both indices are built over the same collection, and the same top-k queries (sets picked from the collection) are issued against each one; their results must be identical.
+ * As in search requests, each query fetches up to INFLATION_FACTOR * k candidates.
+ *
+ * Execution command (arguments are optional):
+ * java -cp target/simsearch-0.5-SNAPSHOT.jar eu.smartdatalake.simsearch.experiments.PostingListsBenchmark [csvFile] [column] [numSets] [numTokens] [numQueries] [topk]
+ * e.g., java -cp target/simsearch-0.5-SNAPSHOT.jar eu.smartdatalake.simsearch.experiments.PostingListsBenchmark data/gdelt/sample.csv persons 500000 300000 300 20
+ */
+public class PostingListsBenchmark {
+
+	/**
+	 * Generates a collection of sets with set sizes drawn from the sample and tokens drawn from a Zipf distribution.
+	 * @param sample  The sets of keywords in the sample.
+	 * @param numSets  The number of sets to generate.
+	 * @param numTokens  The number of distinct tokens to draw from.
+	 * @param rnd  The random generator.
+	 * @return  The generated collection of sets of tokens.
+	 */
+	private static TokenSetCollection generate(TokenSetCollection sample, int numSets, int numTokens, Random rnd) {
+
+		// Tokens of the sample in descending frequency take the highest ranks; the rest are synthetic
+		final Map<String, Integer> freq = new HashMap<String, Integer>();
+		int[] setSizes = new int[sample.sets.size()];
+		int n = 0;
+		for (TokenSet set : sample.sets.values()) {
+			setSizes[n++] = set.tokens.size();
+			for (String t : set.tokens)
+				freq.put(t, freq.containsKey(t) ? freq.get(t) + 1 : 1);
+		}
+		List<String> ranked = new ArrayList<String>(freq.keySet());
+		ranked.sort((a, b) -> freq.get(b) - freq.get(a));
+		String[] vocabulary = new String[Math.max(numTokens, ranked.size())];
+		for (int r = 0; r < vocabulary.length; r++)
+			vocabulary[r] = (r < ranked.size()) ? ranked.get(r) : ("token_" + r);
+
+		// Cumulative Zipf probabilities with exponent 1
+		double[] cdf = new double[vocabulary.length];
+		double sum = 0;
+		for (int r = 0; r < cdf.length; r++) {
+			sum += 1.0 / (r + 1);
+			cdf[r] = sum;
+		}
+
+		TokenSetCollection collection = new TokenSetCollection();
+		for (int i = 0; i < numSets; i++) {
+			int size = setSizes[rnd.nextInt(setSizes.length)];
+			List<String> tokens = new ArrayList<String>(size);
+			while (tokens.size() < size) {
+				int r = Arrays.binarySearch(cdf, rnd.nextDouble() * sum);
+				String t = vocabulary[(r >= 0) ? r : Math.min(-r - 1, cdf.length - 1)];
+				if (!tokens.contains(t))
+					tokens.add(t);
+			}
+			TokenSet set = new TokenSet();
+			set.id = "set_" + i;
+			set.tokens = tokens;
+			collection.sets.put(set.id, set);
+		}
+
+		return collection;
+	}
+
+	/**
+	 * Provides the approximate memory footprint of plain inverted lists, i.e., the int arrays and their headers with compressed references.
+	 * @param index  The inverted index with plain lists.
+	 * @return  The number of bytes.
+	 */
+	private static long plainFootprint(InvertedIndex index) {
+
+		long bytes = 16 + 4L * index.idx.length;
+		for (int[] list : index.idx)
+			bytes += 16 + 4L * list.length;
+		return bytes;
+	}
+
+	/**
+	 * Provides the heap currently in use, after requesting garbage collection.
+	 * @return  The number of bytes in use.
+	 */
+	private static long usedHeap() {
+
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	/**
+	 * Issues each query against the index and collects the identifiers of the top-k results.
+	 * @param index  The inverted index.
+	 * @param collection  The indexed sets of tokens.
+	 * @param queries  The query sets.
+	 * @param topk  The number of results per query.
+	 * @param M  The number of candidates to fetch per query.
+	 * @param results  List to collect the identifiers of the results of each query; null, if not needed (e.g., warm-up).
+	 * @param log  Handle to the log file.
+	 * @return  The total time in milliseconds.
+	 */
+	private static double runQueries(InvertedIndex index, TokenSetCollection collection, List<TokenSet> queries, int topk, int M, List<List<String>> results, Logger log) {
+
+		double total = 0;
+		for (TokenSet q : queries) {
+			TokenSetCollection queryCollection = new TokenSetCollection();
+			queryCollection.sets.put(q.id, q);
+			DecayedSimilarity<TokenSet> simMeasure = new DecayedSimilarity<TokenSet>(new CategoricalDistance<TokenSet>(q, null), Constants.DECAY_FACTOR, 0.0, 0);
+			RankedList partialResults = new RankedList();
+
+			long duration = System.nanoTime();
+			CategoricalSimSearch<String, TokenSet> search = new CategoricalSimSearch<String, TokenSet>(index, simMeasure, log);
+			search.compute(index.getTransformedCollection(queryCollection), index.transformedTargetCollection, collection.sets, topk, M, partialResults);
+			total += (System.nanoTime() - duration) / 1000000.0;
+
+			if (results != null) {
+				List<String> keys = new ArrayList<String>();
+				PartialResult res;
+				while ((res = partialResults.poll()) != null)
+					keys.add(res.getId() + "@" + res.getScore());
+				results.add(keys);
+			}
+		}
+		return total;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		String csvFile = (args.length > 0) ? args[0] : "data/gdelt/sample.csv";
+		String column = (args.length > 1) ? args[1] : "persons";
+		int numSets = (args.length > 2) ? Integer.parseInt(args[2]) : 500000;
+		int numTokens = (args.length > 3) ? Integer.parseInt(args[3]) : 300000;
+		int numQueries = (args.length > 4) ? Integer.parseInt(args[4]) : 300;
+		int topk = (args.length > 5) ? Integer.parseInt(args[5]) : 20;
+		int M = (int) Math.min((long) Constants.INFLATION_FACTOR * topk, numSets);
+
+		File logFile = File.createTempFile("simsearch-benchmark", ".log");
+		Logger log = new Logger(logFile.getPath(), false);
+
+		// Keywords of the chosen column in the sample
+		TokenSetCollectionReader reader = new TokenSetCollectionReader();
+		String[] header;
+		try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
+			header = br.readLine().split(",");
+		}
+		int colTokens = Arrays.asList(header).indexOf(column);
+		if (colTokens < 0)
+			throw new IllegalArgumentException("Column " + column + " is not found in " + csvFile + ".");
+		TokenSetCollection sample = reader.importFromCsvFile(csvFile, 0, colTokens, ",", ";", -1, true, 0, null, log);
+
+		Random rnd = new Random(42);
+		TokenSetCollection collection = generate(sample, numSets, numTokens, rnd);
+		List<TokenSet> queries = new ArrayList<TokenSet>();
+		List<TokenSet> sets = new ArrayList<TokenSet>(collection.sets.values());
+		for (int i = 0; i < numQueries; i++)
+			queries.add(sets.get(rnd.nextInt(sets.size())));
+		sets = null;
+
+		long baseHeap = usedHeap();
+		InvertedIndex plain = reader.buildInvertedIndex(collection, false, log);
+		long plainHeap = usedHeap() - baseHeap;
+		long plainBytes = plainFootprint(plain);
+		long postings = 0;
+		for (int[] list : plain.idx)
+			postings += list.length;
+		System.out.println(column + ": " + numSets + " sets, " + plain.idx.length + " distinct tokens, " + postings + " postings; " + numQueries + " top-" + topk + " queries");
+
+		runQueries(plain, collection, queries, topk, M, null, log);
+		List<List<String>> plainResults = new ArrayList<List<String>>();
+		double plainTime = runQueries(plain, collection, queries, topk, M, plainResults, log);
+		plain = null;
+
+		baseHeap = usedHeap();
+		InvertedIndex compressed = reader.buildInvertedIndex(collection, true, log);
+		long compressedHeap = usedHeap() - baseHeap;
+		long compressedBytes = compressed.compressedIdx.getMemoryFootprint();
+
+		runQueries(compressed, collection, queries, topk, M, null, log);
+		List<List<String>> compressedResults = new ArrayList<List<String>>();
+		double compressedTime = runQueries(compressed, collection, queries, topk, M, compressedResults, log);
+
+		if (!plainResults.equals(compressedResults))
+			throw new IllegalStateException("Results differ between plain and compressed inverted lists.");
+
+		System.out.println(String.format("%-28s %14s %14s", "inverted lists", "plain int[][]", "compressed"));
+		System.out.println(String.format("%-28s %11.1f MB %11.1f MB", "footprint of the lists", plainBytes / 1048576.0, compressedBytes / 1048576.0));
+		System.out.println(String.format("%-28s %11.1f MB %11.1f MB", "heap taken by the index", plainHeap / 1048576.0, compressedHeap / 1048576.0));
+		System.out.println(String.format("%-28s %14.2f %14.2f", "latency (ms/query)", plainTime / numQueries, compressedTime / numQueries));
+		System.out.println("Results are identical. Log kept at " + logFile.getPath());
+	}
+
+}
@@ -0,0 +1,234 @@
+package eu.smartdatalake.simsearch.experiments;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import eu.smartdatalake.simsearch.Constants;
+import eu.smartdatalake.simsearch.Logger;
+import eu.smartdatalake.simsearch.engine.IResult;
+import eu.smartdatalake.simsearch.engine.measure.DecayedSimilarity;
+import eu.smartdatalake.simsearch.engine.measure.ISimilarity;
+import eu.smartdatalake.simsearch.engine.measure.NumericalDistance;
+import eu.smartdatalake.simsearch.engine.processor.IValueFinder;
+import eu.smartdatalake.simsearch.engine.processor.ranking.IRankAggregator;
+import eu.smartdatalake.simsearch.engine.processor.ranking.PartialRandomAccessRanking;
+import eu.smartdatalake.simsearch.engine.processor.ranking.PartialResult;
+import eu.smartdatalake.simsearch.engine.processor.ranking.RankedList;
+import eu.smartdatalake.simsearch.engine.processor.ranking.ThresholdRanking;
+import eu.smartdatalake.simsearch.manager.DataSource;
+import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.DenseLookup;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
+
+/**
+ * USED FOR EXPERIMENTS ONLY: Measures the time spent in rank aggregation against the depth of the ranked candidates per attribute.
+ * Numerical values are generated for each entity in the given number of attributes, so that they sum up to one; hence, no entity is close to the query in all attributes and aggregation has to examine candidates in depth.
+ * For each depth, every attribute offers its candidates closest to the query value (zero) by ascending distance, as an ingested index would do.
+ * ThresholdRanking (with random access to the values of all entities) and PartialRandomAccessRanking (with random access to the values in the ranked lists only) are run end-to-end over identical copies of these lists.
+ * Candidates are fetched before timing starts, so the reported time concerns rank aggregation only. The depth actually consumed per attribute is also reported, since an aggregator may conclude earlier.
+ *
+ * Execution command (arguments are optional; depths are separated by commas):
+ * java -cp target/simsearch-0.5-SNAPSHOT.jar eu.smartdatalake.simsearch.experiments.RankingDepthBenchmark [depths] [numAttributes] [numEntities] [topk] [repetitions]
+ * e.g., java -cp target/simsearch-0.5-SNAPSHOT.jar eu.smartdatalake.simsearch.experiments.RankingDepthBenchmark 1000,5000,20000,50000 3 1000000 50 3
+ */
+public class RankingDepthBenchmark {
+
+	static int numAttributes;
+	static int numEntities;
+	static int topk;
+	static Logger log;
+	static EntityDictionary entities;
+	
+	static String[] taskKeys;								// Hash key of each attribute
+	static double[][] values;								// Value of each entity per attribute
+	static int[][] rankings;								// Entities per attribute by ascending distance from the query value
+	static Map<String, DatasetIdentifier> datasetIdentifiers;
+	static Map<String, IDenseLookup<?>> denseLookups;		// Values of all entities per attribute, as kept for ingested attributes
+
+	/**
+	 * Generates the values of all entities in all attributes, as well as their ranking in each attribute.
+	 * @param rnd  The generator of random values.
+	 */
+	private static void generate(Random rnd) {
+
+		// Values per entity are proportional to exponentially distributed numbers, i.e., uniformly distributed over the simplex
+		values = new double[numAttributes][numEntities];
+		for (int i = 0; i < numEntities; i++) {
+			double sum = 0.0;
+			for (int a = 0; a < numAttributes; a++) {
+				values[a][i] = -Math.log(1.0 - rnd.nextDouble());
+				sum += values[a][i];
+			}
+			for (int a = 0; a < numAttributes; a++)
+				values[a][i] /= sum;
+		}
+
+		// Entities are ranked by ascending value, i.e., ascending distance from the query value; both are packed in a single number for sorting
+		rankings = new int[numAttributes][numEntities];
+		long[] packed = new long[numEntities];
+		for (int a = 0; a < numAttributes; a++) {
+			for (int i = 0; i < numEntities; i++)
+				packed[i] = ((long) Float.floatToIntBits((float) values[a][i]) << 32) | i;
+			Arrays.sort(packed);
+			for (int i = 0; i < numEntities; i++)
+				rankings[a][i] = (int) packed[i];
+		}
+	}
+
+	/**
+	 * Provides the similarity measures, one per attribute, for a query at zero in all attributes.
+	 * @return  Dictionary of the similarity measures per attribute.
+	 */
+	private static Map<String, ISimilarity> similarities() {
+
+		Map<String, ISimilarity> similarities = new HashMap<String, ISimilarity>();
+		for (int a = 0; a < numAttributes; a++)
+			similarities.put(taskKeys[a], new DecayedSimilarity<Double>(new NumericalDistance<Double>(0.0), Constants.DECAY_FACTOR, 1.0, a));
+		return similarities;
+	}
+
+	/**
+	 * Runs rank aggregation over ranked lists of the given depth.
+	 * @param partialRandomAccess  True, for PartialRandomAccessRanking; False, for ThresholdRanking.
+	 * @param depth  The number of candidates in the ranked list of each attribute.
+	 * @param consumed  Array to hold the number of candidates consumed from the ranked list of each attribute.
+	 * @return  The time spent in rank aggregation in milliseconds.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static double rank(boolean partialRandomAccess, int depth, int[] consumed) {
+
+		Map<String, ISimilarity> similarities = similarities();
+		Map<String, Map<String, Double>> lookups = new HashMap<String, Map<String, Double>>();
+		Map<String, Double[]> weights = new HashMap<String, Double[]>();
+		Map<String, INormal> normalizations = new HashMap<String, INormal>();
+		Map<String, Future<?>> tasks = new LinkedHashMap<String, Future<?>>();
+		Map<String, RankedList> queues = new HashMap<String, RankedList>();
+		Map<String, AtomicBoolean> runControl = new HashMap<String, AtomicBoolean>();
+
+		// Ranked lists are filled as if all queries had concluded
+		for (int a = 0; a < numAttributes; a++) {
+			String task = taskKeys[a];
+			ISimilarity<Double> simMeasure = similarities.get(task);
+			RankedList queue = new RankedList();
+			for (int i = 0; i < depth; i++) {
+				int id = rankings[a][i];
+				PartialResult<String, Double> res = new PartialResult<String, Double>(entities.decode(id), values[a][id], simMeasure.calc(values[a][id]));
+				res.setEntity(id);
+				queue.add(res);
+			}
+			queues.put(task, queue);
+			lookups.put(task, new HashMap<String, Double>());
+			weights.put(task, new Double[] {1.0});
+			tasks.put(task, CompletableFuture.completedFuture(null));
+			runControl.put(task, new AtomicBoolean(false));
+		}
+
+		IRankAggregator aggregator;
+		if (partialRandomAccess)   // Look-ups are built from the ranked lists
+			aggregator = new PartialRandomAccessRanking(datasetIdentifiers, lookups, new HashMap<String, IDenseLookup<?>>(), similarities, weights, normalizations, tasks, queues, runControl, topk, entities, log);
+		else
+			aggregator = new ThresholdRanking(datasetIdentifiers, lookups, denseLookups, similarities, weights, normalizations, tasks, queues, Collections.<String, IValueFinder>emptyMap(), Constants.RANDOM_ACCESS_BATCH_SIZE, runControl, topk, entities, log);
+
+		long duration = System.nanoTime();
+		IResult[][] results = aggregator.proc(Long.MAX_VALUE);
+		double time = (System.nanoTime() - duration) / 1000000.0;
+
+		if (results[0].length != topk)
+			throw new IllegalStateException("Expected " + topk + " results, but " + results[0].length + " were issued.");
+		for (int a = 0; a < numAttributes; a++)
+			consumed[a] = queues.get(taskKeys[a]).getConsumed();
+		return time;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		String[] depths = (args.length > 0) ? args[0].split(",") : new String[] {"1000", "5000", "20000", "50000"};
+		numAttributes = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		numEntities = (args.length > 2) ? Integer.parseInt(args[2]) : 1000000;
+		topk = (args.length > 3) ? Integer.parseInt(args[3]) : 50;
+		int repetitions = (args.length > 4) ? Integer.parseInt(args[4]) : 3;
+
+		File logFile = File.createTempFile("simsearch-benchmark", ".log");
+		log = new Logger(logFile.getPath(), false);
+
+		// Entities are known to the dictionary in advance, as if the attributes had been ingested
+		entities = new EntityDictionary();
+		for (int i = 0; i < numEntities; i++)
+			entities.encode("entity_" + i);
+
+		generate(new Random(42));
+
+		DataSource source = new DataSource("benchmark", "");
+		datasetIdentifiers = new HashMap<String, DatasetIdentifier>();
+		denseLookups = new HashMap<String, IDenseLookup<?>>();
+		taskKeys = new String[numAttributes];
+		for (int a = 0; a < numAttributes; a++) {
+			DatasetIdentifier id = new DatasetIdentifier(source, "synthetic", "attr" + a, "numerical_topk", false);
+			taskKeys[a] = id.getHashKey();
+			datasetIdentifiers.put(taskKeys[a], id);
+			DenseLookup<Double> denseLookup = new DenseLookup<Double>(Collections.<String, Double>emptyMap(), entities);
+			for (int i = 0; i < numEntities; i++)
+				denseLookup.put(i, values[a][i]);
+			denseLookups.put(taskKeys[a], denseLookup);
+		}
+
+		// Warm up the JIT before measuring
+		int[] consumed = new int[numAttributes];
+		for (int r = 0; r < 5; r++) {
+			rank(false, Integer.parseInt(depths[0].trim()), consumed);
+			rank(true, Integer.parseInt(depths[0].trim()), consumed);
+		}
+
+		System.out.println("attributes=" + numAttributes + ", entities=" + numEntities + ", top-k=" + topk + ", repetitions=" + repetitions + " (median time in ms; depth consumed per attribute)");
+		System.out.println(String.format("%10s %14s %10s %14s %10s", "depth", "threshold", "consumed", "partial RA", "consumed"));
+		for (String d : depths) {
+			int depth = Integer.parseInt(d.trim());
+			double[] thresholdTimes = new double[repetitions];
+			double[] partialTimes = new double[repetitions];
+			int[] thresholdConsumed = new int[numAttributes];
+			int[] partialConsumed = new int[numAttributes];
+			for (int r = 0; r < repetitions; r++) {
+				thresholdTimes[r] = rank(false, depth, thresholdConsumed);
+				partialTimes[r] = rank(true, depth, partialConsumed);
+			}
+			System.out.println(String.format("%10d %14.1f %10d %14.1f %10d", depth, median(thresholdTimes), max(thresholdConsumed), median(partialTimes), max(partialConsumed)));
+		}
+	}
+
+	/**
+	 * Provides the median of the given measurements.
+	 * @param times  The measurements.
+	 * @return  The median value.
+	 */
+	private static double median(double[] times) {
+
+		double[] sorted = times.clone();
+		Arrays.sort(sorted);
+		int n = sorted.length;
+		return (n % 2 == 1) ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+	}
+
+	/**
+	 * Provides the maximum of the given counts.
+	 * @param counts  The counts.
+	 * @return  The maximum value.
+	 */
+	private static int max(int[] counts) {
+
+		int m = 0;
+		for (int c : counts)
+			m = Math.max(m, c);
+		return m;
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import eu.smartdatalake.simsearch.Constants;
 import eu.smartdatalake.simsearch.manager.DataType.Type;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenInterner;
 
 /**
  * Provides identification for the data regarding a specific attribute available from a data source.
@@ -20,6 +21,8 @@ public class DatasetIdentifier {
 	private String prefixURL = null;    // URL prefix to be combined with the values in attrKey (assuming this yields resolvable URLs)
 	private Type datatype = null;		// Specifies the data type of the queryable attribute values
 	private Object sample = null;		// A sample value extracted from the attribute data
+	private TokenInterner tokenDictionary = null;	// Interned tokens of ingested sets of tokens; released along with this identifier
+	private String snapshot = null;		// Path to the binary snapshot of the attribute values, if any
 	
 	// Associate this dataset with its transformed one
 	private TransformedDatasetIdentifier transformed = null; // Unless explicitly specified in the config, a dataset is not transformed
@@ -228,4 +231,36 @@ public class DatasetIdentifier {
 		this.sample = sample;
 	}
 
+	/**
+	 * Provides the dictionary of interned tokens of this attribute.
+	 * @return  The dictionary; null, if this attribute does not hold ingested sets of tokens.
+	 */
+	public TokenInterner getTokenDictionary() {
+		return tokenDictionary;
+	}
+
+	/**
+	 * Specifies the dictionary of interned tokens of this attribute.
+	 * @param tokenDictionary  The dictionary that ingested sets of tokens get interned into.
+	 */
+	public void setTokenDictionary(TokenInterner tokenDictionary) {
+		this.tokenDictionary = tokenDictionary;
+	}
+
+	/**
+	 * Provides the path to the binary snapshot of the values of this attribute.
+	 * @return  The path to the snapshot; null, if no snapshot is kept.
+	 */
+	public String getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Specifies the path to the binary snapshot of the values of this attribute.
+	 * @param snapshot  The path to the snapshot; null, if no snapshot is kept.
+	 */
+	public void setSnapshot(String snapshot) {
+		this.snapshot = snapshot;
+	}
+
 }
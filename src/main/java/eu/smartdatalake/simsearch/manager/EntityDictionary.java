@@ -0,0 +1,101 @@
+package eu.smartdatalake.simsearch.manager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary that assigns a dense integer identifier to each entity key (i.e., the original identifier as a string).
+ * A single instance is maintained by the coordinator and is shared by all attributes: identifiers are assigned at mount time,
+ * so that ranking structures can work with integers instead of strings. Indices that keep dense identifiers (sorted arrays, packed points) attach them to their results.
+ * Values of ingested attributes are also looked up by dense identifier in random access; original keys are only restored when reporting results and for retrieving values from in-situ sources.
+ * Identifiers are never reused; entities found only in in-situ sources get an identifier the first time they are encountered.
+ */
+public class EntityDictionary {
+
+	private ConcurrentHashMap<String, Integer> ids;		// Key -> dense identifier
+	private volatile String[] keys;						// Dense identifier -> key
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	public EntityDictionary() {
+
+		ids = new ConcurrentHashMap<String, Integer>();
+		keys = new String[1024];
+		size = 0;
+	}
+
+
+	/**
+	 * Provides the dense identifier of the given entity key; a new identifier is assigned if this key has not been seen before.
+	 * @param key  The original identifier of an entity.
+	 * @return  The dense integer identifier of this entity.
+	 */
+	public int encode(String key) {
+
+		Integer id = ids.get(key);
+		if (id != null)
+			return id;
+
+		// Assignment of new identifiers is serialized; look-ups are not
+		synchronized (this) {
+			id = ids.get(key);
+			if (id != null)
+				return id;
+			if (size == keys.length)
+				keys = Arrays.copyOf(keys, 2 * keys.length);
+			keys[size] = key;
+			id = size++;
+			ids.put(key, id);   // Publish only after the reverse mapping is in place
+		}
+
+		return id;
+	}
+
+
+	/**
+	 * Assigns dense identifiers to all the given entity keys (typically, those of an attribute being mounted).
+	 * @param collection  A collection of entity keys.
+	 */
+	public void encodeAll(Collection<?> collection) {
+
+		for (Object key: collection)
+			encode(key.toString());
+	}
+
+
+	/**
+	 * Provides the dense identifier of an entity key without assigning a new one.
+	 * @param key  The original identifier of an entity.
+	 * @return  The dense integer identifier of this entity, or -1 if this key is unknown.
+	 */
+	public int getId(String key) {
+
+		Integer id = ids.get(key);
+		return (id != null) ? id : -1;
+	}
+
+
+	/**
+	 * Restores the original entity key from its dense identifier.
+	 * @param id  The dense integer identifier of an entity.
+	 * @return  The original identifier of this entity.
+	 */
+	public String decode(int id) {
+
+		return keys[id];
+	}
+
+
+	/**
+	 * Provides the number of identifiers assigned so far; all identifiers are in the range [0, size).
+	 * @return  The number of distinct entities in the dictionary.
+	 */
+	public int size() {
+
+		return ids.size();
+	}
+
+}
@@ -0,0 +1,33 @@
+package eu.smartdatalake.simsearch.manager.ingested;
+
+import java.util.Map;
+
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
+
+/**
+ * Structures of an ingested attribute (values, index, dense look-up, normalization) as built by an upsert against copies of those in use.
+ * These are not modified once built, so a search that has obtained them may keep using them after they get replaced by a newer version.
+ */
+public class AttributeVersion {
+
+	Map<?,?> data;					// The (key, value) pairs of the attribute
+	Index index;					// The index on the attribute; null, if not queryable
+	IDenseLookup<?> denseLookup;	// Values of the attribute by dense identifier; null, if not available
+	INormal normal;					// The normalization applied against the attribute; null, if not normalized
+
+	/**
+	 * Constructor
+	 * @param data  The (key, value) pairs of the attribute.
+	 * @param index  The index on the attribute.
+	 * @param denseLookup  Values of the attribute by dense identifier.
+	 * @param normal  The normalization applied against the attribute.
+	 */
+	AttributeVersion(Map<?,?> data, Index index, IDenseLookup<?> denseLookup, INormal normal) {
+
+		this.data = data;
+		this.index = index;
+		this.denseLookup = denseLookup;
+		this.normal = normal;
+	}
+
+}
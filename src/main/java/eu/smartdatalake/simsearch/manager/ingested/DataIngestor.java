@@ -1,6 +1,10 @@
 package eu.smartdatalake.simsearch.manager.ingested;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,19 +16,30 @@ import com.google.common.base.Joiner;
 import eu.smartdatalake.simsearch.Assistant;
 import eu.smartdatalake.simsearch.Constants;
 import eu.smartdatalake.simsearch.Logger;
+import eu.smartdatalake.simsearch.manager.DataType;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.InvertedIndex;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSet;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollection;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenInterner;
 import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenSetCollectionReader;
 import eu.smartdatalake.simsearch.manager.ingested.lookup.DictionaryReader;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.BPlusTree;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.DeltaNumericalIndex;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.DoubleNumReader;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.INormal;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.INumericalIndex;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.NumericalSnapshot;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.SortedArrayIndex;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.UnityNormal;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.ZNormal;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.DeltaSpatialIndex;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.ISpatialIndex;
 import eu.smartdatalake.simsearch.manager.ingested.spatial.Location;
 import eu.smartdatalake.simsearch.manager.ingested.spatial.LocationReader;
-import eu.smartdatalake.simsearch.manager.ingested.spatial.RTree;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.PointStore;
+import eu.smartdatalake.simsearch.manager.ingested.spatial.PreparedLocation;
 import eu.smartdatalake.simsearch.manager.ingested.temporal.DateTimeReader;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
 import eu.smartdatalake.simsearch.pivoting.rtree.geometry.Point;
@@ -41,25 +56,49 @@ public class DataIngestor {
 	Map<String, Map<?,?>> datasets = null;
 	Map<String, Index> indices = null;
 	Map<String, INormal> normalizations = null;
+	Map<String, DoubleNumReader> statistics = null;    // Statistics on normalized numerical attributes, adjusted as their values get upserted
 	List<String> pivotAttrs = null;    // For pivot-based search, keep the attributes involved
+	EntityDictionary entities = null;  // Dense integer identifiers assigned to entities of all ingested attributes
+	Map<String, IDenseLookup<?>> denseLookups = null;    // Values of ingested attributes by dense identifier, as used in random access during rank aggregation
 	
 	Assistant myAssistant;
 	
 	/**
 	 * Constructor
+	 * @param entities  Dictionary of dense integer identifiers to be assigned to the ingested entities.
 	 * @param log  Handle to the log file for notifications and execution statistics.
 	 */
-	public DataIngestor(Logger log) {
+	public DataIngestor(EntityDictionary entities, Logger log) {
 		
 		this.log = log;	
-		this.datasets = new HashMap<String, Map<?,?>>();
-		this.indices = new HashMap<String, Index>();
-		this.normalizations = new HashMap<String, INormal>();
+		this.entities = entities;
+		// Structures of ingested attributes may be obtained by searches while other attributes get mounted or upserted
+		this.datasets = Collections.synchronizedMap(new HashMap<String, Map<?,?>>());
+		this.indices = Collections.synchronizedMap(new HashMap<String, Index>());
+		this.normalizations = Collections.synchronizedMap(new HashMap<String, INormal>());
+		this.statistics = new HashMap<String, DoubleNumReader>();
+		this.denseLookups = Collections.synchronizedMap(new HashMap<String, IDenseLookup<?>>());
 		this.pivotAttrs = new ArrayList<String>();
 		myAssistant = new Assistant();
 	}
 
 	
+	/**
+	 * Reports the size of an index built over numerical or date/time values.
+	 * @param index  The index built on an attribute.
+	 */
+	@SuppressWarnings("rawtypes")
+	private void reportNumericalIndex(INumericalIndex<Double, String> index) {
+		
+		if (index instanceof BPlusTree)
+			log.writeln("Index contains " + ((BPlusTree) index).numNodes + " internal nodes and " + ((BPlusTree) index).numLeaves + " leaf nodes.");
+		else if (index instanceof SortedArrayIndex)
+			log.writeln("Index contains " + ((SortedArrayIndex) index).getNumKeys() + " distinct keys for " + ((SortedArrayIndex) index).getNumEntities() + " entities.");
+		else if (index instanceof DeltaNumericalIndex)
+			log.writeln("Sorted delta of the index holds " + ((DeltaNumericalIndex) index).getNumChanged() + " upserted values.");
+	}
+	
+	
 	/**
 	 * Builds an index for the identified dataset according to user-specified configurations.
 	 * @param mountConfig  Configuration for reading the attribute values and constructing an index prior to query execution.
@@ -91,6 +130,18 @@ public class DataIngestor {
 		if (mountConfig.max_lines != null)
 			maxLines = mountConfig.max_lines;
 		
+		// Determines whether a sorted array instead of a B+-tree should be built over numerical or date/time values
+		boolean sortedArray = (mountConfig.index_type != null) && (mountConfig.index_type.equalsIgnoreCase("sorted_array"));
+		
+		// Determines whether the inverted lists over sets of tokens should be compressed
+		boolean compressed = (mountConfig.index_type != null) && (mountConfig.index_type.equalsIgnoreCase("compressed"));
+		
+		// Determines whether point locations should be kept in a columnar store with a packed index instead of geometries in an R-tree
+		boolean points = (mountConfig.index_type != null) && (mountConfig.index_type.equalsIgnoreCase("points"));
+		
+		// Fraction of node capacity to be filled when bulk loading a B+-tree
+		double fillFactor = Double.parseDouble(System.getProperty("btree_fill_factor", String.valueOf(Constants.BTREE_FILL_FACTOR)));
+		
 		// input dataset
 		String dataset = id.getDatasetName();
 		
@@ -111,6 +162,9 @@ public class DataIngestor {
 				header = true;   // Expect that header exists in the input CSV dataset
 		}
 		
+		// Key column as recorded in a snapshot of the attribute; its ordinal number, unless named
+		String snapshotKey = (colKeyName != null) ? colKeyName : String.valueOf(colKey);
+		
 		// Specification of the column containing values
 		int colValue = Constants.SEARCH_COLUMN;  // Default column with values to search against
 		List<Integer> colValues = new ArrayList<Integer>();
@@ -163,14 +217,17 @@ public class DataIngestor {
 			duration = System.nanoTime();
 			
 			int qgram = (mountConfig.qgram != null) ? mountConfig.qgram : 0;
+			
+			// Tokens are interned per attribute, so that they are released once it is removed
+			id.setTokenDictionary(new TokenInterner());
 				
 			if (jdbcConn != null) {	// Input comes from a non-indexed column in a database table acquired via a JDBC connection
 				// Always specify the key column as well!
-				targetCollection = reader.importFromJdbcTable(id.getDatasetName(), colKeyName, id.getValueAttribute(), tokenDelimiter, jdbcConn, qgram, log);
+				targetCollection = reader.importFromJdbcTable(id.getDatasetName(), colKeyName, id.getValueAttribute(), tokenDelimiter, jdbcConn, qgram, id.getTokenDictionary(), log);
 				log.writeln("Ingested data from JDBC data source on column " + id.getValueAttribute());
 			}
 			else {					// Input comes from a CSV file
-				targetCollection = reader.importFromCsvFile(dataset, colKey, colValue, columnSeparator, tokenDelimiter, maxLines, header, qgram, log);
+				targetCollection = reader.importFromCsvFile(dataset, colKey, colValue, columnSeparator, tokenDelimiter, maxLines, header, qgram, id.getTokenDictionary(), log);
 			}
 
 			// Use a generated hash key of the column as a reference to the collected values for this attribute
@@ -192,7 +249,7 @@ public class DataIngestor {
 				log.writeln("Read time: " + duration / 1000000000.0 + " sec.");
 				
 				// Build inverted index against the target data (tokens)
-				InvertedIndex index = reader.buildInvertedIndex(targetCollection, log);
+				InvertedIndex index = reader.buildInvertedIndex(targetCollection, compressed, log);
 				// Use the generated hash key as a reference to the index built on this attribute
 				indices.put(id.getHashKey(), index);
 	
@@ -222,7 +279,19 @@ public class DataIngestor {
 			INormal normal = null;				
 			Map<String, Double> targetData = null;
 			
-			if (jdbcConn != null) {	// Input comes from a non-indexed column in a database table acquired via a JDBC connection
+			// Check whether a snapshot of this attribute can be used instead of its data source
+			NumericalSnapshot snapshot = null;
+			if (mountConfig.snapshot != null) {
+				snapshot = new NumericalSnapshot();
+				if (!snapshot.load(mountConfig.snapshot, id.getDatasetName(), id.getValueAttribute(), snapshotKey, maxLines, normalized, log))
+					snapshot = null;
+				id.setSnapshot(mountConfig.snapshot);
+			}
+			
+			if (snapshot != null) {	// Input comes from a snapshot
+				targetData = snapshot.getData();
+			}
+			else if (jdbcConn != null) {	// Input comes from a non-indexed column in a database table acquired via a JDBC connection
 				// Always specify the key column as well!
 				targetData = doubleNumReader.importFromJdbcTable(id.getDatasetName(), colKeyName, id.getValueAttribute(), jdbcConn, log);
 				log.writeln("Ingested data from JDBC data source on column " + id.getValueAttribute());
@@ -231,6 +300,10 @@ public class DataIngestor {
 				targetData = doubleNumReader.importFromCsvFile(dataset, maxLines, colValue, colKey, columnSeparator, header, log);
 			}
 			
+			// Keep a snapshot of the ingested data, so that the attribute can be mounted from it next time
+			if ((snapshot == null) && (mountConfig.snapshot != null))
+				new NumericalSnapshot().save(mountConfig.snapshot, id.getDatasetName(), id.getValueAttribute(), snapshotKey, maxLines, targetData, normalized, doubleNumReader, log);
+			
 			// Use the generated hash key as a reference to the collected values for this attribute
 			datasets.put(id.getHashKey(), targetData);
 			
@@ -240,18 +313,23 @@ public class DataIngestor {
 			// Build indices for queryable attributes only
 			if (id.isQueryable()) {
 			
-				BPlusTree<Double, String> index = null;
+				INumericalIndex<Double, String> index = null;
 				// Apply normalization (if specified) against input dataset
-				if ((normalized != null) && (normalized.equalsIgnoreCase("z"))) {
+				if (snapshot != null)
+					normal = snapshot.getNormal();
+				else if ((normalized != null) && (normalized.equalsIgnoreCase("z")))
 					normal = new ZNormal(doubleNumReader.avgVal, doubleNumReader.stDev);
-					index = doubleNumReader.buildNormalizedIndex(targetData, normal, log);
-				}
-				else if ((normalized != null) && (normalized.equalsIgnoreCase("unity"))) {
+				else if ((normalized != null) && (normalized.equalsIgnoreCase("unity")))
 					normal = new UnityNormal(doubleNumReader.avgVal, doubleNumReader.minVal, doubleNumReader.maxVal);
-					index = doubleNumReader.buildNormalizedIndex(targetData, normal, log);
-				}
+				
+				// CAUTION! Original values are indexed; normalization only applies in similarity calculations, so it can change without affecting the index
+				// The snapshot already provides the keys in ascending order
+				if (snapshot != null)
+					index = sortedArray ? snapshot.buildSortedArrayIndex(entities, log) : snapshot.buildIndex(fillFactor, log);
+				else if (sortedArray)
+					index = doubleNumReader.buildSortedArrayIndex(targetData, entities, log);
 				else
-					index = doubleNumReader.buildIndex(targetData, log);
+					index = doubleNumReader.buildIndex(targetData, fillFactor, log);
 	
 				// Use the generated hash key as a reference to the index built on this attribute
 				indices.put(id.getHashKey(), index);
@@ -259,9 +337,15 @@ public class DataIngestor {
 				// Remember the kind of normalization applied against this dataset
 				normalizations.put(id.getHashKey(), normal);
 				
+				// Keep the statistics used in normalization, so that they can be adjusted on upserts
+				if (normal != null)
+					statistics.put(id.getHashKey(), (snapshot != null) ? snapshot.getStats() : doubleNumReader);
+				else
+					statistics.remove(id.getHashKey());
+				
 				duration = System.nanoTime() - duration;
 				log.writeln("Index on " + id.getValueAttribute() + " created in " + duration / 1000000000.0 + " sec.");
-				log.writeln("Index contains " + index.numNodes + " internal nodes and " + index.numLeaves + " leaf nodes.");	
+				reportNumericalIndex(index);
 			}
 		}
 		// settings for k-NN similarity search on spatial locations
@@ -273,33 +357,39 @@ public class DataIngestor {
 			// Consume specific columns from input file and ...
 			// ...build B+-tree on the chosen (key,value) pairs
 			LocationReader locReader = new LocationReader();				
-			Map<String, Geometry> targetData;
+			Map<String, Geometry> targetData = points ? new PointStore(entities) : new HashMap<String, Geometry>();
 			if (mountConfig.search_column instanceof ArrayList) {
 				// Two coordinate values specified for (POINT) locations
 				String[] colCoords = colValueName.split(",");    // CAUTION! "," is the character signifying that multiple columns are involved
 				if (jdbcConn != null) {	// Input comes from a non-indexed column in a DBMS table acquired via a JDBC connection
 					// Must always specify the key column in the configuration
-					targetData = locReader.importFromJdbcTable(id.getDatasetName(), colKeyName, colCoords[0], colCoords[1], jdbcConn, log);
+					targetData = locReader.importFromJdbcTable(id.getDatasetName(), colKeyName, colCoords[0], colCoords[1], jdbcConn, targetData, log);
 					log.writeln("Ingested location data from JDBC data source on columns " + colCoords[0] + ", " + colCoords[1]);
 				}
 				else {					// Input comes from a CSV file
 					int colLongitude = myAssistant.getColumnNumber(dataset, colCoords[0], columnSeparator);
 					int colLatitude = myAssistant.getColumnNumber(dataset, colCoords[1], columnSeparator);
 					colValue = colLongitude; 	// By default, mark the column for the longitude
-					targetData = locReader.importFromCsvFile(dataset, maxLines, colKey, colLongitude, colLatitude, columnSeparator, header, log);
+					targetData = locReader.importFromCsvFile(dataset, maxLines, colKey, colLongitude, colLatitude, columnSeparator, header, targetData, log);
 				}
 			}		
 			else {  // By default, a single column should used for referencing to this index; 
 					// Preferably, use WKT representations for geometries in a single column of the data
 				if (jdbcConn != null) {	// Input comes from a single non-indexed geometry column in a DBMS table acquired via a JDBC connection
 					// Must always specify the key column in the configuration
-					targetData = locReader.importFromJdbcTable(id.getDatasetName(), colKeyName, colValueName, jdbcConn, log);
+					targetData = locReader.importFromJdbcTable(id.getDatasetName(), colKeyName, colValueName, jdbcConn, targetData, log);
 					log.writeln("Ingested locations from JDBC data source on column " + colValueName);
 				}
 				else   // Input comes from a CSV file
-					targetData = locReader.importFromCsvFile(dataset, maxLines, colKey, colValue, columnSeparator, header, log);
+					targetData = locReader.importFromCsvFile(dataset, maxLines, colKey, colValue, columnSeparator, header, targetData, log);
 			}
 			
+			// Only points can be kept in a columnar store; any other geometries have been skipped
+			if ((targetData instanceof PointStore) && (((PointStore) targetData).getNumRejected() > 0))
+				log.writeln("WARNING: " + ((PointStore) targetData).getNumRejected() + " locations on " + id.getValueAttribute() + " are not points and have been skipped. Mount this attribute without index_type 'points' to keep all geometries.");
+			else if ((targetData != null) && !(targetData instanceof PointStore))
+				locReader.prepareGeometries(targetData, log);
+			
 			// Use the generated hash key as a reference to the collected values for this attribute
 			datasets.put(id.getHashKey(), targetData);
 			
@@ -308,8 +398,12 @@ public class DataIngestor {
 			
 			// Build indices for queryable attributes only
 			if (id.isQueryable()) {
-				// Create the R-tree index on this data
-				RTree<String, Location> index = locReader.buildIndex(targetData, log);
+				// Create the R-tree index on this data, or a packed index over the columnar store of points
+				ISpatialIndex<String, Location> index;
+				if (targetData instanceof PointStore)
+					index = locReader.buildPointIndex((PointStore) targetData, log);
+				else
+					index = locReader.buildIndex(targetData, log);
 				
 				// Use the generated hash key as a reference to the index built on this attribute
 				indices.put(id.getHashKey(), index);
@@ -336,7 +430,19 @@ public class DataIngestor {
 			DateTimeReader temporalReader = new DateTimeReader();		
 			Map<String, Double> targetData = null;
 			
-			if (jdbcConn != null) {	// Input comes from a non-indexed column in a database table acquired via a JDBC connection
+			// Check whether a snapshot of this attribute can be used instead of its data source
+			NumericalSnapshot snapshot = null;
+			if (mountConfig.snapshot != null) {
+				snapshot = new NumericalSnapshot();
+				if (!snapshot.load(mountConfig.snapshot, id.getDatasetName(), id.getValueAttribute(), snapshotKey, maxLines, null, log))
+					snapshot = null;
+				id.setSnapshot(mountConfig.snapshot);
+			}
+			
+			if (snapshot != null) {	// Input comes from a snapshot
+				targetData = snapshot.getData();
+			}
+			else if (jdbcConn != null) {	// Input comes from a non-indexed column in a database table acquired via a JDBC connection
 				// Always specify the key column as well!
 				targetData = temporalReader.importFromJdbcTable(id.getDatasetName(), colKeyName, id.getValueAttribute(), jdbcConn, log);
 				log.writeln("Ingested data from JDBC data source on column " + id.getValueAttribute());
@@ -345,6 +451,10 @@ public class DataIngestor {
 				targetData = temporalReader.importFromCsvFile(dataset, maxLines, colValue, colKey, columnSeparator, header, log);
 			}
 			
+			// Keep a snapshot of the ingested data, so that the attribute can be mounted from it next time
+			if ((snapshot == null) && (mountConfig.snapshot != null))
+				new NumericalSnapshot().save(mountConfig.snapshot, id.getDatasetName(), id.getValueAttribute(), snapshotKey, maxLines, targetData, null, null, log);
+			
 			// Use the generated hash key as a reference to the collected values for this attribute
 			datasets.put(id.getHashKey(), targetData);
 			
@@ -354,7 +464,14 @@ public class DataIngestor {
 			// Build indices for queryable attributes only
 			if (id.isQueryable()) {
 			
-				BPlusTree<Double, String> index = temporalReader.buildIndex(targetData, log);
+				INumericalIndex<Double, String> index = null;
+				// The snapshot already provides the keys in ascending order
+				if (snapshot != null)
+					index = sortedArray ? snapshot.buildSortedArrayIndex(entities, log) : snapshot.buildIndex(fillFactor, log);
+				else if (sortedArray)
+					index = temporalReader.buildSortedArrayIndex(targetData, entities, log);
+				else
+					index = temporalReader.buildIndex(targetData, fillFactor, log);
 	
 				// Use the generated hash key as a reference to the index built on this attribute
 				indices.put(id.getHashKey(), index);
@@ -364,7 +481,7 @@ public class DataIngestor {
 				
 				duration = System.nanoTime() - duration;
 				log.writeln("Index on " + id.getValueAttribute() + " created in " + duration / 1000000000.0 + " sec.");
-				log.writeln("Index contains " + index.numNodes + " internal nodes and " + index.numLeaves + " leaf nodes.");	
+				reportNumericalIndex(index);
 			}
 		}
 		// settings for creating a lookup dictionary of names (NOT used in similarity search query evaluation)
@@ -492,6 +609,10 @@ public class DataIngestor {
 					tokenDelimiter = Constants.TOKEN_DELIMITER;		
 			}
 		
+			// Sets of tokens compared by Jaccard distance are interned into integers once at ingestion
+			if ("jaccard".equalsIgnoreCase(mountConfig.metric))
+				id.setTokenDictionary(new TokenInterner());
+			
 			duration = System.nanoTime();
 			MetricDataIngestor reader = new MetricDataIngestor();				
 			Map<String, Point> targetData = null;
@@ -503,10 +624,10 @@ public class DataIngestor {
 			}
 			else {					// Input comes from a CSV file
 				if (colValues.size() > 1)   // Property value constructed from multiple columns
-					targetData = reader.importFromCsvFile(dataset, colKey, colValues.toArray(new Integer[0]), columnSeparator, tokenDelimiter, maxLines, header, log);
+					targetData = reader.importFromCsvFile(dataset, colKey, colValues.toArray(new Integer[0]), columnSeparator, tokenDelimiter, maxLines, header, id.getTokenDictionary(), log);
 				else {
-					targetData = reader.importFromCsvFile(dataset, colKey, (new Integer[] {colValue}), columnSeparator, tokenDelimiter, maxLines, header, log);
-					id.setDatatype(reader.getDataType(dataset, colValue, columnSeparator, header));
+					targetData = reader.importFromCsvFile(dataset, colKey, (new Integer[] {colValue}), columnSeparator, tokenDelimiter, maxLines, header, id.getTokenDictionary(), log);
+					id.setDatatype((id.getTokenDictionary() != null) ? DataType.Type.KEYWORD_SET : reader.getDataType(dataset, colValue, columnSeparator, header));
 				}
 			}
 			
@@ -538,6 +659,499 @@ public class DataIngestor {
 			log.writeln("Unknown operation specified: " + operation);
 		}
 
+		// Assign dense identifiers to all entities of this attribute; these will be used in ranking instead of the original keys
+		if (datasets.get(id.getHashKey()) != null) {
+			entities.encodeAll(datasets.get(id.getHashKey()).keySet());
+			log.writeln("Entity dictionary contains " + entities.size() + " identifiers.");
+			
+			// Values of attributes involved in rank aggregation are also looked up by dense identifier; a store of points already keeps them that way
+			if (datasets.get(id.getHashKey()) instanceof PointStore)
+				denseLookups.put(id.getHashKey(), (PointStore) datasets.get(id.getHashKey()));
+			else if (operation.equalsIgnoreCase("categorical_topk") || operation.equalsIgnoreCase("textual_topk") || operation.equalsIgnoreCase("numerical_topk") || operation.equalsIgnoreCase("spatial_knn") || operation.equalsIgnoreCase("temporal_topk"))
+				denseLookups.put(id.getHashKey(), new DenseLookup<Object>(datasets.get(id.getHashKey()), entities));
+		}
+	}
+
+
+	/**
+	 * Reads the values of a numerical or date/time attribute from a dataset that will be upserted into an attribute already mounted.
+	 * @param mountConfig  Configuration for reading the attribute values.
+	 * @param id  Identifier of the dataset with the values to upsert (e.g., a CSV file with changed rows or a database view).
+	 * @param jdbcConn  Specifications for the JDBC connection to be used for retrieving attribute values; null, if values are read from a CSV file.
+	 * @return  A dictionary of (entity, value) pairs; null, if the specified columns cannot be found.
+	 */
+	public Map<String, Double> readDelta(MountSpecs mountConfig, DatasetIdentifier id, JdbcConnector jdbcConn) {
+
+		// file parsing
+		String columnSeparator = Constants.COLUMN_SEPARATOR;
+		if ((mountConfig.separator != null) && !mountConfig.separator.equals(""))
+			columnSeparator = mountConfig.separator;
+		boolean header = (mountConfig.header != null) && mountConfig.header;
+		int maxLines = (mountConfig.max_lines != null) ? mountConfig.max_lines : -1;
+
+		String dataset = id.getDatasetName();
+		String colKeyName = mountConfig.key_column;
+		String colValueName = (mountConfig.search_column != null) ? mountConfig.search_column.toString() : id.getValueAttribute();
+
+		// Specification of the columns containing identifiers and values
+		int colKey = Constants.KEY_COLUMN;
+		int colValue = Constants.SEARCH_COLUMN;
+		if (jdbcConn == null) {
+			if (colKeyName != null) {
+				colKey = myAssistant.getColumnNumber(dataset, colKeyName, columnSeparator);
+				header = true;   // Expect that header exists in the input CSV dataset
+			}
+			if (header)
+				colValue = myAssistant.getColumnNumber(dataset, colValueName, columnSeparator);
+			if ((colKey < 0) || (colValue < 0)) {
+				log.writeln("Attribute names " + colKeyName + ", " + colValueName + " are not found in the input data! No values can be upserted from " + dataset + ".");
+				return null;
+			}
+		}
+
+		Map<String, Double> delta;
+		if (mountConfig.operation.equalsIgnoreCase("temporal_topk")) {
+			DateTimeReader temporalReader = new DateTimeReader();
+			if (jdbcConn != null)
+				delta = temporalReader.importFromJdbcTable(dataset, colKeyName, colValueName, jdbcConn, log);
+			else
+				delta = temporalReader.importFromCsvFile(dataset, maxLines, colValue, colKey, columnSeparator, header, log);
+		}
+		else {
+			DoubleNumReader doubleNumReader = new DoubleNumReader();
+			if (jdbcConn != null)
+				delta = doubleNumReader.importFromJdbcTable(dataset, colKeyName, colValueName, jdbcConn, log);
+			else
+				delta = doubleNumReader.importFromCsvFile(dataset, maxLines, colValue, colKey, columnSeparator, header, log);
+		}
+
+		return delta;
+	}
+
+
+	/**
+	 * Reads the sets of tokens of a categorical or textual attribute from a dataset that will be upserted into an attribute already mounted.
+	 * @param mountConfig  Configuration for reading the attribute values.
+	 * @param id  Identifier of the dataset with the values to upsert (e.g., a CSV file with changed rows or a database view).
+	 * @param jdbcConn  Specifications for the JDBC connection to be used for retrieving attribute values; null, if values are read from a CSV file.
+	 * @return  A dictionary of (entity, set of tokens) pairs; null, if the specified columns cannot be found.
+	 */
+	public Map<String, TokenSet> readTokenDelta(MountSpecs mountConfig, DatasetIdentifier id, JdbcConnector jdbcConn) {
+
+		// file parsing
+		String columnSeparator = Constants.COLUMN_SEPARATOR;
+		if ((mountConfig.separator != null) && !mountConfig.separator.equals(""))
+			columnSeparator = mountConfig.separator;
+		String tokenDelimiter = Constants.TOKEN_DELIMITER;
+		if ((mountConfig.token_delimiter != null) && !mountConfig.token_delimiter.equals(""))
+			tokenDelimiter = mountConfig.token_delimiter;
+		boolean header = (mountConfig.header != null) && mountConfig.header;
+		int maxLines = (mountConfig.max_lines != null) ? mountConfig.max_lines : -1;
+		int qgram = (mountConfig.qgram != null) ? mountConfig.qgram : 0;
+
+		String dataset = id.getDatasetName();
+		String colKeyName = mountConfig.key_column;
+		String colValueName = (mountConfig.search_column != null) ? mountConfig.search_column.toString() : id.getValueAttribute();
+
+		// Specification of the columns containing identifiers and values
+		int colKey = Constants.KEY_COLUMN;
+		int colValue = Constants.SEARCH_COLUMN;
+		if (jdbcConn == null) {
+			if (colKeyName != null) {
+				colKey = myAssistant.getColumnNumber(dataset, colKeyName, columnSeparator);
+				header = true;   // Expect that header exists in the input CSV dataset
+			}
+			if (header)
+				colValue = myAssistant.getColumnNumber(dataset, colValueName, columnSeparator);
+			if ((colKey < 0) || (colValue < 0)) {
+				log.writeln("Attribute names " + colKeyName + ", " + colValueName + " are not found in the input data! No values can be upserted from " + dataset + ".");
+				return null;
+			}
+		}
+
+		TokenSetCollectionReader reader = new TokenSetCollectionReader();
+		TokenSetCollection delta;
+		if (jdbcConn != null)
+			delta = reader.importFromJdbcTable(dataset, colKeyName, colValueName, tokenDelimiter, jdbcConn, qgram, null, log);
+		else
+			delta = reader.importFromCsvFile(dataset, colKey, colValue, columnSeparator, tokenDelimiter, maxLines, header, qgram, null, log);
+
+		return delta.sets;
+	}
+
+
+	/**
+	 * Reads the locations of a spatial attribute from a dataset that will be upserted into an attribute already mounted.
+	 * An empty geometry (e.g., POINT EMPTY in WKT) or NaN coordinates signify that the location of its entity should be deleted.
+	 * @param mountConfig  Configuration for reading the attribute values.
+	 * @param id  Identifier of the dataset with the values to upsert (e.g., a CSV file with changed rows or a database view).
+	 * @param jdbcConn  Specifications for the JDBC connection to be used for retrieving attribute values; null, if values are read from a CSV file.
+	 * @return  A dictionary of (entity, geometry) pairs; null, if the specified columns cannot be found.
+	 */
+	public Map<String, Geometry> readLocationDelta(MountSpecs mountConfig, DatasetIdentifier id, JdbcConnector jdbcConn) {
+
+		// file parsing
+		String columnSeparator = Constants.COLUMN_SEPARATOR;
+		if ((mountConfig.separator != null) && !mountConfig.separator.equals(""))
+			columnSeparator = mountConfig.separator;
+		boolean header = (mountConfig.header != null) && mountConfig.header;
+		int maxLines = (mountConfig.max_lines != null) ? mountConfig.max_lines : -1;
+
+		String dataset = id.getDatasetName();
+		String colKeyName = mountConfig.key_column;
+
+		// Specification of the column containing identifiers
+		int colKey = Constants.KEY_COLUMN;
+		if ((jdbcConn == null) && (colKeyName != null)) {
+			colKey = myAssistant.getColumnNumber(dataset, colKeyName, columnSeparator);
+			header = true;   // Expect that header exists in the input CSV dataset
+		}
+
+		LocationReader locReader = new LocationReader();
+		Map<String, Geometry> delta = new HashMap<String, Geometry>();
+		if (mountConfig.search_column instanceof ArrayList) {
+			// Two coordinate values specified for (POINT) locations
+			List<String> colCoords = new ArrayList<String>();
+			for (Object col: (Iterable<?>) mountConfig.search_column)
+				colCoords.add(col.toString());
+			if (jdbcConn != null)
+				delta = locReader.importFromJdbcTable(dataset, colKeyName, colCoords.get(0), colCoords.get(1), jdbcConn, delta, log);
+			else {
+				int colLongitude = myAssistant.getColumnNumber(dataset, colCoords.get(0), columnSeparator);
+				int colLatitude = myAssistant.getColumnNumber(dataset, colCoords.get(1), columnSeparator);
+				if ((colKey < 0) || (colLongitude < 0) || (colLatitude < 0)) {
+					log.writeln("Attribute names " + colKeyName + ", " + colCoords + " are not found in the input data! No locations can be upserted from " + dataset + ".");
+					return null;
+				}
+				delta = locReader.importFromCsvFile(dataset, maxLines, colKey, colLongitude, colLatitude, columnSeparator, true, delta, log);
+			}
+		}
+		else {
+			// Specification of the column containing geometries
+			String colValueName = (mountConfig.search_column != null) ? mountConfig.search_column.toString() : id.getValueAttribute();
+			int colValue = Constants.SEARCH_COLUMN;
+			if (jdbcConn == null) {
+				if (header)
+					colValue = myAssistant.getColumnNumber(dataset, colValueName, columnSeparator);
+				if ((colKey < 0) || (colValue < 0)) {
+					log.writeln("Attribute names " + colKeyName + ", " + colValueName + " are not found in the input data! No locations can be upserted from " + dataset + ".");
+					return null;
+				}
+			}
+			if (jdbcConn != null)
+				delta = locReader.importFromJdbcTable(dataset, colKeyName, colValueName, jdbcConn, delta, log);
+			else
+				delta = locReader.importFromCsvFile(dataset, maxLines, colKey, colValue, columnSeparator, header, delta, log);
+		}
+
+		return delta;
+	}
+
+
+	/**
+	 * Upserts (entity, set of tokens) pairs into a categorical or textual attribute already mounted, updating copies of its lookup map and its inverted index.
+	 * Upserted sets are kept in the spill-over segment of the inverted index until it gets rebuilt; see rebuildInvertedIndex().
+	 * The structures in use are not modified, so searches may keep running against them until the new version gets published; see publish().
+	 * @param target  Identifier of the mounted attribute.
+	 * @param delta  The (entity, set of tokens) pairs to be inserted or updated.
+	 * @return  The new version of the structures of the attribute.
+	 */
+	@SuppressWarnings("unchecked")
+	public AttributeVersion upsertTokenSets(DatasetIdentifier target, Map<String, TokenSet> delta) {
+
+		long duration = System.nanoTime();
+
+		// Sets are upserted into copies, whereas unchanged sets and the base collection of the index are shared
+		Map<String, TokenSet> targetData = new HashMap<String, TokenSet>((Map<String, TokenSet>) datasets.get(target.getHashKey()));
+		DenseLookup<TokenSet> denseLookup = (denseLookups.get(target.getHashKey()) != null) ? new DenseLookup<TokenSet>((DenseLookup<TokenSet>) denseLookups.get(target.getHashKey())) : null;
+		InvertedIndex index = (indices.get(target.getHashKey()) != null) ? new InvertedIndex((InvertedIndex) indices.get(target.getHashKey())) : null;
+
+		// New entities also get their dense identifiers
+		entities.encodeAll(delta.keySet());
+
+		int numInserted = 0, numUpdated = 0;
+		for (Map.Entry<String, TokenSet> entry : delta.entrySet()) {
+			// Sets to upsert are interned into the dictionary of the target attribute
+			if (target.getTokenDictionary() != null)
+				entry.getValue().intern(target.getTokenDictionary());
+			TokenSet oldSet = targetData.put(entry.getKey(), entry.getValue());
+			if (denseLookup != null)
+				denseLookup.put(entities.getId(entry.getKey()), entry.getValue());
+			if (oldSet == null)
+				numInserted++;
+			else if (!oldSet.tokens.equals(entry.getValue().tokens))
+				numUpdated++;
+			else
+				continue;   // Unchanged tokens
+			if (index != null)
+				index.upsert(entry.getValue());
+		}
+
+		duration = System.nanoTime() - duration;
+		log.writeln("Upserted " + delta.size() + " values into attribute " + target.getValueAttribute() + " (" + numInserted + " inserted, " + numUpdated + " updated) in " + duration / 1000000000.0 + " sec.");
+		if (index != null)
+			log.writeln("Spill-over segment of the inverted index holds " + index.getNumSpilled() + " sets.");
+		
+		return new AttributeVersion(targetData, index, denseLookup, null);
+	}
+
+
+	/**
+	 * Builds a new inverted index over a snapshot of all sets of tokens of a categorical or textual attribute, so that its spill-over segment gets merged.
+	 * The snapshot must be taken while no upsert is running, but the index can be built concurrently with searches and upserts against the current one.
+	 * @param snapshot  A copy of all sets of tokens of the attribute.
+	 * @param compressed  Indicates whether the inverted lists should be compressed.
+	 * @return  The new inverted index.
+	 */
+	public InvertedIndex rebuildInvertedIndex(TokenSetCollection snapshot, boolean compressed) {
+
+		TokenSetCollectionReader reader = new TokenSetCollectionReader();
+		return reader.buildInvertedIndex(snapshot, compressed, log);
+	}
+
+
+	/**
+	 * Upserts (entity, geometry) pairs into a spatial attribute already mounted, updating copies of its lookup and its spatial index.
+	 * Locations are inserted, moved or deleted (if the geometry is empty or has NaN coordinates) in a delta R-tree on top of the static index, which remains in use until it gets rebuilt; see rebuildSpatialIndex().
+	 * The structures in use are not modified, so searches may keep running against them until the new version gets published; see publish().
+	 * @param target  Identifier of the mounted attribute.
+	 * @param delta  The (entity, geometry) pairs to be inserted, updated or deleted.
+	 * @return  The new version of the structures of the attribute.
+	 */
+	@SuppressWarnings("unchecked")
+	public AttributeVersion upsertLocations(DatasetIdentifier target, Map<String, Geometry> delta) {
+
+		long duration = System.nanoTime();
+
+		// Locations are upserted into copies, whereas the static index is shared
+		Map<String, Geometry> targetData = snapshotLocations(target);
+		ISpatialIndex<String, Location> index = (ISpatialIndex<String, Location>) indices.get(target.getHashKey());
+		// A store of points serves as its own dense look-up
+		DenseLookup<Geometry> denseLookup = (denseLookups.get(target.getHashKey()) instanceof DenseLookup) ? new DenseLookup<Geometry>((DenseLookup<Geometry>) denseLookups.get(target.getHashKey())) : null;
+
+		// The static index gets a delta R-tree on the first upsert
+		DeltaSpatialIndex<String, Location> deltaIndex = null;
+		if (index != null) {
+			DeltaSpatialIndex<String, Location> current = (index instanceof DeltaSpatialIndex) ? (DeltaSpatialIndex<String, Location>) index : new DeltaSpatialIndex<String, Location>(index);
+			deltaIndex = new DeltaSpatialIndex<String, Location>(current, (targetData instanceof PointStore) ? (PointStore) targetData : null);
+		}
+
+		// New entities also get their dense identifiers
+		entities.encodeAll(delta.keySet());
+
+		int numInserted = 0, numUpdated = 0, numDeleted = 0, numSkipped = 0;
+		for (Map.Entry<String, Geometry> entry : delta.entrySet()) {
+			Geometry g = entry.getValue();
+			Geometry oldLoc;
+			boolean deleted = (g != null) && (g.isEmpty() || Double.isNaN(g.getCoordinate().x) || Double.isNaN(g.getCoordinate().y));
+			if ((g == null) || ((targetData instanceof PointStore) && !deleted && !(g instanceof org.locationtech.jts.geom.Point))) {
+				numSkipped++;   // Not a valid geometry for this attribute
+				continue;
+			}
+			else if (deleted) {
+				oldLoc = targetData.remove(entry.getKey());
+				if (oldLoc == null)
+					continue;   // No location to delete
+				numDeleted++;
+				g = null;
+			}
+			else {
+				oldLoc = targetData.put(entry.getKey(), g);
+				if (oldLoc == null)
+					numInserted++;
+				else if (!oldLoc.equalsExact(g))
+					numUpdated++;
+				else
+					continue;   // Unchanged location
+				PreparedLocation.prepare(g);
+			}
+			if (denseLookup != null)
+				denseLookup.put(entities.getId(entry.getKey()), g);
+			if (deltaIndex != null)
+				deltaIndex.upsert(new Location(entry.getKey(), g), oldLoc != null);
+		}
+		if (deltaIndex != null)
+			deltaIndex.build();
+
+		duration = System.nanoTime() - duration;
+		log.writeln("Upserted " + delta.size() + " locations into attribute " + target.getValueAttribute() + " (" + numInserted + " inserted, " + numUpdated + " updated, " + numDeleted + " deleted) in " + duration / 1000000000.0 + " sec.");
+		if (numSkipped > 0)
+			log.writeln("WARNING: " + numSkipped + " locations on " + target.getValueAttribute() + " are not valid geometries for this attribute and have been skipped.");
+		if (deltaIndex != null)
+			log.writeln("Delta R-tree of the spatial index holds the changed locations of " + deltaIndex.getNumChanged() + " entities.");
+		
+		return new AttributeVersion(targetData, deltaIndex, (targetData instanceof PointStore) ? (PointStore) targetData : denseLookup, null);
+	}
+
+
+	/**
+	 * Takes a snapshot of all locations of a spatial attribute, so that locations can be upserted into it or its static index can be rebuilt while searches keep running.
+	 * @param target  Identifier of the mounted attribute.
+	 * @return  A copy of the lookup of (key,geometry) values, i.e., a hash map or a columnar store of points.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Geometry> snapshotLocations(DatasetIdentifier target) {
+
+		Map<String, Geometry> targetData = (Map<String, Geometry>) datasets.get(target.getHashKey());
+		if (targetData instanceof PointStore)
+			return ((PointStore) targetData).copy();
+		return new HashMap<String, Geometry>(targetData);
+	}
+
+
+	/**
+	 * Builds a new static index over a snapshot of all locations of a spatial attribute, so that the delta R-tree of its current index gets merged.
+	 * The index can be built concurrently with searches and upserts against the current one. 
+	 * A packed index over points refers to the snapshot until the upserts applied meanwhile get replayed into it; then it switches to the columnar store currently in use, so that the snapshot can be discarded.
+	 * @param snapshot  A copy of all locations of the attribute, as taken by snapshotLocations().
+	 * @return  The new index with an empty delta.
+	 */
+	public DeltaSpatialIndex<String, Location> rebuildSpatialIndex(Map<String, Geometry> snapshot) {
+
+		LocationReader locReader = new LocationReader();
+		ISpatialIndex<String, Location> index;
+		if (snapshot instanceof PointStore)
+			index = locReader.buildPointIndex((PointStore) snapshot, log);
+		else
+			index = locReader.buildIndex(snapshot, log);
+
+		return new DeltaSpatialIndex<String, Location>(index);
+	}
+
+
+	/**
+	 * Deletes the snapshot of the given attribute, once its values get modified; the attribute will be ingested from its data source when mounted again.
+	 * Upserts are not persisted, so the snapshot must keep mirroring the data source instead of the modified values in memory.
+	 * @param target  Identifier of the mounted attribute.
+	 */
+	private void invalidateSnapshot(DatasetIdentifier target) {
+
+		if (target.getSnapshot() == null)
+			return;
+		try {
+			if (Files.deleteIfExists(Paths.get(target.getSnapshot())))
+				log.writeln("Snapshot at " + target.getSnapshot() + " deleted, as attribute " + target.getValueAttribute() + " has been modified.");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		target.setSnapshot(null);
+	}
+
+
+	/**
+	 * Upserts (entity, value) pairs into a numerical or date/time attribute already mounted, updating copies of its lookup map, its index and its normalization.
+	 * A B+-tree is never modified; values are moved in a sorted delta on top of it, which gets copied along with the lookups, so the cost of the index depends only on the size of the delta.
+	 * Once the delta gets large, the B+-tree is bulk loaded again from all values. A sorted array index is replaced by a merged copy.
+	 * Indices always hold original values, so normalization is not applied against the keys and only its statistics need be adjusted per upserted pair.
+	 * Statistics are only taken from the index (instead of all values) in case the MIN or MAX value of the attribute has been deleted.
+	 * The structures in use are not modified, so searches may keep running against them until the new version gets published; see publish().
+	 * @param target  Identifier of the mounted attribute.
+	 * @param delta  The (entity, value) pairs to be inserted or updated.
+	 * @return  The new version of the structures of the attribute.
+	 */
+	@SuppressWarnings("unchecked")
+	public AttributeVersion upsert(DatasetIdentifier target, Map<String, Double> delta) {
+
+		long duration = System.nanoTime();
+
+		// Values are upserted into copies of the lookups
+		Map<String, Double> targetData = new HashMap<String, Double>((Map<String, Double>) datasets.get(target.getHashKey()));
+		DenseLookup<Double> denseLookup = (denseLookups.get(target.getHashKey()) != null) ? new DenseLookup<Double>((DenseLookup<Double>) denseLookups.get(target.getHashKey())) : null;
+		INumericalIndex<Double, String> index = (INumericalIndex<Double, String>) indices.get(target.getHashKey());
+		INormal normal = normalizations.get(target.getHashKey());
+		DoubleNumReader stats = (normal != null) ? statistics.get(target.getHashKey()) : null;
+		boolean extremeDeleted = false;
+
+		// The B+-tree gets a sorted delta on the first upsert
+		DeltaNumericalIndex<Double, String> deltaIndex = null;
+		if (index instanceof BPlusTree)
+			deltaIndex = new DeltaNumericalIndex<Double, String>(index, targetData.size());
+		else if (index instanceof DeltaNumericalIndex)
+			deltaIndex = new DeltaNumericalIndex<Double, String>((DeltaNumericalIndex<Double, String>) index);
+
+		// New entities also get their dense identifiers
+		entities.encodeAll(delta.keySet());
+
+		// A snapshot of this attribute no longer reflects its values, so it must not be mounted again
+		invalidateSnapshot(target);
+
+		int numInserted = 0, numUpdated = 0;
+		for (Map.Entry<String, Double> entry : delta.entrySet()) {
+			Double oldVal = targetData.put(entry.getKey(), entry.getValue());
+			if (denseLookup != null)
+				denseLookup.put(entities.getId(entry.getKey()), entry.getValue());
+			if (oldVal == null)
+				numInserted++;
+			else if (!oldVal.equals(entry.getValue()))
+				numUpdated++;
+			else
+				continue;   // Unchanged value
+			// Original values are used as keys in the delta
+			if (deltaIndex != null)
+				deltaIndex.upsert(entry.getValue(), entry.getKey(), oldVal != null);
+			// Statistics used in normalization are adjusted without scanning all values
+			if (stats != null) {
+				if (oldVal != null)
+					extremeDeleted |= stats.deleteValue(oldVal);
+				stats.insertValue(entry.getValue());
+			}
+		}
+
+		if ((numInserted + numUpdated > 0) && (index != null)) {
+			if (index instanceof SortedArrayIndex)
+				index = ((SortedArrayIndex) index).upsert(delta);
+			else if (deltaIndex != null) {
+				index = deltaIndex;
+				// A large delta is merged by bulk loading the B+-tree again
+				double ratio = Double.parseDouble(System.getProperty("numerical_delta_merge_ratio", String.valueOf(Constants.NUMERICAL_DELTA_MERGE_RATIO)));
+				int minSize = Integer.getInteger("numerical_delta_merge_min", Constants.NUMERICAL_DELTA_MERGE_MIN);
+				if (deltaIndex.needsMerge(ratio, minSize)) {
+					log.writeln("Merging " + deltaIndex.getNumChanged() + " upserted values into the index on attribute " + target.getValueAttribute() + ".");
+					double fillFactor = Double.parseDouble(System.getProperty("btree_fill_factor", String.valueOf(Constants.BTREE_FILL_FACTOR)));
+					index = new DoubleNumReader().buildIndex(targetData, fillFactor, log);
+				}
+			}
+			
+			if (stats != null) {
+				// A deleted MIN or MAX is replaced by the extreme key in the index, which holds the original values
+				if (extremeDeleted) {
+					stats.minVal = index.calcMinKey();
+					stats.maxVal = index.calcMaxKey();
+				}
+				stats.adjustAlgebraicStats();
+				log.writeln("Statistics: count: " + stats.count + ", min: " + stats.minVal + ", max: " + stats.maxVal + ", avg: " + stats.avgVal + ", stdev: " + stats.stDev + ".");
+				// Normalization takes into account the updated statistics
+				if (normal instanceof ZNormal)
+					normal = new ZNormal(stats.avgVal, stats.stDev);
+				else if (normal instanceof UnityNormal)
+					normal = new UnityNormal(stats.avgVal, stats.minVal, stats.maxVal);
+			}
+		}
+
+		duration = System.nanoTime() - duration;
+		log.writeln("Upserted " + delta.size() + " values into attribute " + target.getValueAttribute() + " (" + numInserted + " inserted, " + numUpdated + " updated) in " + duration / 1000000000.0 + " sec.");
+		reportNumericalIndex(index);
+		
+		return new AttributeVersion(targetData, index, denseLookup, normal);
+	}
+
+
+	/**
+	 * Replaces the structures of an attribute with a new version built by an upsert, so that they are used by any search starting afterwards.
+	 * Searches already running keep the structures they have obtained, which are not modified.
+	 * CAUTION! Versions of several attributes upserted together should be published while no search obtains the structures, so that it involves either none or all of them.
+	 * @param target  Identifier of the mounted attribute.
+	 * @param version  The new version of the structures of the attribute.
+	 */
+	public void publish(DatasetIdentifier target, AttributeVersion version) {
+
+		datasets.put(target.getHashKey(), version.data);
+		if (version.index != null)
+			indices.put(target.getHashKey(), version.index);
+		if (version.denseLookup != null)
+			denseLookups.put(target.getHashKey(), version.denseLookup);
+		if (version.normal != null)
+			normalizations.put(target.getHashKey(), version.normal);
 	}
 	        
 	// GETTER methods for all created structures  
@@ -550,10 +1164,18 @@ public class DataIngestor {
 		return indices;
 	}
 	
+	public Map<String, IDenseLookup<?>> getDenseLookups() {
+		return denseLookups;
+	}
+	
 	public Map<String, INormal> getNormalizations() {
 		return normalizations;
 	}
 	
+	public Map<String, DoubleNumReader> getStatistics() {
+		return statistics;
+	}
+	
 	public List<String> getPivotAttrs() {
 		return pivotAttrs;
 	}
@@ -0,0 +1,66 @@
+package eu.smartdatalake.simsearch.manager.ingested;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+
+/**
+ * Look-up of the values of an ingested attribute by the dense identifiers of entities, maintained alongside its dictionary of (key, value) pairs.
+ * Each value is referenced at the position of its dense identifier in an array, so random access involves no hashing of the original keys.
+ * Values themselves are not copied; only one reference per entity is kept in addition to the dictionary.
+ * @param <V>  The attribute values (e.g., numbers, geometries, sets of tokens).
+ */
+public class DenseLookup<V> implements IDenseLookup<V> {
+
+	Object[] values;		// Value of each entity at the position of its dense identifier; null, if no value is available
+
+	/**
+	 * Constructor
+	 * @param data  The dictionary of (key, value) pairs of the attribute.
+	 * @param entities  Dictionary of dense integer identifiers assigned to entities; all keys in the data must have been encoded.
+	 */
+	public DenseLookup(Map<?, ? extends V> data, EntityDictionary entities) {
+
+		values = new Object[Math.max(16, entities.size())];
+		for (Map.Entry<?, ? extends V> entry : data.entrySet())
+			put(entities.getId(entry.getKey().toString()), entry.getValue());
+	}
+
+
+	/**
+	 * Copy constructor; the copy can be modified while the original remains in use.
+	 * @param other  The look-up to copy.
+	 */
+	public DenseLookup(DenseLookup<V> other) {
+
+		values = Arrays.copyOf(other.values, other.values.length);
+	}
+
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V getValue(int id) {
+
+		return ((id >= 0) && (id < values.length)) ? (V) values[id] : null;
+	}
+
+
+	/**
+	 * Stores the value of the given entity, replacing any value previously stored for it.
+	 * @param id  The dense identifier of an entity.
+	 * @param val  The attribute value of this entity; null, if its value gets removed.
+	 */
+	public void put(int id, V val) {
+
+		if (id < 0)
+			return;
+		if (id >= values.length) {
+			if (val == null)
+				return;
+			values = Arrays.copyOf(values, Math.max(id + 1, 2 * values.length));
+		}
+		values[id] = val;
+	}
+
+}
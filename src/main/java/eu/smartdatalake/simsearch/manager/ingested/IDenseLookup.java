@@ -0,0 +1,17 @@
+package eu.smartdatalake.simsearch.manager.ingested;
+
+
+/**
+ * Interface for look-ups of the values of an ingested attribute by the dense identifiers of entities, as used in random access during rank aggregation.
+ * @param <V>  The attribute values (e.g., numbers, geometries, sets of tokens).
+ */
+public interface IDenseLookup<V> {
+
+	/**
+	 * Provides the value of the given entity in this attribute.
+	 * @param id  The dense identifier of an entity.
+	 * @return  The attribute value of this entity; null, if no value is available.
+	 */
+	public V getValue(int id);
+
+}
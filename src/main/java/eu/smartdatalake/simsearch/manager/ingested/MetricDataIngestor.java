@@ -11,6 +11,7 @@ import java.util.TreeMap;
 import eu.smartdatalake.simsearch.Logger;
 import eu.smartdatalake.simsearch.engine.QueryValueParser;
 import eu.smartdatalake.simsearch.manager.DataType.Type;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenInterner;
 import eu.smartdatalake.simsearch.manager.ingested.temporal.DateTimeParser;
 import eu.smartdatalake.simsearch.pivoting.rtree.geometry.Point;
 
@@ -97,10 +98,11 @@ public class MetricDataIngestor {
 	 * @param columnSeparator  The separator character used between attribute values in the CSV file.
 	 * @param tokenDelimiter  Delimiter character between tokens in an attribute value.
 	 * @param header  Boolean indicating whether the first line contains attribute names.
+	 * @param dictionary  Dictionary for interning tokens (for Jaccard distances); if null, values are parsed as numbers.
 	 * @param log  Handle to the logger for statistics and issues over the input data.
 	 * @return  A hash map of (key,point) values.
 	 */	
-	public TreeMap<String, Point> importFromCsvFile(String inputFile, int colKey, Integer[] colValues, String columnSeparator, String tokenDelimiter, int maxLines, boolean header, Logger log) {
+	public TreeMap<String, Point> importFromCsvFile(String inputFile, int colKey, Integer[] colValues, String columnSeparator, String tokenDelimiter, int maxLines, boolean header, TokenInterner dictionary, Logger log) {
 
 		TreeMap<String, Point> dict = new TreeMap<String, Point>();
 		
@@ -156,6 +158,8 @@ public class MetricDataIngestor {
                  	if (tokens.length > 0) {
                  		if (dateParser != null) // Special handling for date/time values: conversion to epoch
                  			p = Point.create(new double[]{dateParser.parseDateTimeToEpoch(tokens[0])});
+                 		else if (dictionary != null) // Sets of tokens: their sorted integers become the ordinates
+                 			p = Point.create(Arrays.stream(dictionary.intern(myValues)).asDoubleStream().toArray());
                  		else
                  			p = Point.create(Arrays.stream(tokens).mapToDouble(Double::parseDouble).toArray());
  						dict.put(columns[colKey], p);
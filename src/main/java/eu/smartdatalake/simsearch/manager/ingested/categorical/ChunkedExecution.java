@@ -0,0 +1,162 @@
+package eu.smartdatalake.simsearch.manager.ingested.categorical;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import eu.smartdatalake.simsearch.Constants;
+
+/**
+ * Processes a range of positions (e.g., lines or sets of tokens) split into contiguous chunks, which are handled concurrently.
+ * As chunks follow the original order, their partial results can be combined so that the outcome is identical to that of a sequential execution.
+ * All chunks (and parallel sorts) are executed by a single pool of threads, shared by every ingestion and created once needed; indices get also rebuilt in the background by this pool.
+ * Its size may be specified with system property "ingest_pool_size"; otherwise, all available processors are used.
+ */
+public class ChunkedExecution {
+
+	public static final int MIN_CHUNK_SIZE = 1 << 10;	// Each chunk contains at least this many positions (lines or sets)
+
+	private static ForkJoinPool pool = null;
+
+	/**
+	 * Task applied on each chunk of positions.
+	 */
+	public interface ChunkTask {
+
+		/**
+		 * Processes the positions of a chunk.
+		 * @param chunk  The ordinal number of this chunk.
+		 * @param from  The first position in this chunk (inclusive).
+		 * @param to  The last position in this chunk (exclusive).
+		 */
+		void process(int chunk, int from, int to);
+	}
+
+
+	/**
+	 * Provides the pool of threads used in ingestion; it is created on the first call.
+	 * @return  The shared pool of threads.
+	 */
+	private static synchronized ForkJoinPool getPool() {
+
+		if (pool == null) {
+			int numThreads = Math.max(1, Integer.getInteger("ingest_pool_size", Constants.INGEST_POOL_SIZE));
+			pool = new ForkJoinPool(numThreads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+				@Override
+				public ForkJoinWorkerThread newThread(ForkJoinPool p) {
+					ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+					t.setName("simsearch-ingest-" + t.getPoolIndex());
+					return t;
+				}
+			}, null, false);
+		}
+		return pool;
+	}
+
+
+	/**
+	 * Provides the number of chunks to be used for the given number of positions; each chunk is at least MIN_CHUNK_SIZE positions long.
+	 * @param size  The number of positions.
+	 * @param numThreads  The maximum number of threads.
+	 * @return  The number of chunks; at least 1.
+	 */
+	public static int numChunks(int size, int numThreads) {
+		return Math.max(1, Math.min(numThreads, size / MIN_CHUNK_SIZE));
+	}
+
+
+	/**
+	 * Provides the first position of the given chunk.
+	 * @param chunk  The ordinal number of the chunk; if equal to the number of chunks, the end of the range is returned.
+	 * @param size  The number of positions.
+	 * @param numChunks  The number of chunks.
+	 * @return  The first position in this chunk.
+	 */
+	public static int start(int chunk, int size, int numChunks) {
+		return (int) ((long) size * chunk / numChunks);
+	}
+
+
+	/**
+	 * Applies the given task on each chunk and waits until all chunks have been processed.
+	 * The first chunk is processed in the calling thread, the others by the shared pool; a single chunk is processed in the calling thread only.
+	 * @param size  The number of positions.
+	 * @param numChunks  The number of chunks, as provided by numChunks().
+	 * @param task  The task to apply on each chunk.
+	 */
+	public static void run(final int size, final int numChunks, final ChunkTask task) {
+
+		if (numChunks <= 1) {
+			task.process(0, 0, size);
+			return;
+		}
+
+		final Throwable[] errors = new Throwable[numChunks];
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[numChunks];
+		for (int c = 1; c < numChunks; c++) {
+			final int chunk = c;
+			tasks[c] = getPool().submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.process(chunk, start(chunk, size, numChunks), start(chunk + 1, size, numChunks));
+					} catch (Throwable e) {
+						errors[chunk] = e;
+					}
+				}
+			});
+		}
+
+		try {
+			task.process(0, 0, start(1, size, numChunks));
+		} catch (Throwable e) {
+			errors[0] = e;
+		}
+
+		// Wait for the other chunks; failures are already captured per chunk
+		for (int c = 1; c < numChunks; c++)
+			tasks[c].join();
+
+		// Report the first failure, as the results would be incomplete
+		for (Throwable e : errors) {
+			if (e != null)
+				throw new RuntimeException(e);
+		}
+	}
+
+
+	/**
+	 * Executes the given task (e.g., rebuilding an index once updated) asynchronously in the shared pool, so that no thread gets created per task.
+	 * Any chunks or sorts invoked by this task are also executed by the shared pool.
+	 * @param task  The task to execute; it must handle any failures itself.
+	 */
+	public static void submit(Runnable task) {
+
+		getPool().execute(task);
+	}
+
+
+	/**
+	 * Sorts the given array in the shared pool, so that ingestion never occupies the common pool of the JVM.
+	 * The array is sorted in the calling thread if a single thread is requested; the outcome is identical in either case.
+	 * @param a  The array to be sorted.
+	 * @param numThreads  The maximum number of threads.
+	 */
+	public static <T extends Comparable<? super T>> void sort(final T[] a, int numThreads) {
+
+		if ((numThreads <= 1) || (a.length < 2 * MIN_CHUNK_SIZE)) {
+			Arrays.sort(a);
+			return;
+		}
+
+		// The subtasks of a parallel sort are forked in the pool of the thread that invokes it
+		getPool().submit(new Runnable() {
+			@Override
+			public void run() {
+				Arrays.parallelSort(a);
+			}
+		}).join();
+	}
+
+}
@@ -2,23 +2,56 @@ package eu.smartdatalake.simsearch.manager.ingested.categorical;
 
 import java.util.Arrays;
 
+import gnu.trove.iterator.TObjectIntIterator;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 
 public class CollectionTransformer {
 
+	int numThreads;   // Number of threads used in transforming large collections; the outcome is identical to a sequential transformation
+
+	/**
+	 * Constructor
+	 * Collections are transformed in a single thread.
+	 */
+	public CollectionTransformer() {
+		this(1);
+	}
+
+	/**
+	 * Constructor
+	 * @param numThreads  The number of threads to be used in transforming collections.
+	 */
+	public CollectionTransformer(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
 	// Provides the document frequency of each token
 	public TokenFrequencyPair[] calculateTokenFrequency(TokenSetCollection rawCollection) {
 
-		// Compute token frequencies
-		TObjectIntMap<String> tokenDict = new TObjectIntHashMap<String>();
-		int frequency = 0;
-		for (TokenSet set : rawCollection.sets.values()) {
-			for (String token : set.tokens) {
-				frequency = tokenDict.get(token);
-				frequency++;
-				tokenDict.put(token, frequency);
+		// Compute token frequencies; each chunk of sets is counted separately and the partial counts are summed up
+		final TokenSet[] rsets = rawCollection.sets.values().toArray(new TokenSet[0]);
+		int numChunks = ChunkedExecution.numChunks(rsets.length, numThreads);
+		@SuppressWarnings("unchecked")
+		final TObjectIntMap<String>[] partialDicts = new TObjectIntMap[numChunks];
+		ChunkedExecution.run(rsets.length, numChunks, new ChunkedExecution.ChunkTask() {
+			@Override
+			public void process(int chunk, int from, int to) {
+				TObjectIntMap<String> dict = new TObjectIntHashMap<String>();
+				for (int i = from; i < to; i++) {
+					for (String token : rsets[i].tokens)
+						dict.adjustOrPutValue(token, 1, 1);
+				}
+				partialDicts[chunk] = dict;
 			}
+		});
+		TObjectIntMap<String> tokenDict = partialDicts[0];
+		for (int c = 1; c < numChunks; c++) {
+			for (TObjectIntIterator<String> it = partialDicts[c].iterator(); it.hasNext(); ) {
+				it.advance();
+				tokenDict.adjustOrPutValue(it.key(), it.value(), it.value());
+			}
+			partialDicts[c] = null;
 		}
 
 		// Sort tokens by frequency
@@ -32,7 +65,8 @@ public class CollectionTransformer {
 			tfs[counter] = tf;
 			counter++;
 		}
-		Arrays.sort(tfs);
+		// Tokens are ordered by frequency and then alphabetically, so any sorting method provides the same order
+		ChunkedExecution.sort(tfs, numThreads);
 
 		return tfs;
 	}
@@ -81,24 +115,48 @@ public class CollectionTransformer {
 		return tokenDict;
 	}
 
-	public IntSetCollection transformCollection(TokenSetCollection rawCollection, TObjectIntMap<String> tokenDict) {
+	public IntSetCollection transformCollection(TokenSetCollection rawCollection, final TObjectIntMap<String> tokenDict) {
+
+		// Transform each raw set; chunks of sets are transformed concurrently, as the dictionary is only read
+		final TokenSet[] rsets = rawCollection.sets.values().toArray(new TokenSet[0]);
+		final IntSet[] tsets = new IntSet[rsets.length];
+		final boolean[] unknownTokens = new boolean[rsets.length];	// Marks sets having any tokens not in the dictionary
+		ChunkedExecution.run(rsets.length, ChunkedExecution.numChunks(rsets.length, numThreads), new ChunkedExecution.ChunkTask() {
+			@Override
+			public void process(int chunk, int from, int to) {
+				for (int i = from; i < to; i++) {
+					TokenSet rset = rsets[i];
+					String[] rtokens = rset.tokens.toArray(new String[0]);
+					IntSet tset = new IntSet();
+					tset.id = rset.id;
+					tset.originalString = rset.originalString;
+
+					// map string tokens to ints
+					tset.tokens = new int[rtokens.length];
+					for (int j = 0; j < rtokens.length; j++) {
+						if (tokenDict.containsKey(rtokens[j])) {
+							tset.tokens[j] = tokenDict.get(rtokens[j]);
+						} else {
+							unknownTokens[i] = true;
+						}
+					}
+
+					// sort int tokens
+					if (!unknownTokens[i])
+						Arrays.sort(tset.tokens);
+
+					tsets[i] = tset;
+				}
+			}
+		});
 
-		// Transform each raw set
-		TokenSet[] rsets = rawCollection.sets.values().toArray(new TokenSet[0]);
-		IntSet[] tsets = new IntSet[rsets.length];
-		IntSet tset;
-		TokenSet rset;
-		String[] rtokens;
+		// Tokens not in the dictionary are assigned negative integers in order of their first appearance, as in a sequential pass over the sets
 		TObjectIntMap<String> unknownTokenDict = new TObjectIntHashMap<String>();
 		for (int i = 0; i < rsets.length; i++) {
-			rset = rsets[i];
-			rtokens = rset.tokens.toArray(new String[0]);
-			tset = new IntSet();
-			tset.id = rset.id;
-			tset.originalString = rset.originalString;
-
-			// map string tokens to ints
-			tset.tokens = new int[rtokens.length];
+			if (!unknownTokens[i])
+				continue;
+			String[] rtokens = rsets[i].tokens.toArray(new String[0]);
+			IntSet tset = tsets[i];
 			for (int j = 0; j < rtokens.length; j++) {
 				if (tokenDict.containsKey(rtokens[j])) {
 					tset.tokens[j] = tokenDict.get(rtokens[j]);
@@ -112,8 +170,6 @@ public class CollectionTransformer {
 
 			// sort int tokens
 			Arrays.sort(tset.tokens);
-
-			tsets[i] = tset;
 		}
 
 		// Populate the collection
@@ -129,7 +185,8 @@ public class CollectionTransformer {
 //		collection.originalStrings = Arrays.stream(sortedList.toArray()).toArray(String[]::new);
 		collection.originalStrings = rawCollection.getOriginalStrings();
 		
-		Arrays.sort(tsets);
+		// Sets are ordered by length, tokens and identifier, so any sorting method provides the same order
+		ChunkedExecution.sort(tsets, numThreads);
 
 		collection.numTokens = tokenDict.size();
 		collection.sets = new int[tsets.length][];
@@ -0,0 +1,130 @@
+package eu.smartdatalake.simsearch.manager.ingested.categorical;
+
+import java.util.Arrays;
+
+/**
+ * Compressed representation of the inverted lists over a collection of sets of tokens.
+ * Each list holds the identifiers of the sets containing a token in ascending order, encoded as variable-length (7 bits per byte) deltas from the previous identifier.
+ * All lists are stored consecutively in a single byte array, so there is no per-token object overhead; a list can only be decoded sequentially.
+ */
+public class CompressedPostingLists {
+
+	private byte[] data;		// Encoded deltas of all lists, one list after the other
+	private int[] offsets;		// Position in the byte array where the list of each token starts; the last one marks the end of the data
+	private int[] sizes;		// Number of sets in the list of each token
+
+	/**
+	 * Constructor
+	 * Lists are encoded directly from the sets in two passes (sizing, then encoding), so no uncompressed lists are ever materialized.
+	 * @param sets  The sets of tokens (as integers); the position of each set is its identifier.
+	 * @param numTokens  The number of distinct tokens in the dictionary.
+	 */
+	public CompressedPostingLists(int[][] sets, int numTokens) {
+
+		sizes = new int[numTokens];
+		offsets = new int[numTokens + 1];
+		int[] last = new int[numTokens];	// Identifier most recently appended to the list of each token
+
+		// Size of each list in bytes
+		long[] numBytes = new long[numTokens];
+		for (int i = 0; i < sets.length; i++) {
+			for (int t : sets[i]) {
+				numBytes[t] += encodedLength(i - last[t]);
+				last[t] = i;
+				sizes[t]++;
+			}
+		}
+
+		long total = 0;
+		for (int t = 0; t < numTokens; t++) {
+			offsets[t] = (int) total;
+			total += numBytes[t];
+			if (total > Integer.MAX_VALUE - 8)
+				throw new IllegalArgumentException("Compressed inverted lists cannot exceed " + (Integer.MAX_VALUE - 8) + " bytes.");
+		}
+		offsets[numTokens] = (int) total;
+		numBytes = null;
+
+		// Encode each set identifier at the current end of the list of each of its tokens
+		data = new byte[(int) total];
+		int[] pos = new int[numTokens];
+		System.arraycopy(offsets, 0, pos, 0, numTokens);
+		Arrays.fill(last, 0);
+		for (int i = 0; i < sets.length; i++) {
+			for (int t : sets[i]) {
+				int delta = i - last[t];
+				while ((delta & ~0x7F) != 0) {
+					data[pos[t]++] = (byte) ((delta & 0x7F) | 0x80);
+					delta >>>= 7;
+				}
+				data[pos[t]++] = (byte) delta;
+				last[t] = i;
+			}
+		}
+	}
+
+
+	/**
+	 * Provides the number of bytes needed to encode the given delta.
+	 * @param delta  A non-negative difference between successive identifiers.
+	 * @return  The number of bytes (1 to 5).
+	 */
+	private static int encodedLength(int delta) {
+
+		int n = 1;
+		while ((delta & ~0x7F) != 0) {
+			delta >>>= 7;
+			n++;
+		}
+		return n;
+	}
+
+
+	/**
+	 * Provides the number of sets containing the given token.
+	 * @param token  The token (as integer).
+	 * @return  The size of its inverted list; 0, if the token is not in the dictionary.
+	 */
+	public int size(int token) {
+		return ((token < 0) || (token >= sizes.length)) ? 0 : sizes[token];
+	}
+
+
+	/**
+	 * Decodes the inverted list of the given token.
+	 * @param token  The token (as integer); it must be in the dictionary.
+	 * @param buffer  Array to hold the decoded identifiers; it is replaced with a larger one if it cannot hold the entire list.
+	 * @return  The array whose first size(token) elements are the identifiers of the sets containing this token in ascending order.
+	 */
+	public int[] decode(int token, int[] buffer) {
+
+		int n = sizes[token];
+		if ((buffer == null) || (buffer.length < n))
+			buffer = new int[Math.max(n, (buffer == null) ? 0 : 2 * buffer.length)];
+
+		int pos = offsets[token];
+		int id = 0;
+		for (int j = 0; j < n; j++) {
+			int b = data[pos++];
+			int delta = b & 0x7F;
+			for (int shift = 7; b < 0; shift += 7) {
+				b = data[pos++];
+				delta |= (b & 0x7F) << shift;
+			}
+			id += delta;
+			buffer[j] = id;
+		}
+
+		return buffer;
+	}
+
+
+	/**
+	 * Provides the approximate memory footprint of the compressed lists.
+	 * @return  The number of bytes occupied by the arrays.
+	 */
+	public long getMemoryFootprint() {
+		return data.length + 4L * (offsets.length + sizes.length);
+	}
+
+}
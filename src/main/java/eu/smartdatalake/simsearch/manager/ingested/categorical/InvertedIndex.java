@@ -1,23 +1,266 @@
 package eu.smartdatalake.simsearch.manager.ingested.categorical;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
 import eu.smartdatalake.simsearch.manager.ingested.Index;
 import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
 
 /** 
  * Wrapper of the inverted index facilities for categorical (set-based) similarity search.
+ * Inverted lists are kept either as plain arrays or compressed; in either case, they hold the identifiers of the sets containing each token in ascending order.
+ * Sets upserted after the index was built are kept in a spill-over segment with its own inverted lists; their identifiers follow those of the base collection.
+ * Tokens not known so far are appended to the dictionary, and any set superseded by an upsert is marked as removed.
+ * Upserts are applied against a copy of the index, which shares the base collection and its inverted lists, so that searches may continue against the original one.
+ * Once the spill-over segment gets large, the index should be rebuilt from all sets, so that the segment is merged into the base collection.
  */
 public class InvertedIndex implements Index<Object, Object> {
 
-	public TIntList[] idx;                 //Handle to the underlying inverted index (for categorical keyword search)
+	public int[][] idx;                    //Handle to the underlying inverted index (for categorical keyword search); null, if compressed
+
+	public CompressedPostingLists compressedIdx;   //Handle to the compressed inverted lists; null, if not compressed
 
 	public IntSetCollection transformedTargetCollection;
 	
 	public TObjectIntMap<String> tokenDictionary;
+	
+	// Spill-over segment with the sets upserted since this index was built
+	private List<TokenSet> spilledTokenSets;		// Upserted sets in order of arrival
+	private List<int[]> spilledSets;				// Upserted sets of tokens (as integers)
+	private TIntObjectMap<TIntList> spilledIdx;		// Inverted lists over the upserted sets
+	private TObjectIntMap<String> positions;		// Identifier of the current set of each entity; only kept once sets get upserted, and shared by all copies as it is only used by upserts against the latest one
+	private BitSet removed;							// Sets superseded by a subsequent upsert
+	private boolean merging;						// Indicates whether a merged index is currently being rebuilt
+	private boolean sharedDictionary;				// Indicates whether the token dictionary is shared with the index this one was copied from
+	private TIntSet ownLists;						// Tokens whose inverted lists over the spill-over segment are no longer shared with that index
+
+	/**
+	 * Constructor
+	 */
+	public InvertedIndex() {
+	}
+
+	/**
+	 * Copy constructor; the copy shares the base collection and its inverted lists, but can be upserted while searches continue against the original.
+	 * The spill-over segment is copied, except for its inverted lists, which are only copied once a set gets appended to them. 
+	 * The token dictionary is also copied only once a new token gets upserted. 
+	 * @param other  The index to copy.
+	 */
+	public InvertedIndex(InvertedIndex other) {
+
+		idx = other.idx;
+		compressedIdx = other.compressedIdx;
+		transformedTargetCollection = other.transformedTargetCollection;
+		tokenDictionary = other.tokenDictionary;
+		sharedDictionary = true;
+		positions = other.positions;
+		merging = other.merging;
+		if (other.spilledSets != null) {
+			spilledTokenSets = new ArrayList<TokenSet>(other.spilledTokenSets);
+			spilledSets = new ArrayList<int[]>(other.spilledSets);
+			spilledIdx = new TIntObjectHashMap<TIntList>(other.spilledIdx);
+			ownLists = new TIntHashSet();
+			removed = (BitSet) other.removed.clone();
+		}
+	}
 
 	public IntSetCollection getTransformedCollection(TokenSetCollection queryCollection) {
 		
 		CollectionTransformer transformer = new CollectionTransformer();
 		return transformer.transformCollection(queryCollection, this.tokenDictionary);
 	}
+	
+	/**
+	 * Provides the number of sets containing the given token.
+	 * @param token  The token (as integer).
+	 * @return  The size of its inverted list; 0, if the token is not in the dictionary.
+	 */
+	public int size(int token) {
+		
+		if (compressedIdx != null)
+			return compressedIdx.size(token);
+		return ((token < 0) || (token >= idx.length)) ? 0 : idx[token].length;
+	}
+	
+	/**
+	 * Provides the inverted list of the given token.
+	 * @param token  The token (as integer); it must be in the dictionary.
+	 * @param buffer  Array where a compressed list may be decoded; it is replaced with a larger one if it cannot hold the entire list.
+	 * @return  An array whose first size(token) elements are the identifiers of the sets containing this token in ascending order; it must not be modified.
+	 */
+	public int[] getPostings(int token, int[] buffer) {
+		
+		if (compressedIdx != null)
+			return compressedIdx.decode(token, buffer);
+		return idx[token];
+	}
+	
+	/**
+	 * Indicates whether the inverted lists are compressed.
+	 * @return  True, if the lists are compressed; otherwise, False.
+	 */
+	public boolean isCompressed() {
+		return (compressedIdx != null);
+	}
+	
+	/**
+	 * Inserts or updates the set of tokens of an entity; the new set is appended to the spill-over segment, while any previous one is marked as removed.
+	 * Tokens not in the dictionary are assigned new integers after all known ones, so the global order of tokens remains consistent for prefix filtering.
+	 * CAUTION! No search against this index must be running while it gets updated, so upserts should be applied against a copy of the index in use.
+	 * @param set  The set of tokens with the identifier of its entity.
+	 * @return  True, if the entity already had a set in the index; otherwise, False.
+	 */
+	public boolean upsert(TokenSet set) {
+		
+		// Positions of the sets in the base collection are only needed once an upsert occurs
+		if (positions == null) {
+			positions = new TObjectIntHashMap<String>(transformedTargetCollection.keys.length, 0.5f, -1);
+			for (int i = 0; i < transformedTargetCollection.keys.length; i++)
+				positions.put(transformedTargetCollection.keys[i], i);
+			spilledTokenSets = new ArrayList<TokenSet>();
+			spilledSets = new ArrayList<int[]>();
+			spilledIdx = new TIntObjectHashMap<TIntList>();
+			ownLists = new TIntHashSet();
+			removed = new BitSet();
+		}
+		
+		// Map string tokens to ints, extending the dictionary if necessary
+		int[] tokens = new int[set.tokens.size()];
+		int j = 0;
+		for (String token : set.tokens) {
+			if (!tokenDictionary.containsKey(token)) {
+				if (sharedDictionary) {
+					tokenDictionary = new TObjectIntHashMap<String>(tokenDictionary);
+					sharedDictionary = false;
+				}
+				tokenDictionary.put(token, tokenDictionary.size());
+			}
+			tokens[j++] = tokenDictionary.get(token);
+		}
+		Arrays.sort(tokens);
+		
+		int id = getNumSets();
+		spilledTokenSets.add(set);
+		spilledSets.add(tokens);
+		for (int t : tokens) {
+			TIntList list = spilledIdx.get(t);
+			if (list == null)
+				list = new TIntArrayList(4);
+			else if (!ownLists.contains(t))
+				list = new TIntArrayList(list);
+			if (ownLists.add(t))
+				spilledIdx.put(t, list);
+			list.add(id);
+		}
+		
+		int prev = positions.put(set.id, id);
+		if (prev >= 0)
+			removed.set(prev);
+		
+		return (prev >= 0);
+	}
+	
+	/**
+	 * Upserts into this index the sets that have been spilled over into another index after the given position.
+	 * This is used when a merged index has been built from a snapshot of all sets, while upserts kept arriving at the previous index.
+	 * @param other  The index that received the upserts.
+	 * @param from  The number of spilled sets already included in the snapshot.
+	 */
+	public void replay(InvertedIndex other, int from) {
+		
+		for (int i = from; i < other.getNumSpilled(); i++)
+			upsert(other.spilledTokenSets.get(i));
+	}
+	
+	/**
+	 * Provides the total number of sets, including those in the spill-over segment and any removed ones.
+	 * @return  The number of set identifiers in use.
+	 */
+	public int getNumSets() {
+		return transformedTargetCollection.sets.length + getNumSpilled();
+	}
+	
+	/**
+	 * Provides the number of sets in the spill-over segment.
+	 * @return  The number of upserted sets.
+	 */
+	public int getNumSpilled() {
+		return (spilledSets == null) ? 0 : spilledSets.size();
+	}
+	
+	/**
+	 * Provides the set of tokens with the given identifier, either in the base collection or in the spill-over segment.
+	 * @param id  The identifier of the set.
+	 * @return  The set of tokens (as integers) in ascending order.
+	 */
+	public int[] getSet(int id) {
+		
+		int n = transformedTargetCollection.sets.length;
+		return (id < n) ? transformedTargetCollection.sets[id] : spilledSets.get(id - n);
+	}
+	
+	/**
+	 * Provides the identifier of the entity having the set with the given identifier.
+	 * @param id  The identifier of the set.
+	 * @return  The identifier of the entity.
+	 */
+	public String getKey(int id) {
+		
+		int n = transformedTargetCollection.keys.length;
+		return (id < n) ? transformedTargetCollection.keys[id] : spilledTokenSets.get(id - n).id;
+	}
+	
+	/**
+	 * Indicates whether the set with the given identifier has been superseded by a subsequent upsert.
+	 * @param id  The identifier of the set.
+	 * @return  True, if the set must be ignored in search; otherwise, False.
+	 */
+	public boolean isRemoved(int id) {
+		return (removed != null) && removed.get(id);
+	}
+	
+	/**
+	 * Provides the inverted list of the given token over the spill-over segment.
+	 * @param token  The token (as integer).
+	 * @return  The identifiers of the upserted sets containing this token in ascending order; null, if no such set exists.
+	 */
+	public TIntList getSpilledPostings(int token) {
+		return (spilledIdx == null) ? null : spilledIdx.get(token);
+	}
+	
+	/**
+	 * Indicates whether the spill-over segment has grown enough to be merged into the base collection.
+	 * @param ratio  Size of the spill-over segment relative to the base collection that triggers a merge.
+	 * @param minSize  Minimum size of the spill-over segment that triggers a merge.
+	 * @return  True, if the index should be rebuilt; otherwise, False.
+	 */
+	public boolean needsMerge(double ratio, int minSize) {
+		return (getNumSpilled() >= minSize) && (getNumSpilled() >= ratio * transformedTargetCollection.sets.length);
+	}
+	
+	/**
+	 * Indicates whether another index shares the base collection of this one, i.e., it has been derived from the same index by upserts against copies of it.
+	 * @param other  Another inverted index.
+	 * @return  True, if both indices have the same base collection; otherwise, False.
+	 */
+	public boolean sharesBase(InvertedIndex other) {
+		return (other != null) && (transformedTargetCollection == other.transformedTargetCollection);
+	}
+	
+	public boolean isMerging() {
+		return merging;
+	}
+	
+	public void setMerging(boolean merging) {
+		this.merging = merging;
+	}
 }
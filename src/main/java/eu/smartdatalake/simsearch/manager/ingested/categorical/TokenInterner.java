@@ -0,0 +1,225 @@
+package eu.smartdatalake.simsearch.manager.ingested.categorical;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns tokens (keywords or q-grams) into integers, so that sets of tokens can be compared as sorted arrays of integers.
+ * Unlike the token dictionary of an inverted index, these integers carry no ordering by frequency; they only serve in checking equality of tokens.
+ * One instance is kept per ingested attribute (see DatasetIdentifier), so it is released once the attribute is removed.
+ * Only tokens in the attribute data get interned; query tokens are just looked up, so that queries never grow the dictionary.
+ * Tokens may be interned concurrently, e.g., by the threads parsing chunks of an input file.
+ * A canonical instance of each token string is also kept, so that sets of tokens may share their strings instead of holding duplicates.
+ */
+public class TokenInterner {
+
+	/**
+	 * A distinct token with its integer.
+	 */
+	private static final class Entry {
+		final String token;
+		final int id;
+
+		Entry(String token, int id) {
+			this.token = token;
+			this.id = id;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Entry> dictionary;
+	private final AtomicInteger counter;
+	private String[] tokens;     // Canonical token per integer, for decoding sets of interned tokens
+
+
+	/**
+	 * Constructor
+	 */
+	public TokenInterner() {
+
+		dictionary = new ConcurrentHashMap<String, Entry>();
+		counter = new AtomicInteger();
+		tokens = new String[1024];
+	}
+
+
+	/**
+	 * Provides the entry of the given token; a new integer is assigned if this token has not been seen before.
+	 * @param token  A token.
+	 * @return  The entry with the canonical string and the integer of this token.
+	 */
+	private Entry lookup(String token) {
+
+		Entry e = dictionary.get(token);
+		if (e == null) {
+			Entry newEntry = new Entry(token, counter.getAndIncrement());
+			e = dictionary.putIfAbsent(token, newEntry);
+			if (e == null) {
+				e = newEntry;
+				register(e);
+			}
+		}
+		return e;
+	}
+
+
+	/**
+	 * Keeps the canonical string of a newly interned token, so that its integer may be decoded.
+	 * @param e  The entry of a token just added to the dictionary.
+	 */
+	private synchronized void register(Entry e) {
+
+		if (e.id >= tokens.length)
+			tokens = Arrays.copyOf(tokens, Math.max(e.id + 1, 2 * tokens.length));
+		tokens[e.id] = e.token;
+	}
+
+
+	/**
+	 * Provides the tokens represented by the given integers; integers of tokens not in the dictionary are skipped.
+	 * @param ids  An array of integers, as issued by this dictionary.
+	 * @return  An array with the corresponding tokens.
+	 */
+	public synchronized String[] decode(int[] ids) {
+
+		String[] res = new String[ids.length];
+		int n = 0;
+		for (int id : ids) {
+			if ((id >= 0) && (id < tokens.length) && (tokens[id] != null))
+				res[n++] = tokens[id];
+		}
+		return (n < res.length) ? Arrays.copyOf(res, n) : res;
+	}
+
+
+	/**
+	 * Provides the integer of the given token; a new one is assigned if this token has not been seen before.
+	 * @param token  A token.
+	 * @return  The integer representing this token.
+	 */
+	public int intern(String token) {
+		return lookup(token).id;
+	}
+
+
+	/**
+	 * Provides the integers of the given tokens without duplicates and in ascending order.
+	 * @param tokens  A collection of tokens.
+	 * @return  A sorted array of distinct integers.
+	 */
+	public int[] intern(Collection<String> tokens) {
+
+		int[] ids = new int[tokens.size()];
+		int n = 0;
+		for (String token : tokens)
+			ids[n++] = intern(token);
+		return distinct(ids, n);
+	}
+
+
+	/**
+	 * Provides the integers of the given tokens without duplicates and in ascending order.
+	 * Each token in the list is also replaced by its canonical string, so equal tokens in different sets no longer occupy memory separately.
+	 * @param tokens  A modifiable list of tokens.
+	 * @return  A sorted array of distinct integers.
+	 */
+	public int[] internAndShare(List<String> tokens) {
+
+		int[] ids = new int[tokens.size()];
+		int n = 0;
+		for (int i = 0; i < ids.length; i++) {
+			Entry e = lookup(tokens.get(i));
+			if (e.token != tokens.get(i))
+				tokens.set(i, e.token);
+			ids[n++] = e.id;
+		}
+		return distinct(ids, n);
+	}
+
+
+	/**
+	 * Provides the integers of the given tokens without duplicates and in ascending order, without adding any tokens to the dictionary.
+	 * Tokens not in the dictionary get negative integers local to the given map, e.g., one per query; these never match any interned token.
+	 * @param tokens  A collection of tokens.
+	 * @param unknowns  The integers assigned to tokens not in the dictionary; it is updated with any further such tokens.
+	 * @return  A sorted array of distinct integers.
+	 */
+	public int[] lookup(Collection<String> tokens, Map<String, Integer> unknowns) {
+
+		int[] ids = new int[tokens.size()];
+		int n = 0;
+		for (String token : tokens) {
+			Entry e = dictionary.get(token);
+			if (e != null)
+				ids[n++] = e.id;
+			else {
+				synchronized (unknowns) {
+					Integer u = unknowns.get(token);
+					if (u == null) {
+						u = -(unknowns.size() + 1);
+						unknowns.put(token, u);
+					}
+					ids[n++] = u;
+				}
+			}
+		}
+		return distinct(ids, n);
+	}
+
+
+	/**
+	 * Sorts the given integers and eliminates duplicates.
+	 * @param ids  An array of integers; it is sorted in place.
+	 * @param n  The number of integers in the array.
+	 * @return  A sorted array of distinct integers; this is the given array, unless duplicates were found.
+	 */
+	private static int[] distinct(int[] ids, int n) {
+
+		Arrays.sort(ids, 0, n);
+
+		// Eliminate duplicates, as the tokens are treated as a set
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if ((k == 0) || (ids[i] != ids[k - 1]))
+				ids[k++] = ids[i];
+		}
+		return (k < n) ? Arrays.copyOf(ids, k) : ids;
+	}
+
+
+	/**
+	 * Calculates the Jaccard distance between two sets of interned tokens by merging them; no objects are allocated.
+	 * @param r  A sorted array of distinct integers.
+	 * @param s  Another sorted array of distinct integers.
+	 * @return  A value in [0..1]; NaN if both sets are empty.
+	 */
+	public static double jaccardDistance(int[] r, int[] s) {
+
+		int olap = 0, pr = 0, ps = 0;
+		while ((pr < r.length) && (ps < s.length)) {
+			if (r[pr] == s[ps]) {
+				pr++;
+				ps++;
+				olap++;
+			} else if (r[pr] < s[ps])
+				pr++;
+			else
+				ps++;
+		}
+
+		return (1.0 - (((double) olap) / ((double) (r.length + s.length - olap))));
+	}
+
+
+	/**
+	 * Provides the number of distinct tokens interned so far.
+	 * @return  The size of the dictionary.
+	 */
+	public int size() {
+		return dictionary.size();
+	}
+
+}
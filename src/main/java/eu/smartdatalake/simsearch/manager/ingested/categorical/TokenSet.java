@@ -6,6 +6,27 @@ public class TokenSet {
 	public String id;
 	public List<String> tokens;
 	public String originalString;
+	private volatile int[] tokenIds;	// Interned tokens in ascending order; set once ingested
+
+	/**
+	 * Interns the tokens of this set into the dictionary of its attribute, which also replaces them with their canonical strings; the set must not be modified afterwards.
+	 * @param dictionary  The dictionary of interned tokens of the attribute this set belongs to.
+	 * @return  A sorted array of distinct integers.
+	 */
+	public int[] intern(TokenInterner dictionary) {
+		
+		int[] ids = dictionary.internAndShare(tokens);
+		tokenIds = ids;
+		return ids;
+	}
+
+	/**
+	 * Provides the tokens of this set as sorted integers, as interned into the dictionary of its attribute.
+	 * @return  A sorted array of distinct integers; null, if this set has not been interned (e.g., a query or a value from an in-situ source).
+	 */
+	public int[] getTokenIds() {
+		return tokenIds;
+	}
 
 	@Override
 	public String toString() {
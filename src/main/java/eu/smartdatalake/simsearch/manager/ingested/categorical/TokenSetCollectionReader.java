@@ -11,6 +11,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.lucene.analysis.ngram.NGramTokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
@@ -19,8 +20,6 @@ import eu.smartdatalake.simsearch.Constants;
 import eu.smartdatalake.simsearch.Logger;
 import eu.smartdatalake.simsearch.manager.ingested.DataFileReader;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
-import gnu.trove.list.TIntList;
-import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TObjectIntMap;
 
 /**
@@ -31,6 +30,18 @@ public class TokenSetCollectionReader {
 
 	public Map<Integer, String> columnNames = null;
 	
+	int numThreads;   // Number of threads used in ingesting sets of tokens
+	
+	private static final int LINES_PER_BLOCK = 1 << 16;		// Number of lines read from a CSV file before parsing them concurrently
+	
+	/**
+	 * Constructor
+	 * The number of threads used in ingestion may be specified with system property "ingest_pool_size"; otherwise, all available processors are used.
+	 */
+	public TokenSetCollectionReader() {
+		numThreads = Math.max(1, Integer.getInteger("ingest_pool_size", Constants.INGEST_POOL_SIZE));
+	}
+	
 	/**
 	 * Consumes a CSV file and creates a collection of the sets of tokens to be used in similarity search.
 	 * @param file  Path to the input CSV file or its URL at a remote server containing the attribute data.
@@ -41,10 +52,11 @@ public class TokenSetCollectionReader {
 	 * @param maxLines  Number of the first lines to read from the file, skipping the rest; if a negative value is specified, all lines will be consumed.
 	 * @param header  Boolean indicating that the first line contains the names of the attributes.
 	 * @param qgram  The qgram used (if applicable for string similarity).
+	 * @param dictionary  The dictionary to intern the tokens into; null, if the sets should not be interned (e.g., values to be upserted into another attribute).
 	 * @param log  Handle to the log file for keeping messages and statistics.
 	 * @return  A collection of the sets of tokens to be used in similarity search.
 	 */
-	public TokenSetCollection importFromCsvFile(String file, int colSetId, int colSetTokens, String colDelimiter, String tokDelimiter, int maxLines, boolean header, int qgram, Logger log) {
+	public TokenSetCollection importFromCsvFile(String file, final int colSetId, final int colSetTokens, String colDelimiter, final String tokDelimiter, int maxLines, boolean header, final int qgram, final TokenInterner dictionary, Logger log) {
 		TokenSetCollection collection = new TokenSetCollection();
 //		List<TokenSet> sets = new ArrayList<TokenSet>();
 		int lineCount = 0, errorLines = 0;
@@ -53,69 +65,59 @@ public class TokenSetCollectionReader {
         String otherThanQuote = " [^\"] ";
         String quotedString = String.format(" \" %s* \" ", otherThanQuote);
         String regex = String.format("(?x) "+ colDelimiter + "(?=(?:%s*%s)*%s*$)", otherThanQuote, quotedString, otherThanQuote);
+        // Compiled once, as splitting each line with this regex would compile it again; a plain delimiter character is handled without the regex
+        final Pattern splitter = isPlainDelimiter(colDelimiter) ? null : Pattern.compile(regex);
 		
 		try {
 			// Custom reader to handle either local or remote CSV files
 			DataFileReader br = new DataFileReader(file);
 			String line;
 			String[] columns;
-			TokenSet set;
 
 			// If the file has a header, retain the names of the columns for possible future use
 			if (header) {
 				line = br.readLine();
-				columns = line.split(regex,-1);  //colDelimiter+"(?=([^\"]*\"[^\"]*\")*[^\"]*$)"
+				columns = (splitter != null) ? splitter.split(line, -1) : splitColumns(line, colDelimiter.charAt(0));  //colDelimiter+"(?=([^\"]*\"[^\"]*\")*[^\"]*$)"
 				columnNames = new HashMap<Integer, String>();
 				for (int i = 0; i < columns.length; i++) {
 					columnNames.put(i, columns[i]);
 				}
 			}
 
-			while ((line = br.readLine()) != null) {
-				if (maxLines > 0 && lineCount >= maxLines) {
-					break;
-				}
-				try {
-					columns = line.split(regex,-1);  //colDelimiter+"(?=([^\"]*\"[^\"]*\")*[^\"]*$)"
-					
-					// Ignore empty strings
-					if (columns[colSetTokens].isEmpty())
-						throw new NullPointerException();
-					
-					set = new TokenSet();
-					// Identifier of the set
-					if (colSetId >= 0) {
-						set.id = columns[colSetId];
+			// Lines are read in blocks; each block is parsed concurrently and its sets are then collected in the order of their lines
+			final String[] lines = new String[LINES_PER_BLOCK];
+			final TokenSet[] parsed = new TokenSet[LINES_PER_BLOCK];
+			boolean done = false;
+			while (!done) {
+				// No more lines than those still needed are read
+				int limit = (maxLines > 0) ? Math.min(LINES_PER_BLOCK, maxLines - lineCount) : LINES_PER_BLOCK;
+				int numLines = 0;
+				while ((numLines < limit) && ((line = br.readLine()) != null))
+					lines[numLines++] = line;
+				if (numLines < limit)
+					done = true;
+				
+				ChunkedExecution.run(numLines, ChunkedExecution.numChunks(numLines, numThreads), new ChunkedExecution.ChunkTask() {
+					@Override
+					public void process(int chunk, int from, int to) {
+						for (int i = from; i < to; i++)
+							parsed[i] = parseTokenSet(lines[i], splitter, colDelimiter, colSetId, colSetTokens, tokDelimiter, qgram, dictionary);
 					}
-					else
-						set.id = String.valueOf(lineCount); 
-					//Tokens; CAUTION! also remove any double quotes in the input string
-					set.tokens = new ArrayList<String>();
-					if (qgram > 0) {  // Creates qgrams from the input value
-						set.originalString = columns[colSetTokens];
-						Reader reader = new StringReader(columns[colSetTokens]);
-						NGramTokenizer gramTokenizer = new NGramTokenizer(reader, qgram, qgram);
-						CharTermAttribute charTermAttribute = gramTokenizer.addAttribute(CharTermAttribute.class);
-						while (gramTokenizer.incrementToken()) {
-							set.tokens.add(charTermAttribute.toString());
-						}
-						gramTokenizer.end();
-						gramTokenizer.close();
-					} else {  // Use original tokens (keywords)
-						List<String> tokens = new ArrayList<String>(new HashSet<String>(Arrays.asList(columns[colSetTokens].replace("\"","").split(tokDelimiter))));
-						// FIXME: Custom handling for GDelt tokens with aggregate values
-						for (String t : tokens) {
-							if (t.indexOf('|') > 0 )
-								set.tokens.add(t.substring(0, t.indexOf('|')));
-							else
-								set.tokens.add(t);
-						}
+				});
+				
+				for (int i = 0; i < numLines; i++) {
+					if (parsed[i] == null) {
+						errorLines++;
+						continue;
 					}
-					collection.sets.put(set.id, set);
+					// Without identifiers in the data, sets are identified by the number of lines read so far
+					if (colSetId < 0)
+						parsed[i].id = String.valueOf(lineCount);
+					collection.sets.put(parsed[i].id, parsed[i]);
 					lineCount++;
-				} catch (Exception e) {
-					errorLines++;
 				}
+				if (maxLines > 0 && lineCount >= maxLines)
+					done = true;
 			}
 			br.close();
 		} catch (FileNotFoundException e) {
@@ -139,6 +141,109 @@ public class TokenSetCollectionReader {
 	}
 
 	
+	/**
+	 * Indicates whether the given column delimiter is a single character that has no special meaning in a regex with comments enabled.
+	 * @param colDelimiter  Delimiter character between columns.
+	 * @return  True, if lines can be split with splitColumns(); otherwise, False.
+	 */
+	private static boolean isPlainDelimiter(String colDelimiter) {
+		
+		if (colDelimiter.length() != 1)
+			return false;
+		char c = colDelimiter.charAt(0);
+		return (c != '"') && !Character.isWhitespace(c) && ("\\^$.|?*+()[]{}#".indexOf(c) < 0);
+	}
+	
+	
+	/**
+	 * Splits a line into columns at each delimiter not enclosed in double quotes, i.e., followed by an even number of quotes in the rest of the line.
+	 * This provides the same columns as the regex used for other delimiters, but in a single pass from the end of the line.
+	 * @param line  The line to split.
+	 * @param delimiter  Delimiter character between columns.
+	 * @return  The columns, including any trailing empty ones.
+	 */
+	private static String[] splitColumns(String line, char delimiter) {
+		
+		List<String> columns = new ArrayList<String>();
+		boolean evenQuotes = true;
+		int end = line.length();
+		for (int i = line.length() - 1; i >= 0; i--) {
+			char c = line.charAt(i);
+			if (c == '"')
+				evenQuotes = !evenQuotes;
+			else if ((c == delimiter) && evenQuotes) {
+				columns.add(line.substring(i + 1, end));
+				end = i;
+			}
+		}
+		columns.add(line.substring(0, end));
+		
+		// Columns have been collected from last to first
+		String[] res = new String[columns.size()];
+		for (int i = 0; i < res.length; i++)
+			res[i] = columns.get(res.length - 1 - i);
+		return res;
+	}
+	
+	
+	/**
+	 * Creates a set of tokens from a line of a CSV file.
+	 * @param line  The line to parse.
+	 * @param splitter  The pattern splitting the line into columns; null, if the delimiter is a plain character.
+	 * @param colDelimiter  Delimiter character between columns.
+	 * @param colSetId  Ordinal number of the attribute holding the entity identifiers; if negative, the identifier of the set is left unspecified.
+	 * @param colSetTokens  Ordinal number of the attribute containing the sets of tokens (e.g., keywords).
+	 * @param tokDelimiter  Delimiter character between tokens.
+	 * @param qgram  The qgram used (if applicable for string similarity).
+	 * @param dictionary  The dictionary to intern the tokens into; null, if the set should not be interned.
+	 * @return  The set of tokens; null, if the line cannot be parsed or its value is empty.
+	 */
+	private TokenSet parseTokenSet(String line, Pattern splitter, String colDelimiter, int colSetId, int colSetTokens, String tokDelimiter, int qgram, TokenInterner dictionary) {
+		
+		try {
+			String[] columns = (splitter != null) ? splitter.split(line, -1) : splitColumns(line, colDelimiter.charAt(0));  //colDelimiter+"(?=([^\"]*\"[^\"]*\")*[^\"]*$)"
+			
+			// Ignore empty strings
+			if (columns[colSetTokens].isEmpty())
+				return null;
+			
+			TokenSet set = new TokenSet();
+			// Identifier of the set
+			if (colSetId >= 0) {
+				set.id = columns[colSetId];
+			}
+			//Tokens; CAUTION! also remove any double quotes in the input string
+			set.tokens = new ArrayList<String>();
+			if (qgram > 0) {  // Creates qgrams from the input value
+				set.originalString = columns[colSetTokens];
+				Reader reader = new StringReader(columns[colSetTokens]);
+				NGramTokenizer gramTokenizer = new NGramTokenizer(reader, qgram, qgram);
+				CharTermAttribute charTermAttribute = gramTokenizer.addAttribute(CharTermAttribute.class);
+				while (gramTokenizer.incrementToken()) {
+					set.tokens.add(charTermAttribute.toString());
+				}
+				gramTokenizer.end();
+				gramTokenizer.close();
+			} else {  // Use original tokens (keywords)
+				List<String> tokens = new ArrayList<String>(new HashSet<String>(Arrays.asList(columns[colSetTokens].replace("\"","").split(tokDelimiter))));
+				// FIXME: Custom handling for GDelt tokens with aggregate values
+				for (String t : tokens) {
+					if (t.indexOf('|') > 0 )
+						set.tokens.add(t.substring(0, t.indexOf('|')));
+					else
+						set.tokens.add(t);
+				}
+			}
+			// Intern tokens once, so that distances can be calculated over integers
+			if (dictionary != null)
+				set.intern(dictionary);
+			return set;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	
 	/**
 	 * Accesses a DBMS table using a JDBC connection and creates a collection of the sets of tokens to be used in similarity search.
 	 * @param tableName  Name of the table that holds the attribute data.
@@ -147,10 +252,11 @@ public class TokenSetCollectionReader {
 	 * @param tokDelimiter  Delimiter character between tokens.
 	 * @param jdbcConnector  The JDBC connection that provides access to the table.
 	 * @param qgram  The qgram used (if applicable for string similarity).
+	 * @param dictionary  The dictionary to intern the tokens into; null, if the sets should not be interned (e.g., values to be upserted into another attribute).
 	 * @param log  Handle to the log file for keeping messages and statistics.
 	 * @return  A collection of the sets of tokens to be used in similarity search.
 	 */
-	public TokenSetCollection importFromJdbcTable(String tableName, String keyColumnName, String valColumnName, String tokDelimiter, JdbcConnector jdbcConnector, int qgram, Logger log) {
+	public TokenSetCollection importFromJdbcTable(String tableName, String keyColumnName, String valColumnName, String tokDelimiter, JdbcConnector jdbcConnector, int qgram, TokenInterner dictionary, Logger log) {
 
 		TokenSetCollection collection = new TokenSetCollection();
  
@@ -194,6 +300,8 @@ public class TokenSetCollectionReader {
 	//		    	System.out.println(Arrays.toString(tokens.toArray()));
 			    	set.tokens.addAll(tokens);
 				}	
+		    	if (dictionary != null)
+		    		set.intern(dictionary);
 		    	collection.sets.put(set.id, set);
 		    	n++;
 		    }
@@ -458,9 +566,24 @@ public class TokenSetCollectionReader {
 	 */
 	public InvertedIndex buildInvertedIndex(TokenSetCollection targetCollection, Logger log) {
 		
+		return buildInvertedIndex(targetCollection, false, log);
+	}
+	
+	
+	/**
+	 * Creates an inverted index against the given collection of sets of tokens.
+	 * FIXME: queryCollection is NOT known when the index is built
+	 * @param targetCollection  A collection of sets of tokens to be indexed.
+	 * @param compressed  True, if the inverted lists will be compressed; otherwise, False.
+	 * @param log  Handle to the log file for keeping messages and statistics.
+	 * @return  An inverted index to facilitate similarity search operations against the sets of tokens.
+	 */
+	public InvertedIndex buildInvertedIndex(TokenSetCollection targetCollection, boolean compressed, Logger log) {
+		
 		InvertedIndex index = new InvertedIndex();
 		
-		TIntList[] idx;
+		int[][] idx = null;
+		CompressedPostingLists compressedIdx = null;
 		
 		//Used in categorical similarity search only	
 		IntSetCollection transformedTargetCollection;
@@ -468,43 +591,94 @@ public class TokenSetCollectionReader {
 		
 		// Transform the input collections
 		long duration = System.nanoTime();
-		CollectionTransformer transformer = new CollectionTransformer();
+		CollectionTransformer transformer = new CollectionTransformer(numThreads);
 		// Create a global collection of tokens for the dictionary
 //		TokenSetCollection totalCollection = new TokenSetCollection();		
 //		totalCollection.sets.putAll(targetCollection.sets);
 //		totalCollection.sets.putAll(queryCollection.sets);
 		// Dictionary must be common for the target and query set collections
-		// FIXME: This will not be possible if the query tokens are NOT known when the index is built
+		// Query tokens not known when the index is built get negative integers; tokens of sets upserted later are appended to the dictionary
 		TObjectIntMap<String> tokenDictionary = transformer.constructTokenDictionary(targetCollection);
 		transformedTargetCollection = transformer.transformCollection(targetCollection, tokenDictionary);
 //		transformedQueryCollection = transformer.transformCollection(queryCollection, tokenDictionary);
 		duration = System.nanoTime() - duration;
 		log.writeln("Transformation time: " + duration / 1000000000.0 + " sec.");
 		
-		// Inverted index initialization
-		duration = System.nanoTime();
-		idx = new TIntList[transformedTargetCollection.numTokens];
-		for (int i = 0; i < idx.length; i++) {
-			idx[i] = new TIntArrayList();
-		}
-
 		// Inverted index construction
-		for (int i = 0; i < transformedTargetCollection.sets.length; i++) {
-			// Since no threshold is known beforehand, index is constructed with
-			// all tokens (not prefixes)
-			for (int j = 0; j < transformedTargetCollection.sets[i].length; j++) {
-				idx[transformedTargetCollection.sets[i][j]].add(i);
+		// Since no threshold is known beforehand, index is constructed with all tokens (not prefixes)
+		duration = System.nanoTime();
+		if (compressed) {
+			try {
+				compressedIdx = new CompressedPostingLists(transformedTargetCollection.sets, transformedTargetCollection.numTokens);
+				log.writeln("Inverted lists compressed in " + compressedIdx.getMemoryFootprint() + " bytes.");
+			} catch (IllegalArgumentException e) {
+				log.writeln(e.getMessage() + " Inverted lists will not be compressed.");
 			}
 		}
+		if (compressedIdx == null)
+			idx = buildPostingLists(transformedTargetCollection.sets, transformedTargetCollection.numTokens);
 		duration = System.nanoTime() - duration;
 		log.writeln("Inverted index build time: " + duration / 1000000000.0 + " sec.");
 		
 		// Keep this in an index structure for use in similarity search queries
 		index.idx = idx;
+		index.compressedIdx = compressedIdx;
 		index.transformedTargetCollection = transformedTargetCollection;
 		index.tokenDictionary = tokenDictionary;
 		
 		return index;
 	}	
+	
+	
+	/**
+	 * Creates the inverted lists over the given sets of tokens, each one allocated at its exact size.
+	 * Each thread counts and then places the sets of its own chunk; as chunks follow the order of the sets, every list is in ascending order of set identifiers.
+	 * @param sets  The sets of tokens (as integers); the position of each set is its identifier.
+	 * @param numTokens  The number of distinct tokens in the dictionary.
+	 * @return  The identifiers of the sets containing each token.
+	 */
+	private int[][] buildPostingLists(final int[][] sets, final int numTokens) {
+		
+		// Occurrences of each token per chunk of sets
+		int numChunks = ChunkedExecution.numChunks(sets.length, numThreads);
+		final int[][] positions = new int[numChunks][];
+		ChunkedExecution.run(sets.length, numChunks, new ChunkedExecution.ChunkTask() {
+			@Override
+			public void process(int chunk, int from, int to) {
+				int[] counts = new int[numTokens];
+				for (int i = from; i < to; i++) {
+					for (int t : sets[i])
+						counts[t]++;
+				}
+				positions[chunk] = counts;
+			}
+		});
+		
+		// Allocate each list and turn the counts into the position where each chunk starts placing its sets
+		final int[][] idx = new int[numTokens][];
+		for (int t = 0; t < numTokens; t++) {
+			int size = 0;
+			for (int c = 0; c < numChunks; c++) {
+				int count = positions[c][t];
+				positions[c][t] = size;
+				size += count;
+			}
+			idx[t] = new int[size];
+		}
+		
+		// Place the sets of each chunk in the lists
+		ChunkedExecution.run(sets.length, numChunks, new ChunkedExecution.ChunkTask() {
+			@Override
+			public void process(int chunk, int from, int to) {
+				int[] pos = positions[chunk];
+				for (int i = from; i < to; i++) {
+					for (int t : sets[i])
+						idx[t][pos[t]++] = i;
+				}
+			}
+		});
+		
+		return idx;
+	}
 
 }
@@ -15,8 +15,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 
-import eu.smartdatalake.simsearch.manager.ingested.Index;
-
 
 /**
  * Implements a B+-tree index to be used in similarity search against numerical values.
@@ -25,7 +23,7 @@ import eu.smartdatalake.simsearch.manager.ingested.Index;
  * @param <K>  Type variable representing the keys of the indexed objects.
  * @param <V>  Type variable representing the values of the indexed objects.
  */
-public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Object, Object>, Serializable {
+public class BPlusTree<K extends Comparable<? super K>, V> implements INumericalIndex<K, V>, Serializable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -121,6 +119,7 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 	 * @return the value to which the specified key is associated, or
 	 *         {@code null} if this tree contains no association for the key
 	 */
+	@Override
 	public List<V> search(K key) {
 		return root.getValue(key);
 	}
@@ -134,11 +133,24 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 	}
 	
 	
+	/**
+	 * Positions a cursor at the given key, so that keys can be subsequently visited leftwards and rightwards along the leaf level.
+	 * Only a single descent from the root is required; each further step takes O(1) time.
+	 * @param key  The search key.
+	 * @return  A cursor positioned at the search key.
+	 */
+	@Override
+	public Cursor seek(K key) {
+		return new Cursor(key);
+	}
+	
+	
 	/**
 	 * Auxiliary method to calculate the minimum key currently indexed in the B+-tree.
 	 * This is utilized to provide the range of indexed values when estimating similarity scores.
 	 * @return  The minimum key.
 	 */
+	@Override
 	public K calcMinKey() {
 		return root.getFirstLeafKey();
 	}
@@ -148,6 +160,7 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 	 * This is utilized to provide the range of indexed values when estimating similarity scores.
 	 * @return  The maximum key.
 	 */
+	@Override
 	public K calcMaxKey() {
 		return root.getLastLeafKey();
 	}
@@ -177,6 +190,159 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 		root.deleteValue(key);
 	}
 
+	/**
+	 * Builds the tree bottom-up from (key,value) pairs sorted by key, replacing any previous contents of the tree.
+	 * Leaves are filled from left to right and each level of internal nodes is built on top of the previous one, so no splits occur.
+	 * Values sharing a key are associated with it in the given order.
+	 * @param keys  Array of keys in ascending order (e.g., as obtained with {@link #sort(double[], Object[])}).
+	 * @param values  Array of values; the i-th value is associated with the i-th key.
+	 * @param fillFactor  The fraction of the capacity of each node to be filled, leaving room for subsequent insertions; restricted in [0.5, 1.0].
+	 */
+	public void bulkLoad(K[] keys, V[] values, double fillFactor) {
+
+		if (keys.length != values.length)
+			throw new IllegalArgumentException("Number of keys and values must be equal.");
+		fillFactor = Math.max(0.5, Math.min(1.0, fillFactor));
+
+		// Count distinct keys, also checking that they are in ascending order
+		int numKeys = 0;
+		for (int i = 0; i < keys.length; i++) {
+			int cmp = (i > 0) ? keys[i].compareTo(keys[i - 1]) : 1;
+			if (cmp < 0)
+				throw new IllegalArgumentException("Keys must be sorted in ascending order.");
+			if (cmp > 0)
+				numKeys++;
+		}
+
+		numNodes = numLeaves = 0;
+
+		// Leaf level: distinct keys are assigned to leaves along with their values
+		int leafCapacity = Math.max(branchingFactor / 2, Math.min(branchingFactor - 1, (int) Math.round((branchingFactor - 1) * fillFactor)));
+		List<Node> level = new ArrayList<Node>();
+		LeafNode leaf = null;
+		int i = 0;
+		for (int size: partition(numKeys, leafCapacity, branchingFactor / 2)) {
+			LeafNode prev = leaf;
+			leaf = new LeafNode();
+			leaf.prev = prev;
+			if (prev != null)
+				prev.next = leaf;
+			for (int j = 0; j < size; j++) {
+				int end = i + 1;
+				while ((end < keys.length) && (keys[end].compareTo(keys[i]) == 0))
+					end++;
+				leaf.keys.add(keys[i]);
+				leaf.values.add(new ArrayList<V>(Arrays.asList(values).subList(i, end)));
+				i = end;
+			}
+			level.add(leaf);
+		}
+		if (level.isEmpty())
+			level.add(new LeafNode());
+
+		// Internal levels: each level groups the nodes of the level below, until a single root remains
+		int nodeCapacity = Math.max((branchingFactor + 1) / 2, Math.min(branchingFactor, (int) Math.round(branchingFactor * fillFactor)));
+		while (level.size() > 1) {
+			List<Node> upper = new ArrayList<Node>();
+			int pos = 0;
+			for (int size: partition(level.size(), nodeCapacity, (branchingFactor + 1) / 2)) {
+				InternalNode node = new InternalNode();
+				for (int j = 0; j < size; j++) {
+					Node child = level.get(pos++);
+					if (j > 0)
+						node.keys.add(child.getFirstLeafKey());
+					node.children.add(child);
+				}
+				upper.add(node);
+			}
+			level = upper;
+		}
+		root = level.get(0);
+	}
+
+
+	/**
+	 * Auxiliary method that splits a number of entries into consecutive groups of the given capacity.
+	 * If the last group has fewer entries than the minimum, the entries of the last two groups are evenly distributed between them.
+	 * @param n  The number of entries.
+	 * @param capacity  The max number of entries per group.
+	 * @param minimum  The min number of entries per group.
+	 * @return  An array with the number of entries in each group.
+	 */
+	private static int[] partition(int n, int capacity, int minimum) {
+
+		int numGroups = (n + capacity - 1) / capacity;
+		int[] sizes = new int[numGroups];
+		Arrays.fill(sizes, capacity);
+		if (numGroups > 0)
+			sizes[numGroups - 1] = n - (numGroups - 1) * capacity;
+		if ((numGroups > 1) && (sizes[numGroups - 1] < minimum)) {
+			int total = sizes[numGroups - 2] + sizes[numGroups - 1];
+			sizes[numGroups - 2] = (total + 1) / 2;
+			sizes[numGroups - 1] = total / 2;
+		}
+
+		return sizes;
+	}
+
+
+	/**
+	 * Sorts (key,value) pairs with numerical keys in ascending order of their keys, so that they can be bulk loaded into a tree.
+	 * Applies a radix sort on the bits of the keys, so sorting takes linear time and is stable, i.e., values sharing a key retain their relative order.
+	 * @param keys  Array of numerical keys.
+	 * @param values  Array of values; the i-th value is associated with the i-th key. This array is rearranged in place.
+	 * @return  The keys in ascending order; pairs sharing a key also share the same (boxed) instance.
+	 */
+	public static <V> Double[] sort(double[] keys, V[] values) {
+
+		int n = keys.length;
+
+		// Map each key to bits whose unsigned order agrees with the order of keys (as in Double.compare)
+		long[] bits = new long[n];
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++) {
+			long b = Double.doubleToLongBits(keys[i]);
+			bits[i] = b ^ ((b >> 63) | Long.MIN_VALUE);
+			perm[i] = i;
+		}
+
+		// Radix sort on 16-bit digits (least significant first), carrying the positions of the pairs
+		long[] bitsBuf = new long[n];
+		int[] permBuf = new int[n];
+		for (int shift = 0; shift < 64; shift += 16) {
+			int[] counts = new int[(1 << 16) + 1];
+			for (int i = 0; i < n; i++)
+				counts[(int) ((bits[i] >>> shift) & 0xFFFF) + 1]++;
+			if ((n > 0) && (counts[(int) ((bits[0] >>> shift) & 0xFFFF) + 1] == n))
+				continue;   // All pairs share this digit
+			for (int d = 0; d < (1 << 16); d++)
+				counts[d + 1] += counts[d];
+			for (int i = 0; i < n; i++) {
+				int pos = counts[(int) ((bits[i] >>> shift) & 0xFFFF)]++;
+				bitsBuf[pos] = bits[i];
+				permBuf[pos] = perm[i];
+			}
+			long[] tmpBits = bits;
+			bits = bitsBuf;
+			bitsBuf = tmpBits;
+			int[] tmpPerm = perm;
+			perm = permBuf;
+			permBuf = tmpPerm;
+		}
+
+		// Rearrange the pairs according to the sorted positions
+		Double[] sortedKeys = new Double[n];
+		V[] sortedValues = values.clone();
+		for (int i = 0; i < n; i++) {
+			sortedKeys[i] = ((i > 0) && (bits[i] == bits[i - 1])) ? sortedKeys[i - 1] : keys[perm[i]];
+			sortedValues[i] = values[perm[i]];
+		}
+		System.arraycopy(sortedValues, 0, values, 0, n);
+
+		return sortedKeys;
+	}
+
+
 	/**
 	 * Prints out of the index keys level by level (from root to leaves)
 	 */
@@ -434,6 +600,99 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 		}
 	}
 
+	/**
+	 * Cursor that walks the leaf level of the tree leftwards and rightwards from a search key, following the links between sibling leaves.
+	 * Each step provides the next key along with its values.
+	 */
+	public class Cursor implements INumericalCursor<K, V> {
+
+		private LeafNode leftLeaf, rightLeaf;	// Leaves currently visited leftwards and rightwards; null once exhausted
+		private int leftPos, rightPos;			// Positions of the keys currently visited in these leaves
+		private List<V> exactValues;			// Values associated with the search key, if it exists in the tree
+
+		/**
+		 * Constructor
+		 * @param key  The search key.
+		 */
+		private Cursor(K key) {
+
+			// Descend once to the leaf where the search key belongs
+			Node node = root;
+			while (node instanceof BPlusTree.InternalNode)
+				node = ((InternalNode) node).getChild(key);
+			leftLeaf = rightLeaf = (LeafNode) node;
+
+			int loc = Collections.binarySearch(leftLeaf.keys, key);
+			if (loc >= 0) {   // Exact match; keys to visit are strictly before and after it
+				exactValues = leftLeaf.values.get(loc);
+				leftPos = rightPos = loc;
+			}
+			else {			  // Keys to visit start from the insertion point of the search key
+				exactValues = null;
+				leftPos = -loc - 1;
+				rightPos = -loc - 2;
+			}
+		}
+
+		/**
+		 * Provides the values associated with the search key.
+		 * @return  The list of values, or null if the search key does not exist in the tree.
+		 */
+		@Override
+		public List<V> getExactValues() {
+			return exactValues;
+		}
+
+		/**
+		 * Moves the cursor to the next smaller key.
+		 * @return  The next key leftwards, or null if no more keys exist.
+		 */
+		@Override
+		public K nextLeft() {
+
+			leftPos--;
+			while ((leftLeaf != null) && (leftPos < 0)) {
+				leftLeaf = leftLeaf.prev;
+				if (leftLeaf != null)
+					leftPos = leftLeaf.keys.size() - 1;
+			}
+			return (leftLeaf != null) ? leftLeaf.keys.get(leftPos) : null;
+		}
+
+		/**
+		 * Moves the cursor to the next greater key.
+		 * @return  The next key rightwards, or null if no more keys exist.
+		 */
+		@Override
+		public K nextRight() {
+
+			rightPos++;
+			while ((rightLeaf != null) && (rightPos >= rightLeaf.keys.size())) {
+				rightLeaf = rightLeaf.next;
+				rightPos = 0;
+			}
+			return (rightLeaf != null) ? rightLeaf.keys.get(rightPos) : null;
+		}
+
+		/**
+		 * Provides the values associated with the key currently visited leftwards.
+		 * @return  The list of values, or null if no more keys exist leftwards.
+		 */
+		@Override
+		public List<V> getLeftValues() {
+			return (leftLeaf != null) ? leftLeaf.values.get(leftPos) : null;
+		}
+
+		/**
+		 * Provides the values associated with the key currently visited rightwards.
+		 * @return  The list of values, or null if no more keys exist rightwards.
+		 */
+		@Override
+		public List<V> getRightValues() {
+			return (rightLeaf != null) ? rightLeaf.values.get(rightPos) : null;
+		}
+	}
+
 	/**
 	 * Nested class used for representation of leaves.
 	 */
@@ -444,12 +703,14 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 		List<List<V>> values; // Since keys must be unique, use this list to
 								// keep any elements with duplicate keys
 		LeafNode next;
+		LeafNode prev;		// Leaves are linked in both directions, so that cursors may walk leftwards as well
 
 		// Constructor of an empty new leaf
 		LeafNode() {
 			keys = new ArrayList<K>();
 			values = new ArrayList<List<V>>();
 			next = null;
+			prev = null;
 			numLeaves++;
 		}
 
@@ -578,6 +839,8 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 			keys.addAll(node.keys);
 			values.addAll(node.values);
 			next = node.next;
+			if (next != null)
+				next.prev = this;
 			--numLeaves;
 		}
 
@@ -592,6 +855,9 @@ public class BPlusTree<K extends Comparable<? super K>, V> implements Index<Obje
 			values.subList(from, to).clear();
 
 			sibling.next = next;
+			if (next != null)
+				next.prev = sibling;
+			sibling.prev = this;
 			next = sibling;
 			return sibling;
 		}
@@ -0,0 +1,290 @@
+package eu.smartdatalake.simsearch.manager.ingested.numerical;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Numerical index that supports inserting and moving values on top of a static index (e.g., a bulk-loaded B+-tree), which is never modified.
+ * Values upserted after the static index was built are kept in a small sorted delta, and any entry of the same values in the static index is superseded.
+ * Upserts are applied against a copy of this index, so that searches may continue against the original one; only the delta gets copied, so the cost of an upsert depends on the size of the delta and not on the static index.
+ * Once the delta gets large, the static index should be rebuilt from all current values, so that the delta is merged into it.
+ * @param <K>  Type variable representing the keys of the indexed objects.
+ * @param <V>  Type variable representing the values of the indexed objects.
+ */
+public class DeltaNumericalIndex<K extends Comparable<? super K>, V> implements INumericalIndex<K, V> {
+
+	INumericalIndex<K, V> base;		// Static index over all values at the time it was built
+	int baseSize;					// Number of values in the static index
+	TreeMap<K, List<V>> delta;		// Values upserted since, by their current key
+	Map<V, K> changes;				// Current key of each value upserted since
+	Set<V> superseded;				// Values whose entries in the static index are superseded by changes
+
+
+	/**
+	 * Constructor
+	 * @param base  The static numerical index.
+	 * @param baseSize  The number of values in the static index.
+	 */
+	public DeltaNumericalIndex(INumericalIndex<K, V> base, int baseSize) {
+
+		this.base = base;
+		this.baseSize = baseSize;
+		this.delta = new TreeMap<K, List<V>>();
+		this.changes = new HashMap<V, K>();
+		this.superseded = new HashSet<V>();
+	}
+
+
+	/**
+	 * Copy constructor; the copy shares the static index, but has its own delta, so it can be upserted while searches continue against the original.
+	 * @param other  The index to copy.
+	 */
+	public DeltaNumericalIndex(DeltaNumericalIndex<K, V> other) {
+
+		this.base = other.base;
+		this.baseSize = other.baseSize;
+		this.delta = new TreeMap<K, List<V>>();
+		for (Map.Entry<K, List<V>> entry : other.delta.entrySet())
+			this.delta.put(entry.getKey(), new ArrayList<V>(entry.getValue()));
+		this.changes = new HashMap<V, K>(other.changes);
+		this.superseded = new HashSet<V>(other.superseded);
+	}
+
+
+	/**
+	 * Inserts or moves a value; any entry of this value in the static index is superseded.
+	 * @param key  The new key of the value.
+	 * @param value  The value.
+	 * @param existed  Indicates whether the value was indexed with another key before this upsert.
+	 */
+	public void upsert(K key, V value, boolean existed) {
+
+		K oldKey = changes.put(value, key);
+		if (oldKey != null) {
+			// Already in the delta, so it is moved there
+			List<V> values = delta.get(oldKey);
+			values.remove(value);
+			if (values.isEmpty())
+				delta.remove(oldKey);
+		}
+		else if (existed)
+			superseded.add(value);
+
+		List<V> values = delta.get(key);
+		if (values == null) {
+			values = new ArrayList<V>(1);
+			delta.put(key, values);
+		}
+		values.add(value);
+	}
+
+
+	/**
+	 * Provides the number of values upserted since the static index was built.
+	 * @return  The number of values in the delta.
+	 */
+	public int getNumChanged() {
+		return changes.size();
+	}
+
+
+	/**
+	 * Indicates whether the delta has grown enough to be merged into the static index.
+	 * @param ratio  Number of upserted values relative to the static index that triggers a merge.
+	 * @param minSize  Minimum number of upserted values that triggers a merge.
+	 * @return  True, if the index should be rebuilt; otherwise, False.
+	 */
+	public boolean needsMerge(double ratio, int minSize) {
+		return (changes.size() >= minSize) && (changes.size() >= ratio * baseSize);
+	}
+
+
+	/**
+	 * Provides the values of the static index for a key, excluding any superseded ones.
+	 * @param values  The values associated with a key in the static index; may be null.
+	 * @return  The values still valid; the given list itself, if none is superseded.
+	 */
+	private List<V> filter(List<V> values) {
+
+		if ((values == null) || superseded.isEmpty())
+			return values;
+		List<V> valid = null;
+		for (int i = 0; i < values.size(); i++) {
+			if (superseded.contains(values.get(i))) {
+				if (valid == null)
+					valid = new ArrayList<V>(values.subList(0, i));
+			}
+			else if (valid != null)
+				valid.add(values.get(i));
+		}
+		return (valid == null) ? values : valid;
+	}
+
+
+	/**
+	 * Combines the values of a key in the static index and in the delta.
+	 * @param baseValues  The values still valid in the static index; may be null.
+	 * @param deltaValues  The values in the delta; may be null.
+	 * @return  The values of both; null, if there are none.
+	 */
+	private List<V> combine(List<V> baseValues, List<V> deltaValues) {
+
+		if ((baseValues == null) || baseValues.isEmpty())
+			return ((deltaValues == null) || deltaValues.isEmpty()) ? null : deltaValues;
+		if ((deltaValues == null) || deltaValues.isEmpty())
+			return baseValues;
+		List<V> values = new ArrayList<V>(baseValues.size() + deltaValues.size());
+		values.addAll(baseValues);
+		values.addAll(deltaValues);
+		return values;
+	}
+
+
+	@Override
+	public List<V> search(K key) {
+
+		return combine(filter(base.search(key)), delta.get(key));
+	}
+
+
+	@Override
+	public INumericalCursor<K, V> seek(K key) {
+
+		// No overhead over the static index until any value changes
+		if (changes.isEmpty())
+			return base.seek(key);
+		return new Cursor(key);
+	}
+
+
+	/**
+	 * Provides the minimum key currently indexed; keys of the static index left without any valid values are skipped.
+	 * @return  The minimum key.
+	 */
+	@Override
+	public K calcMinKey() {
+
+		K key = base.calcMinKey();
+		if ((key != null) && !superseded.isEmpty()) {
+			INumericalCursor<K, V> cursor = base.seek(key);
+			List<V> values = filter(cursor.getExactValues());
+			while ((key != null) && ((values == null) || values.isEmpty())) {
+				key = cursor.nextRight();
+				values = filter(cursor.getRightValues());
+			}
+		}
+		if (delta.isEmpty())
+			return key;
+		return ((key == null) || (delta.firstKey().compareTo(key) < 0)) ? delta.firstKey() : key;
+	}
+
+
+	/**
+	 * Provides the maximum key currently indexed; keys of the static index left without any valid values are skipped.
+	 * @return  The maximum key.
+	 */
+	@Override
+	public K calcMaxKey() {
+
+		K key = base.calcMaxKey();
+		if ((key != null) && !superseded.isEmpty()) {
+			INumericalCursor<K, V> cursor = base.seek(key);
+			List<V> values = filter(cursor.getExactValues());
+			while ((key != null) && ((values == null) || values.isEmpty())) {
+				key = cursor.nextLeft();
+				values = filter(cursor.getLeftValues());
+			}
+		}
+		if (delta.isEmpty())
+			return key;
+		return ((key == null) || (delta.lastKey().compareTo(key) > 0)) ? delta.lastKey() : key;
+	}
+
+
+	/**
+	 * Cursor that merges the keys of the static index and the delta leftwards and rightwards from a search key.
+	 * Superseded values of the static index are skipped, as well as any keys left without values.
+	 */
+	private class Cursor implements INumericalCursor<K, V> {
+
+		private INumericalCursor<K, V> baseCursor;
+		private List<V> exactValues;
+		private K nextBaseLeft, nextBaseRight;		// Next keys of the static index not yet reported; null once exhausted
+		private K leftKey, rightKey;				// Keys most recently visited; the search key initially
+		private List<V> leftValues, rightValues;	// Values of the keys currently visited; null once exhausted
+
+		/**
+		 * Constructor
+		 * @param key  The search key.
+		 */
+		private Cursor(K key) {
+
+			baseCursor = base.seek(key);
+			exactValues = combine(filter(baseCursor.getExactValues()), delta.get(key));
+			nextBaseLeft = baseCursor.nextLeft();
+			nextBaseRight = baseCursor.nextRight();
+			leftKey = rightKey = key;
+		}
+
+		@Override
+		public List<V> getExactValues() {
+			return exactValues;
+		}
+
+		@Override
+		public K nextLeft() {
+
+			while (leftKey != null) {
+				K deltaKey = delta.lowerKey(leftKey);
+				boolean fromBase = (nextBaseLeft != null) && ((deltaKey == null) || (nextBaseLeft.compareTo(deltaKey) >= 0));
+				boolean fromDelta = (deltaKey != null) && ((nextBaseLeft == null) || (deltaKey.compareTo(nextBaseLeft) >= 0));
+				leftKey = fromBase ? nextBaseLeft : deltaKey;
+				List<V> baseValues = null;
+				if (fromBase) {
+					baseValues = filter(baseCursor.getLeftValues());
+					nextBaseLeft = baseCursor.nextLeft();
+				}
+				leftValues = combine(baseValues, fromDelta ? delta.get(deltaKey) : null);
+				if (leftValues != null)
+					break;
+			}
+			return leftKey;
+		}
+
+		@Override
+		public K nextRight() {
+
+			while (rightKey != null) {
+				K deltaKey = delta.higherKey(rightKey);
+				boolean fromBase = (nextBaseRight != null) && ((deltaKey == null) || (nextBaseRight.compareTo(deltaKey) <= 0));
+				boolean fromDelta = (deltaKey != null) && ((nextBaseRight == null) || (deltaKey.compareTo(nextBaseRight) <= 0));
+				rightKey = fromBase ? nextBaseRight : deltaKey;
+				List<V> baseValues = null;
+				if (fromBase) {
+					baseValues = filter(baseCursor.getRightValues());
+					nextBaseRight = baseCursor.nextRight();
+				}
+				rightValues = combine(baseValues, fromDelta ? delta.get(deltaKey) : null);
+				if (rightValues != null)
+					break;
+			}
+			return rightKey;
+		}
+
+		@Override
+		public List<V> getLeftValues() {
+			return (leftKey != null) ? leftValues : null;
+		}
+
+		@Override
+		public List<V> getRightValues() {
+			return (rightKey != null) ? rightValues : null;
+		}
+	}
+
+}
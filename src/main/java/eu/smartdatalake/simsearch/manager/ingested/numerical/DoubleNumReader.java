@@ -3,12 +3,14 @@ package eu.smartdatalake.simsearch.manager.ingested.numerical;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
 import eu.smartdatalake.simsearch.Logger;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
 import eu.smartdatalake.simsearch.manager.ingested.DataFileReader;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
 
@@ -16,12 +18,13 @@ import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
  * Consumes data from a CSV file or a table over a JDBC connection and extracts numerical values from a specific attribute.
  * Values are maintained in a hash table taking their keys from another attribute in the file or table. 
  * Aggregate statistics are also collected while parsing the attribute data.
- * A B+-tree index may be created from the collected (key,value) pairs.
+ * A B+-tree index or a sorted array index may be created from the collected (key,value) pairs.
  */
 public class DoubleNumReader {
 
 	// Basic statistics about the numeric values read in the input collection
 	public double minVal, maxVal, avgVal, stDev;
+	public double sumVal, sumSq;    // Sums of the values and of their squares, so that statistics can be adjusted as values get inserted or deleted
 	public int count;
 	public Map<Integer, String> columnNames = null;
 
@@ -48,14 +51,73 @@ public class DoubleNumReader {
 		
 		double sqDiff = 0.0;
 		double v;
+		sumVal = sumSq = 0.0;
 		for (Iterator<Double> iter = values.iterator(); iter.hasNext();) {
 			v = iter.next();
 			sqDiff += (v - avgVal)* (v - avgVal);
+			sumVal += v;
+			sumSq += v * v;
 		}
 
 		stDev = Math.sqrt(sqDiff / (count - 1));
 	}
-	
+
+	/**
+	 * Adjusts statistics once a value has been inserted into the collection, without scanning the collection again.
+	 * CAUTION! Algebraic statistics must be subsequently adjusted with adjustAlgebraicStats().
+	 * @param x  The inserted value.
+	 */
+	public void insertValue(double x) {
+
+		adjustDistributiveStats(x);
+		sumVal += x;
+		sumSq += x * x;
+		count++;
+	}
+
+	/**
+	 * Adjusts statistics once a value has been deleted from the collection, without scanning the collection again.
+	 * MIN or MAX cannot be adjusted if the deleted value was the extreme one; then, they must be taken again from the index over the collection.
+	 * CAUTION! Algebraic statistics must be subsequently adjusted with adjustAlgebraicStats().
+	 * @param x  The deleted value.
+	 * @return  True, if the deleted value was the MIN or the MAX of the collection; otherwise, False.
+	 */
+	public boolean deleteValue(double x) {
+
+		sumVal -= x;
+		sumSq -= x * x;
+		count--;
+		return (x <= minVal) || (x >= maxVal);
+	}
+
+	/**
+	 * Adjusts algebraic statistics (AVG, STDEV) from the current COUNT, MIN, MAX and sums of the values in constant time.
+	 * The sum of squared differences from the average is expanded into the sums of the values and of their squares.
+	 */
+	public void adjustAlgebraicStats() {
+
+		avgVal = (maxVal - minVal) / count;
+		double sqDiff = sumSq - 2 * avgVal * sumVal + count * avgVal * avgVal;
+		stDev = Math.sqrt(Math.max(0.0, sqDiff) / (count - 1));
+	}
+
+	/**
+	 * Calculates aggregate statistics (COUNT, MIN, MAX, AVG, STDEV) over a collection of values already in memory, e.g., once the data of an attribute has been updated.
+	 * @param values  The collection of input (numerical) values.
+	 */
+	public void calculateStats(Collection<Double> values) {
+
+		count = 0;
+		avgVal = stDev = 0.0;
+		minVal = Double.MAX_VALUE;
+		maxVal = Double.MIN_VALUE;
+		for (Double v: values) {
+			adjustDistributiveStats(v);
+			count++;
+		}
+		calculateAlgebraicStats(values);
+	}
+
 	/** NOT CURRENTLY USED!
 	 * Builds a B+-tree index according to user's specifications
 	 * ASSUMPTION: Input data collection consists of pairs of doubles (KEY) and strings (VALUE)
@@ -116,57 +178,59 @@ public class DoubleNumReader {
 	/**
 	 * Builds a B+-tree index based on (key,value) pairs available in a collection.
 	 * CAUTION! Indexes original features without applying normalization.
+	 * The tree is bulk loaded after sorting the pairs by value.
 	 * @param targetData  The collection of data given as (key, value) pairs.
+	 * @param fillFactor  The fraction of the capacity of each node to be filled during bulk loading.
 	 * @param log  Handle to the log file for keeping messages and statistics.
 	 * @return  A handle to the root of the created B+-tree.
 	 */
-	public BPlusTree<Double, String> buildIndex(Map<String, Double> targetData, Logger log) {
+	public BPlusTree<Double, String> buildIndex(Map<String, Double> targetData, double fillFactor, Logger log) {
 
 		BPlusTree<Double, String> index = new BPlusTree<Double, String>(64);
 		
+		long duration = System.nanoTime();
 		int lineCount = 0;
 		try {
-			// Consume data and populate the index
+			// Consume data; CAUTION! Values (doubles) are used as keys for internal nodes in the B+-tree
+			double[] keys = new double[targetData.size()];
+			String[] values = new String[targetData.size()];
 			for (Map.Entry<String, Double> entry : targetData.entrySet()) {
-				//CAUTION! Values (doubles) are used as keys for internal nodes in the B+-tree
-				index.insert(entry.getValue(), entry.getKey());
+				if (entry.getValue() == null)
+					continue;
+				keys[lineCount] = entry.getValue();
+				values[lineCount] = entry.getKey();
 				lineCount++;
 			}
+			keys = Arrays.copyOf(keys, lineCount);
+			values = Arrays.copyOf(values, lineCount);
+			
+			// Populate the index in a single pass over the sorted pairs
+			Double[] sortedKeys = BPlusTree.sort(keys, values);
+			index.bulkLoad(sortedKeys, values, fillFactor);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		duration = System.nanoTime() - duration;
 
-		log.writeln("Finished indexing data. Items indexed: " + lineCount + ".");
+		log.writeln("Finished indexing data. Items indexed: " + lineCount + ". Bulk loading took " + duration / 1000000000.0 + " sec.");
 
 		return index;
 	}
 
 
 	/**
-	 * Builds a B+-tree index based on (key,value) pairs available in a collection.
-	 * The values are normalized according to the specified normalization method (Z-score or unity-based).
+	 * Builds a read-only index of sorted arrays based on (key,value) pairs available in a collection.
+	 * Original values are indexed, even if normalized in similarity calculations.
 	 * @param targetData  The collection of data given as (key, value) pairs.
-	 * @param normal  The normalization method to be applied in each value before insertion into the index.
+	 * @param entities  Dictionary of dense integer identifiers to be assigned to the indexed entities.
 	 * @param log  Handle to the log file for keeping messages and statistics.
-	 * @return A handle to the root of the created B+-tree.
+	 * @return  A handle to the created index.
 	 */
-	public BPlusTree<Double, String> buildNormalizedIndex(Map<String, Double> targetData, INormal normal, Logger log) {
+	public SortedArrayIndex buildSortedArrayIndex(Map<String, Double> targetData, EntityDictionary entities, Logger log) {
 
-		BPlusTree<Double, String> index = new BPlusTree<Double, String>(64);
-		
-		int lineCount = 0;
-		try {
-			// Consume data and populate the index
-			for (Map.Entry<String, Double> entry : targetData.entrySet()) {
-				//CAUTION! Normalized values (doubles) are used as keys for internal nodes in the B+-tree
-				index.insert(normal.normalize(entry.getValue()), entry.getKey());
-				lineCount++;
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		SortedArrayIndex index = new SortedArrayIndex(targetData, entities);
 
-		log.writeln("Finished indexing normalized data. Items indexed: " + lineCount + ".");
+		log.writeln("Finished indexing data. Items indexed: " + index.getNumEntities() + ".");
 
 		return index;
 	}
@@ -0,0 +1,42 @@
+package eu.smartdatalake.simsearch.manager.ingested.numerical;
+
+import java.util.List;
+
+/**
+ * Interface to cursors that walk the keys of a numerical index leftwards and rightwards from a search key.
+ * @param <K>  Type variable representing the keys of the indexed objects.
+ * @param <V>  Type variable representing the values of the indexed objects.
+ */
+public interface INumericalCursor<K, V> {
+
+	/**
+	 * Provides the values associated with the search key.
+	 * @return  The list of values, or null if the search key does not exist in the index.
+	 */
+	public List<V> getExactValues();
+
+	/**
+	 * Moves the cursor to the next smaller key.
+	 * @return  The next key leftwards, or null if no more keys exist.
+	 */
+	public K nextLeft();
+
+	/**
+	 * Moves the cursor to the next greater key.
+	 * @return  The next key rightwards, or null if no more keys exist.
+	 */
+	public K nextRight();
+
+	/**
+	 * Provides the values associated with the key currently visited leftwards.
+	 * @return  The list of values, or null if no more keys exist leftwards.
+	 */
+	public List<V> getLeftValues();
+
+	/**
+	 * Provides the values associated with the key currently visited rightwards.
+	 * @return  The list of values, or null if no more keys exist rightwards.
+	 */
+	public List<V> getRightValues();
+
+}
@@ -0,0 +1,40 @@
+package eu.smartdatalake.simsearch.manager.ingested.numerical;
+
+import java.util.List;
+
+import eu.smartdatalake.simsearch.manager.ingested.Index;
+
+/**
+ * Interface to ordered indices over numerical keys (e.g., B+-tree, sorted array) that can be used in similarity search against numerical or temporal values.
+ * @param <K>  Type variable representing the keys of the indexed objects.
+ * @param <V>  Type variable representing the values of the indexed objects.
+ */
+public interface INumericalIndex<K extends Comparable<? super K>, V> extends Index<Object, Object> {
+
+	/**
+	 * Provides the values associated with the given key.
+	 * @param key  The search key.
+	 * @return  The list of values, or null if the key does not exist in the index.
+	 */
+	public List<V> search(K key);
+
+	/**
+	 * Positions a cursor at the given key, so that keys can be subsequently visited leftwards and rightwards in ascending order of their distance from it.
+	 * @param key  The search key.
+	 * @return  A cursor positioned at the search key.
+	 */
+	public INumericalCursor<K, V> seek(K key);
+
+	/**
+	 * Provides the minimum key currently indexed.
+	 * @return  The minimum key.
+	 */
+	public K calcMinKey();
+
+	/**
+	 * Provides the maximum key currently indexed.
+	 * @return  The maximum key.
+	 */
+	public K calcMaxKey();
+
+}
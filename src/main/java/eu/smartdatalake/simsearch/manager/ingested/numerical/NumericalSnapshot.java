@@ -0,0 +1,439 @@
+package eu.smartdatalake.simsearch.manager.ingested.numerical;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.smartdatalake.simsearch.Logger;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+
+/**
+ * Binary snapshot of the values and the index of a numerical (or date/time) attribute, so that it can be mounted again without consuming and indexing the input data.
+ * The file consists of a header (format version, source attribute, fingerprint of the source, normalization and statistics) followed by flat arrays:
+ * the distinct keys (i.e., original values, even if normalized in similarity calculations) in ascending order, the offsets of their postings, the postings (i.e., ordinals of entities) and the entity identifiers.
+ * Snapshots are read through a memory-mapped buffer, so arrays are copied in bulk and neither parsing nor sorting is required.
+ * A snapshot is only accepted if its source has not changed since it was written, i.e., same key column, limit on lines, and size and modification time of the source file.
+ * Sources other than local files (e.g., DBMS tables) have no size or modification time to detect changes, so no snapshots are written or loaded for them; such attributes are always ingested from their source.
+ * CAUTION! A snapshot must not exceed 2GB, as it is mapped in a single buffer.
+ */
+public class NumericalSnapshot {
+
+	private static final int MAGIC = 0x534E5353;	// Marks snapshot files
+	public static final int VERSION = 3;			// Format version; snapshots of any other version are ignored
+
+	String datasetName;			// The dataset containing the attribute
+	String column;				// The attribute whose values are kept in the snapshot
+	String normalization;		// Normalization applied against the values (z, unity), or empty if none
+	String keyColumn;			// The attribute holding the identifiers of the entities
+	int maxLines;				// Limit on the lines consumed from the source; non-positive, if all lines were consumed
+	long sourceSize;			// Size of the source file in bytes
+	long sourceModified;		// Last modification time of the source file
+	public double minVal, maxVal, avgVal, stDev;	// Statistics on the original values, as used in normalization
+	public double sumVal, sumSq;	// Sums of the original values and of their squares, so that statistics can be adjusted on upserts
+
+	double[] keys;				// Distinct keys in ascending order
+	int[] offsets;				// Postings of the i-th key are in [offsets[i], offsets[i+1])
+	int[] postings;				// Ordinals of entities grouped by key; entities sharing a key retain their order in the input data
+	double[] values;			// Original values of the entities
+	String[] entityKeys;		// Identifiers of the entities, in the order of the input data
+
+	/**
+	 * Constructor
+	 */
+	public NumericalSnapshot() {
+	}
+
+
+	/**
+	 * Records the fingerprint of the given source, i.e., the size and the modification time of its file.
+	 * @param datasetName  The dataset containing the attribute.
+	 * @return  True, if the source is a local file; otherwise, False, as its changes cannot be detected.
+	 */
+	private boolean fingerprint(String datasetName) {
+
+		File source = new File(datasetName);
+		if (!source.isFile())
+			return false;
+		sourceSize = source.length();
+		sourceModified = source.lastModified();
+		return true;
+	}
+
+
+	/**
+	 * Writes a snapshot of the given attribute values. The file is written under a temporary name and then renamed, so that an existing snapshot is replaced only once the new one is complete.
+	 * @param path  Path to the snapshot file.
+	 * @param datasetName  The dataset containing the attribute.
+	 * @param column  The attribute whose values will be kept in the snapshot.
+	 * @param keyColumn  The attribute holding the identifiers of the entities.
+	 * @param maxLines  Limit on the lines consumed from the source; non-positive, if all lines were consumed.
+	 * @param targetData  The collection of data given as (key, value) pairs.
+	 * @param normalization  Normalization method (z, unity) applied against the values in the index; null, if no normalization is applied.
+	 * @param reader  The reader that consumed the values, holding the statistics used in normalization; null, if no statistics have been collected.
+	 * @param log  Handle to the log file for keeping messages and statistics.
+	 */
+	public void save(String path, String datasetName, String column, String keyColumn, int maxLines, Map<String, Double> targetData, String normalization, DoubleNumReader reader, Logger log) {
+
+		long duration = System.nanoTime();
+
+		// Without a fingerprint, a snapshot could never be told apart from a changed source
+		if (!fingerprint(datasetName)) {
+			log.writeln("No snapshot of attribute " + column + " is written, as its source " + datasetName + " is not a local file (e.g., a DBMS table) and its changes cannot be detected. The attribute will be ingested from its data source on every mount.");
+			return;
+		}
+
+		this.datasetName = datasetName;
+		this.column = column;
+		this.keyColumn = keyColumn;
+		this.maxLines = Math.max(0, maxLines);
+		this.normalization = (normalization != null) ? normalization.toLowerCase() : "";
+		if (reader != null) {
+			minVal = reader.minVal;
+			maxVal = reader.maxVal;
+			avgVal = reader.avgVal;
+			stDev = reader.stDev;
+			sumVal = reader.sumVal;
+			sumSq = reader.sumSq;
+		}
+
+		// Entities are kept in the order of the input data
+		int n = 0;
+		entityKeys = new String[targetData.size()];
+		values = new double[targetData.size()];
+		for (Map.Entry<String, Double> entry : targetData.entrySet()) {
+			if (entry.getValue() == null)
+				continue;
+			entityKeys[n] = entry.getKey();
+			values[n] = entry.getValue();
+			n++;
+		}
+		entityKeys = Arrays.copyOf(entityKeys, n);
+		values = Arrays.copyOf(values, n);
+
+		// Sort the values as keys of the index
+		double[] sortKeys = values.clone();
+		Integer[] ordinals = new Integer[n];
+		for (int i = 0; i < n; i++)
+			ordinals[i] = i;
+		Double[] sortedKeys = BPlusTree.sort(sortKeys, ordinals);
+
+		// Group postings by distinct key
+		int d = 0;
+		for (int i = 0; i < n; i++) {
+			if ((i == 0) || (sortedKeys[i] != sortedKeys[i - 1]))   // Equal keys share the same instance
+				d++;
+		}
+		keys = new double[d];
+		offsets = new int[d + 1];
+		postings = new int[n];
+		d = 0;
+		for (int i = 0; i < n; i++) {
+			if ((i == 0) || (sortedKeys[i] != sortedKeys[i - 1])) {
+				keys[d] = sortedKeys[i];
+				offsets[d++] = i;
+			}
+			postings[i] = ordinals[i];
+		}
+		offsets[d] = n;
+
+		// Identifiers of entities are encoded as UTF-8 bytes
+		byte[][] encoded = new byte[n][];
+		int blobLength = 0;
+		for (int i = 0; i < n; i++) {
+			encoded[i] = entityKeys[i].getBytes(StandardCharsets.UTF_8);
+			blobLength += encoded[i].length;
+		}
+
+		Path target = Paths.get(path);
+		Path temp = Paths.get(path + ".tmp");
+		try {
+			File dir = target.toAbsolutePath().getParent().toFile();
+			if (!dir.exists())
+				dir.mkdirs();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile()), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, this.datasetName);
+			writeString(out, this.column);
+			writeString(out, this.normalization);
+			writeString(out, this.keyColumn);
+			out.writeInt(this.maxLines);
+			out.writeLong(sourceSize);
+			out.writeLong(sourceModified);
+			out.writeDouble(minVal);
+			out.writeDouble(maxVal);
+			out.writeDouble(avgVal);
+			out.writeDouble(stDev);
+			out.writeDouble(sumVal);
+			out.writeDouble(sumSq);
+			out.writeInt(n);
+			out.writeInt(d);
+			out.writeInt(blobLength);
+			for (double k: keys)
+				out.writeDouble(k);
+			for (int o: offsets)
+				out.writeInt(o);
+			for (int p: postings)
+				out.writeInt(p);
+			int pos = 0;
+			out.writeInt(pos);
+			for (byte[] b: encoded) {
+				pos += b.length;
+				out.writeInt(pos);
+			}
+			for (byte[] b: encoded)
+				out.write(b);
+			out.close();
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			log.writeln("Snapshot of attribute " + column + " could not be written to " + path + ".");
+			return;
+		}
+
+		duration = System.nanoTime() - duration;
+		log.writeln("Snapshot of attribute " + column + " with " + postings.length + " values saved to " + path + " in " + duration / 1000000000.0 + " sec.");
+	}
+
+
+	/**
+	 * Reads a snapshot of an attribute from a memory-mapped file.
+	 * The snapshot is ignored if it does not exist, if it has a different format version or is truncated, if it concerns another attribute or normalization,
+	 * or if its source has changed since the snapshot was written (key column, limit on lines, size or modification time of the source file).
+	 * Snapshots are never loaded for sources other than local files (e.g., DBMS tables), as their changes cannot be detected.
+	 * @param path  Path to the snapshot file.
+	 * @param datasetName  The dataset containing the attribute.
+	 * @param column  The attribute to be mounted.
+	 * @param keyColumn  The attribute holding the identifiers of the entities.
+	 * @param maxLines  Limit on the lines to be consumed from the source; non-positive, if all lines should be consumed.
+	 * @param normalization  Normalization method (z, unity) to be applied against the values; null, if no normalization should be applied.
+	 * @param log  Handle to the log file for keeping messages and statistics.
+	 * @return  True, if the snapshot has been read; otherwise, False.
+	 */
+	public boolean load(String path, String datasetName, String column, String keyColumn, int maxLines, String normalization, Logger log) {
+
+		long duration = System.nanoTime();
+
+		if (!new File(datasetName).isFile()) {
+			log.writeln("Snapshot at " + path + " is not used, as the source " + datasetName + " of attribute " + column + " is not a local file (e.g., a DBMS table) and its changes cannot be detected. Attribute " + column + " will be ingested from its data source.");
+			return false;
+		}
+
+		if (!new File(path).isFile()) {
+			log.writeln("No snapshot found at " + path + ". Attribute " + column + " will be ingested from its data source.");
+			return false;
+		}
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if ((buf.getInt() != MAGIC) || (buf.getInt() != VERSION)) {
+				log.writeln("Snapshot at " + path + " is not in the supported format (version " + VERSION + "). Attribute " + column + " will be ingested from its data source.");
+				return false;
+			}
+			this.datasetName = readString(buf);
+			this.column = readString(buf);
+			this.normalization = readString(buf);
+			String expected = (normalization != null) ? normalization.toLowerCase() : "";
+			if (!this.datasetName.equals(datasetName) || !this.column.equals(column) || !this.normalization.equals(expected)) {
+				log.writeln("Snapshot at " + path + " concerns attribute " + this.column + " in " + this.datasetName + (this.normalization.isEmpty() ? "" : " with " + this.normalization + " normalization") + ". Attribute " + column + " will be ingested from its data source.");
+				return false;
+			}
+			this.keyColumn = readString(buf);
+			this.maxLines = buf.getInt();
+			this.sourceSize = buf.getLong();
+			this.sourceModified = buf.getLong();
+			long snapshotSize = this.sourceSize, snapshotModified = this.sourceModified;
+			if (!fingerprint(datasetName) || !this.keyColumn.equals(keyColumn) || (this.maxLines != Math.max(0, maxLines)) || (this.sourceSize != snapshotSize) || (this.sourceModified != snapshotModified)) {
+				log.writeln("Snapshot at " + path + " is stale, as the source of attribute " + column + " in " + datasetName + " has changed since it was written. Attribute " + column + " will be ingested from its data source.");
+				return false;
+			}
+			minVal = buf.getDouble();
+			maxVal = buf.getDouble();
+			avgVal = buf.getDouble();
+			stDev = buf.getDouble();
+			sumVal = buf.getDouble();
+			sumSq = buf.getDouble();
+			int n = buf.getInt();
+			int d = buf.getInt();
+			int blobLength = buf.getInt();
+			if (buf.remaining() != 8L * d + 4L * (d + 1) + 4L * n + 4L * (n + 1) + blobLength) {
+				log.writeln("Snapshot at " + path + " is truncated. Attribute " + column + " will be ingested from its data source.");
+				return false;
+			}
+
+			// Copy the flat arrays in bulk
+			keys = new double[d];
+			buf.asDoubleBuffer().get(keys);
+			buf.position(buf.position() + 8 * d);
+			offsets = new int[d + 1];
+			buf.asIntBuffer().get(offsets);
+			buf.position(buf.position() + 4 * (d + 1));
+			postings = new int[n];
+			buf.asIntBuffer().get(postings);
+			buf.position(buf.position() + 4 * n);
+			// Original values are the keys themselves
+			values = new double[n];
+			for (int i = 0; i < d; i++)
+				for (int p = offsets[i]; p < offsets[i + 1]; p++)
+					values[postings[p]] = keys[i];
+			int[] bounds = new int[n + 1];
+			buf.asIntBuffer().get(bounds);
+			buf.position(buf.position() + 4 * (n + 1));
+			byte[] blob = new byte[blobLength];
+			buf.get(blob);
+
+			entityKeys = new String[n];
+			for (int i = 0; i < n; i++)
+				entityKeys[i] = new String(blob, bounds[i], bounds[i + 1] - bounds[i], StandardCharsets.UTF_8);
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+			log.writeln("Snapshot at " + path + " could not be read. Attribute " + column + " will be ingested from its data source.");
+			return false;
+		}
+
+		duration = System.nanoTime() - duration;
+		log.writeln("Snapshot of attribute " + column + " with " + postings.length + " values loaded from " + path + " in " + duration / 1000000000.0 + " sec.");
+
+		return true;
+	}
+
+
+	/**
+	 * Provides the attribute values kept in the snapshot.
+	 * @return  A collection of (key, value) pairs, in the order of the input data.
+	 */
+	public Map<String, Double> getData() {
+
+		HashMap<String, Double> dict = new HashMap<String, Double>();
+		for (int i = 0; i < entityKeys.length; i++)
+			dict.put(entityKeys[i], values[i]);
+
+		return dict;
+	}
+
+
+	/**
+	 * Provides the normalization applied against the values in the snapshot.
+	 * @return  The normalization function, or null if no normalization is applied.
+	 */
+	public INormal<Double> getNormal() {
+
+		if (normalization.equals("z"))
+			return new ZNormal<Double>(avgVal, stDev);
+		else if (normalization.equals("unity"))
+			return new UnityNormal<Double>(avgVal, minVal, maxVal);
+
+		return null;
+	}
+
+
+	/**
+	 * Provides the statistics on the values in the snapshot, so that they can be adjusted once values get upserted.
+	 * @return  A reader holding the statistics, as if it had consumed the values from the data source.
+	 */
+	public DoubleNumReader getStats() {
+
+		DoubleNumReader reader = new DoubleNumReader();
+		reader.count = postings.length;
+		reader.minVal = minVal;
+		reader.maxVal = maxVal;
+		reader.avgVal = avgVal;
+		reader.stDev = stDev;
+		reader.sumVal = sumVal;
+		reader.sumSq = sumSq;
+
+		return reader;
+	}
+
+
+	/**
+	 * Builds a B+-tree index from the sorted keys in the snapshot by bulk loading.
+	 * @param fillFactor  The fraction of the capacity of each node to be filled.
+	 * @param log  Handle to the log file for keeping messages and statistics.
+	 * @return  A handle to the root of the created B+-tree.
+	 */
+	public BPlusTree<Double, String> buildIndex(double fillFactor, Logger log) {
+
+		BPlusTree<Double, String> index = new BPlusTree<Double, String>(64);
+
+		Double[] sortedKeys = new Double[postings.length];
+		String[] sortedValues = new String[postings.length];
+		for (int i = 0; i < keys.length; i++) {
+			Double key = keys[i];
+			for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+				sortedKeys[p] = key;
+				sortedValues[p] = entityKeys[postings[p]];
+			}
+		}
+		index.bulkLoad(sortedKeys, sortedValues, fillFactor);
+
+		log.writeln("Finished indexing data from snapshot. Items indexed: " + postings.length + ".");
+
+		return index;
+	}
+
+
+	/**
+	 * Builds a sorted array index directly from the arrays in the snapshot.
+	 * @param entities  Dictionary of dense integer identifiers to be assigned to the indexed entities.
+	 * @param log  Handle to the log file for keeping messages and statistics.
+	 * @return  A handle to the created index.
+	 */
+	public SortedArrayIndex buildSortedArrayIndex(EntityDictionary entities, Logger log) {
+
+		int[] ids = new int[entityKeys.length];
+		for (int i = 0; i < entityKeys.length; i++)
+			ids[i] = entities.encode(entityKeys[i]);
+		int[] entityIds = new int[postings.length];
+		for (int p = 0; p < postings.length; p++)
+			entityIds[p] = ids[postings[p]];
+
+		SortedArrayIndex index = new SortedArrayIndex(keys, offsets, entityIds, entities);
+
+		log.writeln("Finished indexing data from snapshot. Items indexed: " + postings.length + ".");
+
+		return index;
+	}
+
+
+	/**
+	 * Writes a string as its length followed by its UTF-8 bytes.
+	 * @param out  The output stream.
+	 * @param s  The string to write.
+	 * @throws IOException
+	 */
+	private void writeString(DataOutputStream out, String s) throws IOException {
+
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Reads a string written as its length followed by its UTF-8 bytes.
+	 * @param buf  The buffer to read from.
+	 * @return  The string.
+	 */
+	private String readString(ByteBuffer buf) {
+
+		byte[] b = new byte[buf.getInt()];
+		buf.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+}
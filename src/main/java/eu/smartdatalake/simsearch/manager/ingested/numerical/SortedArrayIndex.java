@@ -0,0 +1,287 @@
+package eu.smartdatalake.simsearch.manager.ingested.numerical;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+
+/**
+ * Implements a read-only index over numerical values as sorted primitive arrays, to be used in similarity search against numerical or temporal values.
+ * Distinct keys are kept in ascending order; the entities having each key are stored contiguously by their dense identifiers, so memory footprint is roughly 4 bytes per entity (its dense identifier) plus 12 bytes per distinct key (the key and its offset).
+ * The index itself is never modified; updates produce a new copy of the arrays, so a B+-tree should be preferred if updates are frequent.
+ */
+public class SortedArrayIndex implements INumericalIndex<Double, String> {
+
+	private double[] keys;			// Distinct keys in ascending order
+	private int[] offsets;			// Position of the first entity of each key; entities of the i-th key are in [offsets[i], offsets[i+1])
+	private int[] entityIds;		// Dense identifiers of the indexed entities, grouped by key
+	private EntityDictionary entities;	// Dictionary used to restore the original identifiers of the entities
+
+	/**
+	 * Constructor
+	 * Entities having the same key retain their order in the given collection.
+	 * @param targetData  The collection of data given as (entity, value) pairs.
+	 * @param entities  Dictionary of dense integer identifiers assigned to the entities.
+	 */
+	public SortedArrayIndex(Map<String, Double> targetData, EntityDictionary entities) {
+
+		this.entities = entities;
+
+		int n = targetData.size();
+		double[] values = new double[n];
+		int[] ids = new int[n];
+		int i = 0;
+		for (Map.Entry<String, Double> entry : targetData.entrySet()) {
+			values[i] = entry.getValue();
+			ids[i] = entities.encode(entry.getKey());
+			i++;
+		}
+
+		// A single sort of the values provides the distinct keys
+		keys = values.clone();
+		Arrays.sort(keys);
+		int numKeys = 0;
+		for (i = 0; i < n; i++) {
+			if ((numKeys == 0) || (Double.compare(keys[numKeys - 1], keys[i]) != 0))
+				keys[numKeys++] = keys[i];
+		}
+		keys = Arrays.copyOf(keys, numKeys);
+
+		// Count the entities per key and then place them in their group
+		int[] slots = new int[n];
+		offsets = new int[numKeys + 1];
+		for (i = 0; i < n; i++) {
+			slots[i] = Arrays.binarySearch(keys, values[i]);
+			offsets[slots[i] + 1]++;
+		}
+		for (i = 0; i < numKeys; i++)
+			offsets[i + 1] += offsets[i];
+		entityIds = new int[n];
+		int[] fill = Arrays.copyOf(offsets, numKeys);
+		for (i = 0; i < n; i++)
+			entityIds[fill[slots[i]]++] = ids[i];
+	}
+
+
+	/**
+	 * Constructor from arrays already grouped by key (e.g., as read from a snapshot).
+	 * @param keys  Distinct keys in ascending order.
+	 * @param offsets  Position of the first entity of each key, followed by the total number of entities.
+	 * @param entityIds  Dense identifiers of the indexed entities, grouped by key.
+	 * @param entities  Dictionary of dense integer identifiers assigned to the entities.
+	 */
+	public SortedArrayIndex(double[] keys, int[] offsets, int[] entityIds, EntityDictionary entities) {
+
+		this.keys = keys;
+		this.offsets = offsets;
+		this.entityIds = entityIds;
+		this.entities = entities;
+	}
+
+
+	/**
+	 * Provides a new index where the given entities are associated with new keys, leaving this index unchanged for any searches still using it.
+	 * Entities not indexed so far are added; any others are moved from their previous key. Both indices share the same dictionary of entities.
+	 * The arrays are merged in a single pass, so only the given pairs need to be sorted; no space proportional to the number of all entities is needed besides the new arrays.
+	 * @param delta  The (entity, value) pairs to be inserted or updated.
+	 * @return  The updated index.
+	 */
+	public SortedArrayIndex upsert(Map<String, Double> delta) {
+
+		// Sort the given pairs by key; entities having the same key retain their order in the given collection
+		int m = delta.size();
+		double[] values = new double[m];
+		Integer[] ids = new Integer[m];
+		int i = 0;
+		for (Map.Entry<String, Double> entry : delta.entrySet()) {
+			values[i] = entry.getValue();
+			ids[i] = entities.encode(entry.getKey());
+			i++;
+		}
+		Double[] sortedValues = BPlusTree.sort(values, ids);
+
+		// Entities to be moved from their previous key; sorted, so that each indexed entity is looked up by binary search
+		int[] moved = new int[m];
+		for (i = 0; i < m; i++)
+			moved[i] = ids[i];
+		Arrays.sort(moved);
+
+		// Merge both sequences of keys; at each key, any remaining entities precede the new ones
+		double[] mergedKeys = new double[keys.length + m];
+		int[] mergedOffsets = new int[keys.length + m + 1];
+		int[] mergedIds = new int[entityIds.length + m];
+		int numKeys = 0, n = 0, j = 0;
+		i = 0;
+		while ((i < keys.length) || (j < m)) {
+			double key = ((j >= m) || ((i < keys.length) && (Double.compare(keys[i], sortedValues[j]) <= 0))) ? keys[i] : sortedValues[j];
+			int start = n;
+			if ((i < keys.length) && (Double.compare(keys[i], key) == 0)) {
+				for (int pos = offsets[i]; pos < offsets[i + 1]; pos++) {
+					if (Arrays.binarySearch(moved, entityIds[pos]) < 0)
+						mergedIds[n++] = entityIds[pos];
+				}
+				i++;
+			}
+			while ((j < m) && (Double.compare(sortedValues[j], key) == 0))
+				mergedIds[n++] = ids[j++];
+			// Keys left without any entities are dropped
+			if (n > start) {
+				mergedKeys[numKeys] = key;
+				mergedOffsets[numKeys++] = start;
+			}
+		}
+		mergedOffsets[numKeys] = n;
+
+		return new SortedArrayIndex(Arrays.copyOf(mergedKeys, numKeys), Arrays.copyOf(mergedOffsets, numKeys + 1), Arrays.copyOf(mergedIds, n), entities);
+	}
+
+
+	/**
+	 * Read-only list of the entities associated with a key; their original identifiers are only restored once accessed.
+	 */
+	public class EntityList extends AbstractList<String> {
+
+		private final int pos;
+
+		/**
+		 * Constructor
+		 * @param pos  The position of the key.
+		 */
+		EntityList(int pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		public String get(int i) {
+			return entities.decode(entityIds[offsets[pos] + i]);
+		}
+
+		/**
+		 * Provides the dense identifier of an entity in the list, without restoring its original identifier.
+		 * @param i  The position of the entity in the list.
+		 * @return  The dense identifier of this entity in the entity dictionary.
+		 */
+		public int getEntity(int i) {
+			return entityIds[offsets[pos] + i];
+		}
+
+		@Override
+		public int size() {
+			return offsets[pos + 1] - offsets[pos];
+		}
+	}
+
+
+	/**
+	 * Provides the entities associated with the key at the given position.
+	 * @param pos  The position of the key.
+	 * @return  A read-only list of entity identifiers.
+	 */
+	private List<String> valuesAt(int pos) {
+
+		return new EntityList(pos);
+	}
+
+
+	@Override
+	public List<String> search(Double key) {
+
+		int loc = Arrays.binarySearch(keys, key);
+		return (loc >= 0) ? valuesAt(loc) : null;
+	}
+
+
+	@Override
+	public Cursor seek(Double key) {
+		return new Cursor(key);
+	}
+
+
+	@Override
+	public Double calcMinKey() {
+		return (keys.length > 0) ? keys[0] : null;
+	}
+
+
+	@Override
+	public Double calcMaxKey() {
+		return (keys.length > 0) ? keys[keys.length - 1] : null;
+	}
+
+
+	/**
+	 * Provides the number of distinct keys in the index.
+	 * @return  The number of keys.
+	 */
+	public int getNumKeys() {
+		return keys.length;
+	}
+
+	/**
+	 * Provides the number of entities in the index.
+	 * @return  The number of entities.
+	 */
+	public int getNumEntities() {
+		return entityIds.length;
+	}
+
+
+	/**
+	 * Cursor walking the sorted keys leftwards and rightwards from a search key with two pointers.
+	 */
+	public class Cursor implements INumericalCursor<Double, String> {
+
+		private int leftPos, rightPos;		// Positions of the keys currently visited leftwards and rightwards
+		private List<String> exactValues;	// Values associated with the search key, if it exists in the index
+
+		/**
+		 * Constructor
+		 * @param key  The search key.
+		 */
+		private Cursor(Double key) {
+
+			int loc = Arrays.binarySearch(keys, key);
+			if (loc >= 0) {   // Exact match; keys to visit are strictly before and after it
+				exactValues = valuesAt(loc);
+				leftPos = rightPos = loc;
+			}
+			else {			  // Keys to visit start from the insertion point of the search key
+				exactValues = null;
+				leftPos = -loc - 1;
+				rightPos = -loc - 2;
+			}
+		}
+
+		@Override
+		public List<String> getExactValues() {
+			return exactValues;
+		}
+
+		@Override
+		public Double nextLeft() {
+			if (leftPos >= 0)
+				leftPos--;
+			return (leftPos >= 0) ? keys[leftPos] : null;
+		}
+
+		@Override
+		public Double nextRight() {
+			if (rightPos < keys.length)
+				rightPos++;
+			return (rightPos < keys.length) ? keys[rightPos] : null;
+		}
+
+		@Override
+		public List<String> getLeftValues() {
+			return (leftPos >= 0) ? valuesAt(leftPos) : null;
+		}
+
+		@Override
+		public List<String> getRightValues() {
+			return (rightPos < keys.length) ? valuesAt(rightPos) : null;
+		}
+	}
+
+}
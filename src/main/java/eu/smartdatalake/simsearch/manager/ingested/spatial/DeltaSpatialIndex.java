@@ -0,0 +1,323 @@
+package eu.smartdatalake.simsearch.manager.ingested.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+
+import eu.smartdatalake.simsearch.Constants;
+
+/**
+ * Spatial index that supports inserting, moving and deleting locations on top of a static index (an R-tree or a packed index over points).
+ * Locations upserted after the static index was built are kept in a small delta R-tree (packed over the same columnar store in case of points), and any entry of the same entities in the static index is superseded.
+ * Upserts are applied against a copy of this index, which shares the static index, so that searches may continue against the original one.
+ * Nearest neighbors are provided by merging the distance browsing over both indices; the delta is only browsed within the distance reached in the static index, so queries visit only a few more nodes as long as the delta remains small.
+ * Once the delta gets large, the static index should be rebuilt from all current locations, so that the delta is merged into it.
+ * @param <K>  Type variable representing the keys of the indexed objects.
+ * @param <V>  Type variable representing the values of the indexed objects.
+ */
+public class DeltaSpatialIndex<K extends Comparable<? super K>, V> implements ISpatialIndex<K, V> {
+
+	ISpatialIndex<K, V> base;			// Static index over all locations at the time it was built
+	Map<String, Location> changes;		// Current location of each entity upserted since; null, if its location has been deleted
+	ISpatialIndex<K, V> delta;			// R-tree over the current locations in changes; null, if there are none
+	List<Location> upserted;			// Upserts in order of arrival (with a null geometry for deletions), so that they can be replayed
+	BitSet indexed;						// Whether the entity of each upsert had a location before it
+	BitSet supersededIds;				// Dense identifiers of the points superseded by changes, if the static index is a packed index over points; otherwise, null
+	int numSuperseded;					// Number of entries in the static index superseded by changes
+	PointStore store;					// Columnar store with the current locations that the delta over points refers to, if the static index is a packed index over points; otherwise, null
+	private boolean merging;			// Indicates whether a merged index is currently being rebuilt
+
+
+	/**
+	 * Constructor
+	 * @param base  The static spatial index.
+	 */
+	public DeltaSpatialIndex(ISpatialIndex<K, V> base) {
+
+		this.base = base;
+		this.changes = new HashMap<String, Location>();
+		this.delta = null;
+		this.upserted = new ArrayList<Location>();
+		this.indexed = new BitSet();
+		this.supersededIds = (base instanceof PackedPointIndex) ? new BitSet() : null;
+		this.numSuperseded = 0;
+		this.store = (base instanceof PackedPointIndex) ? ((PackedPointIndex<K, V>) base).store : null;
+		this.merging = false;
+	}
+
+
+	/**
+	 * Copy constructor; the copy shares the static index, but has its own changes, so it can be upserted while searches continue against the original.
+	 * The delta R-tree must be rebuilt with build() once upserts have been applied against the copy.
+	 * @param other  The index to copy.
+	 * @param store  A copy of the columnar store of points to receive the upserted locations, if the static index is a packed index over points; otherwise, null.
+	 */
+	public DeltaSpatialIndex(DeltaSpatialIndex<K, V> other, PointStore store) {
+
+		this.base = other.base;
+		this.changes = new HashMap<String, Location>(other.changes);
+		this.delta = other.delta;
+		this.upserted = new ArrayList<Location>(other.upserted);
+		this.indexed = (BitSet) other.indexed.clone();
+		this.supersededIds = (other.supersededIds != null) ? (BitSet) other.supersededIds.clone() : null;
+		this.numSuperseded = other.numSuperseded;
+		this.store = (other.supersededIds != null) ? store : null;
+		this.merging = other.merging;
+	}
+
+
+	/**
+	 * Inserts, moves or deletes the location of an entity; any entry of this entity in the static index is superseded.
+	 * The delta R-tree must be rebuilt with build() after a batch of upserts, before any search against this index.
+	 * @param p  The location (including the geometry and an identifier) of the entity; a null geometry deletes the entity from the index.
+	 * @param existed  Indicates whether the entity had a location before this upsert.
+	 */
+	public void upsert(Location p, boolean existed) {
+
+		// The first change of an entity that already had a location supersedes its entry in the static index
+		if (existed && !changes.containsKey(p.key)) {
+			numSuperseded++;
+			if (supersededIds != null)
+				supersededIds.set(store.entities.getId(p.key));
+		}
+		changes.put(p.key, (p.loc == null) ? null : p);
+		indexed.set(upserted.size(), existed);
+		upserted.add(p);
+	}
+
+
+	/**
+	 * Rebuilds the delta R-tree over the current locations of all entities upserted so far.
+	 * As the delta is kept small, bulk loading it again after each batch of upserts costs less than maintaining it dynamically.
+	 */
+	public void build() {
+
+		// Points are indexed by their dense identifiers in the current columnar store, in which the points of the static index not superseded remain as they were
+		if (supersededIds != null) {
+			int[] ids = new int[changes.size()];
+			int n = 0;
+			for (Location p : changes.values()) {
+				if (p != null)
+					ids[n++] = store.entities.getId(p.key);
+			}
+			delta = (n > 0) ? new PackedPointIndex<K, V>(store, Arrays.copyOf(ids, n), Constants.DELTA_RTREE_NODE_SIZE) : null;
+			return;
+		}
+
+		RTree<K, V> tree = null;
+		for (Location p : changes.values()) {
+			if (p == null)
+				continue;
+			if (tree == null)
+				tree = new RTree<K, V>(Constants.DELTA_RTREE_NODE_SIZE);
+			tree.insert(p);
+		}
+		if (tree != null)
+			tree.finalize();
+		delta = tree;
+	}
+
+
+	/**
+	 * Upserts into this index the changes that have been applied to another index after the given position, and rebuilds its delta R-tree.
+	 * A packed static index over points is switched to the columnar store of the other index; all points changed in that store since the snapshot get superseded by the replayed changes.
+	 * @param other  The index that has been in use while this one was being built.
+	 * @param from  The number of upserts already included in the snapshot this index was built from.
+	 */
+	public void replay(DeltaSpatialIndex<K, V> other, int from) {
+
+		if (supersededIds != null) {
+			store = other.store;
+			((PackedPointIndex<K, V>) base).setStore(store);
+		}
+		for (int i = from; i < other.getNumUpserted(); i++)
+			upsert(other.upserted.get(i), other.indexed.get(i));
+		build();
+	}
+
+
+	/**
+	 * Provides the number of upserts applied since the static index was built, including repeated ones for the same entity.
+	 * @return  The number of upserts.
+	 */
+	public int getNumUpserted() {
+		return upserted.size();
+	}
+
+
+	/**
+	 * Provides the number of entities whose locations have changed since the static index was built.
+	 * @return  The number of entities in the delta, including deleted ones.
+	 */
+	public int getNumChanged() {
+		return changes.size();
+	}
+
+
+	/**
+	 * Indicates whether the delta has grown enough to be merged into the static index.
+	 * @param ratio  Number of changed entities relative to the static index that triggers a merge.
+	 * @param minSize  Minimum number of changed entities that triggers a merge.
+	 * @return  True, if the index should be rebuilt; otherwise, False.
+	 */
+	public boolean needsMerge(double ratio, int minSize) {
+		return (changes.size() >= minSize) && (changes.size() >= ratio * base.countItems());
+	}
+
+	/**
+	 * Indicates whether another index shares the static index of this one, i.e., it has been derived from the same index by upserts against copies of it.
+	 * @param other  Another spatial index with a delta.
+	 * @return  True, if both indices have the same static index; otherwise, False.
+	 */
+	public boolean sharesBase(DeltaSpatialIndex<K, V> other) {
+		return (other != null) && (base == other.base);
+	}
+
+	public boolean isMerging() {
+		return merging;
+	}
+
+	public void setMerging(boolean merging) {
+		this.merging = merging;
+	}
+
+
+	@Override
+	public ISpatialCursor browse(V qryLoc) {
+
+		// No overhead over the static index until any location changes
+		if (changes.isEmpty())
+			return base.browse(qryLoc);
+		// A packed index skips superseded points by their dense identifiers, which is cheaper than checking their keys
+		if (supersededIds != null)
+			return new Cursor(((PackedPointIndex<K, V>) base).browse(qryLoc, supersededIds), false, delta, qryLoc);
+		return new Cursor(base.browse(qryLoc), true, delta, qryLoc);
+	}
+
+
+	/**
+	 * Provides an MBR that covers all locations in the index; it may be larger than needed, if locations on its boundary have been moved or deleted.
+	 * @return  An envelope representing the MBR.
+	 */
+	@Override
+	public Envelope getMBR() {
+
+		Envelope env = new Envelope(base.getMBR());
+		if (delta != null)
+			env.expandToInclude(delta.getMBR());
+		return env;
+	}
+
+
+	@Override
+	public int getDepth() {
+
+		return base.getDepth();
+	}
+
+
+	@Override
+	public int countItems() {
+
+		return base.countItems() - numSuperseded + ((delta == null) ? 0 : delta.countItems());
+	}
+
+
+	/**
+	 * Cursor that merges the locations provided by the static index and the delta by ascending distance from a query geometry.
+	 * Entries of the static index superseded by changes are skipped.
+	 * The delta is browsed lazily: its cursor is only opened once a location is requested, and it only visits entries not farther than the next location of the static index.
+	 * Thus, a query whose nearest locations come from the static index examines no more than the root of the delta.
+	 */
+	private class Cursor implements ISpatialCursor {
+
+		ISpatialCursor baseCursor, deltaCursor;
+		ISpatialIndex<K, V> deltaIndex;		// The delta R-tree; null, if it holds no locations
+		V qryLoc;							// The query location, kept until the delta gets browsed
+		boolean checkKeys;					// Whether locations from the static index must be checked against changes
+		Location nextBase, nextDelta;		// Next location from each cursor not yet reported; from the delta, only if already fetched
+		double baseDistance, deltaDistance;
+		double distance;					// Distance of the most recently reported location
+
+		/**
+		 * Constructor
+		 * @param baseCursor  Distance browsing over the static index.
+		 * @param checkKeys  True, if the static index may report superseded locations; False, if it already skips them.
+		 * @param deltaIndex  The delta R-tree; null, if the delta holds no locations.
+		 * @param qryLoc  The query location.
+		 */
+		Cursor(ISpatialCursor baseCursor, boolean checkKeys, ISpatialIndex<K, V> deltaIndex, V qryLoc) {
+
+			this.baseCursor = baseCursor;
+			this.checkKeys = checkKeys;
+			this.deltaIndex = deltaIndex;
+			this.qryLoc = qryLoc;
+			this.distance = Double.NaN;
+			advanceBase();
+		}
+
+		private void advanceBase() {
+
+			while (((nextBase = baseCursor.next()) != null) && checkKeys && changes.containsKey(nextBase.key))
+				;
+			if (nextBase != null)
+				baseDistance = baseCursor.getDistance();
+		}
+
+		/**
+		 * Fetches the next location of the delta, unless already fetched, as long as it is not farther than the given bound.
+		 * @param bound  The maximum distance of the location to fetch.
+		 */
+		private void advanceDelta(double bound) {
+
+			if ((nextDelta != null) || (deltaIndex == null))
+				return;
+			if (deltaCursor == null)
+				deltaCursor = deltaIndex.browse(qryLoc);
+			nextDelta = deltaCursor.next(bound);
+			if (nextDelta != null)
+				deltaDistance = deltaCursor.getDistance();
+		}
+
+		@Override
+		public Location next() {
+
+			return next(Double.POSITIVE_INFINITY);
+		}
+
+		@Override
+		public Location next(double bound) {
+
+			// The delta only needs to be browsed up to the next location of the static index
+			advanceDelta((nextBase != null) ? Math.min(bound, baseDistance) : bound);
+
+			if ((nextBase != null) && ((nextDelta == null) || (baseDistance <= deltaDistance))) {
+				if (baseDistance > bound)
+					return null;
+				distance = baseDistance;
+				Location p = nextBase;
+				advanceBase();
+				return p;
+			}
+			else if ((nextDelta != null) && !(deltaDistance > bound)) {
+				distance = deltaDistance;
+				Location p = nextDelta;
+				nextDelta = null;
+				return p;
+			}
+			return null;
+		}
+
+		@Override
+		public double getDistance() {
+
+			return distance;
+		}
+	}
+
+}
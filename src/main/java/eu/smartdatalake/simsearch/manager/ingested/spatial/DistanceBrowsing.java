@@ -0,0 +1,145 @@
+package eu.smartdatalake.simsearch.manager.ingested.spatial;
+
+import java.util.PriorityQueue;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.AbstractNode;
+import org.locationtech.jts.index.strtree.Boundable;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * Incrementally provides the locations indexed in an STRtree by ascending distance from a query geometry.
+ * It employs the distance browsing method described in G.R. Hjaltason and H. Samet: "Distance browsing in spatial databases" (https://dl.acm.org/doi/10.1145/320248.320255).
+ * Unlike a k-NN search, no number of neighbors needs to be specified in advance; only the nodes needed for the neighbors actually requested get visited.
+ * Complex geometries (e.g., polygons) that have been prepared are filtered by the distance of their simplified hull, and their exact distance is only calculated once they reach the head of the queue.
+ */
+public class DistanceBrowsing implements ISpatialCursor {
+
+	/**
+	 * An element in the priority queue: either a node of the tree, an indexed location, a location with a lower bound of its distance, or a location with its exact distance.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		final Object element;
+		final double distance;		// Exact distance of a location; otherwise, a lower bound based on the MBR or the simplified hull
+		final boolean exact;
+
+		Candidate(Object element, double distance, boolean exact) {
+			this.element = element;
+			this.distance = distance;
+			this.exact = exact;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			int c = Double.compare(distance, other.distance);
+			// On ties, report locations before expanding further nodes
+			if (c == 0)
+				c = Boolean.compare(other.exact, exact);
+			return c;
+		}
+	}
+
+	Geometry q;				// The query geometry
+	Envelope qEnv;			// MBR of the query geometry
+	double[] qSupports;		// Simplified hull of the query geometry, used in filtering prepared locations
+	PriorityQueue<Candidate> Q;
+	double distance;		// Distance of the most recently reported location
+	int numVisitedNodes;
+
+
+	/**
+	 * Constructor
+	 * @param idx  The STRtree to browse; it is built if not already.
+	 * @param q  The query geometry.
+	 */
+	public DistanceBrowsing(STRtree idx, Geometry q) {
+
+		this.q = q;
+		this.qEnv = q.getEnvelopeInternal();
+		this.qSupports = q.isEmpty() ? null : PreparedLocation.supports(q);
+		this.Q = new PriorityQueue<Candidate>();
+		this.distance = Double.NaN;
+		this.numVisitedNodes = 0;
+
+		// Add root node to the queue with its distance from q
+		AbstractNode root = idx.getRoot();
+		if ((root != null) && !root.isEmpty())
+			Q.add(new Candidate(root, qEnv.distance((Envelope) root.getBounds()), false));
+	}
+
+
+	/**
+	 * Provides the next nearest location to the query geometry.
+	 * @return  The location; null, if all indexed locations have been reported.
+	 */
+	@Override
+	public Location next() {
+
+		return next(Double.POSITIVE_INFINITY);
+	}
+
+
+	/**
+	 * Provides the next nearest location to the query geometry, as long as its distance does not exceed the given bound.
+	 * Elements farther than the bound remain in the queue, so browsing can be resumed later with a larger bound.
+	 * @param bound  The maximum distance of the location to report.
+	 * @return  The location; null, if no location remains within the bound.
+	 */
+	@Override
+	public Location next(double bound) {
+
+		Candidate element;
+		while (((element = Q.peek()) != null) && !(element.distance > bound)) {
+			Q.poll();
+			if (element.exact) {
+				// No other element in the queue can be closer
+				distance = element.distance;
+				return (Location) element.element;
+			}
+			else if (element.element instanceof ItemBoundable) {
+				// The exact distance of a location may exceed the distance from its MBR, so it must be examined again
+				Location p = (Location) ((ItemBoundable) element.element).getItem();
+				PreparedLocation pl = PreparedLocation.get(p.loc);
+				if ((pl != null) && (qSupports != null))		// Filter: defer the exact distance with a tighter lower bound
+					Q.add(new Candidate(p, Math.max(element.distance, pl.lowerBound(qSupports)), false));
+				else
+					Q.add(new Candidate(p, q.distance(p.loc), true));
+			}
+			else if (element.element instanceof Location) {
+				// Refine: this location may still be the next nearest, so its exact distance is needed
+				Location p = (Location) element.element;
+				Q.add(new Candidate(p, PreparedLocation.get(p.loc).distance(q), true));
+			}
+			else {
+				// Push all children of this node into the queue according to their distances from the query
+				numVisitedNodes++;
+				for (Object child : ((AbstractNode) element.element).getChildBoundables())
+					Q.add(new Candidate(child, qEnv.distance((Envelope) ((Boundable) child).getBounds()), false));
+			}
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Provides the distance of the most recently reported location from the query geometry.
+	 * @return  The distance; NaN, if no location has been reported yet.
+	 */
+	@Override
+	public double getDistance() {
+		return distance;
+	}
+
+
+	/**
+	 * Provides the number of tree nodes expanded so far.
+	 * @return  The number of visited nodes.
+	 */
+	public int getNumVisitedNodes() {
+		return numVisitedNodes;
+	}
+
+}
@@ -0,0 +1,28 @@
+package eu.smartdatalake.simsearch.manager.ingested.spatial;
+
+/**
+ * Interface to cursors that provide the locations of a spatial index by ascending distance from a query location.
+ */
+public interface ISpatialCursor {
+
+	/**
+	 * Provides the next nearest location to the query location.
+	 * @return  The location; null, if all indexed locations have been reported.
+	 */
+	public Location next();
+
+	/**
+	 * Provides the next nearest location to the query location, as long as its distance does not exceed the given bound.
+	 * Only entries within the bound are examined, so the cursor can be resumed later with a larger bound.
+	 * @param bound  The maximum distance of the location to report.
+	 * @return  The location; null, if no location remains within the bound.
+	 */
+	public Location next(double bound);
+
+	/**
+	 * Provides the distance of the most recently reported location from the query location.
+	 * @return  The distance; NaN, if no location has been reported yet.
+	 */
+	public double getDistance();
+
+}
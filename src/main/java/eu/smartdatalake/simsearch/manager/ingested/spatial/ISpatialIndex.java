@@ -0,0 +1,39 @@
+package eu.smartdatalake.simsearch.manager.ingested.spatial;
+
+import org.locationtech.jts.geom.Envelope;
+
+import eu.smartdatalake.simsearch.manager.ingested.Index;
+
+/**
+ * Interface to spatial indices (e.g., R-tree over geometries, packed index over point coordinates) that can be used in k-NN similarity search against locations.
+ * @param <K>  Type variable representing the keys of the indexed objects.
+ * @param <V>  Type variable representing the values of the indexed objects.
+ */
+public interface ISpatialIndex<K extends Comparable<? super K>, V> extends Index<Object, Object> {
+
+	/**
+	 * Provides a cursor over the indexed locations by ascending distance from the specified query location.
+	 * @param qryLoc  The query location.
+	 * @return  A distance browsing cursor over the index.
+	 */
+	public ISpatialCursor browse(V qryLoc);
+
+	/**
+	 * Provides the Minimum Bounding Rectangle (MBR) of all locations in the index.
+	 * @return  An envelope representing the MBR.
+	 */
+	public Envelope getMBR();
+
+	/**
+	 * Returns the depth of the index.
+	 * @return  The number of levels in the index.
+	 */
+	public int getDepth();
+
+	/**
+	 * Returns the number of locations in the index.
+	 * @return  The number of indexed locations.
+	 */
+	public int countItems();
+
+}
@@ -9,9 +9,10 @@ public class Location {
 
 	public String key;
 	public Geometry loc;
+	public int entity = -1;		// Dense identifier of the object, if kept by the index; otherwise, -1
 	
 	/**
-	 * Constructor
+	 * Constructor #1
 	 * @param id  The identifier of the object.
 	 * @param g  The geometry (currently, a point location) of the object.
 	 */
@@ -20,4 +21,16 @@ public class Location {
 		this.loc = g;
 	}
 	
+	/**
+	 * Constructor #2
+	 * @param id  The identifier of the object.
+	 * @param g  The geometry (currently, a point location) of the object.
+	 * @param entity  The dense identifier of the object in the entity dictionary.
+	 */
+	public Location(String id, Geometry g, int entity) {
+		this.key = id;
+		this.loc = g;
+		this.entity = entity;
+	}
+	
 }
@@ -3,24 +3,27 @@ package eu.smartdatalake.simsearch.manager.ingested.spatial;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.ResultSet;
-import java.util.HashMap;
 import java.util.Map;
 
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.WKTReader;
 
+import eu.smartdatalake.simsearch.Constants;
 import eu.smartdatalake.simsearch.Logger;
 import eu.smartdatalake.simsearch.manager.ingested.DataFileReader;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
 
 /**
  * Consumes data from a CSV file and extracts location values from two specific attributes.
- * Locations (as geometries) are maintained in a hash table taking their keys from another attribute in the file. 
- * An R-tree index may be created from the collected (key,location) pairs.
+ * Locations (as geometries) are maintained in a hash table taking their keys from another attribute in the file, or in a columnar store in case of point locations. 
+ * An R-tree index may be created from the collected (key,location) pairs, or a packed index over the columnar store of points.
  */
 public class LocationReader {
 	
 	WKTReader wktReader;
+	GeometryFactory geomFactory;
 	Geometry g;
 	
 	/**
@@ -29,6 +32,7 @@ public class LocationReader {
 	public LocationReader() {
 		
 		wktReader = new WKTReader();
+		geomFactory = new GeometryFactory();
 	}
 	
 	/** 
@@ -56,7 +60,7 @@ public class LocationReader {
 	public Geometry LonLat2Geometry(double lon, double lat) {  
   	    
         try {
-        	g = wktReader.read("POINT (" + lon + " " + lat + ")");
+        	g = geomFactory.createPoint(new Coordinate(lon, lat));
 		} catch (Exception e) {
 			return null;
 		}
@@ -95,6 +99,40 @@ public class LocationReader {
 	}
 	
 	
+	/**
+	 * Prepares all complex geometries (i.e., other than points) of an attribute for filter-and-refine distance calculations.
+	 * @param targetData  A dictionary of all geometries with their unique identifiers as keys.
+	 * @param log  Handle to the logger of statistics calculated over the data.
+	 */
+	public void prepareGeometries(Map<String, Geometry> targetData, Logger log) {
+
+		int count = 0;
+		for (Geometry g : targetData.values()) {
+			if (PreparedLocation.prepare(g) != null)
+				count++;
+		}
+
+		if (count > 0)
+			log.writeln("Prepared " + count + " geometries other than points for filter-and-refine distance calculations.");
+	}
+	
+	
+	/**
+	 * Creates a packed R-tree index over a columnar store of point locations.
+	 * @param targetData  The columnar store of all point locations.
+	 * @param log  Handle to the logger of statistics calculated over the data.
+	 * @return  The packed index created over the input points.
+	 */
+	public PackedPointIndex<String, Location> buildPointIndex(PointStore targetData, Logger log) {
+
+		PackedPointIndex<String, Location> index = new PackedPointIndex<String, Location>(targetData, Constants.PACKED_RTREE_NODE_SIZE);
+
+		log.writeln("Finished indexing point locations. Items indexed: " + index.countItems() + ". Memory footprint: " + (targetData.getMemoryFootprint() + index.getMemoryFootprint()) + " bytes.");
+
+		return index;
+	}
+	
+	
 	/**
 	 * Creates a dictionary of (key,geometry) pairs of all items read from a CSV file.
 	 * ASSUMPTION: Input data collection only contains POINT locations referenced in WGS84.
@@ -104,12 +142,12 @@ public class LocationReader {
 	 * @param colValue  An integer representing the ordinal number of the attribute containing the values (i.e., geometries) of the entities.
 	 * @param columnDelimiter  The delimiter character used between attribute values in the CSV file.
 	 * @param header  Boolean indicating whether the first line contains attribute names.
+	 * @param dict  The lookup to populate with (key,geometry) values, i.e., a hash map or a columnar store of points.
 	 * @param log  Handle to the logger for statistics and issues over the input data.
-	 * @return  A hash map of (key,geometry) values.
+	 * @return  The lookup of (key,geometry) values.
 	 */
-	public HashMap<String, Geometry> importFromCsvFile(String inputFile, int maxLines, int colKey, int colValue, String columnDelimiter, boolean header, Logger log) {
+	public Map<String, Geometry> importFromCsvFile(String inputFile, int maxLines, int colKey, int colValue, String columnDelimiter, boolean header, Map<String, Geometry> dict, Logger log) {
 
-		HashMap<String, Geometry> dict = new HashMap<String, Geometry>();
 		
 		// FIXME: Special handling when delimiter appears in an attribute value enclosed in quotes
         String otherThanQuote = " [^\"] ";
@@ -171,12 +209,12 @@ public class LocationReader {
 	 * @param longitudeColumnName  The name of the attribute containing the longitude ordinate of the entities.
 	 * @param latitudeColumnName  The name of the attribute containing the latitude ordinate of the entities.
 	 * @param jdbcConnector  Instance of a JDBC connector to the DBMS where the table resides.
+	 * @param dict  The lookup to populate with (key,geometry) values, i.e., a hash map or a columnar store of points.
 	 * @param log  Logger for statistics and issues over the input data.
-	 * @return  A hash map of (key,geometry) values.
+	 * @return  The lookup of (key,geometry) values.
 	 */
-	public HashMap<String, Geometry> importFromJdbcTable(String tableName, String keyColumnName, String longitudeColumnName, String latitudeColumnName, JdbcConnector jdbcConnector, Logger log) {
+	public Map<String, Geometry> importFromJdbcTable(String tableName, String keyColumnName, String longitudeColumnName, String latitudeColumnName, JdbcConnector jdbcConnector, Map<String, Geometry> dict, Logger log) {
 
-		HashMap<String, Geometry> dict = new HashMap<String, Geometry>();
 
 		long startTime = System.nanoTime();
 		// In case no column for key datasetIdentifiers has been specified, use the primary key of the table  
@@ -218,12 +256,12 @@ public class LocationReader {
 	 * @param keyColumnName  The name of the attribute containing the unique identifier (key) of the entities.
 	 * @param geometryColumnName  The name of the attribute containing the geometry of the entities.
 	 * @param jdbcConnector  Instance of a JDBC connector to the DBMS where the table resides.
+	 * @param dict  The lookup to populate with (key,geometry) values, i.e., a hash map or a columnar store of points.
 	 * @param log  Logger for statistics and issues over the input data.
-	 * @return  A hash map of (key,geometry) values.
+	 * @return  The lookup of (key,geometry) values.
 	 */
-	public HashMap<String, Geometry> importFromJdbcTable(String tableName, String keyColumnName, String geometryColumnName, JdbcConnector jdbcConnector, Logger log) {
+	public Map<String, Geometry> importFromJdbcTable(String tableName, String keyColumnName, String geometryColumnName, JdbcConnector jdbcConnector, Map<String, Geometry> dict, Logger log) {
 
-		HashMap<String, Geometry> dict = new HashMap<String, Geometry>();
 
 		long startTime = System.nanoTime();
 		// In case no column for key datasetIdentifiers has been specified, use the primary key of the table  
@@ -268,12 +306,12 @@ public class LocationReader {
 	 * @param colLatitude  An integer representing the ordinal number of the attribute containing the latitude ordinates of the entities.
 	 * @param columnDelimiter  The delimiter character used between attribute values in the CSV file.
 	 * @param header  Boolean indicating whether the first line contains attribute names.
+	 * @param dict  The lookup to populate with (key,geometry) values, i.e., a hash map or a columnar store of points.
 	 * @param log  Logger for statistics and issues over the input data.
-	 * @return  A hash map of (key,geometry) values.
+	 * @return  The lookup of (key,geometry) values.
 	 */
-	public HashMap<String, Geometry> importFromCsvFile(String inputFile, int maxLines, int colKey, int colLongitude, int colLatitude, String columnDelimiter, boolean header, Logger log) {
+	public Map<String, Geometry> importFromCsvFile(String inputFile, int maxLines, int colKey, int colLongitude, int colLatitude, String columnDelimiter, boolean header, Map<String, Geometry> dict, Logger log) {
 
-		HashMap<String, Geometry> dict = new HashMap<String, Geometry>();
 
 		// FIXME: Special handling when delimiter appears in an attribute value enclosed in quotes
         String otherThanQuote = " [^\"] ";
@@ -0,0 +1,397 @@
+package eu.smartdatalake.simsearch.manager.ingested.spatial;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+
+/**
+ * Implements a static R-tree packed over the locations kept in a columnar store of points.
+ * Points are sorted along a Hilbert curve and consecutive runs of them are grouped into nodes, level by level up to the root.
+ * Leaves refer to points by their dense identifiers, and the MBRs of all nodes are stored in a single array of doubles, so the index has no per-entity objects.
+ * Nearest neighbors are provided incrementally by ascending distance from a query location, as in {@link DistanceBrowsing}.
+ * @param <K>  Type variable representing the keys of the indexed objects.
+ * @param <V>  Type variable representing the values of the indexed objects.
+ */
+public class PackedPointIndex<K extends Comparable<? super K>, V> implements ISpatialIndex<K, V> {
+
+	PointStore store;		// The coordinates of the indexed points
+	int nodeSize;			// Max number of entries per node
+	int[] items;			// Dense identifiers of the indexed points in Hilbert order
+	int[] levelSizes;		// Number of entries per level; level 0 holds the points, the last one is the root
+	int[] levelOffsets;		// Position of the first node of each level (from level 1 onwards) in the array of MBRs
+	double[] bounds;		// MBR of each node as (minX, minY, maxX, maxY)
+
+
+	/**
+	 * Constructor
+	 * @param store  The columnar store of point locations to be indexed.
+	 * @param nodeSize  The maximum number of entries per node.
+	 */
+	public PackedPointIndex(PointStore store, int nodeSize) {
+
+		this(store, null, nodeSize);
+	}
+
+
+	/**
+	 * Constructor
+	 * @param store  The columnar store of point locations.
+	 * @param ids  The dense identifiers of the points to be indexed (e.g., those upserted into the store); null, if all points in the store should be indexed.
+	 * @param nodeSize  The maximum number of entries per node.
+	 */
+	public PackedPointIndex(PointStore store, int[] ids, int nodeSize) {
+
+		this.store = store;
+		this.nodeSize = Math.max(2, nodeSize);
+		int count = (ids != null) ? ids.length : store.capacity();
+
+		// Collect all points currently in the store and their extent
+		int n = 0;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int c = 0; c < count; c++) {
+			int id = (ids != null) ? ids[c] : c;
+			if (store.contains(id)) {
+				n++;
+				minX = Math.min(minX, store.getX(id));
+				minY = Math.min(minY, store.getY(id));
+				maxX = Math.max(maxX, store.getX(id));
+				maxY = Math.max(maxY, store.getY(id));
+			}
+		}
+
+		// Sort points by their Hilbert value on a 2^16 x 2^16 grid; the identifier is kept in the lower bits of each sort key
+		long[] keys = new long[n];
+		double scaleX = (maxX > minX) ? 65535.0 / (maxX - minX) : 0.0;
+		double scaleY = (maxY > minY) ? 65535.0 / (maxY - minY) : 0.0;
+		int i = 0;
+		for (int c = 0; c < count; c++) {
+			int id = (ids != null) ? ids[c] : c;
+			if (store.contains(id))
+				keys[i++] = (hilbert((int) ((store.getX(id) - minX) * scaleX), (int) ((store.getY(id) - minY) * scaleY)) << 31) | id;
+		}
+		Arrays.sort(keys);
+		items = new int[n];
+		for (i = 0; i < n; i++)
+			items[i] = (int) (keys[i] & 0x7FFFFFFFL);
+		keys = null;
+
+		// Number of nodes per level
+		int numLevels = 1;
+		for (int size = n; size > 1; size = (size + this.nodeSize - 1) / this.nodeSize)
+			numLevels++;
+		if (n == 0)
+			numLevels = 1;
+		levelSizes = new int[numLevels];
+		levelOffsets = new int[numLevels + 1];
+		levelSizes[0] = n;
+		for (int l = 1; l < numLevels; l++) {
+			levelSizes[l] = (levelSizes[l - 1] + this.nodeSize - 1) / this.nodeSize;
+			levelOffsets[l + 1] = levelOffsets[l] + levelSizes[l];
+		}
+		bounds = new double[4 * levelOffsets[numLevels]];
+
+		// MBRs of nodes over points
+		for (int j = 0; (numLevels > 1) && (j < levelSizes[1]); j++) {
+			int b = 4 * (levelOffsets[1] + j);
+			bounds[b] = bounds[b + 1] = Double.POSITIVE_INFINITY;
+			bounds[b + 2] = bounds[b + 3] = Double.NEGATIVE_INFINITY;
+			for (int c = j * this.nodeSize; c < Math.min((j + 1) * this.nodeSize, n); c++) {
+				bounds[b] = Math.min(bounds[b], store.getX(items[c]));
+				bounds[b + 1] = Math.min(bounds[b + 1], store.getY(items[c]));
+				bounds[b + 2] = Math.max(bounds[b + 2], store.getX(items[c]));
+				bounds[b + 3] = Math.max(bounds[b + 3], store.getY(items[c]));
+			}
+		}
+
+		// MBRs of nodes at upper levels
+		for (int l = 2; l < numLevels; l++) {
+			for (int j = 0; j < levelSizes[l]; j++) {
+				int b = 4 * (levelOffsets[l] + j);
+				bounds[b] = bounds[b + 1] = Double.POSITIVE_INFINITY;
+				bounds[b + 2] = bounds[b + 3] = Double.NEGATIVE_INFINITY;
+				for (int c = j * this.nodeSize; c < Math.min((j + 1) * this.nodeSize, levelSizes[l - 1]); c++) {
+					int cb = 4 * (levelOffsets[l - 1] + c);
+					bounds[b] = Math.min(bounds[b], bounds[cb]);
+					bounds[b + 1] = Math.min(bounds[b + 1], bounds[cb + 1]);
+					bounds[b + 2] = Math.max(bounds[b + 2], bounds[cb + 2]);
+					bounds[b + 3] = Math.max(bounds[b + 3], bounds[cb + 3]);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Calculates the position of a cell along a Hilbert curve that fills a 2^16 x 2^16 grid.
+	 * @param x  The column of the cell.
+	 * @param y  The row of the cell.
+	 * @return  The position of the cell along the curve.
+	 */
+	private static long hilbert(int x, int y) {
+
+		int n = 1 << 16;
+		long d = 0;
+		for (int s = n / 2; s > 0; s /= 2) {
+			int rx = ((x & s) > 0) ? 1 : 0;
+			int ry = ((y & s) > 0) ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// Rotate the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+
+	@Override
+	public ISpatialCursor browse(V qryLoc) {
+
+		Location p = (Location) qryLoc;
+		return new Browser(p.loc, null);
+	}
+
+
+	/**
+	 * Provides a cursor over the indexed points by ascending distance from the specified query location, skipping the given points.
+	 * Points are excluded by their dense identifiers before their distance is calculated, so their keys never need to be examined.
+	 * @param qryLoc  The query location.
+	 * @param excluded  The dense identifiers of the points to be skipped (e.g., those moved or deleted since the index was built).
+	 * @return  A distance browsing cursor over the index.
+	 */
+	public ISpatialCursor browse(V qryLoc, BitSet excluded) {
+
+		Location p = (Location) qryLoc;
+		return new Browser(p.loc, excluded);
+	}
+
+
+	@Override
+	public Envelope getMBR() {
+
+		int root = levelSizes.length - 1;
+		if (root == 0)
+			return new Envelope();
+		int b = 4 * levelOffsets[root];
+		return new Envelope(bounds[b], bounds[b + 2], bounds[b + 1], bounds[b + 3]);
+	}
+
+
+	@Override
+	public int getDepth() {
+
+		return levelSizes.length - 1;
+	}
+
+
+	@Override
+	public int countItems() {
+
+		return items.length;
+	}
+
+
+	/**
+	 * Makes the index refer to another store, e.g., the one currently in use after the index has been built over a snapshot of it.
+	 * Any point moved or removed in that store since the snapshot must be superseded in the index, as in {@link DeltaSpatialIndex}.
+	 * @param store  The columnar store of point locations.
+	 */
+	public void setStore(PointStore store) {
+
+		this.store = store;
+	}
+
+
+	/**
+	 * Provides the approximate memory footprint of the index, excluding the coordinates of the points.
+	 * @return  The number of bytes occupied by the arrays.
+	 */
+	public long getMemoryFootprint() {
+
+		return 4L * items.length + 8L * bounds.length;
+	}
+
+
+	/**
+	 * Cursor that provides the indexed points by ascending distance from a query geometry.
+	 * A binary heap of primitive entries holds nodes (with the distance of their MBR) and points; for a point query, the distance of a point is exact once computed.
+	 * Otherwise, a point first enters the heap with its distance from the MBR of the query and gets examined again with its exact distance.
+	 */
+	private class Browser implements ISpatialCursor {
+
+		Geometry q;				// The query geometry
+		boolean isPoint;		// Whether the query is a point, so distances can be computed on coordinates
+		double qMinX, qMinY, qMaxX, qMaxY;		// MBR of the query geometry
+		BitSet excluded;		// Dense identifiers of points to be skipped; null, if none
+		double distance;		// Distance of the most recently reported point
+
+		// Binary heap with entries ordered by distance and then by kind
+		// Kind 0: a point with its exact distance; kind 1: a point with a lower bound of its distance; kind l+1: a node at level l
+		double[] heapDistances;
+		int[] heapKinds;
+		int[] heapPositions;	// Dense identifier of a point or position of a node in its level
+		int heapSize;
+
+		/**
+		 * Constructor
+		 * @param q  The query geometry.
+		 * @param excluded  The dense identifiers of points to be skipped; null, if none.
+		 */
+		Browser(Geometry q, BitSet excluded) {
+
+			this.q = q;
+			this.excluded = excluded;
+			this.isPoint = (q instanceof Point) && !q.isEmpty();
+			Envelope env = q.getEnvelopeInternal();
+			this.qMinX = env.getMinX();
+			this.qMinY = env.getMinY();
+			this.qMaxX = env.getMaxX();
+			this.qMaxY = env.getMaxY();
+			this.distance = Double.NaN;
+
+			heapDistances = new double[64];
+			heapKinds = new int[64];
+			heapPositions = new int[64];
+			heapSize = 0;
+
+			// Add the root node or, if there is no node, the single point
+			int root = levelSizes.length - 1;
+			if (root > 0)
+				push(boxDistance(4 * levelOffsets[root]), root + 1, 0);
+			else if (items.length > 0)
+				pushPoint(items[0]);
+		}
+
+		/**
+		 * Distance of the query MBR from the MBR of a node.
+		 */
+		private double boxDistance(int b) {
+
+			double dx = Math.max(0.0, Math.max(bounds[b] - qMaxX, qMinX - bounds[b + 2]));
+			double dy = Math.max(0.0, Math.max(bounds[b + 1] - qMaxY, qMinY - bounds[b + 3]));
+			return Math.sqrt(dx * dx + dy * dy);
+		}
+
+		/**
+		 * Adds a point to the heap with its exact distance from a point query; otherwise, with its distance from the query MBR.
+		 * Points removed from the store since the index was built are skipped, as well as any excluded ones.
+		 */
+		private void pushPoint(int id) {
+
+			if (!store.contains(id) || ((excluded != null) && excluded.get(id)))
+				return;
+			double px = store.getX(id), py = store.getY(id);
+			if (isPoint)
+				push(PointStore.distance(qMinX, qMinY, px, py), 0, id);
+			else {
+				double dx = Math.max(0.0, Math.max(px - qMaxX, qMinX - px));
+				double dy = Math.max(0.0, Math.max(py - qMaxY, qMinY - py));
+				push(Math.sqrt(dx * dx + dy * dy), 1, id);
+			}
+		}
+
+		private boolean less(int a, int b) {
+
+			return (heapDistances[a] < heapDistances[b]) || ((heapDistances[a] == heapDistances[b]) && (heapKinds[a] < heapKinds[b]));
+		}
+
+		private void swap(int a, int b) {
+
+			double d = heapDistances[a]; heapDistances[a] = heapDistances[b]; heapDistances[b] = d;
+			int k = heapKinds[a]; heapKinds[a] = heapKinds[b]; heapKinds[b] = k;
+			int p = heapPositions[a]; heapPositions[a] = heapPositions[b]; heapPositions[b] = p;
+		}
+
+		private void push(double d, int kind, int pos) {
+
+			if (heapSize == heapDistances.length) {
+				heapDistances = Arrays.copyOf(heapDistances, 2 * heapSize);
+				heapKinds = Arrays.copyOf(heapKinds, 2 * heapSize);
+				heapPositions = Arrays.copyOf(heapPositions, 2 * heapSize);
+			}
+			heapDistances[heapSize] = d;
+			heapKinds[heapSize] = kind;
+			heapPositions[heapSize] = pos;
+			// Sift up
+			for (int i = heapSize++; (i > 0) && less(i, (i - 1) / 2); i = (i - 1) / 2)
+				swap(i, (i - 1) / 2);
+		}
+
+		/**
+		 * Removes the top entry of the heap and moves it to the position just after the last entry.
+		 */
+		private void pop() {
+
+			swap(0, --heapSize);
+			// Sift down
+			int i = 0;
+			while (true) {
+				int c = 2 * i + 1;
+				if (c >= heapSize)
+					break;
+				if ((c + 1 < heapSize) && less(c + 1, c))
+					c++;
+				if (!less(c, i))
+					break;
+				swap(i, c);
+				i = c;
+			}
+		}
+
+		@Override
+		public Location next() {
+
+			return next(Double.POSITIVE_INFINITY);
+		}
+
+		@Override
+		public Location next(double bound) {
+
+			// Entries farther than the bound remain in the heap
+			while ((heapSize > 0) && !(heapDistances[0] > bound)) {
+				pop();
+				double d = heapDistances[heapSize];
+				int kind = heapKinds[heapSize];
+				int pos = heapPositions[heapSize];
+				if (kind == 0) {
+					// No other entry in the heap can be closer
+					distance = d;
+					return new Location(store.getKey(pos), store.getPoint(pos), pos);
+				}
+				else if (kind == 1) {
+					// The exact distance of a point may exceed the distance from the query MBR, so it must be examined again
+					push(q.distance(store.getPoint(pos)), 0, pos);
+				}
+				else if (kind == 2) {
+					// Push all points of this node into the heap
+					for (int c = pos * nodeSize; c < Math.min((pos + 1) * nodeSize, items.length); c++)
+						pushPoint(items[c]);
+				}
+				else {
+					// Push all child nodes into the heap according to their distances from the query
+					int level = kind - 2;
+					for (int c = pos * nodeSize; c < Math.min((pos + 1) * nodeSize, levelSizes[level]); c++)
+						push(boxDistance(4 * (levelOffsets[level] + c)), kind - 1, c);
+				}
+			}
+
+			return null;
+		}
+
+		@Override
+		public double getDistance() {
+
+			return distance;
+		}
+	}
+
+}
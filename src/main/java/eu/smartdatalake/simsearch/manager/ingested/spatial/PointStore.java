@@ -0,0 +1,306 @@
+package eu.smartdatalake.simsearch.manager.ingested.spatial;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
+import eu.smartdatalake.simsearch.manager.ingested.IDenseLookup;
+
+/**
+ * Columnar store of POINT locations, which can be used instead of a hash table of (key, geometry) pairs for a spatial attribute.
+ * The coordinates of each entity are kept in two arrays of doubles at the position of its dense identifier in the entity dictionary, so no geometry objects are retained per entity.
+ * A point geometry is only created whenever a location is looked up, e.g., for random access or for reporting results; random access goes by dense identifier, so the store itself serves as the dense look-up of this attribute.
+ * Only POINT geometries can be stored; any other geometries (e.g., polygons, linestrings) are rejected.
+ */
+public class PointStore extends AbstractMap<String, Geometry> implements IDenseLookup<Geometry> {
+
+	private static final GeometryFactory geomFactory = new GeometryFactory();
+
+	EntityDictionary entities;		// Dense identifiers of entities shared by all attributes
+	double[] x;						// Coordinates of each entity at the position of its dense identifier; NaN, if no location is available for this entity
+	double[] y;
+	int size;						// Number of entities with a location
+	int numRejected;				// Number of geometries that could not be stored as points
+
+
+	/**
+	 * Constructor
+	 * @param entities  Dictionary of dense integer identifiers assigned to entities.
+	 */
+	public PointStore(EntityDictionary entities) {
+
+		this.entities = entities;
+		this.x = new double[0];
+		this.y = new double[0];
+		this.size = 0;
+		this.numRejected = 0;
+	}
+
+
+	/**
+	 * Calculates the Euclidean distance between two points; identical to the one computed by JTS between point geometries.
+	 * @param x1  The first ordinate of the first point.
+	 * @param y1  The second ordinate of the first point.
+	 * @param x2  The first ordinate of the second point.
+	 * @param y2  The second ordinate of the second point.
+	 * @return  The distance between the two points.
+	 */
+	public static double distance(double x1, double y1, double x2, double y2) {
+
+		double dx = x1 - x2;
+		double dy = y1 - y2;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+
+	/**
+	 * Stores the location of the given entity, replacing any location previously stored for it.
+	 * @param key  The original identifier of the entity.
+	 * @param lon  The first ordinate (e.g., longitude) of its location.
+	 * @param lat  The second ordinate (e.g., latitude) of its location.
+	 * @return  True, if the entity had no location before; otherwise, False.
+	 */
+	public boolean put(String key, double lon, double lat) {
+
+		int id = entities.encode(key);
+		if (id >= x.length) {
+			int capacity = Math.max(id + 1, Math.max(1024, 2 * x.length));
+			int n = x.length;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			Arrays.fill(x, n, capacity, Double.NaN);
+			Arrays.fill(y, n, capacity, Double.NaN);
+		}
+
+		boolean isNew = Double.isNaN(x[id]);
+		x[id] = lon;
+		y[id] = lat;
+		if (isNew)
+			size++;
+		return isNew;
+	}
+
+
+	/**
+	 * Stores the given point geometry of an entity.
+	 * Unlike a hash table, any geometry other than a non-empty point with valid coordinates (including null) is not stored, but it is counted as rejected.
+	 * @param key  The original identifier of the entity.
+	 * @param g  The point geometry of the entity.
+	 * @return  The location previously stored for this entity, or null if there was none.
+	 */
+	@Override
+	public Geometry put(String key, Geometry g) {
+
+		if (!(g instanceof Point) || g.isEmpty() || Double.isNaN(((Point) g).getX()) || Double.isNaN(((Point) g).getY())) {
+			numRejected++;
+			return null;
+		}
+
+		Geometry prev = get(key);
+		put(key, ((Point) g).getX(), ((Point) g).getY());
+		return prev;
+	}
+
+
+	/**
+	 * Removes the location stored for the given entity, if any.
+	 * @param key  The original identifier of the entity.
+	 * @return  The location previously stored for this entity, or null if there was none.
+	 */
+	@Override
+	public Geometry remove(Object key) {
+
+		Geometry prev = get(key);
+		if (prev != null) {
+			int id = entities.getId(key.toString());
+			x[id] = Double.NaN;
+			y[id] = Double.NaN;
+			size--;
+		}
+		return prev;
+	}
+
+
+	/**
+	 * Creates a copy of this store with its own coordinate arrays, e.g., as a snapshot to build an index while locations keep getting updated.
+	 * @return  A new store with the same locations.
+	 */
+	public PointStore copy() {
+
+		PointStore other = new PointStore(entities);
+		other.x = x.clone();
+		other.y = y.clone();
+		other.size = size;
+		other.numRejected = numRejected;
+		return other;
+	}
+
+
+	/**
+	 * Indicates whether a location is stored for the entity with the given dense identifier.
+	 * @param id  The dense identifier of an entity.
+	 * @return  True, if a location is available; otherwise, False.
+	 */
+	public boolean contains(int id) {
+
+		return (id >= 0) && (id < x.length) && !Double.isNaN(x[id]);
+	}
+
+
+	/**
+	 * Provides the first ordinate (e.g., longitude) of the location of the given entity.
+	 * @param id  The dense identifier of an entity; a location must be stored for it.
+	 * @return  The first ordinate.
+	 */
+	public double getX(int id) {
+
+		return x[id];
+	}
+
+
+	/**
+	 * Provides the second ordinate (e.g., latitude) of the location of the given entity.
+	 * @param id  The dense identifier of an entity; a location must be stored for it.
+	 * @return  The second ordinate.
+	 */
+	public double getY(int id) {
+
+		return y[id];
+	}
+
+
+	/**
+	 * Provides the original identifier of the given entity.
+	 * @param id  The dense identifier of an entity.
+	 * @return  The original identifier (key).
+	 */
+	public String getKey(int id) {
+
+		return entities.decode(id);
+	}
+
+
+	/**
+	 * Creates a point geometry for the location of the given entity.
+	 * @param id  The dense identifier of an entity; a location must be stored for it.
+	 * @return  A point geometry.
+	 */
+	public Point getPoint(int id) {
+
+		return geomFactory.createPoint(new Coordinate(x[id], y[id]));
+	}
+
+
+	@Override
+	public Geometry getValue(int id) {
+
+		return contains(id) ? getPoint(id) : null;
+	}
+
+
+	/**
+	 * Provides the number of positions in the coordinate arrays; all dense identifiers with a stored location are smaller than this.
+	 * @return  The capacity of the store.
+	 */
+	public int capacity() {
+
+		return x.length;
+	}
+
+
+	/**
+	 * Provides the number of geometries that have been rejected, as they were not points.
+	 * @return  The number of rejected geometries.
+	 */
+	public int getNumRejected() {
+
+		return numRejected;
+	}
+
+
+	/**
+	 * Provides the approximate memory footprint of the coordinate arrays.
+	 * @return  The number of bytes occupied by the arrays.
+	 */
+	public long getMemoryFootprint() {
+
+		return 16L * x.length;
+	}
+
+
+	@Override
+	public Geometry get(Object key) {
+
+		if (key == null)
+			return null;
+		int id = entities.getId(key.toString());
+		return contains(id) ? getPoint(id) : null;
+	}
+
+
+	@Override
+	public boolean containsKey(Object key) {
+
+		return (key != null) && contains(entities.getId(key.toString()));
+	}
+
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+
+	@Override
+	public Set<Map.Entry<String, Geometry>> entrySet() {
+
+		return new AbstractSet<Map.Entry<String, Geometry>>() {
+
+			@Override
+			public Iterator<Map.Entry<String, Geometry>> iterator() {
+
+				return new Iterator<Map.Entry<String, Geometry>>() {
+
+					int id = advance(0);		// Next dense identifier with a stored location
+
+					private int advance(int from) {
+						while ((from < x.length) && Double.isNaN(x[from]))
+							from++;
+						return from;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return id < x.length;
+					}
+
+					@Override
+					public Map.Entry<String, Geometry> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						Map.Entry<String, Geometry> entry = new AbstractMap.SimpleImmutableEntry<String, Geometry>(getKey(id), getPoint(id));
+						id = advance(id + 1);
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+}
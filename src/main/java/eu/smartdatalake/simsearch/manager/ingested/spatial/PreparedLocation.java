@@ -0,0 +1,137 @@
+package eu.smartdatalake.simsearch.manager.ingested.spatial;
+
+import java.util.Arrays;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+
+/**
+ * Filter-and-refine support for distance calculations against complex geometries (e.g., polygons, linestrings).
+ * For filtering, a geometry is approximated by a simplified hull, i.e., the intersection of half-planes supporting it along a fixed set of directions.
+ * This provides a lower bound of its distance from any query geometry at a cost independent of the number of its vertices.
+ * For refinement, the exact distance is calculated with a prepared version of the geometry (with its facets indexed), which is created once and cached.
+ * Each instance is attached to its geometry as user data, so it is shared by the index and the lookup of attribute values that refer to the same geometry object.
+ */
+public class PreparedLocation {
+
+	private static final int NUM_DIRECTIONS = 16;		// Directions of the supporting half-planes; evenly spaced, so each one has its opposite at NUM_DIRECTIONS/2 positions apart
+	private static final double[] dirX = new double[NUM_DIRECTIONS];
+	private static final double[] dirY = new double[NUM_DIRECTIONS];
+
+	static {
+		for (int i = 0; i < NUM_DIRECTIONS; i++) {
+			dirX[i] = Math.cos(2 * Math.PI * i / NUM_DIRECTIONS);
+			dirY[i] = Math.sin(2 * Math.PI * i / NUM_DIRECTIONS);
+		}
+	}
+
+	private final Geometry geom;			// The original geometry
+	private final double[] supports;		// Max projection of the geometry along each direction
+	private volatile PreparedGeometry prepared;			// Created on first exact distance calculation
+	private volatile IndexedFacetDistance facets;
+
+
+	/**
+	 * Constructor
+	 * @param g  A non-empty geometry.
+	 */
+	private PreparedLocation(Geometry g) {
+
+		this.geom = g;
+		this.supports = supports(g);
+	}
+
+
+	/**
+	 * Attaches filter-and-refine support to the given geometry, unless it is a point (or empty), for which exact distances are already cheap.
+	 * @param g  A geometry.
+	 * @return  The support attached to this geometry; null, if not applicable.
+	 */
+	public static PreparedLocation prepare(Geometry g) {
+
+		if ((g == null) || (g instanceof Point) || g.isEmpty())
+			return null;
+
+		PreparedLocation pl = get(g);
+		if (pl == null) {
+			pl = new PreparedLocation(g);
+			g.setUserData(pl);
+		}
+		return pl;
+	}
+
+
+	/**
+	 * Provides the filter-and-refine support attached to the given geometry, if any.
+	 * @param g  A geometry.
+	 * @return  The attached support; null, if the geometry has not been prepared.
+	 */
+	public static PreparedLocation get(Geometry g) {
+
+		return ((g != null) && (g.getUserData() instanceof PreparedLocation)) ? (PreparedLocation) g.getUserData() : null;
+	}
+
+
+	/**
+	 * Calculates the max projection of all vertices of a geometry along each direction.
+	 * @param g  A non-empty geometry.
+	 * @return  An array with the support value per direction.
+	 */
+	public static double[] supports(Geometry g) {
+
+		double[] s = new double[NUM_DIRECTIONS];
+		Arrays.fill(s, Double.NEGATIVE_INFINITY);
+		for (Coordinate c : g.getCoordinates()) {
+			for (int i = 0; i < NUM_DIRECTIONS; i++)
+				s[i] = Math.max(s[i], c.x * dirX[i] + c.y * dirY[i]);
+		}
+		return s;
+	}
+
+
+	/**
+	 * Provides a lower bound of the distance of this geometry from a query geometry, as the widest gap between their simplified hulls along any direction.
+	 * @param qSupports  The support values of the query geometry, as calculated by supports().
+	 * @return  A lower bound of the distance.
+	 */
+	public double lowerBound(double[] qSupports) {
+
+		double bound = 0.0;
+		for (int i = 0; i < NUM_DIRECTIONS; i++) {
+			// The query lies beyond -qSupports[opposite] along this direction, whereas this geometry never exceeds supports[i]
+			double q = -qSupports[(i + NUM_DIRECTIONS / 2) % NUM_DIRECTIONS];
+			// Allow for rounding errors, so that the bound never exceeds the exact distance
+			double gap = q - supports[i] - 1e-12 * (Math.abs(q) + Math.abs(supports[i]));
+			bound = Math.max(bound, gap);
+		}
+		return bound;
+	}
+
+
+	/**
+	 * Calculates the exact distance of this geometry from a query geometry using its prepared version.
+	 * @param q  The query geometry.
+	 * @return  The distance; zero, if the geometries intersect.
+	 */
+	public double distance(Geometry q) {
+
+		if (facets == null)
+			facets = new IndexedFacetDistance(geom);
+		double d = facets.distance(q);
+
+		// Facets may be apart, although one geometry contains the other
+		if ((d > 0.0) && ((geom.getDimension() == 2) || (q.getDimension() == 2))) {
+			if (prepared == null)
+				prepared = PreparedGeometryFactory.prepare(geom);
+			if (prepared.intersects(q))
+				d = 0.0;
+		}
+
+		return d;
+	}
+
+}
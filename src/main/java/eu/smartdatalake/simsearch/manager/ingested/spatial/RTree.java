@@ -3,24 +3,30 @@ package eu.smartdatalake.simsearch.manager.ingested.spatial;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.index.strtree.STRtree;
 
-import eu.smartdatalake.simsearch.manager.ingested.Index;
-
 /**
  * Implements an R-tree index based on the JTS STRtree for use in spatial similarity search queries.
  * @param <K>  Type variable representing the keys of the indexed objects.
  * @param <V>  Type variable representing the values of the indexed objects.
  */
-public class RTree<K extends Comparable<? super K>, V> implements Index<Object, Object> {
+public class RTree<K extends Comparable<? super K>, V> implements ISpatialIndex<K, V> {
 
 	public STRtree idx;
 	
 	/**
-	 * Constructor instantiates an STRtree available in the Java Topology Suite (JTS).
+	 * Constructor #1 instantiates an STRtree available in the Java Topology Suite (JTS).
 	 */
 	public RTree() {
 		idx = new STRtree();   
 	}
 	
+	/**
+	 * Constructor #2 instantiates an STRtree with the given node capacity.
+	 * @param nodeCapacity  The maximum number of entries per node.
+	 */
+	public RTree(int nodeCapacity) {
+		idx = new STRtree(nodeCapacity);   
+	}
+	
 	/**
 	 * Inserts the MBR of the given location into the R-tree.
 	 * @param p  The location (including the geometry and an identifier) of the entity.
@@ -34,6 +40,7 @@ public class RTree<K extends Comparable<? super K>, V> implements Index<Object,
 	 * Returns the depth of the R-tree index.
 	 * @return  The depth (=height) of the tree.
 	 */
+	@Override
 	public int getDepth() {
 		return idx.depth();
 	}
@@ -42,6 +49,7 @@ public class RTree<K extends Comparable<? super K>, V> implements Index<Object,
 	 * Returns the number of objects indexed in the R-tree.
 	 * @return  The number of indexed geometries.
 	 */
+	@Override
 	public int countItems() {
 		return idx.size();
 	}
@@ -57,6 +65,7 @@ public class RTree<K extends Comparable<? super K>, V> implements Index<Object,
 	 * Provides the Minimum Bounding Rectangle (MBR) of all geometry locations indexed in the R-tree.
 	 * @return An envelope representing the MBR.
 	 */
+	@Override
 	public Envelope getMBR() {
 		return (Envelope) idx.getRoot().getBounds();
 	}
@@ -74,4 +83,17 @@ public class RTree<K extends Comparable<? super K>, V> implements Index<Object,
 		return idx.nearestNeighbour(p.loc.getEnvelopeInternal(), p, new LocationItemDistance(), k);
 	}
 	
+	/**
+	 * Provides a cursor over the indexed locations by ascending distance from the specified query location.
+	 * Unlike a k-NN search, the number of neighbors need not be known in advance; only those actually consumed are retrieved.
+	 * @param qryLoc  The query location.
+	 * @return  A distance browsing cursor over the R-tree.
+	 */
+	@Override
+	public ISpatialCursor browse(V qryLoc) {
+		
+		Location p = (Location) qryLoc;
+		return new DistanceBrowsing(idx, p.loc);
+	}
+	
 }
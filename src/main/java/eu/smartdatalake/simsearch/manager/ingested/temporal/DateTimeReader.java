@@ -3,18 +3,21 @@ package eu.smartdatalake.simsearch.manager.ingested.temporal;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import eu.smartdatalake.simsearch.Logger;
+import eu.smartdatalake.simsearch.manager.EntityDictionary;
 import eu.smartdatalake.simsearch.manager.ingested.DataFileReader;
 import eu.smartdatalake.simsearch.manager.ingested.numerical.BPlusTree;
+import eu.smartdatalake.simsearch.manager.ingested.numerical.SortedArrayIndex;
 import eu.smartdatalake.simsearch.manager.insitu.JdbcConnector;
 
 /**
  * Consumes data from a CSV file or a table over a JDBC connection and extracts date/time values from a specific attribute.
  * Values are maintained in a hash table taking their keys from another attribute in the file or table. 
- * A B+-tree index may be created from the collected (key,value) pairs.
+ * A B+-tree index or a sorted array index may be created from the collected (key,value) pairs.
  */
 public class DateTimeReader {
 
@@ -159,27 +162,59 @@ public class DateTimeReader {
 	/**
 	 * Builds a B+-tree index based on (key,value) pairs available in a collection.
 	 * CAUTION! Indexes original features without applying normalization.
+	 * The tree is bulk loaded after sorting the pairs by value.
 	 * @param targetData  The collection of data given as (key, value) pairs.
+	 * @param fillFactor  The fraction of the capacity of each node to be filled during bulk loading.
 	 * @param log  Handle to the log file for keeping messages and statistics.
 	 * @return  A handle to the root of the created B+-tree.
 	 */
-	public BPlusTree<Double, String> buildIndex(Map<String, Double> targetData, Logger log) {
+	public BPlusTree<Double, String> buildIndex(Map<String, Double> targetData, double fillFactor, Logger log) {
 
 		BPlusTree<Double, String> index = new BPlusTree<Double, String>(64);
 		
+		long duration = System.nanoTime();
 		int lineCount = 0;
 		try {
-			// Consume data and populate the index
+			// Consume data; CAUTION! Values (doubles) are used as keys for internal nodes in the B+-tree
+			double[] keys = new double[targetData.size()];
+			String[] values = new String[targetData.size()];
 			for (Map.Entry<String, Double> entry : targetData.entrySet()) {
-				//CAUTION! Values (doubles) are used as keys for internal nodes in the B+-tree
-				index.insert(entry.getValue(), entry.getKey());
+				if (entry.getValue() == null)
+					continue;
+				keys[lineCount] = entry.getValue();
+				values[lineCount] = entry.getKey();
 				lineCount++;
 			}
+			keys = Arrays.copyOf(keys, lineCount);
+			values = Arrays.copyOf(values, lineCount);
+			
+			// Populate the index in a single pass over the sorted pairs
+			Double[] sortedKeys = BPlusTree.sort(keys, values);
+			index.bulkLoad(sortedKeys, values, fillFactor);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		duration = System.nanoTime() - duration;
 
-		log.writeln("Finished indexing data. Items indexed: " + lineCount + ".");
+		log.writeln("Finished indexing data. Items indexed: " + lineCount + ". Bulk loading took " + duration / 1000000000.0 + " sec.");
+
+		return index;
+	}
+
+
+	/**
+	 * Builds a read-only index of sorted arrays based on (key,value) pairs available in a collection.
+	 * CAUTION! Indexes original features without applying normalization.
+	 * @param targetData  The collection of data given as (key, value) pairs.
+	 * @param entities  Dictionary of dense integer identifiers to be assigned to the indexed entities.
+	 * @param log  Handle to the log file for keeping messages and statistics.
+	 * @return  A handle to the created index.
+	 */
+	public SortedArrayIndex buildSortedArrayIndex(Map<String, Double> targetData, EntityDictionary entities, Logger log) {
+
+		SortedArrayIndex index = new SortedArrayIndex(targetData, entities);
+
+		log.writeln("Finished indexing data. Items indexed: " + index.getNumEntities() + ".");
 
 		return index;
 	}
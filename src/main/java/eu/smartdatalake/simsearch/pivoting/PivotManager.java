@@ -35,6 +35,7 @@ import eu.smartdatalake.simsearch.manager.ingested.lookup.Word2VectorTransformer
 import eu.smartdatalake.simsearch.manager.DataType;
 import eu.smartdatalake.simsearch.manager.DatasetIdentifier;
 import eu.smartdatalake.simsearch.manager.TransformedDatasetIdentifier;
+import eu.smartdatalake.simsearch.manager.ingested.categorical.TokenInterner;
 import eu.smartdatalake.simsearch.pivoting.rtree.Entry;
 import eu.smartdatalake.simsearch.pivoting.rtree.MultiMetricSimilaritySearch;
 import eu.smartdatalake.simsearch.pivoting.rtree.NearestEntry;
@@ -45,13 +46,15 @@ import eu.smartdatalake.simsearch.pivoting.rtree.geometry.Rectangle;
 /**
  * Creates a pivot-based, multi-dimensional RR*-tree and then handles multi-attribute similarity search requests. 
  * CAUTION! A single instance of this class is created by the coordinator.
+ * Once the index has been built, it is only read during search, and any state of a query (weights, scale factors, similarity measures) is kept per request.
+ * Hence, concurrent search requests can be served by this instance without any locking.
  */
 public class PivotManager {
 
 	Logger log = null;
 	Assistant myAssistant;
 
-	static RTree<Object, Point> tree; 	// Instantiation of an RR*-tree index
+	RTree<Object, Point> tree; 			// Instantiation of an RR*-tree index
 	private int M = 0;  				// Total number of distances (i.e., queryable attributes)
 	private int R;   					// Total number of reference (pivot) values --> This is the admin-specified dimensionality of the RR*-tree
 
@@ -66,20 +69,12 @@ public class PivotManager {
 	Map<String, DatasetIdentifier> datasetIdentifiers;     // All dataset identifiers, in case they include names (non-queryable attribute)
 	String[] attrIdentifiers;
 	
-	// Dictionary holding information per attribute used in estimating similarity scores with exponential decay function
-	Map<String, MetricSimilarity> metricSimilarities;
-	
 	// Sample values per attribute collected for estimations
 	Map<String, List<Point>> samples;
 	
 	// Fixed scaling factors determined during tree construction; alternatively, they can be computed dynamically at query time
 	ScaleFactors scaleFactors;
 	
-	// Estimator to auto-configure weights for attribute(s) in case of no user-specified values 
-	Estimator estimator;
-	
-	long duration;
-
 	private boolean collectQueryStats;
 	
 	// Keep track of any word2vec transformers associated with particular attributes
@@ -241,6 +236,27 @@ public class PivotManager {
 	}
 	
 	
+	/**
+	 * Creates a point from a query set of tokens, using the integers of the tokens as interned for the respective attribute.
+	 * Query tokens are only looked up, so the dictionary does not grow; unknown tokens get negative integers that match no attribute value.
+	 * @param attr  The queried attribute.
+	 * @param dictionary  The dictionary of interned tokens for this attribute.
+	 * @param val  The parsed query value.
+	 * @return  A point with the sorted integers of the query tokens as ordinates.
+	 */
+	private Point constructTokenQueryPoint(String attr, TokenInterner dictionary, Object val) {
+		
+		if (val != null) {
+			List<String> tokens = (val instanceof String[]) ? Arrays.asList((String[]) val) : Arrays.asList(String.valueOf(val));
+			return Point.create(Arrays.stream(dictionary.lookup(tokens, new HashMap<String, Integer>())).asDoubleStream().toArray());
+		}
+		
+		// If value is not specified, a NaN-valued point will be created for this attribute
+		log.writeln("Created NaN point for query value at attribute " + attr + ".");
+		return myAssistant.createNaNPoint(ref.getDimension(attr));
+	}
+	
+	
 	/**
 	 * Indexing stage: Construct an RR*-tree index based on the input records, using the given distances and determining suitable reference points (i.e., pivots)
 	 * @param ref  The distance reference to be used for embedding input records.
@@ -266,7 +282,7 @@ public class PivotManager {
 		
 		try {
 			log.writeln("**************RR*-tree: Estimating number of pivots per distance****************");
-	    	duration = System.nanoTime();
+	    	long duration = System.nanoTime();
 	    	
 	    	// Obtain a random sample of objects per distance
 	    	// CAUTION! Depending on the chosen samples, selection of pivots per distance may be affected
@@ -441,10 +457,11 @@ public class PivotManager {
 	 * @param querySpecs  The query specifications per attribute.
 	 * @param scale  The scale factors to be applied; user-specified values may be set.
 	 * @param attrWeights  The weight combinations per attribute.
+	 * @param metricSimilarities  The similarity measures per attribute for this query; they are set according to the query values.
 	 * @param notification  Message notification to be returned in case of errors.
 	 * @return  The query object to be used in searching the index. 
 	 */
-	private Map<String, Point> setQueryValues(SearchSpecs[] querySpecs, double[] scale, Map<String, Double[]> attrWeights, String notification) {
+	private Map<String, Point> setQueryValues(SearchSpecs[] querySpecs, double[] scale, Map<String, Double[]> attrWeights, Map<String, MetricSimilarity> metricSimilarities, String notification) {
 			
 		boolean unusedFilter = false;   // Notify on any extra boolean filters non applicable to CSV data sources
 		
@@ -481,7 +498,7 @@ public class PivotManager {
 				val = valParser.parse(querySpecs[i].value);
 			
 			// Create a (multi-dimensional) query point
-			Point p = constructQueryPoint(qColumns[i], valParser.getDataType(), val, datasetId.needsTransform());
+			Point p = (datasetId.getTokenDictionary() != null) ? constructTokenQueryPoint(qColumns[i], datasetId.getTokenDictionary(), val) : constructQueryPoint(qColumns[i], valParser.getDataType(), val, datasetId.needsTransform());
         	qPoint.put(qColumns[i], p);
         	qValues[i] = (querySpecs[i].value != null) ? querySpecs[i].value.toString() : "null";
         	
@@ -524,7 +541,7 @@ public class PivotManager {
 	 */
 	public SearchResponse[] search(SearchRequest params) {
 		
-		duration = System.nanoTime();  
+		long duration = System.nanoTime();  
 		
 		SearchResponse[] responses;
 		String notification = "";  // Any extra notification(s) to the final response
@@ -558,7 +575,7 @@ public class PivotManager {
         int weightCombinations = 1;
 		
 		// In case of non-specified weights, create estimators so that they can be assigned dynamically later
-		estimator = new Estimator();
+		Estimator estimator = new Estimator();
 		boolean missingWeights = false;   // By default, assume that all weights are specified 		
 		for (SearchSpecs queryConfig: querySpecs) {
 			if ((queryConfig.weights != null) && (queryConfig.weights.length == 0)) {  // Empty array of weights
@@ -592,7 +609,8 @@ public class PivotManager {
         List<String> missingAttributes = new ArrayList<String>();
         
 		// Initialize the distance similarity to be used per attribute (metric)
-		metricSimilarities = new HashMap<String, MetricSimilarity>();
+		// Dictionary holding information per attribute used in estimating similarity scores with exponential decay function
+		Map<String, MetricSimilarity> metricSimilarities = new HashMap<String, MetricSimilarity>();
 		for (int i = 0 ; i < ref.countMetrics(); i++) {
 			metricSimilarities.put(this.findIdentifier(ref.getAttribute(i)).getHashKey(), null);
 			
@@ -628,10 +646,10 @@ public class PivotManager {
 		Map<String, Double[]> attrWeights = new HashMap<String, Double[]>();
     	
     	// Scale factors to be used in this search
-    	double[] scale = scaleFactors.getAll();   // Default values to apply if not specified in the query configuration
+    	double[] scale = scaleFactors.getAll().clone();   // Default values to apply if not specified in the query configuration; copied, since user-specified values must not affect other queries
 	
         // Query specification: a multi-dimensional point must be constructed per attribute
-    	Map<String, Point> qPoint = setQueryValues(querySpecs, scale, attrWeights, notification);
+    	Map<String, Point> qPoint = setQueryValues(querySpecs, scale, attrWeights, metricSimilarities, notification);
     			
 		// Check whether values have been specified for all queryable attributes
 		if (metricSimilarities.values().contains(null)) {
@@ -656,7 +674,7 @@ public class PivotManager {
 			// Calculate indicative similarity scores based on the sample points
 			for (String attr : attrWeights.keySet()) {
 				if (estimator.hasMissingWeight(attr)) {
-					estimator.setInput(attr, findScoresFromSample(this.findIdentifier(attr).getHashKey(), qPoint.get(attr), samples.get(attr)));
+					estimator.setInput(attr, findScoresFromSample(metricSimilarities.get(this.findIdentifier(attr).getHashKey()), qPoint.get(attr), samples.get(attr)));
 				}
 			}
 			//estimator.proc();		// Estimate based on standard deviation of scores
@@ -698,7 +716,7 @@ public class PivotManager {
 	        }
 	
 	        // Perform a top-k similarity search query with these weights against the multi-dimensional RR*-tree
-	        simQuery = new MultiMetricSimilaritySearch(datasets, attrIdentifiers, ref, w, scaleFactors.getAll(), this.log);
+	        simQuery = new MultiMetricSimilaritySearch(datasets, attrIdentifiers, ref, w, scale, this.log);
 	        Iterable<NearestEntry<Object, Point, Double>> simResults = simQuery.search(tree.root().get(), q, qPoint, topk);
 			int rank = 1;   // ranking order of issued results
 			// Report each result 
@@ -706,7 +724,7 @@ public class PivotManager {
 				// CAUTION! The RR*-tree returns distance values, not similarity scores
 				// This distance is based on pivot embeddings; not on actual distance of this entity from query q
 //				allResults[j][rank-1] = issueRankedResult(rank, r.value().toString(), r.distance(), true);	
-				allResults[j][rank-1] = issueRankedResult(rank, r.value().toString(), r.distance(), qPoint, w, missingAttributes, true);				
+				allResults[j][rank-1] = issueRankedResult(rank, r.value().toString(), r.distance(), qPoint, w, metricSimilarities, missingAttributes, true);				
 				rank++;
 	        }
 			// FIXME: Extra sorting step since the tree utilizes distances instead of similarity scores 
@@ -823,11 +841,12 @@ public class PivotManager {
 	 * @param distByIndex  The weighted distance of this result as returned by the index.
 	 * @param qPoint  The query with its user-specified attribute values.
 	 * @param w  The combination of weights to apply per attribute for estimating the similarity score.
+	 * @param metricSimilarities  The similarity measures per attribute for this query.
 	 * @param missingAttributes  The names of the attributes not specified in the user's query.
 	 * @param exact  Boolean specifying whether this result is exact (true) or approximate (false).
 	 * @return  The next result to report.
 	 */
-	private RankedResult issueRankedResult(int i, Object oid, double distByIndex, Map<String, Point> qPoint, double[] w, List<String> missingAttributes, boolean exact) {
+	private RankedResult issueRankedResult(int i, Object oid, double distByIndex, Map<String, Point> qPoint, double[] w, Map<String, MetricSimilarity> metricSimilarities, List<String> missingAttributes, boolean exact) {
 
 		double score = 0.0;	
 		double sumWeights = Arrays.stream(w).sum();
@@ -898,6 +917,11 @@ public class PivotManager {
 			TransformedDatasetIdentifier id = (TransformedDatasetIdentifier)datasetId;
 			val = datasets.get(id.getOriginal().getHashKey()).get(oid);
 		}
+		// Sets of tokens have been interned, so their integers must be decoded
+		else if (datasetId.getTokenDictionary() != null) {
+			Point p = (Point) datasets.get(datasetId.getHashKey()).get(oid);
+			val = ((p == null) || p.containsNaN()) ? null : datasetId.getTokenDictionary().decode(Arrays.stream(p.mins()).mapToInt(x -> (int) x).toArray());
+		}
 		// Temporal data has been ingested as numerical, so conversion to date/time must be applied
 		else if (datasetId.getDatatype() == DataType.Type.DATE_TIME)
 			val = myAssistant.formatDateValue(datasets.get(datasetId.getHashKey()).get(oid));
@@ -933,18 +957,18 @@ public class PivotManager {
 	
 	/**
 	 * Provides the similarity scores between a query point (on a specific attribute) and a sample collection.
-	 * @param task  Identifier (hash key) of the attribute dataset, in order to apply the relevant distance metric.
+	 * @param metricSimilarity  The similarity measure of this query on the attribute, in order to apply the relevant distance metric.
 	 * @param qPoint  A multi-dimensional (embedded) query point created from the original value on a single attribute.
 	 * @param sample  A sample collection of (embedded) points randomly extracted from the original dataset.
 	 * @return  A list of top-k similarity scores from the sample w.r.t. query point.
 	 */
-	private List<Double> findScoresFromSample(String task, Point qPoint, List<Point> sample) {   //, int k
+	private List<Double> findScoresFromSample(MetricSimilarity metricSimilarity, Point qPoint, List<Point> sample) {   //, int k
 		
 		List<Double> scores = new ArrayList<Double>();	
 		for (Point p: sample) {
-//			double d = metricSimilarities.get(task).calc(qPoint, p);
+//			double d = metricSimilarity.calc(qPoint, p);
 //			System.out.println(qPoint.toString() + " <-> " + p.toString() + " : " + d);
-			scores.add(metricSimilarities.get(task).calc(qPoint, p));
+			scores.add(metricSimilarity.calc(qPoint, p));
 		}
 /*		
 		// Keep only the top-k similarity scores
@@ -1,15 +1,13 @@
 package eu.smartdatalake.simsearch.pivoting.metrics;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
 import eu.smartdatalake.simsearch.engine.IDistance;
+import eu.smartdatalake.simsearch.pivoting.rtree.geometry.Point;
 
 /**
- * Implements calculation of Jaccard distance between two equi-sized sets of tokens (keywords).
+ * Implements calculation of Jaccard distance between two sets of tokens (keywords).
  * This method calculates a metric and is employed in pivot-based similarity search.
- * @param <V>  Type variable to represent the values involved in distance calculations (usually, string arrays).
+ * Each set of tokens is represented as a point whose ordinates are the distinct integers of its interned tokens in ascending order (see TokenInterner).
+ * @param <V>  Type variable to represent the values involved in distance calculations (points with sorted integer ordinates).
  */
 public class JaccardDistance<V> implements IDistance<V> {
 
@@ -24,8 +22,8 @@ public class JaccardDistance<V> implements IDistance<V> {
 	@Override
 	public double calc(V v1, V v2) {
 		
-		// Cast each argument to an array of strings
-		return calc((String[]) v1, (String[]) v2);
+		// Cast each argument to a point holding interned tokens
+		return calc((Point) v1, (Point) v2);
 	}
 	
 	@Override
@@ -36,21 +34,34 @@ public class JaccardDistance<V> implements IDistance<V> {
 
 
 	/**
-	 * Calculates the Jaccard distance between two equi-sized sets of keywords (tokens).
-	 * @param tokens1  An array of string values representing the tokens of an entity.
-	 * @param tokens2  An array of string values representing the token of another entity.
+	 * Calculates the Jaccard distance between two sets of interned tokens by merging their sorted integers; no objects are allocated.
+	 * @param p1  A point with the sorted integers of the tokens of an entity as ordinates.
+	 * @param p2  A point with the sorted integers of the tokens of another entity as ordinates.
 	 * @return  A double value measuring the Jaccard distance between the two entities based on the similarity in their tokens.
 	 */
-	private double calc(String[] tokens1, String[] tokens2) {
+	public double calc(Point p1, Point p2) {
 		
-		Set<String> union = new HashSet<String>(Arrays.asList(tokens1));
-		union.addAll(Arrays.asList(tokens2));
-
-		Set<String> intersection = new HashSet<String>(Arrays.asList(tokens1));
-		intersection.retainAll(Arrays.asList(tokens2));
+		// Special handling of NaN ordinates in the given points
+		if (p1.containsNaN() || p2.containsNaN())
+			// A default (e.g., average or maximal) distance assumed if an operand is NULL (NaN)
+			return nanDistance;
+		
+		double[] r = p1.mins();
+		double[] s = p2.mins();
+		int olap = 0, pr = 0, ps = 0;
+		while ((pr < r.length) && (ps < s.length)) {
+			if (r[pr] == s[ps]) {
+				pr++;
+				ps++;
+				olap++;
+			} else if (r[pr] < s[ps])
+				pr++;
+			else
+				ps++;
+		}
 
 		// Jaccard distance value
-		return (1.0 - (((double) intersection.size()) / ((double) union.size())));
+		return (1.0 - (((double) olap) / ((double) (r.length + s.length - olap))));
 	}
 	
 	@Override
@@ -52,6 +52,15 @@ public class MountSpecs {
 	@ApiModelProperty(required = false, allowableValues = "z, unity", value = "Normalization method to be optionally applied over mumerical values; omit if no normalization should be applied")
 	public String normalized;
 	
+	@ApiModelProperty(required = false, allowableValues = "btree, sorted_array, compressed, points", value = "Type of index to be built over numerical or date/time values (btree, sorted_array), over sets of keywords (compressed) or over locations (points); applicable for ingested data only; a sorted array is more compact and faster to search, but each update copies the entire index; compressed inverted lists take less memory, but must be decoded whenever searched; points keeps the coordinates of POINT locations in columns with a packed R-tree over them, taking far less memory, but any other geometries are skipped; if omitted, a B+-tree, an uncompressed inverted index or an R-tree over geometries is built by default")
+	public String index_type;
+	
+	@ApiModelProperty(required = false, value = "Path to a binary snapshot of the values and the index of a numerical or date/time attribute; if the snapshot exists and its data source has not changed since, the attribute is mounted from it; otherwise, the attribute is ingested from its data source and the snapshot is written to this path; the snapshot is deleted once the attribute gets upserted; only applicable for CSV files, as changes in other sources (e.g., DBMS tables) cannot be detected; omit if no snapshot should be used")
+	public String snapshot;
+	
+	@ApiModelProperty(required = false, value = "Indicates whether the values in this dataset (e.g., a CSV file with changed rows or a database view) are upserted into the numerical, date/time, categorical, textual or spatial attribute already mounted with the same name (search_column or alias_column) and operation; an empty geometry (e.g., POINT EMPTY) or NaN coordinates delete the location of its entity; applicable for ingested data only; if omitted, it is set to false by default")
+	public Boolean upsert;
+	
 	@ApiModelProperty(required = false, value = "Specifies the vocabulary (i.e., another attribute data source) that will be used to transform this data (e.g., from keywords to a numerical vector); omit if no transformation should be applied")
 	public String transform_by;
 	
@@ -14,6 +14,9 @@ public class SearchRequest implements IRequest {
 	@ApiModelProperty(required = false, allowableValues = "threshold, partial_random_access, no_random_access, pivot_based", value = "The ranking method to apply in aggregation; if omitted, threshold algorithm is used by default")
 	public String algorithm;
 	
+	@ApiModelProperty(required = false, value = "The maximum number of candidates to examine from each attribute; if omitted, a multiple of k is used by default")
+	public Integer max_candidates;
+	
 	@ApiModelProperty(required = false, value = "Specifications for writing search results to output file")
 	public SearchOutput output;
 	
@@ -17,6 +17,7 @@ import io.swagger.annotations.ApiParam;
 import eu.smartdatalake.simsearch.Coordinator;
 import eu.smartdatalake.simsearch.InstanceSettings;
 import eu.smartdatalake.simsearch.engine.Response;
+import eu.smartdatalake.simsearch.engine.SearchRejectedException;
 import eu.smartdatalake.simsearch.engine.SearchResponse;
 import eu.smartdatalake.simsearch.manager.AttributeInfo;
 import eu.smartdatalake.simsearch.request.MountRequest;
@@ -34,6 +35,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -51,6 +54,8 @@ public class SimSearchController {
 	Map<String, Set<String>> extraApiKeys;		// For a "master" API key, keep a set of any associated API keys available for search and catalog operations
 	
 	List<String> adminApiKeys;   		// List of admin-defined API keys
+	
+	Map<String, Semaphore> searchPermits;	// For a "master" API key, limit the number of search requests concurrently evaluated
 
 	/**
 	 * Provides the list of API keys defined by the administrator upon launching of the service.
@@ -176,6 +181,9 @@ public class SimSearchController {
 		
 		// Instantiate dictionary to keep any extra API keys
 		extraApiKeys = new HashMap<String, Set<String>>();
+		
+		// Instantiate dictionary to control concurrent search requests per API key
+		searchPermits = new ConcurrentHashMap<String, Semaphore>();
 	}
 
 	
@@ -435,6 +443,7 @@ public class SimSearchController {
 			myCoordinator = null;
 			dictCoordinators.remove(apiKey);
 			extraApiKeys.remove(apiKey);
+			searchPermits.remove(apiKey);
 			unmountResponse.setNotification("SimSearch instance controlled by API key " + apiKey + " is no longer mounted and cannot support any requests. Any associated API keys have been deleted.");
 			return new ResponseEntity<>(unmountResponse, HttpStatus.OK);
 		}
@@ -554,12 +563,27 @@ public class SimSearchController {
 
 		// Identify the coordinator that handles data sources for the specified API key
 		Coordinator myCoordinator = dictCoordinators.get(apiKey);
+		
+		// Admission control: limit the number of concurrent search requests for this API key (including any associated extra keys)
+		Semaphore permits = searchPermits.computeIfAbsent(apiKey, k -> new Semaphore(myCoordinator.getSettings().settings.index.getMaxConcurrentSearches()));
+		if (!permits.tryAcquire()) {
+			myCoordinator.getSettings().settings.index.addRejectedSearch();
+			SearchResponse[] response = new SearchResponse[1];
+			SearchResponse res0 = new SearchResponse();
+			res0.setNotification("Search request rejected, as too many requests are concurrently evaluated for this API key. Please try again later.");
+			response[0] = res0;
+			return new ResponseEntity<>(response, HttpStatus.TOO_MANY_REQUESTS);
+		}
 				
 		// SEARCH
 		try {	
 			// Invoke search with the parameters specified in the query configuration
 			return new ResponseEntity<>(myCoordinator.search(params), HttpStatus.OK);			
 		}
+		catch (SearchRejectedException e) {
+			// Rejected by the shared task scheduler due to excessive load
+			return new ResponseEntity<>(e.getResponses(), HttpStatus.TOO_MANY_REQUESTS);
+		}
 		catch (Exception e) {
 			e.printStackTrace();
 			SearchResponse[] response = new SearchResponse[1];
@@ -568,6 +592,9 @@ public class SimSearchController {
 			response[0] = res0;
 			return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);	
 		}
+		finally {
+			permits.release();
+		}
 	}
 
 }